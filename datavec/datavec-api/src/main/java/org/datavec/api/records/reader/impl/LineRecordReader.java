@@ -33,24 +33,33 @@ import org.datavec.api.records.reader.BaseRecordReader;
 import org.datavec.api.split.InputSplit;
 import org.datavec.api.split.InputStreamInputSplit;
 import org.datavec.api.split.StringSplit;
+import org.datavec.api.split.streams.FileStreamCreatorFunction;
 import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.function.Function;
+import org.nd4j.common.function.Supplier;
 import org.nd4j.common.primitives.Triple;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
- * Reads files line by line
+ * Reads files line by line.<br>
+ * Optionally, local files can be read using memory mapping, with line splitting (and parsing, for subclasses such as
+ * CSVRecordReader) performed on multiple threads - see {@link #setMemoryMappedThreads(int)}. Records are returned
+ * in the same order in both modes.
  *
  * @author Adam Gibson
  */
 @Slf4j
 public class LineRecordReader extends BaseRecordReader {
 
+    public final static String MEMORY_MAPPED_THREADS = NAME_SPACE + ".memorymappedthreads";
+    public final static String MEMORY_MAPPED_CHUNK_SIZE = NAME_SPACE + ".memorymappedchunksize";
 
     private Iterator<String> iter;
     protected URI[] locations;
@@ -60,6 +69,49 @@ public class LineRecordReader extends BaseRecordReader {
     protected boolean initialized;
     @Getter @Setter
     protected String charset = StandardCharsets.UTF_8.name(); //Using String as StandardCharsets.UTF_8 is not serializable
+    protected int memoryMappedThreads = 0;
+    protected long memoryMappedChunkSize = MappedLineIterator.DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Set the number of threads to use for reading local files via memory mapping. Each file is cut into ranges
+     * (on line boundaries) of {@link #setMemoryMappedChunkSize(long)} bytes, which are split into lines - and parsed,
+     * for subclasses that support it - in parallel. Records are still returned in file order, and
+     * {@link RecordMetaDataLine} / loadFromMetaData work as normal.<br>
+     * 0 (default) disables memory mapping. Non-local URIs, custom stream creator functions, and charsets that don't
+     * encode newline as a single byte always use the standard stream-based path.<br>
+     * Can also be set via the configuration key {@link #MEMORY_MAPPED_THREADS}.
+     *
+     * @param memoryMappedThreads Number of threads. 0 to disable memory-mapped reading
+     */
+    public void setMemoryMappedThreads(int memoryMappedThreads) {
+        Preconditions.checkArgument(memoryMappedThreads >= 0, "Number of threads must be >= 0, got %s", memoryMappedThreads);
+        this.memoryMappedThreads = memoryMappedThreads;
+    }
+
+    /**
+     * @return Number of threads used for memory-mapped reading; 0 if disabled
+     */
+    public int getMemoryMappedThreads() {
+        return memoryMappedThreads;
+    }
+
+    /**
+     * Set the size (in bytes) of the file ranges used for memory-mapped reading. Default: 8MB.
+     * Can also be set via the configuration key {@link #MEMORY_MAPPED_CHUNK_SIZE}.
+     *
+     * @param memoryMappedChunkSize Size of each range, in bytes
+     */
+    public void setMemoryMappedChunkSize(long memoryMappedChunkSize) {
+        Preconditions.checkArgument(memoryMappedChunkSize > 0, "Chunk size must be positive, got %s", memoryMappedChunkSize);
+        this.memoryMappedChunkSize = memoryMappedChunkSize;
+    }
+
+    /**
+     * @return Size (in bytes) of the file ranges used for memory-mapped reading
+     */
+    public long getMemoryMappedChunkSize() {
+        return memoryMappedChunkSize;
+    }
 
     @Override
     public void initialize(InputSplit split) throws IOException, InterruptedException {
@@ -78,20 +130,31 @@ public class LineRecordReader extends BaseRecordReader {
     @Override
     public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
         this.conf = conf;
+        this.memoryMappedThreads = conf.getInt(MEMORY_MAPPED_THREADS, this.memoryMappedThreads);
+        this.memoryMappedChunkSize = conf.getLong(MEMORY_MAPPED_CHUNK_SIZE, this.memoryMappedChunkSize);
         initialize(split);
     }
 
     @Override
     public List<Writable> next() {
-        Preconditions.checkState(initialized, "Record reader has not been initialized");
         List<Writable> ret = new ArrayList<>();
+        ret.add(new Text(nextLine()));
+        return ret;
+    }
 
+    /**
+     * Read the next line as a raw String, without wrapping it in a {@link Text} writable.
+     * Used by subclasses (such as CSVRecordReader) that parse the line content directly.
+     *
+     * @return The next line
+     */
+    protected String nextLine() {
+        Preconditions.checkState(initialized, "Record reader has not been initialized");
         if (iter.hasNext()) {
             String record = iter.next();
             invokeListeners(record);
-            ret.add(new Text(record));
             lineIndex++;
-            return ret;
+            return record;
         } else {
             if (!(inputSplit instanceof StringSplit) && splitIndex < locations.length - 1) {
                 splitIndex++;
@@ -107,9 +170,8 @@ public class LineRecordReader extends BaseRecordReader {
                 if (iter.hasNext()) {
                     String record = iter.next();
                     invokeListeners(record);
-                    ret.add(new Text(record));
                     lineIndex++;
-                    return ret;
+                    return record;
                 }
             }
 
@@ -146,12 +208,37 @@ public class LineRecordReader extends BaseRecordReader {
 
     }
 
+    /**
+     * Used only for memory-mapped reading (see {@link #setMemoryMappedThreads(int)}). If non-null, the returned supplier
+     * is used to obtain one parser per file range, on the worker thread. Each line is parsed by the worker, and the
+     * result is available via {@link #lastParsedLine()} after the line has been returned by {@link #nextLine()}.<br>
+     * Parsers obtained from the supplier must not share mutable state, as they are used concurrently.
+     *
+     * @return Line parser supplier, or null (default) if lines should not be parsed by the worker threads
+     */
+    protected Supplier<Function<String, Object>> workerLineParser() {
+        return null;
+    }
+
+    /**
+     * @return The result of the {@link #workerLineParser()} parser for the line last returned by {@link #nextLine()},
+     * or null if that line was not parsed by a worker thread
+     */
+    protected Object lastParsedLine() {
+        if (iter instanceof MappedLineIterator) {
+            return ((MappedLineIterator) iter).lastParsed();
+        }
+        return null;
+    }
+
     @Override
     public void close() throws IOException {
         if (iter != null) {
             if (iter instanceof LineIterator) {
                 LineIterator iter2 = (LineIterator) iter;
                 iter2.close();
+            } else if (iter instanceof MappedLineIterator) {
+                ((MappedLineIterator) iter).close();
             }
         }
     }
@@ -218,7 +305,14 @@ public class LineRecordReader extends BaseRecordReader {
                 }
             }
         } else {
-            if (locations.length > 0) {
+            if (locations.length > 0 && useMemoryMapping(locations[location])) {
+                try {
+                    iterator = new MappedLineIterator(new File(locations[location]), Charset.forName(charset),
+                            memoryMappedThreads, memoryMappedChunkSize, workerLineParser());
+                } catch (IOException e) {
+                    throw new RuntimeException("Error opening file for memory-mapped reading: " + locations[location], e);
+                }
+            } else if (locations.length > 0) {
                 InputStream inputStream = streamCreatorFn.apply(locations[location]);
                 try {
                     iterator = IOUtils.lineIterator(new InputStreamReader(inputStream, charset));
@@ -232,6 +326,12 @@ public class LineRecordReader extends BaseRecordReader {
         return iterator;
     }
 
+    private boolean useMemoryMapping(URI location) {
+        return memoryMappedThreads > 0 && streamCreatorFn instanceof FileStreamCreatorFunction
+                && "file".equalsIgnoreCase(location.getScheme())
+                && MappedLineIterator.isSupportedCharset(Charset.forName(charset));
+    }
+
     protected void closeIfRequired(Iterator<String> iterator) {
         if (iterator instanceof LineIterator) {
             LineIterator iter = (LineIterator) iterator;
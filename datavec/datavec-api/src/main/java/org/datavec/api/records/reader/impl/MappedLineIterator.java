@@ -0,0 +1,280 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl;
+
+import org.nd4j.common.function.Function;
+import org.nd4j.common.function.Supplier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Line iterator for a local file that memory-maps the file, cuts it into byte ranges, and splits/decodes
+ * (and optionally parses) the lines of each range on a pool of worker threads.<br>
+ * Lines are always returned in file order: each line belongs to the range that contains its first byte, and ranges
+ * are consumed in order. Lines are terminated by '\n' or "\r\n", which requires a charset in which '\n' is encoded
+ * as the single byte 0x0A (see {@link #isSupportedCharset(Charset)}).<br>
+ * At most 2 ranges per thread are read ahead at any time, which bounds memory use for large files.
+ */
+public class MappedLineIterator implements Iterator<String>, Closeable {
+
+    public static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long chunkSize;
+    private final Charset charset;
+    private final Supplier<Function<String, Object>> parserSupplier;
+    private final ExecutorService executor;
+    private final int maxChunksInFlight;
+    private final Deque<Future<Chunk>> pending = new ArrayDeque<>();
+
+    private long nextChunkStart = 0;
+    private Chunk current;
+    private int currentIdx;
+    private Object lastParsed;
+
+    /**
+     * @param file           File to read
+     * @param charset        Charset of the file
+     * @param numThreads     Number of worker threads
+     * @param chunkSize      Size (in bytes) of the ranges the file is split into
+     * @param parserSupplier Optional (may be null). If present, one parser is obtained per range, on the worker thread,
+     *                       and applied to each line of that range. The result for the last line returned by
+     *                       {@link #next()} is available from {@link #lastParsed()}
+     */
+    public MappedLineIterator(File file, Charset charset, int numThreads, long chunkSize,
+                              Supplier<Function<String, Object>> parserSupplier) throws IOException {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive, got " + numThreads);
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE - 1)
+            throw new IllegalArgumentException("Chunk size must be in range 1 to " + (Integer.MAX_VALUE - 1) + ", got " + chunkSize);
+        if (!isSupportedCharset(charset))
+            throw new IllegalArgumentException("Charset " + charset + " is not supported: newline must be encoded as a single byte");
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.fileSize = channel.size();
+        this.chunkSize = chunkSize;
+        this.charset = charset;
+        this.parserSupplier = parserSupplier;
+        this.maxChunksInFlight = 2 * numThreads;
+        final int poolIdx = POOL_COUNTER.getAndIncrement();
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "MappedLineIterator-" + poolIdx + "-" + threadCount.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        fillQueue();
+    }
+
+    /**
+     * @param charset Charset to check
+     * @return True if the charset encodes '\n' as the single byte 0x0A (UTF-8, US-ASCII, ISO-8859-1 etc)
+     */
+    public static boolean isSupportedCharset(Charset charset) {
+        return Arrays.equals("\n".getBytes(charset), new byte[]{'\n'}) && Arrays.equals("\r".getBytes(charset), new byte[]{'\r'});
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || currentIdx >= current.lines.size()) {
+            if (pending.isEmpty()) {
+                return false;
+            }
+            Future<Chunk> f = pending.removeFirst();
+            try {
+                current = f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for file chunk", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error reading file chunk", e.getCause());
+            }
+            currentIdx = 0;
+            fillQueue();
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No more lines");
+        lastParsed = (current.parsed == null ? null : current.parsed.get(currentIdx));
+        return current.lines.get(currentIdx++);
+    }
+
+    /**
+     * @return The parsed value for the line last returned by {@link #next()}, or null if no parser was provided
+     */
+    public Object lastParsed() {
+        return lastParsed;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<Chunk> f : pending) {
+            f.cancel(true);
+        }
+        pending.clear();
+        executor.shutdownNow();
+        file.close();
+    }
+
+    private void fillQueue() {
+        while (pending.size() < maxChunksInFlight && nextChunkStart < fileSize) {
+            final long start = nextChunkStart;
+            final long end = Math.min(fileSize, start + chunkSize);
+            nextChunkStart = end;
+            pending.addLast(executor.submit(new Callable<Chunk>() {
+                @Override
+                public Chunk call() throws Exception {
+                    return readChunk(start, end);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Read all lines whose first byte lies in [start, end). The last such line may extend beyond end.
+     */
+    private Chunk readChunk(long start, long end) throws IOException {
+        //Map one extra byte at the start, to determine whether a line begins exactly at 'start'
+        long mapStart = Math.max(0, start - 1);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, end - mapStart);
+        int limit = buffer.limit();
+        int pos = 0;
+        if (start > 0) {
+            //Skip the remainder of the line that started in the previous chunk
+            while (pos < limit && buffer.get(pos) != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+
+        Function<String, Object> parser = (parserSupplier == null ? null : parserSupplier.get());
+        Chunk chunk = new Chunk();
+        byte[] scratch = new byte[1024];
+        int lineStart = pos;
+        for (int i = pos; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                scratch = addLine(chunk, parser, buffer, lineStart, i, scratch);
+                lineStart = i + 1;
+            }
+        }
+
+        if (lineStart < limit) {
+            //Last line started in this chunk, but no newline before the end of the chunk
+            if (end >= fileSize) {
+                scratch = addLine(chunk, parser, buffer, lineStart, limit, scratch);
+            } else {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                for (int i = lineStart; i < limit; i++) {
+                    baos.write(buffer.get(i));
+                }
+                readRemainderOfLine(end, baos);
+                byte[] bytes = baos.toByteArray();
+                addLine(chunk, parser, ByteBuffer.wrap(bytes), 0, bytes.length, scratch);
+            }
+        }
+        return chunk;
+    }
+
+    private void readRemainderOfLine(long position, ByteArrayOutputStream out) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(64 * 1024);
+        while (position < fileSize) {
+            bb.clear();
+            int read = channel.read(bb, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = bb.get(i);
+                if (b == '\n') {
+                    return;
+                }
+                out.write(b);
+            }
+            position += read;
+        }
+    }
+
+    private byte[] addLine(Chunk chunk, Function<String, Object> parser, ByteBuffer buffer, int from, int to, byte[] scratch) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(from);
+        view.get(scratch, 0, length);
+        String line = new String(scratch, 0, length, charset);
+        chunk.lines.add(line);
+        if (parser != null) {
+            if (chunk.parsed == null) {
+                chunk.parsed = new ArrayList<>();
+            }
+            chunk.parsed.add(parser.apply(line));
+        }
+        return scratch;
+    }
+
+    private static class Chunk {
+        private final List<String> lines = new ArrayList<>();
+        private List<Object> parsed;
+    }
+}
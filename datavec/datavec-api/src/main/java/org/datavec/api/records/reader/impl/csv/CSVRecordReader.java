@@ -29,7 +29,15 @@ import org.datavec.api.records.reader.impl.LineRecordReader;
 import org.datavec.api.split.InputSplit;
 import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.NDArrayRecordBatch;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.function.Function;
+import org.nd4j.common.function.Supplier;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 
 import java.io.BufferedReader;
 import java.io.DataInputStream;
@@ -49,8 +57,22 @@ public class CSVRecordReader extends LineRecordReader {
     public final static String SKIP_NUM_LINES = NAME_SPACE + ".skipnumlines";
     public final static String DELIMITER = NAME_SPACE + ".delimiter";
     public final static String QUOTE = NAME_SPACE + ".quote";
+    public final static String COLUMNAR_BATCHES = NAME_SPACE + ".columnarbatches";
+    public final static String COLUMNAR_DATA_TYPE = NAME_SPACE + ".columnardatatype";
 
     private SerializableCSVParser csvParser;
+    private char delimiter;
+    private char quote;
+    protected boolean columnarBatches = false;
+    protected DataType columnarDataType;
+
+    private static final double[] POWERS_OF_10 = new double[23];
+    static {
+        POWERS_OF_10[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_10.length; i++) {
+            POWERS_OF_10[i] = 10.0 * POWERS_OF_10[i - 1];     //Exact up to 1e22
+        }
+    }
 
     /**
      * Skip first n lines
@@ -105,6 +127,8 @@ public class CSVRecordReader extends LineRecordReader {
      */
     public CSVRecordReader(int skipNumLines, char delimiter, char quote) {
         this.skipNumLines = skipNumLines;
+        this.delimiter = delimiter;
+        this.quote = quote;
         this.csvParser = new SerializableCSVParser(delimiter, quote);
     }
 
@@ -129,7 +153,50 @@ public class CSVRecordReader extends LineRecordReader {
     public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
         super.initialize(conf, split);
         this.skipNumLines = conf.getInt(SKIP_NUM_LINES, this.skipNumLines);
-        this.csvParser = new SerializableCSVParser(conf.getChar(DELIMITER, DEFAULT_DELIMITER), conf.getChar(QUOTE, DEFAULT_QUOTE));
+        this.delimiter = conf.getChar(DELIMITER, DEFAULT_DELIMITER);
+        this.quote = conf.getChar(QUOTE, DEFAULT_QUOTE);
+        this.columnarBatches = conf.getBoolean(COLUMNAR_BATCHES, this.columnarBatches);
+        String dt = conf.get(COLUMNAR_DATA_TYPE);
+        if (dt != null)
+            this.columnarDataType = DataType.valueOf(dt.toUpperCase());
+        this.csvParser = new SerializableCSVParser(delimiter, quote);
+    }
+
+    /**
+     * Enable or disable columnar batch mode. When enabled, {@link #next(int)} parses lines directly into one
+     * [minibatch, 1] column array per CSV column (see {@link #setColumnarDataType(DataType)}), returned as a
+     * {@link NDArrayRecordBatch}, instead of creating
+     * one {@link Text} writable per cell. All columns must be numeric in this mode.<br>
+     * Can also be set via the configuration key {@link #COLUMNAR_BATCHES}.
+     *
+     * @param columnarBatches If true: use columnar batch mode for {@link #next(int)}
+     */
+    public void setColumnarBatches(boolean columnarBatches) {
+        this.columnarBatches = columnarBatches;
+    }
+
+    /**
+     * @return True if columnar batch mode is enabled. See {@link #setColumnarBatches(boolean)}
+     */
+    public boolean isColumnarBatches() {
+        return columnarBatches;
+    }
+
+    /**
+     * Set the data type of the column arrays in columnar batch mode (see {@link #setColumnarBatches(boolean)}).
+     * Can also be set via the configuration key {@link #COLUMNAR_DATA_TYPE}.
+     *
+     * @param columnarDataType Data type for the column arrays. If null: {@link Nd4j#defaultFloatingPointType()}
+     */
+    public void setColumnarDataType(DataType columnarDataType) {
+        this.columnarDataType = columnarDataType;
+    }
+
+    /**
+     * @return The data type of the column arrays in columnar batch mode. See {@link #setColumnarDataType(DataType)}
+     */
+    public DataType getColumnarDataType() {
+        return columnarDataType == null ? Nd4j.defaultFloatingPointType() : columnarDataType;
     }
 
     private boolean skipLines() {
@@ -157,6 +224,9 @@ public class CSVRecordReader extends LineRecordReader {
 
     @Override
     public List<List<Writable>> next(int num) {
+        if (columnarBatches) {
+            return nextColumnarBatch(num);
+        }
         List<List<Writable>> ret = new ArrayList<>(Math.min(num, 10000));
         int recordsRead = 0;
         while(hasNext() && recordsRead++ < num) {
@@ -171,16 +241,227 @@ public class CSVRecordReader extends LineRecordReader {
         if (!skipLines())
             throw new NoSuchElementException("No next element found!");
         String val = readStringLine();
+        Object parsed = lastParsedLine();
+        if (parsed != null) {
+            //Already parsed by a worker thread (memory-mapped reading)
+            return (List<Writable>) parsed;
+        }
         return parseLine(val);
     }
 
-    protected List<Writable> parseLine(String line) {
-        String[] split;
+    @Override
+    protected Supplier<Function<String, Object>> workerLineParser() {
+        if (columnarBatches) {
+            //Columnar batches are parsed directly into the column buffers
+            return null;
+        }
+        final char delimiter = this.delimiter;
+        final char quote = this.quote;
+        return new Supplier<Function<String, Object>>() {
+            @Override
+            public Function<String, Object> get() {
+                final SerializableCSVParser parser = new SerializableCSVParser(delimiter, quote);
+                return new Function<String, Object>() {
+                    @Override
+                    public Object apply(String line) {
+                        return parseLine(line, parser);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Read up to num lines, parsing the (numeric) values directly into the data buffers of the column arrays.
+     *
+     * @param num Maximum number of lines to read
+     * @return Batch of [n, 1] column arrays, with n <= num
+     */
+    protected NDArrayRecordBatch nextColumnarBatch(int num) {
+        DataType dataType = getColumnarDataType();
+        INDArray[] columns = null;
+        DataBuffer[] buffers = null;
+        int n = 0;
+        while (n < num && hasNext()) {
+            if (!skipLines())
+                break;
+            String line = readStringLine();
+            if (columns == null) {
+                columns = new INDArray[splitLine(line).length];
+                buffers = new DataBuffer[columns.length];
+                allocateColumns(columns, buffers, dataType, Math.min(num, 10000), 0);
+            } else if (n == columns[0].size(0)) {
+                allocateColumns(columns, buffers, dataType, (int) Math.min(num, 2L * n), n);
+            }
+            parseLineColumnar(line, buffers, n++);
+        }
+
+        if (columns == null)
+            throw new NoSuchElementException("No next element found!");
+
+        List<INDArray> arrays = new ArrayList<>(columns.length);
+        for (INDArray c : columns) {
+            arrays.add(c.size(0) == n ? c : c.get(NDArrayIndex.interval(0, n), NDArrayIndex.all()));
+        }
+        return new NDArrayRecordBatch(arrays);
+    }
+
+    /**
+     * (Re)allocate the column arrays with the given number of rows, keeping the first numRowsToKeep rows
+     */
+    private static void allocateColumns(INDArray[] columns, DataBuffer[] buffers, DataType dataType, int numRows, int numRowsToKeep) {
+        for (int i = 0; i < columns.length; i++) {
+            INDArray arr = Nd4j.createUninitialized(dataType, numRows, 1);
+            if (numRowsToKeep > 0) {
+                arr.get(NDArrayIndex.interval(0, numRowsToKeep), NDArrayIndex.all())
+                        .assign(columns[i].get(NDArrayIndex.interval(0, numRowsToKeep), NDArrayIndex.all()));
+            }
+            columns[i] = arr;
+            buffers[i] = arr.data();
+        }
+    }
+
+    private void parseLineColumnar(String line, DataBuffer[] columns, int row) {
+        if (line.indexOf(quote) >= 0 || line.indexOf(SerializableCSVParser.DEFAULT_ESCAPE_CHARACTER) >= 0) {
+            //Quoted or escaped values: fall back on the full parser
+            String[] split = splitLine(line);
+            if (split.length != columns.length) {
+                throw new IllegalStateException("Invalid line: expected " + columns.length + " columns, got "
+                        + split.length + " for line \"" + line + "\"");
+            }
+            for (int i = 0; i < split.length; i++) {
+                columns[i].put(row, parseDouble(split[i], 0, split[i].length(), line, i));
+            }
+            return;
+        }
+
+        //Fast path: scan for delimiters directly, and parse the values in place
+        int col = 0;
+        int start = 0;
+        int length = line.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || line.charAt(i) == delimiter) {
+                if (col >= columns.length) {
+                    throw new IllegalStateException("Invalid line: expected " + columns.length
+                            + " columns, got more for line \"" + line + "\"");
+                }
+                columns[col].put(row, parseDouble(line, start, i, line, col));
+                col++;
+                start = i + 1;
+            }
+        }
+        if (col != columns.length) {
+            throw new IllegalStateException("Invalid line: expected " + columns.length + " columns, got " + col
+                    + " for line \"" + line + "\"");
+        }
+    }
+
+    /**
+     * Parse the decimal value in value[start, end) without creating a substring. Values with at most 15 significant
+     * digits and a decimal exponent of at most 22 (nearly all CSV values) are computed with one multiplication or
+     * division of two exactly representable doubles, which gives the same (correctly rounded) result as
+     * {@link Double#parseDouble(String)}. Other values are parsed with {@link Double#parseDouble(String)}.
+     */
+    private static double parseDouble(String value, int start, int end, String line, int column) {
+        int s = start;
+        int e = end;
+        while (s < e && value.charAt(s) <= ' ')
+            s++;
+        while (e > s && value.charAt(e - 1) <= ' ')
+            e--;
+
+        int i = s;
+        boolean negative = false;
+        if (i < e && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean anyDigits = false;
+        boolean dot = false;
+        for (; i < e; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                anyDigits = true;
+                if (mantissa == 0 && c == '0') {
+                    //Leading zeros are not significant
+                    if (dot)
+                        exp10--;
+                    continue;
+                }
+                if (++digits > 15)
+                    return parseDoubleFallback(value, start, end, line, column);
+                mantissa = 10 * mantissa + (c - '0');
+                if (dot)
+                    exp10--;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (anyDigits && i < e && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < e && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                negativeExp = value.charAt(i) == '-';
+                i++;
+            }
+            int exp = 0;
+            int expDigits = 0;
+            for (; i < e && expDigits < 4; i++, expDigits++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9')
+                    break;
+                exp = 10 * exp + (c - '0');
+            }
+            if (expDigits == 0)
+                return parseDoubleFallback(value, start, end, line, column);
+            exp10 += negativeExp ? -exp : exp;
+        }
+        if (!anyDigits || i != e || exp10 < -22 || exp10 > 22) {
+            //NaN, Infinity, hex values, large exponents, invalid values, etc
+            return parseDoubleFallback(value, start, end, line, column);
+        }
+
+        double d = exp10 >= 0 ? mantissa * POWERS_OF_10[exp10] : mantissa / POWERS_OF_10[-exp10];
+        return negative ? -d : d;
+    }
+
+    private static double parseDoubleFallback(String value, int start, int end, String line, int column) {
+        String str = value.substring(start, end);
         try {
-            split = csvParser.parseLine(line);
-        } catch(IOException e) {
+            return Double.parseDouble(str);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Columnar batch mode requires numeric values: could not parse value \""
+                    + str + "\" in column " + column + " of line \"" + line + "\"");
+        }
+    }
+
+    private String[] splitLine(String line) {
+        return splitLine(line, csvParser);
+    }
+
+    private static String[] splitLine(String line, SerializableCSVParser parser) {
+        try {
+            return parser.parseLine(line);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    protected List<Writable> parseLine(String line) {
+        return parseLine(line, csvParser);
+    }
+
+    /**
+     * Parse the line using the specified parser. Used by worker threads for memory-mapped reading, as
+     * {@link SerializableCSVParser} instances are not thread safe.
+     */
+    protected List<Writable> parseLine(String line, SerializableCSVParser parser) {
+        String[] split = splitLine(line, parser);
         List<Writable> ret = new ArrayList<>();
         for (String s : split) {
             ret.add(new Text(s));
@@ -190,8 +471,7 @@ public class CSVRecordReader extends LineRecordReader {
 
     protected String readStringLine(){
         Preconditions.checkState(initialized, "RecordReader has not been initialized before use");
-        Text t = (Text) super.next().iterator().next();
-        return t.toString();
+        return nextLine();
     }
 
     @Override
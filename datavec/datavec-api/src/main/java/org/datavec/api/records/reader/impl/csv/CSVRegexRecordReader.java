@@ -57,6 +57,12 @@ public class CSVRegexRecordReader extends CSVRecordReader {
         }
     }
 
+    @Override
+    protected List<Writable> parseLine(String line, SerializableCSVParser parser) {
+        //Regex-based parsing does not use the CSV parser
+        return parseLine(line);
+    }
+
     protected List<Writable> parseLine(String line) {
         String[] split = line.split(delimiter, -1);
         List<Writable> ret = new ArrayList<>();
@@ -0,0 +1,287 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.transform;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.datavec.api.transform.filter.Filter;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.transform.transform.BaseColumnTransform;
+import org.datavec.api.transform.transform.column.RemoveAllColumnsExceptForTransform;
+import org.datavec.api.transform.transform.column.RemoveColumnsTransform;
+import org.datavec.api.transform.transform.column.RenameColumnsTransform;
+import org.datavec.api.writable.Writable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled form of a (non-sequence) {@link TransformProcess}, for executing examples one at a time.<br>
+ * Compilation resolves all column indices once, and converts the action list into a flat array of steps that
+ * operate in-place on a single mutable row:
+ * <ul>
+ *     <li>Single-column transforms ({@link BaseColumnTransform}) replace the value in the row directly. Consecutive
+ *     transforms on the same column are fused, so the intermediate values are never written back to the row</li>
+ *     <li>Filters are evaluated on the row in place</li>
+ *     <li>Column removal is executed as an in-place projection using precomputed indices, and column renaming is
+ *     removed entirely (it does not change the data)</li>
+ *     <li>All other transforms fall back on {@link Transform#map(List)}</li>
+ * </ul>
+ * The output is the same as {@link TransformProcess#execute(List)}.<br>
+ * Instances are thread safe, as long as the underlying transforms and filters are.
+ * Use {@link TransformProcess#compile()} to create an instance.
+ */
+public class CompiledTransformProcess implements Serializable {
+
+    @Getter
+    private final TransformProcess transformProcess;
+    private final int numInputColumns;
+    private final int numOutputColumns;
+    private final Step[] steps;
+
+    /**
+     * @param transformProcess Transform process to compile. Must not contain any sequence operations
+     */
+    public CompiledTransformProcess(@NonNull TransformProcess transformProcess) {
+        this.transformProcess = transformProcess;
+        this.numInputColumns = transformProcess.getInitialSchema().numColumns();
+        this.numOutputColumns = transformProcess.getFinalSchema().numColumns();
+
+        List<Step> list = new ArrayList<>();
+        for (DataAction d : transformProcess.getActionList()) {
+            Step s;
+            if (d.getTransform() != null) {
+                s = compileTransform(d.getTransform());
+            } else if (d.getFilter() != null) {
+                s = new FilterStep(d.getFilter());
+            } else {
+                throw new IllegalArgumentException("Cannot compile TransformProcess: only transforms and filters " +
+                        "are supported for execution of individual examples. Got action: " + d);
+            }
+
+            if (s == null) {
+                continue;
+            }
+            if (s instanceof ColumnStep && !list.isEmpty() && list.get(list.size() - 1) instanceof ColumnStep
+                    && ((ColumnStep) s).column == ((ColumnStep) list.get(list.size() - 1)).column) {
+                list.set(list.size() - 1, ((ColumnStep) list.get(list.size() - 1)).fuse((ColumnStep) s));
+            } else {
+                list.add(s);
+            }
+        }
+        this.steps = list.toArray(new Step[list.size()]);
+    }
+
+    /**
+     * @return Number of steps after compilation
+     */
+    public int numSteps() {
+        return steps.length;
+    }
+
+    /**
+     * Execute the transform process on a single example.
+     *
+     * @param input Input example. Not modified
+     * @return Output example, or null if the example was filtered
+     */
+    public List<Writable> execute(List<Writable> input) {
+        List<Writable> out = new ArrayList<>(Math.max(input.size(), numOutputColumns));
+        return execute(input, out) ? out : null;
+    }
+
+    /**
+     * Execute the transform process on a single example, using the provided list as the working row.
+     * The row can be reused between calls.
+     *
+     * @param input  Input example. Not modified (unless input == row)
+     * @param row    Working row: cleared and populated with the output
+     * @return False if the example was filtered, true otherwise
+     */
+    public boolean execute(List<Writable> input, List<Writable> row) {
+        if (input.size() != numInputColumns) {
+            throw new IllegalStateException("Cannot execute transform process: input writables list length ("
+                    + input.size() + ") does not match expected number of elements (schema: " + numInputColumns + ")");
+        }
+        if (input != row) {
+            row.clear();
+            row.addAll(input);
+        }
+        for (Step s : steps) {
+            if (!s.apply(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Step compileTransform(Transform t) {
+        if (t instanceof RenameColumnsTransform) {
+            //Schema-only change
+            return null;
+        }
+        if (t instanceof BaseColumnTransform && isInPlace((BaseColumnTransform) t)) {
+            BaseColumnTransform bct = (BaseColumnTransform) t;
+            return new ColumnStep(bct.getColumnNumber(), new BaseColumnTransform[]{bct});
+        }
+        if (t instanceof RemoveColumnsTransform || t instanceof RemoveAllColumnsExceptForTransform) {
+            Schema in = t.getInputSchema();
+            Schema out = t.transform(in);
+            int[] sourceIdxs = new int[out.numColumns()];
+            for (int i = 0; i < sourceIdxs.length; i++) {
+                sourceIdxs[i] = in.getIndexOfColumn(out.getName(i));
+                if (sourceIdxs[i] < i || (i > 0 && sourceIdxs[i] <= sourceIdxs[i - 1])) {
+                    //Not an order-preserving projection; should never happen for column removal
+                    return new TransformStep(t);
+                }
+            }
+            return new ProjectionStep(sourceIdxs);
+        }
+        return new TransformStep(t);
+    }
+
+    private static boolean isInPlace(BaseColumnTransform t) {
+        //Column transforms that override map(List) may change the number or order of columns
+        try {
+            return t.getClass().getMethod("map", List.class).getDeclaringClass() == BaseColumnTransform.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CompiledTransformProcess(steps=[");
+        for (int i = 0; i < steps.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(steps[i]);
+        }
+        return sb.append("])").toString();
+    }
+
+    private interface Step extends Serializable {
+        /**
+         * @return False if the example should be removed
+         */
+        boolean apply(List<Writable> row);
+    }
+
+    private static class ColumnStep implements Step {
+        private final int column;
+        private final BaseColumnTransform[] transforms;
+
+        private ColumnStep(int column, BaseColumnTransform[] transforms) {
+            this.column = column;
+            this.transforms = transforms;
+        }
+
+        private ColumnStep fuse(ColumnStep next) {
+            BaseColumnTransform[] all = new BaseColumnTransform[transforms.length + next.transforms.length];
+            System.arraycopy(transforms, 0, all, 0, transforms.length);
+            System.arraycopy(next.transforms, 0, all, transforms.length, next.transforms.length);
+            return new ColumnStep(column, all);
+        }
+
+        @Override
+        public boolean apply(List<Writable> row) {
+            Writable w = row.get(column);
+            for (BaseColumnTransform t : transforms) {
+                w = t.map(w);
+            }
+            row.set(column, w);
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Column(" + column + ", n=" + transforms.length + ")";
+        }
+    }
+
+    private static class FilterStep implements Step {
+        private final Filter filter;
+
+        private FilterStep(Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean apply(List<Writable> row) {
+            return !filter.removeExample(row);
+        }
+
+        @Override
+        public String toString() {
+            return "Filter(" + filter + ")";
+        }
+    }
+
+    private static class ProjectionStep implements Step {
+        private final int[] sourceIdxs;
+
+        private ProjectionStep(int[] sourceIdxs) {
+            this.sourceIdxs = sourceIdxs;
+        }
+
+        @Override
+        public boolean apply(List<Writable> row) {
+            //Source indices are strictly increasing and >= destination index, so the projection can be done in place
+            for (int i = 0; i < sourceIdxs.length; i++) {
+                row.set(i, row.get(sourceIdxs[i]));
+            }
+            for (int i = row.size() - 1; i >= sourceIdxs.length; i--) {
+                row.remove(i);
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Projection(" + sourceIdxs.length + " columns)";
+        }
+    }
+
+    private static class TransformStep implements Step {
+        private final Transform transform;
+
+        private TransformStep(Transform transform) {
+            this.transform = transform;
+        }
+
+        @Override
+        public boolean apply(List<Writable> row) {
+            List<Writable> out = transform.map(row);
+            if (out != row) {
+                row.clear();
+                row.addAll(out);
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Transform(" + transform + ")";
+        }
+    }
+}
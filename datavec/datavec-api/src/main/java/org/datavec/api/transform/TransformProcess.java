@@ -241,6 +241,16 @@ public class TransformProcess implements Serializable {
         return currValues;
     }
 
+    /**
+     * Compile this transform process for faster execution of individual (non-sequence) examples.
+     * See {@link CompiledTransformProcess} for details
+     *
+     * @return Compiled transform process, with the same output as {@link #execute(List)}
+     */
+    public CompiledTransformProcess compile() {
+        return new CompiledTransformProcess(this);
+    }
+
     /**
      *
      * @param input
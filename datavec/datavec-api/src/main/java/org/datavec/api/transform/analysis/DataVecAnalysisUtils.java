@@ -20,6 +20,7 @@
 
 package org.datavec.api.transform.analysis;
 
+import com.tdunning.math.stats.TDigest;
 import org.datavec.api.transform.ColumnType;
 import org.datavec.api.transform.analysis.columns.*;
 import org.datavec.api.transform.analysis.counter.*;
@@ -64,6 +65,50 @@ public class DataVecAnalysisUtils {
     }
 
 
+    /**
+     * Set approximate histograms for all numerical columns (integer, long, double, float, time, boolean), computed
+     * from the t-digest of each column rather than from a second pass over the data.
+     * Other columns are not modified.
+     *
+     * @param columnAnalysis Column analysis, from {@link #convertCounters(List, double[][], List)}
+     * @param minsMaxes      Minimum and maximum values for each column, from {@link #convertCounters(List, double[][], List)}
+     * @param maxHistogramBuckets Number of histogram buckets
+     */
+    public static void histogramsFromDigests(List<ColumnAnalysis> columnAnalysis, double[][] minsMaxes, int maxHistogramBuckets){
+        for (int i = 0; i < columnAnalysis.size(); i++) {
+            ColumnAnalysis ca = columnAnalysis.get(i);
+            if (!(ca instanceof NumericalColumnAnalysis))
+                continue;
+            NumericalColumnAnalysis nca = (NumericalColumnAnalysis) ca;
+            if (nca.getDigest() == null || nca.getCountTotal() == 0)
+                continue;
+
+            double min = minsMaxes[i][0];
+            double max = minsMaxes[i][1];
+            int nBins = maxHistogramBuckets;
+            double[] bins = new double[nBins + 1];
+            double step = (max - min) / nBins;
+            for (int j = 0; j < bins.length; j++) {
+                bins[j] = (j == bins.length - 1 ? max : min + j * step);
+            }
+            nca.setHistogramBuckets(bins);
+            nca.setHistogramBucketCounts(histogramCounts(nca.getDigest(), bins, nca.getCountTotal()));
+        }
+    }
+
+    private static long[] histogramCounts(TDigest digest, double[] bins, long countTotal) {
+        long[] counts = new long[bins.length - 1];
+        long assigned = 0;
+        for (int j = 0; j < counts.length - 1; j++) {
+            //Cumulative counts are rounded, so that the total count is exact
+            long cumulative = Math.round(digest.cdf(bins[j + 1]) * countTotal);
+            counts[j] = Math.max(0, cumulative - assigned);
+            assigned += counts[j];
+        }
+        counts[counts.length - 1] = Math.max(0, countTotal - assigned);
+        return counts;
+    }
+
     public static List<ColumnAnalysis> convertCounters(List<AnalysisCounter> counters, double[][] minsMaxes, List<ColumnType> columnTypes){
         int nColumns = columnTypes.size();
 
@@ -0,0 +1,203 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.transform.analysis;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.transform.analysis.columns.ColumnAnalysis;
+import org.datavec.api.transform.analysis.counter.*;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.primitives.Pair;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass, bounded memory analysis of a data set. Records are added one at a time with {@link #add(List)}, and
+ * instances for different parts of the data (threads, partitions, files) can be combined with {@link #merge(StreamingDataAnalysis)}.<br>
+ * In addition to the statistics of {@link DataAnalysis}, sketches of each column are kept (see {@link ColumnSketchCounter}):
+ * <ul>
+ *     <li>Number of unique values (HyperLogLog++): all columns except bytes and NDArray columns</li>
+ *     <li>Most frequent values (count-min sketch): string, categorical, integer and long columns</li>
+ * </ul>
+ * Quantiles of numerical columns are available from the t-digest of each column analysis. Unlike a two pass analysis,
+ * histograms of numerical columns are estimated from the t-digest, and no histograms are computed for string length
+ * or NDArray columns.
+ */
+public class StreamingDataAnalysis implements Serializable {
+
+    public static final int DEFAULT_TOP_K = 10;
+
+    @Getter
+    private final Schema schema;
+    @Getter
+    private final int topK;
+    private final List<AnalysisCounter> counters;
+    private final List<ColumnSketchCounter> sketches;
+    @Getter
+    private long countTotal;
+
+    public StreamingDataAnalysis(Schema schema) {
+        this(schema, DEFAULT_TOP_K);
+    }
+
+    /**
+     * @param schema Schema of the data
+     * @param topK   Number of most frequent values to track, for string, categorical, integer and long columns
+     */
+    public StreamingDataAnalysis(@NonNull Schema schema, int topK) {
+        this.schema = schema;
+        this.topK = topK;
+        this.counters = new ArrayList<>(schema.numColumns());
+        this.sketches = new ArrayList<>(schema.numColumns());
+        for (ColumnType ct : schema.getColumnTypes()) {
+            counters.add(createCounter(ct));
+            sketches.add(createSketch(ct, topK));
+        }
+    }
+
+    private static AnalysisCounter createCounter(ColumnType ct) {
+        switch (ct) {
+            case String:
+                return new StringAnalysisCounter();
+            case Integer:
+            case Boolean:
+                return new IntegerAnalysisCounter();
+            case Long:
+            case Time:
+                return new LongAnalysisCounter();
+            case Float:
+            case Double:
+                return new DoubleAnalysisCounter();
+            case Categorical:
+                return new CategoricalAnalysisCounter();
+            case Bytes:
+                return new BytesAnalysisCounter();
+            case NDArray:
+                return new NDArrayAnalysisCounter();
+            default:
+                throw new IllegalArgumentException("Unknown column type: " + ct);
+        }
+    }
+
+    private static ColumnSketchCounter createSketch(ColumnType ct, int topK) {
+        switch (ct) {
+            case String:
+            case Categorical:
+            case Integer:
+            case Long:
+                return new ColumnSketchCounter(topK);
+            case Bytes:
+            case NDArray:
+                return null;
+            default:
+                return new ColumnSketchCounter(0);
+        }
+    }
+
+    /**
+     * Add one record to the analysis
+     *
+     * @param record Record to add. Must match the schema
+     * @return This object
+     */
+    public StreamingDataAnalysis add(List<Writable> record) {
+        int size = counters.size();
+        if (size != record.size())
+            throw new IllegalStateException("Writables list and number of columns does not match (" + record.size()
+                            + " vs " + size + ")");
+        for (int i = 0; i < size; i++) {
+            Writable w = record.get(i);
+            counters.get(i).add(w);
+            ColumnSketchCounter s = sketches.get(i);
+            if (s != null) {
+                s.add(w);
+            }
+        }
+        countTotal++;
+        return this;
+    }
+
+    /**
+     * Merge the other analysis into this one. The other analysis should not be used after this call
+     *
+     * @param other Analysis of other records, with the same schema and top K
+     * @return This object
+     */
+    @SuppressWarnings("unchecked")
+    public StreamingDataAnalysis merge(@NonNull StreamingDataAnalysis other) {
+        if (!schema.sameTypes(other.schema))
+            throw new IllegalArgumentException("Cannot merge analysis with different schemas");
+        for (int i = 0; i < counters.size(); i++) {
+            counters.set(i, (AnalysisCounter) counters.get(i).merge(other.counters.get(i)));
+            ColumnSketchCounter s = sketches.get(i);
+            if (s != null) {
+                sketches.set(i, s.merge(other.sketches.get(i)));
+            }
+        }
+        countTotal += other.countTotal;
+        return this;
+    }
+
+    /**
+     * Get the analysis of the data added so far. Histograms of numerical columns are estimated from their t-digest
+     *
+     * @param maxHistogramBuckets Number of histogram buckets for numerical columns
+     * @return Data analysis
+     */
+    public DataAnalysis getDataAnalysis(int maxHistogramBuckets) {
+        double[][] minsMaxes = new double[counters.size()][2];
+        List<ColumnAnalysis> list = DataVecAnalysisUtils.convertCounters(counters, minsMaxes, schema.getColumnTypes());
+        DataVecAnalysisUtils.histogramsFromDigests(list, minsMaxes, maxHistogramBuckets);
+        return new DataAnalysis(schema, list);
+    }
+
+    /**
+     * @param column Name of the column
+     * @return Estimated number of unique values in the column
+     */
+    public long getCardinality(String column) {
+        return getSketch(column).getCardinality();
+    }
+
+    /**
+     * @param column Name of the column
+     * @return Estimated most frequent values in the column, and their estimated counts. Most frequent first
+     */
+    public List<Pair<String, Long>> getTopValues(String column) {
+        return getSketch(column).getTopValues();
+    }
+
+    /**
+     * @param column Name of the column
+     * @return Sketches for the column
+     */
+    public ColumnSketchCounter getSketch(String column) {
+        ColumnSketchCounter s = sketches.get(schema.getIndexOfColumn(column));
+        if (s == null)
+            throw new UnsupportedOperationException("Column \"" + column + "\" of type " + schema.getType(column)
+                            + " is not sketched");
+        return s;
+    }
+}
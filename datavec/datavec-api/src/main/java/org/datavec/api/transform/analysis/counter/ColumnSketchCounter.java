@@ -0,0 +1,203 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.transform.analysis.counter;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.clearspring.analytics.stream.frequency.CountMinSketch;
+import com.clearspring.analytics.stream.frequency.FrequencyMergeException;
+import lombok.Getter;
+import org.datavec.api.transform.analysis.AnalysisCounter;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.primitives.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-size, mergeable sketches of the values in a single column:
+ * <ul>
+ *     <li>A HyperLogLog++ sketch, for estimating the number of unique values</li>
+ *     <li>Optionally, a count-min sketch plus a set of (at most topK) candidate values, for estimating the most
+ *     frequent values and their counts</li>
+ * </ul>
+ * Values are sketched using their String representation ({@link Writable#toString()}).<br>
+ * Memory use does not depend on the number of values: approximately 2^(p+2) bytes for the HyperLogLog++ sketch,
+ * plus (for the count-min sketch) 8 * ceil(2/eps) * ceil(-ln(1-confidence)/ln(2)) bytes.
+ */
+public class ColumnSketchCounter implements AnalysisCounter<ColumnSketchCounter> {
+
+    public static final int DEFAULT_PRECISION = 14;
+    public static final double DEFAULT_EPS = 0.001;
+    public static final double DEFAULT_CONFIDENCE = 0.99;
+    //Fixed: sketches can only be merged if they use the same hash functions
+    private static final int SEED = 12345;
+
+    @Getter
+    private final int topK;
+    private HyperLogLogPlus hll;
+    private CountMinSketch countMin;
+    private Map<String, Long> candidates;
+    //Lower bound on the smallest candidate estimate (estimates only increase), to avoid scanning the candidates
+    private long candidateMin;
+    private long countTotal;
+
+    /**
+     * Create a counter that tracks only the number of unique values
+     */
+    public ColumnSketchCounter() {
+        this(0);
+    }
+
+    /**
+     * @param topK Number of most frequent values to track. 0 to track only the number of unique values
+     */
+    public ColumnSketchCounter(int topK) {
+        this(DEFAULT_PRECISION, topK, DEFAULT_EPS, DEFAULT_CONFIDENCE);
+    }
+
+    /**
+     * @param precision  Precision of the HyperLogLog++ sketch (4 to 25). Relative error is approximately 1.04/sqrt(2^precision)
+     * @param topK       Number of most frequent values to track. 0 to track only the number of unique values
+     * @param eps        Error of the count-min sketch: counts are overestimated by at most eps * (total count)...
+     * @param confidence ... with this probability
+     */
+    public ColumnSketchCounter(int precision, int topK, double eps, double confidence) {
+        if (topK < 0)
+            throw new IllegalArgumentException("topK must be >= 0, got " + topK);
+        this.topK = topK;
+        this.hll = new HyperLogLogPlus(precision);
+        if (topK > 0) {
+            this.countMin = new CountMinSketch(eps, confidence, SEED);
+            this.candidates = new HashMap<>();
+        }
+    }
+
+    /**
+     * @return Estimated number of unique values
+     */
+    public long getCardinality() {
+        return hll.cardinality();
+    }
+
+    /**
+     * @return Number of values added to this counter
+     */
+    public long getCountTotal() {
+        return countTotal;
+    }
+
+    /**
+     * @return Estimated most frequent values (at most topK) and their estimated counts, most frequent first.
+     * Empty if topK == 0
+     */
+    public List<Pair<String, Long>> getTopValues() {
+        List<Pair<String, Long>> out = new ArrayList<>();
+        if (candidates == null)
+            return out;
+        for (Map.Entry<String, Long> e : candidates.entrySet()) {
+            out.add(new Pair<>(e.getKey(), e.getValue()));
+        }
+        Collections.sort(out, new Comparator<Pair<String, Long>>() {
+            @Override
+            public int compare(Pair<String, Long> o1, Pair<String, Long> o2) {
+                int c = Long.compare(o2.getSecond(), o1.getSecond());
+                return c != 0 ? c : o1.getFirst().compareTo(o2.getFirst());
+            }
+        });
+        return out;
+    }
+
+    /**
+     * @param value Value to get the count for
+     * @return Estimated number of occurrences of the value. Never less than the true count. 0 if topK == 0
+     */
+    public long estimateCount(String value) {
+        return countMin == null ? 0 : countMin.estimateCount(value);
+    }
+
+    @Override
+    public ColumnSketchCounter add(Writable writable) {
+        String value = writable.toString();
+        hll.offer(value);
+        countTotal++;
+        if (countMin != null) {
+            countMin.add(value, 1);
+            offerCandidate(value, countMin.estimateCount(value));
+        }
+        return this;
+    }
+
+    @Override
+    public ColumnSketchCounter merge(ColumnSketchCounter other) {
+        if (topK != other.topK)
+            throw new IllegalStateException("Cannot merge counters with different topK values: " + topK + " vs " + other.topK);
+        try {
+            hll.addAll(other.hll);
+        } catch (CardinalityMergeException e) {
+            throw new IllegalStateException("Cannot merge HyperLogLog sketches with different precision", e);
+        }
+        countTotal += other.countTotal;
+        if (countMin != null) {
+            try {
+                countMin = CountMinSketch.merge(countMin, other.countMin);
+            } catch (FrequencyMergeException e) {
+                throw new IllegalStateException("Cannot merge count-min sketches with different sizes", e);
+            }
+            //Candidates from both sides are re-estimated using the merged sketch
+            List<String> all = new ArrayList<>(candidates.keySet());
+            all.addAll(other.candidates.keySet());
+            candidates.clear();
+            candidateMin = 0;
+            for (String s : all) {
+                offerCandidate(s, countMin.estimateCount(s));
+            }
+        }
+        return this;
+    }
+
+    private void offerCandidate(String value, long estimate) {
+        if (candidates.size() < topK || candidates.containsKey(value)) {
+            candidates.put(value, estimate);
+            return;
+        }
+        if (estimate <= candidateMin) {
+            return;
+        }
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> e : candidates.entrySet()) {
+            if (e.getValue() < min) {
+                min = e.getValue();
+                minKey = e.getKey();
+            }
+        }
+        candidateMin = min;
+        if (estimate > min) {
+            candidates.remove(minKey);
+            candidates.put(value, estimate);
+        }
+    }
+}
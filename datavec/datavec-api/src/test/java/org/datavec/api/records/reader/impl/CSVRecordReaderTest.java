@@ -34,9 +34,13 @@ import org.datavec.api.split.partition.NumberOfRecordsPartitioner;
 import org.datavec.api.writable.IntWritable;
 import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.NDArrayRecordBatch;
 import org.junit.Test;
 import org.nd4j.common.tests.BaseND4JTest;
 import org.nd4j.common.io.ClassPathResource;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
 
 import java.io.File;
 import java.io.IOException;
@@ -343,4 +347,78 @@ public class CSVRecordReaderTest  extends BaseND4JTest {
             assertTrue(e.getMessage(), e.getMessage().contains("initialized"));
         }
     }
+
+    @Test
+    public void testColumnarBatches() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("a,b,c");
+        for (int i = 0; i < 5; i++) {
+            lines.add(i + "," + (i * 0.5) + ",\"" + (10 - i) + "\"");
+        }
+        File tempFile = File.createTempFile("csvColumnar", ".csv");
+        tempFile.deleteOnExit();
+        FileUtils.writeLines(tempFile, lines);
+
+        CSVRecordReader expRR = new CSVRecordReader(1, ',');
+        expRR.initialize(new FileSplit(tempFile));
+        CSVRecordReader rr = new CSVRecordReader(1, ',');
+        rr.setColumnarBatches(true);
+        rr.initialize(new FileSplit(tempFile));
+
+        for (int epoch = 0; epoch < 2; epoch++) {
+            int count = 0;
+            while (rr.hasNext()) {
+                List<List<Writable>> batch = rr.next(2);
+                assertTrue(batch instanceof NDArrayRecordBatch);
+                List<INDArray> arrays = ((NDArrayRecordBatch) batch).getArrays();
+                assertEquals(3, arrays.size());
+                long n = arrays.get(0).size(0);
+                assertTrue(n > 0 && n <= 2);
+                for (int i = 0; i < n; i++) {
+                    List<Writable> exp = expRR.next();
+                    for (int j = 0; j < 3; j++) {
+                        assertArrayEquals(new long[]{n, 1}, arrays.get(j).shape());
+                        assertEquals(exp.get(j).toDouble(), arrays.get(j).getDouble(i, 0), 1e-6);
+                    }
+                    count++;
+                }
+            }
+            assertFalse(expRR.hasNext());
+            assertEquals(5, count);
+            rr.reset();
+            expRR.reset();
+        }
+    }
+
+    @Test
+    public void testColumnarBatchesDataType() throws Exception {
+        String[] values = {"0.1", "-123456.789012345", "1e-5", "3.141592653589793238", "2.5E+10", "-0.0", "007",
+                "1e300", "NaN", " 42 "};
+        List<String> lines = new ArrayList<>();
+        for (String v : values) {
+            lines.add(v + "," + v);
+        }
+        File tempFile = File.createTempFile("csvColumnarDouble", ".csv");
+        tempFile.deleteOnExit();
+        FileUtils.writeLines(tempFile, lines);
+
+        CSVRecordReader rr = new CSVRecordReader(0, ',');
+        rr.setColumnarBatches(true);
+        assertEquals(Nd4j.defaultFloatingPointType(), rr.getColumnarDataType());
+        rr.setColumnarDataType(DataType.DOUBLE);
+        rr.initialize(new FileSplit(tempFile));
+
+        List<INDArray> arrays = ((NDArrayRecordBatch) rr.next(values.length + 5)).getArrays();
+        assertEquals(2, arrays.size());
+        for (INDArray arr : arrays) {
+            assertEquals(DataType.DOUBLE, arr.dataType());
+            assertArrayEquals(new long[]{values.length, 1}, arr.shape());
+            for (int i = 0; i < values.length; i++) {
+                //Values must be identical to Double.parseDouble, with no loss of precision
+                assertEquals(Double.doubleToLongBits(Double.parseDouble(values[i])),
+                        Double.doubleToLongBits(arr.getDouble(i, 0)));
+            }
+        }
+        assertFalse(rr.hasNext());
+    }
 }
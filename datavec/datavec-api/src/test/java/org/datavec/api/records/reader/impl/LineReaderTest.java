@@ -26,6 +26,7 @@ import org.apache.commons.io.IOUtils;
 import org.datavec.api.records.Record;
 import org.datavec.api.records.metadata.RecordMetaData;
 import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
 import org.datavec.api.split.FileSplit;
 import org.datavec.api.split.InputSplit;
 import org.datavec.api.split.InputStreamInputSplit;
@@ -47,6 +48,8 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class LineReaderTest extends BaseND4JTest {
 
@@ -164,4 +167,52 @@ public class LineReaderTest extends BaseND4JTest {
 
         assertEquals(9, count);
     }
+
+    @Test
+    public void testMemoryMappedLineReader() throws Exception {
+        File tmpdir = testDir.newFolder();
+        for (int f = 0; f < 3; f++) {
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                lines.add(f + "," + i + "," + (i % 7 == 0 ? "\"quoted,value\"" : "value" + i));
+            }
+            FileUtils.writeLines(new File(tmpdir, "file" + f + ".csv"), lines);
+        }
+
+        for (boolean csv : new boolean[]{false, true}) {
+            LineRecordReader expReader = (csv ? new CSVRecordReader() : new LineRecordReader());
+            expReader.initialize(new FileSplit(tmpdir));
+            LineRecordReader reader = (csv ? new CSVRecordReader() : new LineRecordReader());
+            reader.setMemoryMappedThreads(4);
+            reader.setMemoryMappedChunkSize(100);   //Small chunks: lines span chunk boundaries
+            reader.initialize(new FileSplit(tmpdir));
+
+            for (int epoch = 0; epoch < 2; epoch++) {
+                List<Record> records = new ArrayList<>();
+                while (expReader.hasNext()) {
+                    assertTrue(reader.hasNext());
+                    Record exp = expReader.nextRecord();
+                    Record act = reader.nextRecord();
+                    assertEquals(exp.getRecord(), act.getRecord());
+                    assertEquals(exp.getMetaData().getLocation(), act.getMetaData().getLocation());
+                    records.add(act);
+                }
+                assertFalse(reader.hasNext());
+                assertEquals(600, records.size());
+
+                List<RecordMetaData> meta = new ArrayList<>();
+                for (Record r : records) {
+                    meta.add(r.getMetaData());
+                }
+                List<Record> fromMeta = reader.loadFromMetaData(meta);
+                for (int i = 0; i < records.size(); i++) {
+                    assertEquals(records.get(i).getRecord(), fromMeta.get(i).getRecord());
+                }
+
+                reader.reset();
+                expReader.reset();
+            }
+            reader.close();
+        }
+    }
 }
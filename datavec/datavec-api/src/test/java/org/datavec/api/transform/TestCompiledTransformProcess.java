@@ -0,0 +1,143 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.transform;
+
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.transform.condition.ConditionOp;
+import org.datavec.api.transform.condition.column.DoubleColumnCondition;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.DoubleWritable;
+import org.datavec.api.writable.IntWritable;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.nd4j.common.tests.BaseND4JTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class TestCompiledTransformProcess extends BaseND4JTest {
+
+    private static TransformProcess getTransformProcess() {
+        Schema schema = new Schema.Builder()
+                .addColumnString("str")
+                .addColumnDouble("d0")
+                .addColumnDouble("d1")
+                .addColumnInteger("i0")
+                .addColumnCategorical("cat", "a", "b", "c")
+                .build();
+
+        return new TransformProcess.Builder(schema)
+                .doubleMathOp("d0", MathOp.Multiply, 2.0)
+                .doubleMathOp("d0", MathOp.Add, 1.0)
+                .filter(new DoubleColumnCondition("d1", ConditionOp.LessThan, 0.0))
+                .renameColumn("d1", "d1_renamed")
+                .integerMathOp("i0", MathOp.Subtract, 3)
+                .appendStringColumnTransform("str", "_suffix")
+                .removeColumns("str")
+                .doubleMathOp("d1_renamed", MathOp.Divide, 4.0)
+                .categoricalToOneHot("cat")
+                .doubleMathFunction("d0", MathFunction.LOG)
+                .build();
+    }
+
+    private static List<Writable> randomExample(Random r) {
+        return Arrays.<Writable>asList(new Text("s" + r.nextInt(100)), new DoubleWritable(r.nextDouble()),
+                new DoubleWritable(r.nextGaussian()), new IntWritable(r.nextInt(10)),
+                new Text(String.valueOf((char) ('a' + r.nextInt(3)))));
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted() {
+        TransformProcess tp = getTransformProcess();
+        CompiledTransformProcess compiled = tp.compile();
+        //Two d0 transforms fused, rename removed
+        assertEquals(tp.getActionList().size() - 2, compiled.numSteps());
+
+        Random r = new Random(12345);
+        List<Writable> row = new ArrayList<>();
+        int filteredCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            List<Writable> in = randomExample(r);
+            List<Writable> exp = tp.execute(in);
+            List<Writable> act = compiled.execute(in);
+            assertEquals(exp, act);
+
+            boolean kept = compiled.execute(in, row);
+            assertEquals(exp != null, kept);
+            if (kept) {
+                assertEquals(exp, row);
+                assertEquals(tp.getFinalSchema().numColumns(), row.size());
+            } else {
+                filteredCount++;
+            }
+        }
+        assertTrue(filteredCount > 0);
+    }
+
+    @Test
+    public void testCompileSequenceFails() {
+        Schema schema = new Schema.Builder().addColumnString("s").build();
+        TransformProcess tp = new TransformProcess.Builder(schema)
+                .convertToSequence()
+                .build();
+        try {
+            tp.compile();
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Cannot compile"));
+        }
+    }
+
+    @Test
+    @Ignore("Manual performance comparison")
+    public void testCompiledPerformance() {
+        TransformProcess tp = getTransformProcess();
+        CompiledTransformProcess compiled = tp.compile();
+        Random r = new Random(12345);
+        List<List<Writable>> data = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            data.add(randomExample(r));
+        }
+
+        List<Writable> row = new ArrayList<>();
+        for (int rep = 0; rep < 10; rep++) {
+            long start = System.nanoTime();
+            for (List<Writable> l : data) {
+                tp.execute(l);
+            }
+            long interpreted = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (List<Writable> l : data) {
+                compiled.execute(l, row);
+            }
+            long compiledTime = System.nanoTime() - start;
+            log.info("Interpreted: {} ms, compiled: {} ms", interpreted / 1000000, compiledTime / 1000000);
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.datavec.arrow;
 
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import io.netty.buffer.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
 import org.apache.arrow.vector.*;
@@ -46,6 +47,14 @@ import org.datavec.api.util.ndarray.RecordConverter;
 import org.datavec.api.writable.*;
 import org.datavec.arrow.recordreader.ArrowWritableRecordBatch;
 import org.datavec.arrow.recordreader.ArrowWritableRecordTimeSeriesBatch;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.LongPointer;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.javacpp.indexer.IntIndexer;
+import org.bytedeco.javacpp.indexer.LongIndexer;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -191,6 +200,51 @@ public class ArrowConverter {
     }
 
 
+    /**
+     * Create a column vector that is a view of the data buffer of a fixed width numeric arrow vector, without
+     * copying the data: the returned array points directly to the (off-heap) arrow memory.<br>
+     * Supported vector types: {@link IntVector} (INT), {@link BigIntVector} (LONG), {@link Float4Vector} (FLOAT) and
+     * {@link Float8Vector} (DOUBLE). Vectors with null values are not supported, as the validity buffer is not used.<br>
+     * <b>Note</b>: the returned array is only valid as long as the arrow vector's memory has not been released.
+     *
+     * @param fieldVector the field vector to wrap
+     * @return a [numRows, 1] column vector backed by the arrow memory
+     */
+    public static INDArray columnVectorView(FieldVector fieldVector) {
+        int rows = fieldVector.getValueCount();
+        if (fieldVector.getNullCount() > 0) {
+            throw new ND4JIllegalArgumentException("Cannot create view of arrow vector \"" + fieldVector.getField().getName()
+                    + "\": vector contains " + fieldVector.getNullCount() + " null values");
+        }
+        ArrowBuf arrowBuf = fieldVector.getDataBuffer();
+        DataBuffer buffer;
+        if (fieldVector instanceof IntVector) {
+            IntPointer pointer = new IntPointer(nioView(arrowBuf, rows * 4L).asIntBuffer());
+            buffer = Nd4j.createBuffer(pointer, DataType.INT, rows, IntIndexer.create(pointer));
+        } else if (fieldVector instanceof BigIntVector) {
+            LongPointer pointer = new LongPointer(nioView(arrowBuf, rows * 8L).asLongBuffer());
+            buffer = Nd4j.createBuffer(pointer, DataType.LONG, rows, LongIndexer.create(pointer));
+        } else if (fieldVector instanceof Float4Vector) {
+            FloatPointer pointer = new FloatPointer(nioView(arrowBuf, rows * 4L).asFloatBuffer());
+            buffer = Nd4j.createBuffer(pointer, DataType.FLOAT, rows, FloatIndexer.create(pointer));
+        } else if (fieldVector instanceof Float8Vector) {
+            DoublePointer pointer = new DoublePointer(nioView(arrowBuf, rows * 8L).asDoubleBuffer());
+            buffer = Nd4j.createBuffer(pointer, DataType.DOUBLE, rows, DoubleIndexer.create(pointer));
+        } else {
+            throw new ND4JIllegalArgumentException("Cannot create view of arrow vector \"" + fieldVector.getField().getName()
+                    + "\": only fixed width numeric vectors are supported, got " + fieldVector.getClass().getSimpleName());
+        }
+        return Nd4j.create(buffer, new long[]{rows, 1});
+    }
+
+    private static ByteBuffer nioView(ArrowBuf arrowBuf, long numBytes) {
+        if (numBytes > arrowBuf.capacity()) {
+            throw new IllegalStateException("Arrow buffer capacity " + arrowBuf.capacity() + " is less than required size " + numBytes);
+        }
+        //Direct buffer sharing the arrow memory - no copy
+        return arrowBuf.nioBuffer(0, (int) numBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
     /**
      * Convert an {@link INDArray}
      * to a list of column vectors or a singleton
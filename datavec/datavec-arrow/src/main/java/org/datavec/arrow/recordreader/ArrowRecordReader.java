@@ -21,8 +21,10 @@
 package org.datavec.arrow.recordreader;
 
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.apache.arrow.vector.FieldVector;
 import org.datavec.api.conf.Configuration;
 import org.datavec.api.records.Record;
 import org.datavec.api.records.listener.RecordListener;
@@ -33,19 +35,41 @@ import org.datavec.api.split.FileSplit;
 import org.datavec.api.split.InputSplit;
 import org.datavec.api.transform.schema.Schema;
 import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.NDArrayRecordBatch;
+import org.datavec.arrow.ArrowConverter;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.net.URI;
 import java.util.*;
 
 import static org.datavec.arrow.ArrowConverter.readFromBytes;
 
+/**
+ * Record reader for arrow files: each file is read as one {@link ArrowWritableRecordBatch}.<br>
+ * Optionally ({@link #setNdArrayBatches(boolean)} or {@link #NDARRAY_BATCHES}), {@link #next(int)} returns an
+ * {@link NDArrayRecordBatch} whose column arrays are zero-copy views of the arrow column buffers (see
+ * {@link ArrowConverter#columnVectorView(FieldVector)}). This requires all columns to be null-free, fixed width
+ * numeric columns (int, long, float or double). The arrow memory of a file is released once the reader has moved
+ * on to the next file and all arrays viewing that file have been garbage collected, or when the reader is closed.
+ * A batch never spans multiple files, so it may have fewer than the requested number of rows.
+ */
 @Slf4j
 public class ArrowRecordReader implements RecordReader {
 
+    /**
+     * Boolean configuration key: if true, {@link #next(int)} returns zero-copy {@link NDArrayRecordBatch} instances
+     */
+    public static final String NDARRAY_BATCHES = NAME_SPACE + ".arrow.ndarraybatches";
+
     private InputSplit split;
     private Configuration configuration;
     private Iterator<String> pathsIter;
@@ -56,6 +80,15 @@ public class ArrowRecordReader implements RecordReader {
     @Getter
     private ArrowWritableRecordBatch currentBatch;
     private List<RecordListener> recordListeners;
+    @Getter
+    @Setter
+    private boolean ndArrayBatches;
+
+    //Zero-copy column views for the current batch, and bookkeeping for releasing batches no longer referenced
+    private List<INDArray> currentColumns;
+    private final ReferenceQueue<DataBuffer> collectedBuffers = new ReferenceQueue<>();
+    private final Map<Reference<DataBuffer>, ArrowWritableRecordBatch> bufferToBatch = new HashMap<>();
+    private final Map<ArrowWritableRecordBatch, Integer> liveBufferCounts = new IdentityHashMap<>();
 
     @Override
     public void initialize(InputSplit split) {
@@ -67,6 +100,7 @@ public class ArrowRecordReader implements RecordReader {
     public void initialize(Configuration conf, InputSplit split) {
         this.split = split;
         this.pathsIter = split.locationsPathIterator();
+        this.ndArrayBatches = conf.getBoolean(NDARRAY_BATCHES, ndArrayBatches);
 
     }
 
@@ -77,6 +111,9 @@ public class ArrowRecordReader implements RecordReader {
 
     @Override
     public List<List<Writable>> next(int num) {
+        if (ndArrayBatches) {
+            return nextNDArrayBatch(num);
+        }
         if (currentBatch == null || currIdx >= currentBatch.size()) {
             loadNextBatch();
         }
@@ -87,8 +124,7 @@ public class ArrowRecordReader implements RecordReader {
         }
         else {
             List<List<Writable>> ret = new ArrayList<>(num);
-            int numBatches = 0;
-            while(hasNext() && numBatches < num) {
+            while(hasNext() && ret.size() < num) {
                 ret.add(next());
             }
 
@@ -111,7 +147,89 @@ public class ArrowRecordReader implements RecordReader {
 
     }
 
+    private List<List<Writable>> nextNDArrayBatch(int num) {
+        if (currentBatch == null || currIdx >= currentBatch.size()) {
+            loadNextBatch();
+            //loadNextBatch pre-reads the first record for next(); rows are returned from the column views instead
+            currIdx = 0;
+        }
+
+        if (currentColumns == null) {
+            List<FieldVector> vectors = currentBatch.getList();
+            currentColumns = new ArrayList<>(vectors.size());
+            for (FieldVector fieldVector : vectors) {
+                INDArray column = ArrowConverter.columnVectorView(fieldVector);
+                track(column.data(), currentBatch);
+                currentColumns.add(column);
+            }
+        }
+
+        int start = currentBatch.getOffset() + currIdx;
+        int n = Math.min(num, currentBatch.size() - currIdx);
+        List<INDArray> out = new ArrayList<>(currentColumns.size());
+        for (INDArray column : currentColumns) {
+            if (start == 0 && n == column.rows()) {
+                out.add(column);
+            } else {
+                out.add(column.get(NDArrayIndex.interval(start, start + n), NDArrayIndex.all()));
+            }
+        }
+        currIdx += n;
+        return new NDArrayRecordBatch(out);
+    }
+
+    private void track(DataBuffer buffer, ArrowWritableRecordBatch batch) {
+        bufferToBatch.put(new PhantomReference<>(buffer, collectedBuffers), batch);
+        Integer count = liveBufferCounts.get(batch);
+        liveBufferCounts.put(batch, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Close any batches (other than the current one) for which all column views have been garbage collected
+     */
+    private void releaseCollectedBatches() {
+        Reference<? extends DataBuffer> ref;
+        while ((ref = collectedBuffers.poll()) != null) {
+            ArrowWritableRecordBatch batch = bufferToBatch.remove(ref);
+            if (batch == null) {
+                continue;
+            }
+            int count = liveBufferCounts.get(batch) - 1;
+            if (count == 0) {
+                liveBufferCounts.remove(batch);
+                if (batch != currentBatch) {
+                    closeBatch(batch);
+                }
+            } else {
+                liveBufferCounts.put(batch, count);
+            }
+        }
+    }
+
+    private void retireCurrentBatch() {
+        if (!ndArrayBatches) {
+            //Writable batches returned by next(int) reference the arrow vectors directly
+            return;
+        }
+        currentColumns = null;
+        if (currentBatch != null && !liveBufferCounts.containsKey(currentBatch)) {
+            //No views were ever created (or all have been collected already)
+            closeBatch(currentBatch);
+        }
+        currentBatch = null;
+        releaseCollectedBatches();
+    }
+
+    private static void closeBatch(ArrowWritableRecordBatch batch) {
+        try {
+            batch.close();
+        } catch (IOException e) {
+            log.error("", e);
+        }
+    }
+
     private void loadNextBatch() {
+        retireCurrentBatch();
         String url = pathsIter.next();
         try (InputStream inputStream = split.openInputStreamFor(url)) {
             currIdx = 0;
@@ -134,7 +252,7 @@ public class ArrowRecordReader implements RecordReader {
 
     @Override
     public boolean hasNext() {
-        return pathsIter.hasNext() || currIdx < this.currentBatch.size();
+        return pathsIter.hasNext() || (currentBatch != null && currIdx < this.currentBatch.size());
     }
 
     @Override
@@ -146,7 +264,11 @@ public class ArrowRecordReader implements RecordReader {
     public void reset() {
         if(split != null) {
             split.reset();
+            this.pathsIter = split.locationsPathIterator();
         }
+        retireCurrentBatch();
+        this.currentBatch = null;
+        this.currIdx = 0;
     }
 
     @Override
@@ -232,13 +354,17 @@ public class ArrowRecordReader implements RecordReader {
 
     @Override
     public void close() {
-        if(currentBatch != null) {
-            try {
-                currentBatch.close();
-            } catch (IOException e) {
-                log.error("",e);
-            }
+        if(currentBatch != null && !liveBufferCounts.containsKey(currentBatch)) {
+            closeBatch(currentBatch);
+        }
+        //Any remaining views of closed batches are invalid after this point
+        for(ArrowWritableRecordBatch batch : liveBufferCounts.keySet()) {
+            closeBatch(batch);
         }
+        liveBufferCounts.clear();
+        bufferToBatch.clear();
+        currentColumns = null;
+        currentBatch = null;
     }
 
     @Override
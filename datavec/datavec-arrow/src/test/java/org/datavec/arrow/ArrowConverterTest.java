@@ -40,12 +40,14 @@ import org.datavec.api.split.FileSplit;
 import org.datavec.api.transform.ColumnType;
 import org.datavec.api.transform.schema.Schema;
 import org.datavec.api.writable.*;
+import org.datavec.api.writable.batch.NDArrayRecordBatch;
 import org.datavec.arrow.recordreader.ArrowRecordReader;
 import org.datavec.arrow.recordreader.ArrowWritableRecordBatch;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.nd4j.common.tests.BaseND4JTest;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.Pair;
@@ -294,6 +296,57 @@ public class ArrowConverterTest extends BaseND4JTest {
     }
 
 
+    @Test
+    public void testColumnVectorView() {
+        BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+        val vectorFloat = ArrowConverter.vectorFor(allocator,"field1",new float[]{1,2,3});
+        INDArray viewFloat = ArrowConverter.columnVectorView(vectorFloat);
+        assertEquals(DataType.FLOAT,viewFloat.dataType());
+        assertArrayEquals(new long[]{3,1},viewFloat.shape());
+        assertEquals(Nd4j.createFromArray(1f,2f,3f).reshape(3,1),viewFloat);
+
+        //View shares the arrow memory
+        vectorFloat.set(1,10f);
+        assertEquals(10f,viewFloat.getFloat(1),0f);
+
+        INDArray viewInt = ArrowConverter.columnVectorView(ArrowConverter.vectorFor(allocator,"field1",new int[]{4,5,6}));
+        assertEquals(Nd4j.createFromArray(4,5,6).reshape(3,1),viewInt);
+        INDArray viewLong = ArrowConverter.columnVectorView(ArrowConverter.vectorFor(allocator,"field1",new long[]{7,8,9}));
+        assertEquals(Nd4j.createFromArray(7L,8L,9L).reshape(3,1),viewLong);
+        INDArray viewDouble = ArrowConverter.columnVectorView(ArrowConverter.vectorFor(allocator,"field1",new double[]{1,2,3}));
+        assertEquals(Nd4j.createFromArray(1.0,2.0,3.0).reshape(3,1),viewDouble);
+    }
+
+    @Test
+    public void testRecordReaderNDArrayBatches() throws Exception {
+        List<List<Writable>> records = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            records.add(Arrays.<Writable>asList(new FloatWritable(i),new FloatWritable(2 * i)));
+        }
+        Schema schema = new Schema.Builder().addColumnFloat("col-0").addColumnFloat("col-1").build();
+        File tmp = tmpDataFile(Pair.of(schema,records));
+
+        ArrowRecordReader recordReader = new ArrowRecordReader();
+        recordReader.setNdArrayBatches(true);
+        recordReader.initialize(new FileSplit(tmp));
+
+        int count = 0;
+        while(recordReader.hasNext()) {
+            List<List<Writable>> batch = recordReader.next(4);
+            assertTrue(batch instanceof NDArrayRecordBatch);
+            List<INDArray> columns = ((NDArrayRecordBatch) batch).getArrays();
+            assertEquals(2,columns.size());
+            assertEquals(Math.min(4,10 - count),columns.get(0).rows());
+            for(int i = 0; i < columns.get(0).rows(); i++) {
+                assertEquals(count + i,columns.get(0).getFloat(i,0),0f);
+                assertEquals(2 * (count + i),columns.get(1).getFloat(i,0),0f);
+            }
+            count += columns.get(0).rows();
+        }
+        assertEquals(10,count);
+        recordReader.close();
+    }
+
     @Test
     public void testConvertToArrowVectors() {
         INDArray matrix = Nd4j.linspace(1,4,4).reshape(2,2);
@@ -41,6 +41,7 @@ import org.datavec.api.writable.IntWritable;
 import org.datavec.api.writable.NDArrayWritable;
 import org.datavec.api.writable.Writable;
 import org.datavec.api.writable.batch.NDArrayRecordBatch;
+import org.datavec.image.data.ImageWritable;
 import org.datavec.image.loader.BaseImageLoader;
 import org.datavec.image.loader.ImageLoader;
 import org.datavec.image.loader.NativeImageLoader;
@@ -52,6 +53,8 @@ import org.nd4j.linalg.factory.Nd4j;
 import java.io.*;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public abstract class BaseImageRecordReader extends BaseRecordReader {
@@ -78,12 +81,22 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
     protected boolean logLabelCountOnInit = true;
     @Getter @Setter
     protected boolean nchw_channels_first = true;
+    /**
+     * Number of worker threads used to decode the images of a minibatch in {@link #next(int)}. 0 or 1: decode on
+     * the calling thread
+     */
+    @Getter
+    protected int numDecodeThreads = 0;
+    protected transient ExecutorService decodeExecutor;
+    protected transient ThreadLocal<NativeImageLoader> workerImageLoader;
+    protected transient OrderedImageTransform workerImageTransform;
 
     public final static String HEIGHT = NAME_SPACE + ".height";
     public final static String WIDTH = NAME_SPACE + ".width";
     public final static String CHANNELS = NAME_SPACE + ".channels";
     public final static String CROP_IMAGE = NAME_SPACE + ".cropimage";
     public final static String IMAGE_LOADER = NAME_SPACE + ".imageloader";
+    public final static String DECODE_THREADS = NAME_SPACE + ".decodethreads";
 
     public BaseImageRecordReader() {}
 
@@ -127,6 +140,8 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
 
     @Override
     public void initialize(InputSplit split) throws IOException {
+        //Worker image loaders may use a previous image transform or image size
+        shutdownDecodeExecutor();
         if (imageLoader == null) {
             imageLoader = new NativeImageLoader(height, width, channels, imageTransform);
         }
@@ -183,6 +198,7 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
         this.width = conf.getLong(WIDTH, width);
         this.channels = conf.getLong(CHANNELS, channels);
         this.cropImage = conf.getBoolean(CROP_IMAGE, cropImage);
+        setNumDecodeThreads(conf.getInt(DECODE_THREADS, numDecodeThreads));
         if ("imageio".equals(conf.get(IMAGE_LOADER))) {
             this.imageLoader = new ImageLoader(height, width, channels, cropImage);
         } else {
@@ -339,13 +355,17 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
 
         INDArray features = Nd4j.createUninitialized(new long[] {cnt, channels, height, width}, 'c');
         Nd4j.getAffinityManager().tagLocation(features, AffinityManager.Location.HOST);
-        for (int i = 0; i < cnt; i++) {
-            try {
-                ((NativeImageLoader) imageLoader).asMatrixView(currBatch.get(i),
-                        features.tensorAlongDimension(i, 1, 2, 3));
-            } catch (Exception e) {
-                System.out.println("Image file failed during load: " + currBatch.get(i).getAbsolutePath());
-                throw new RuntimeException(e);
+        if (numDecodeThreads > 1 && cnt > 1 && imageLoader.getClass() == NativeImageLoader.class) {
+            loadBatchParallel(currBatch, features);
+        } else {
+            for (int i = 0; i < cnt; i++) {
+                try {
+                    ((NativeImageLoader) imageLoader).asMatrixView(currBatch.get(i),
+                            features.tensorAlongDimension(i, 1, 2, 3));
+                } catch (Exception e) {
+                    System.out.println("Image file failed during load: " + currBatch.get(i).getAbsolutePath());
+                    throw new RuntimeException(e);
+                }
             }
         }
         if(!nchw_channels_first){
@@ -398,9 +418,102 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
         return new NDArrayRecordBatch(ret);
     }
 
+    /**
+     * Set the number of worker threads used to decode the images of a minibatch in {@link #next(int)}.
+     * Each worker decodes, converts and scales images directly into its slice of the minibatch features array.
+     * As {@link ImageTransform} instances are not thread safe, the image transform (if any) is still applied to
+     * one image at a time, in example order: random transforms give the same results as when decoding on a single
+     * thread, regardless of thread scheduling.
+     *
+     * @param numDecodeThreads Number of threads. 0 or 1: decode on the calling thread
+     */
+    public void setNumDecodeThreads(int numDecodeThreads) {
+        Preconditions.checkArgument(numDecodeThreads >= 0, "Number of decode threads must be >= 0: got %s", numDecodeThreads);
+        if (numDecodeThreads != this.numDecodeThreads) {
+            shutdownDecodeExecutor();
+        }
+        this.numDecodeThreads = numDecodeThreads;
+    }
+
+    protected void loadBatchParallel(List<File> files, INDArray features) {
+        if (decodeExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            decodeExecutor = Executors.newFixedThreadPool(numDecodeThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ImageRecordReader-decode-" + threadCount.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            final ImageTransform transform = (imageTransform == null ? null : new OrderedImageTransform(imageTransform));
+            workerImageTransform = (OrderedImageTransform) transform;
+            workerImageLoader = new ThreadLocal<NativeImageLoader>() {
+                @Override
+                protected NativeImageLoader initialValue() {
+                    return new NativeImageLoader(height, width, channels, transform);
+                }
+            };
+        }
+
+        final OrderedImageTransform transform = workerImageTransform;
+        if (transform != null) {
+            transform.reset();
+        }
+        List<Future<?>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            //Views are created on this thread; each worker only writes into its own example
+            final INDArray view = features.tensorAlongDimension(i, 1, 2, 3);
+            final File f = files.get(i);
+            final int example = i;
+            futures.add(decodeExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    if (transform != null) {
+                        transform.beginExample(example);
+                    }
+                    try {
+                        workerImageLoader.get().asMatrixView(f, view);
+                    } finally {
+                        if (transform != null) {
+                            transform.endExample(example);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                //Workers of this batch may still be running: don't reuse them for the next batch
+                shutdownDecodeExecutor();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while loading images", e);
+            } catch (ExecutionException e) {
+                for (Future<?> f : futures) {
+                    f.cancel(true);
+                }
+                shutdownDecodeExecutor();
+                throw new RuntimeException("Image file failed during load: " + files.get(i).getAbsolutePath(), e.getCause());
+            }
+        }
+    }
+
+    protected void shutdownDecodeExecutor() {
+        if (decodeExecutor != null) {
+            decodeExecutor.shutdownNow();
+            decodeExecutor = null;
+            workerImageLoader = null;
+            workerImageTransform = null;
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        //No op
+        shutdownDecodeExecutor();
     }
 
     @Override
@@ -533,4 +646,96 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
         }
         return out;
     }
+
+    /**
+     * Applies a (shared) image transform for multiple decode workers: one image at a time, and in example order - the
+     * transform for example i is applied only after those for examples 0 to i-1. Random transforms thus draw their
+     * random numbers in the same order as when decoding on a single thread, independent of thread scheduling
+     */
+    protected static class OrderedImageTransform implements ImageTransform {
+        private final ImageTransform transform;
+        private final ThreadLocal<Integer> currentExample = new ThreadLocal<>();
+        private int nextExample;
+
+        protected OrderedImageTransform(ImageTransform transform) {
+            this.transform = transform;
+        }
+
+        /**
+         * Start a new minibatch: the next transform applied is for example 0
+         */
+        protected synchronized void reset() {
+            nextExample = 0;
+        }
+
+        /**
+         * Set the example for the images transformed by the current thread
+         */
+        protected void beginExample(int example) {
+            currentExample.set(example);
+        }
+
+        /**
+         * Mark the example as done, whether or not its image was transformed (for example, if it failed to load)
+         */
+        protected synchronized void endExample(int example) {
+            currentExample.remove();
+            awaitTurn(example);
+            advance(example);
+        }
+
+        private void awaitTurn(int example) {
+            while (nextExample < example) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting to transform image", e);
+                }
+            }
+        }
+
+        private void advance(int example) {
+            if (nextExample == example) {
+                nextExample++;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized ImageWritable transform(ImageWritable image) {
+            Integer example = currentExample.get();
+            if (example != null)
+                awaitTurn(example);
+            try {
+                return transform.transform(image);
+            } finally {
+                if (example != null)
+                    advance(example);
+            }
+        }
+
+        @Override
+        public synchronized ImageWritable transform(ImageWritable image, Random random) {
+            Integer example = currentExample.get();
+            if (example != null)
+                awaitTurn(example);
+            try {
+                return transform.transform(image, random);
+            } finally {
+                if (example != null)
+                    advance(example);
+            }
+        }
+
+        @Override
+        public synchronized float[] query(float... coordinates) {
+            return transform.query(coordinates);
+        }
+
+        @Override
+        public synchronized ImageWritable getCurrentImage() {
+            return transform.getCurrentImage();
+        }
+    }
 }
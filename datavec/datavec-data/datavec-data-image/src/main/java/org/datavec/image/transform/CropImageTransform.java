@@ -32,7 +32,7 @@ import org.bytedeco.opencv.opencv_core.*;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
-public class CropImageTransform extends BaseImageTransform<Mat> {
+public class CropImageTransform extends BaseImageTransform<Mat> implements GeometricImageTransform {
 
     private int cropTop;
     private int cropLeft;
@@ -104,6 +104,23 @@ public class CropImageTransform extends BaseImageTransform<Mat> {
         return new ImageWritable(converter.convert(result));
     }
 
+    @Override
+    public double[] plan(int[] size, Random random) {
+        if (random == null) {
+            random = this.random;
+        }
+        int top = random != null ? random.nextInt(cropTop + 1) : cropTop;
+        int left = random != null ? random.nextInt(cropLeft + 1) : cropLeft;
+        int bottom = random != null ? random.nextInt(cropBottom + 1) : cropBottom;
+        int right = random != null ? random.nextInt(cropRight + 1) : cropRight;
+
+        y = Math.min(top, size[1] - 1);
+        x = Math.min(left, size[0] - 1);
+        size[1] = Math.max(1, size[1] - bottom - y);
+        size[0] = Math.max(1, size[0] - right - x);
+        return new double[] {1, 0, -x, 0, 1, -y, 0, 0, 1};
+    }
+
     @Override
     public float[] query(float... coordinates) {
         float[] transformed = new float[coordinates.length];
@@ -32,7 +32,7 @@ import static org.bytedeco.opencv.global.opencv_core.*;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
-public class FlipImageTransform extends BaseImageTransform<Mat> {
+public class FlipImageTransform extends BaseImageTransform<Mat> implements GeometricImageTransform {
 
     /**
      * the deterministic flip mode
@@ -104,6 +104,27 @@ public class FlipImageTransform extends BaseImageTransform<Mat> {
         return new ImageWritable(converter.convert(result));
     }
 
+    @Override
+    public double[] plan(int[] size, Random random) {
+        if (random == null) {
+            random = this.random;
+        }
+        w = size[0];
+        h = size[1];
+        mode = random != null ? random.nextInt(4) - 2 : flipMode;
+
+        double sx = 1, tx = 0, sy = 1, ty = 0;
+        if (mode >= -1 && mode != 0) {
+            sx = -1;
+            tx = w - 1;
+        }
+        if (mode >= -1 && mode <= 0) {
+            sy = -1;
+            ty = h - 1;
+        }
+        return new double[] {sx, 0, tx, 0, sy, ty, 0, 0, 1};
+    }
+
     @Override
     public float[] query(float... coordinates) {
         float[] transformed = new float[coordinates.length];
@@ -0,0 +1,45 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.image.transform;
+
+import org.datavec.image.data.ImageWritable;
+
+import java.util.Random;
+
+/**
+ * An {@link ImageTransform} that only changes the geometry of an image, and can therefore be expressed as a
+ * 3x3 perspective transformation of pixel coordinates plus an output size.
+ * Consecutive geometric transforms can be combined into a single warp of the image: see
+ * {@link PipelineImageTransform#setFuseGeometricTransforms(boolean)}
+ */
+public interface GeometricImageTransform extends ImageTransform {
+
+    /**
+     * Draws the (random) parameters of this transform for an image of the given size, in the same way as
+     * {@link #transform(ImageWritable, Random)}, without transforming any image. After this call,
+     * {@link #query(float...)} reflects the planned transformation.
+     *
+     * @param size   width and height of the input image. Replaced by the width and height of the output image
+     * @param random object to use, or null to use the transform's own random object (if any)
+     * @return       row-major 3x3 matrix that maps input pixel coordinates to output pixel coordinates
+     */
+    double[] plan(int[] size, Random random);
+}
@@ -20,9 +20,13 @@
 
 package org.datavec.image.transform;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NonNull;
-
+import lombok.Setter;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacv.OpenCVFrameConverter;
 import org.datavec.image.data.ImageWritable;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.Pair;
@@ -31,6 +35,9 @@ import java.util.*;
 
 import org.bytedeco.opencv.opencv_core.*;
 
+import static org.bytedeco.opencv.global.opencv_core.*;
+import static org.bytedeco.opencv.global.opencv_imgproc.*;
+
 @Data
 public class PipelineImageTransform extends BaseImageTransform<Mat> {
 
@@ -40,6 +47,18 @@ public class PipelineImageTransform extends BaseImageTransform<Mat> {
 
     protected List<ImageTransform> currentTransforms = new ArrayList<>();
 
+    /**
+     * If true: consecutive {@link GeometricImageTransform}s (crop, flip, resize, scale, rotate, warp) are combined
+     * into a single affine or perspective warp, so that no intermediate images are created. The random parameters
+     * of each transform are drawn exactly as without fusion, but pixel values may differ slightly due to
+     * interpolation being done once instead of at every step, and at the image borders.
+     */
+    protected boolean fuseGeometricTransforms = false;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    protected transient ThreadLocal<Scratch> scratch;
+
     public PipelineImageTransform(ImageTransform... transforms) {
         this(1234, false, transforms);
     }
@@ -98,6 +117,10 @@ public class PipelineImageTransform extends BaseImageTransform<Mat> {
 
         currentTransforms.clear();
 
+        if (fuseGeometricTransforms && image != null) {
+            return doTransformFused(image, random);
+        }
+
         // execute each item in the pipeline
         for (Pair<ImageTransform, Double> tuple : imageTransforms) {
             if (tuple.getSecond() == 1.0 || rng.nextDouble() < tuple.getSecond()) { // probability of execution
@@ -110,6 +133,124 @@ public class PipelineImageTransform extends BaseImageTransform<Mat> {
         return image;
     }
 
+    protected ImageWritable doTransformFused(ImageWritable image, Random random) {
+        if (scratch == null) {
+            scratch = new ThreadLocal<Scratch>() {
+                @Override
+                protected Scratch initialValue() {
+                    return new Scratch();
+                }
+            };
+        }
+        Scratch s = scratch.get();
+
+        //Pending (not yet applied) geometric transformation of the image
+        Mat src = null;
+        double[] matrix = null;
+        int[] size = null;
+        ImageTransform warpSettings = null;
+
+        for (Pair<ImageTransform, Double> tuple : imageTransforms) {
+            if (tuple.getSecond() == 1.0 || rng.nextDouble() < tuple.getSecond()) { // probability of execution
+                ImageTransform t = tuple.getFirst();
+                currentTransforms.add(t);
+                if (t instanceof GeometricImageTransform && image != null) {
+                    ImageTransform settings = warpSettings(t);
+                    if (src != null && settings != null && warpSettings != null && !sameWarpSettings(settings, warpSettings)) {
+                        //Interpolation/border settings differ: apply what we have so far
+                        image = warp(s, src, matrix, size, warpSettings);
+                        src = null;
+                    }
+                    if (src == null) {
+                        src = s.converter.convert(image.getFrame());
+                        matrix = new double[] {1, 0, 0, 0, 1, 0, 0, 0, 1};
+                        size = new int[] {src.cols(), src.rows()};
+                        warpSettings = null;
+                    }
+                    if (settings != null) {
+                        warpSettings = settings;
+                    }
+                    matrix = multiply(((GeometricImageTransform) t).plan(size, random), matrix);
+                } else {
+                    if (src != null) {
+                        image = warp(s, src, matrix, size, warpSettings);
+                        src = null;
+                    }
+                    image = random != null ? t.transform(image, random) : t.transform(image);
+                }
+            }
+        }
+        if (src != null) {
+            image = warp(s, src, matrix, size, warpSettings);
+        }
+        return image;
+    }
+
+    private static ImageTransform warpSettings(ImageTransform t) {
+        return (t instanceof RotateImageTransform || t instanceof WarpImageTransform) ? t : null;
+    }
+
+    private static boolean sameWarpSettings(ImageTransform t1, ImageTransform t2) {
+        return interMode(t1) == interMode(t2) && borderMode(t1) == borderMode(t2) && borderValue(t1) == borderValue(t2);
+    }
+
+    private static int interMode(ImageTransform t) {
+        return t instanceof RotateImageTransform ? ((RotateImageTransform) t).interMode() : ((WarpImageTransform) t).interMode();
+    }
+
+    private static int borderMode(ImageTransform t) {
+        return t instanceof RotateImageTransform ? ((RotateImageTransform) t).borderMode() : ((WarpImageTransform) t).borderMode();
+    }
+
+    private static Scalar borderValue(ImageTransform t) {
+        return t instanceof RotateImageTransform ? ((RotateImageTransform) t).borderValue() : ((WarpImageTransform) t).borderValue();
+    }
+
+    private static double[] multiply(double[] a, double[] b) {
+        double[] out = new double[9];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                out[3 * i + j] = a[3 * i] * b[j] + a[3 * i + 1] * b[3 + j] + a[3 * i + 2] * b[6 + j];
+            }
+        }
+        return out;
+    }
+
+    private static ImageWritable warp(Scratch s, Mat src, double[] m, int[] size, ImageTransform settings) {
+        boolean identity = m[0] == 1 && m[1] == 0 && m[2] == 0 && m[3] == 0 && m[4] == 1 && m[5] == 0;
+        boolean affine = m[6] == 0 && m[7] == 0 && m[8] == 1;
+        if (identity && affine && size[0] == src.cols() && size[1] == src.rows()) {
+            return new ImageWritable(s.converter.convert(src));
+        }
+
+        //Without rotation or warping, all output pixels map to within the source image: replicate the border to
+        //match cropping, flipping and resizing without warpAffine
+        int interMode = settings == null ? INTER_LINEAR : interMode(settings);
+        int borderMode = settings == null ? BORDER_REPLICATE : borderMode(settings);
+        Scalar borderValue = settings == null ? Scalar.ZERO : borderValue(settings);
+
+        Mat result = new Mat();
+        if (affine) {
+            s.affine.put(m, 0, 6);
+            warpAffine(src, result, s.affineMat, new Size(size[0], size[1]), interMode, borderMode, borderValue);
+        } else {
+            s.perspective.put(m, 0, 9);
+            warpPerspective(src, result, s.perspectiveMat, new Size(size[0], size[1]), interMode, borderMode, borderValue);
+        }
+        return new ImageWritable(s.converter.convert(result));
+    }
+
+    /**
+     * Per thread objects used for fused transforms: converters are not thread safe, and the matrix Mats are reused
+     */
+    protected static class Scratch {
+        private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+        private final DoublePointer affine = new DoublePointer(6);
+        private final Mat affineMat = new Mat(2, 3, CV_64F, affine);
+        private final DoublePointer perspective = new DoublePointer(9);
+        private final Mat perspectiveMat = new Mat(3, 3, CV_64F, perspective);
+    }
+
     @Override
     public float[] query(float... coordinates) {
         for (ImageTransform transform : currentTransforms) {
@@ -125,6 +266,7 @@ public class PipelineImageTransform extends BaseImageTransform<Mat> {
 
         protected List<Pair<ImageTransform, Double>> imageTransforms = new ArrayList<>();
         protected Long seed = null;
+        protected boolean fuseGeometricTransforms = false;
 
         /**
          * This method sets RNG seet for this pipeline
@@ -166,17 +308,32 @@ public class PipelineImageTransform extends BaseImageTransform<Mat> {
             return this;
         }
 
+        /**
+         * If true, consecutive geometric transforms are combined into a single warp.
+         * See {@link PipelineImageTransform#setFuseGeometricTransforms(boolean)}
+         *
+         * @param fuseGeometricTransforms
+         * @return
+         */
+        public Builder setFuseGeometricTransforms(boolean fuseGeometricTransforms) {
+            this.fuseGeometricTransforms = fuseGeometricTransforms;
+            return this;
+        }
+
         /**
          * This method returns new PipelineImageTransform instance
          *
          * @return
          */
         public PipelineImageTransform build() {
+            PipelineImageTransform transform;
             if (seed != null) {
-                return new PipelineImageTransform(seed, imageTransforms);
+                transform = new PipelineImageTransform(seed, imageTransforms);
             } else {
-                return new PipelineImageTransform(imageTransforms);
+                transform = new PipelineImageTransform(imageTransforms);
             }
+            transform.setFuseGeometricTransforms(fuseGeometricTransforms);
+            return transform;
         }
     }
 }
@@ -34,7 +34,7 @@ import static org.bytedeco.opencv.global.opencv_imgproc.*;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
-public class ResizeImageTransform extends BaseImageTransform<Mat> {
+public class ResizeImageTransform extends BaseImageTransform<Mat> implements GeometricImageTransform {
 
     private int newHeight;
     private int newWidth;
@@ -88,6 +88,24 @@ public class ResizeImageTransform extends BaseImageTransform<Mat> {
         return new ImageWritable(converter.convert(result));
     }
 
+    @Override
+    public double[] plan(int[] size, Random random) {
+        srcw = size[0];
+        srch = size[1];
+        size[0] = newWidth;
+        size[1] = newHeight;
+        return scaleMatrix(srcw, srch, newWidth, newHeight);
+    }
+
+    /**
+     * Matrix for resizing an image, using the same pixel center alignment as OpenCV's resize
+     */
+    static double[] scaleMatrix(int srcw, int srch, int w, int h) {
+        double sx = (double) w / srcw;
+        double sy = (double) h / srch;
+        return new double[] {sx, 0, 0.5 * sx - 0.5, 0, sy, 0.5 * sy - 0.5, 0, 0, 1};
+    }
+
     @Override
     public float[] query(float... coordinates) {
         float[] transformed = new float[coordinates.length];
@@ -25,6 +25,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
 import org.bytedeco.javacv.OpenCVFrameConverter;
 import org.datavec.image.data.ImageWritable;
 import org.nd4j.shade.jackson.annotation.JsonIgnoreProperties;
@@ -43,7 +44,7 @@ import static org.bytedeco.opencv.global.opencv_imgproc.*;
 @JsonIgnoreProperties({"interMode", "borderMode", "borderValue", "converter"})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
-public class RotateImageTransform extends BaseImageTransform<Mat> {
+public class RotateImageTransform extends BaseImageTransform<Mat> implements GeometricImageTransform {
 
     private float centerx;
     private float centery;
@@ -109,17 +110,30 @@ public class RotateImageTransform extends BaseImageTransform<Mat> {
             return null;
         }
         Mat mat = converter.convert(image.getFrame());
-        float cy = mat.rows() / 2 + centery * (random != null ? 2 * random.nextFloat() - 1 : 1);
-        float cx = mat.cols() / 2 + centerx * (random != null ? 2 * random.nextFloat() - 1 : 1);
-        float a = angle * (random != null ? 2 * random.nextFloat() - 1 : 1);
-        float s = 1 + scale * (random != null ? 2 * random.nextFloat() - 1 : 1);
+        sampleMatrix(mat.cols(), mat.rows(), random);
 
         Mat result = new Mat();
-        M = getRotationMatrix2D(new Point2f(cx, cy), a, s);
         warpAffine(mat, result, M, mat.size(), interMode, borderMode, borderValue);
         return new ImageWritable(converter.convert(result));
     }
 
+    private void sampleMatrix(int cols, int rows, Random random) {
+        float cy = rows / 2 + centery * (random != null ? 2 * random.nextFloat() - 1 : 1);
+        float cx = cols / 2 + centerx * (random != null ? 2 * random.nextFloat() - 1 : 1);
+        float a = angle * (random != null ? 2 * random.nextFloat() - 1 : 1);
+        float s = 1 + scale * (random != null ? 2 * random.nextFloat() - 1 : 1);
+        M = getRotationMatrix2D(new Point2f(cx, cy), a, s);
+    }
+
+    @Override
+    public double[] plan(int[] size, Random random) {
+        sampleMatrix(size[0], size[1], random != null ? random : this.random);
+        DoubleIndexer idx = M.createIndexer();
+        double[] m = {idx.get(0, 0), idx.get(0, 1), idx.get(0, 2), idx.get(1, 0), idx.get(1, 1), idx.get(1, 2), 0, 0, 1};
+        idx.release();
+        return m;
+    }
+
     @Override
     public float[] query(float... coordinates) {
         Mat src = new Mat(1, coordinates.length / 2, CV_32FC2, new FloatPointer(coordinates));
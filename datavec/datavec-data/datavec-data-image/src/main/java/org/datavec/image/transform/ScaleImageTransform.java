@@ -34,7 +34,7 @@ import static org.bytedeco.opencv.global.opencv_imgproc.*;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
-public class ScaleImageTransform extends BaseImageTransform<Mat> {
+public class ScaleImageTransform extends BaseImageTransform<Mat> implements GeometricImageTransform {
 
     private float dx;
     private float dy;
@@ -87,6 +87,20 @@ public class ScaleImageTransform extends BaseImageTransform<Mat> {
         return new ImageWritable(converter.convert(result));
     }
 
+    @Override
+    public double[] plan(int[] size, Random random) {
+        if (random == null) {
+            random = this.random;
+        }
+        srch = size[1];
+        srcw = size[0];
+        h = Math.round(srch + dy * (random != null ? 2 * random.nextFloat() - 1 : 1));
+        w = Math.round(srcw + dx * (random != null ? 2 * random.nextFloat() - 1 : 1));
+        size[0] = w;
+        size[1] = h;
+        return ResizeImageTransform.scaleMatrix(srcw, srch, w, h);
+    }
+
     @Override
     public float[] query(float... coordinates) {
         float[] transformed = new float[coordinates.length];
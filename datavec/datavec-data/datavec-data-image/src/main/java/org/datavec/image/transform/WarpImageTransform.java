@@ -25,6 +25,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
 import org.bytedeco.javacv.OpenCVFrameConverter;
 import org.datavec.image.data.ImageWritable;
 import org.nd4j.shade.jackson.annotation.JsonIgnoreProperties;
@@ -43,7 +44,7 @@ import static org.bytedeco.opencv.global.opencv_imgproc.*;
 @JsonIgnoreProperties({"interMode", "borderMode", "borderValue", "converter"})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
-public class WarpImageTransform extends BaseImageTransform<Mat> {
+public class WarpImageTransform extends BaseImageTransform<Mat> implements GeometricImageTransform {
 
     private float[] deltas;
 
@@ -119,18 +120,37 @@ public class WarpImageTransform extends BaseImageTransform<Mat> {
             return null;
         }
         Mat mat = converter.convert(image.getFrame());
+        sampleMatrix(mat.cols(), mat.rows(), random);
+
+        Mat result = new Mat();
+        warpPerspective(mat, result, M, mat.size(), interMode, borderMode, borderValue);
+
+        return new ImageWritable(converter.convert(result));
+    }
+
+    private void sampleMatrix(int cols, int rows, Random random) {
         Point2f src = new Point2f(4);
         Point2f dst = new Point2f(4);
-        src.put(0, 0, mat.cols(), 0, mat.cols(), mat.rows(), 0, mat.rows());
+        src.put(0, 0, cols, 0, cols, rows, 0, rows);
 
         for (int i = 0; i < 8; i++) {
             dst.put(i, src.get(i) + deltas[i] * (random != null ? 2 * random.nextFloat() - 1 : 1));
         }
-        Mat result = new Mat();
         M = getPerspectiveTransform(src, dst);
-        warpPerspective(mat, result, M, mat.size(), interMode, borderMode, borderValue);
+    }
 
-        return new ImageWritable(converter.convert(result));
+    @Override
+    public double[] plan(int[] size, Random random) {
+        sampleMatrix(size[0], size[1], random != null ? random : this.random);
+        DoubleIndexer idx = M.createIndexer();
+        double[] m = new double[9];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                m[3 * i + j] = idx.get(i, j);
+            }
+        }
+        idx.release();
+        return m;
     }
 
     @Override
@@ -36,6 +36,9 @@ import org.datavec.api.writable.DoubleWritable;
 import org.datavec.api.writable.NDArrayWritable;
 import org.datavec.api.writable.Writable;
 import org.datavec.api.writable.batch.NDArrayRecordBatch;
+import org.datavec.image.transform.CropImageTransform;
+import org.datavec.image.transform.FlipImageTransform;
+import org.datavec.image.transform.ImageTransform;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -470,6 +473,49 @@ public class TestImageRecordReader {
 
 
 
+    @Test
+    public void testParallelDecode() throws Exception {
+        File f0 = testDir.newFolder();
+        new ClassPathResource("datavec-data-image/testimages/").copyDirectory(f0);
+
+        for (int t = 0; t < 3; t++) {
+            ImageRecordReader serial = new ImageRecordReader(32, 32, 3, new ParentPathLabelGenerator(), decodeTestTransform(t));
+            serial.initialize(new FileSplit(f0, new Random(12345)));
+
+            //Random transforms with the same seed must give the same results, independent of thread scheduling
+            ImageRecordReader parallel = new ImageRecordReader(32, 32, 3, new ParentPathLabelGenerator(), decodeTestTransform(t));
+            parallel.setNumDecodeThreads(4);
+            parallel.initialize(new FileSplit(f0, new Random(12345)));
+
+            for (int epoch = 0; epoch < 2; epoch++) {
+                int count = 0;
+                while (serial.hasNext()) {
+                    assertTrue(parallel.hasNext());
+                    List<INDArray> expected = ((NDArrayRecordBatch) serial.next(4)).getArrays();
+                    List<INDArray> actual = ((NDArrayRecordBatch) parallel.next(4)).getArrays();
+                    assertEquals(expected, actual);
+                    count += expected.get(0).size(0);
+                }
+                assertFalse(parallel.hasNext());
+                assertEquals(6, count);
+                serial.reset();
+                parallel.reset();
+            }
+            parallel.close();
+        }
+    }
+
+    private static ImageTransform decodeTestTransform(int type) {
+        switch (type) {
+            case 0:
+                return null;
+            case 1:
+                return new FlipImageTransform(1);
+            default:
+                return new CropImageTransform(new Random(12345), 10);
+        }
+    }
+
     @Test
     public void testNCHW_NCHW() throws Exception {
         //Idea: labels order should be consistent regardless of input file order
@@ -396,6 +396,51 @@ public class TestImageTransform {
         assertEquals(99, transformed[1], 0);
     }
 
+    @Test
+    public void testFusedPipelineTransform() throws Exception {
+        //Smooth image, so that differences due to interpolation are small
+        int height = 120, width = 160;
+        Mat img = new Mat(height, width, CV_8UC3);
+        UByteIndexer idx = img.createIndexer();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                idx.put(i, j, 0, i);
+                idx.put(i, j, 1, j);
+                idx.put(i, j, 2, (i + j) / 2);
+            }
+        }
+        ImageWritable writable = new ImageWritable(converter.convert(img));
+
+        //Crop and flip only: exact
+        PipelineImageTransform unfused = new PipelineImageTransform(new CropImageTransform(10, 20, 5, 15),
+                new FlipImageTransform(-1));
+        PipelineImageTransform fused = new PipelineImageTransform(new CropImageTransform(10, 20, 5, 15),
+                new FlipImageTransform(-1));
+        fused.setFuseGeometricTransforms(true);
+        Mat exp = converter.convert(unfused.transform(writable).getFrame());
+        Mat act = converter.convert(fused.transform(writable).getFrame());
+        assertEquals(exp.cols(), act.cols());
+        assertEquals(exp.rows(), act.rows());
+        assertEquals(0, norm(exp, act, NORM_INF, new Mat()), 0);
+        assertArrayEquals(unfused.query(10, 20), fused.query(10, 20), 1e-3f);
+
+        //Geometric and non-geometric transforms: only pixels away from the borders are compared
+        ImageTransform[] transforms = new ImageTransform[] {new CropImageTransform(10, 20, 5, 15),
+                new FlipImageTransform(1), new ResizeImageTransform(100, 80), new ColorConversionTransform(COLOR_BGR2YCrCb),
+                new RotateImageTransform(null, 0, 0, 15, 1), new ScaleImageTransform(null, 10)};
+        unfused = new PipelineImageTransform(transforms);
+        fused = new PipelineImageTransform.Builder().addImageTransform(transforms[0]).addImageTransform(transforms[1])
+                .addImageTransform(transforms[2]).addImageTransform(transforms[3]).addImageTransform(transforms[4])
+                .addImageTransform(transforms[5]).setFuseGeometricTransforms(true).build();
+        exp = converter.convert(unfused.transform(writable).getFrame());
+        act = converter.convert(fused.transform(writable).getFrame());
+        assertEquals(exp.cols(), act.cols());
+        assertEquals(exp.rows(), act.rows());
+        Rect inner = new Rect(exp.cols() / 4, exp.rows() / 4, exp.cols() / 2, exp.rows() / 2);
+        assertTrue(norm(exp.apply(inner), act.apply(inner), NORM_INF, new Mat()) <= 8);
+        assertArrayEquals(unfused.query(30, 40), fused.query(30, 40), 1e-3f);
+    }
+
     /**
      * This test code is kind of a manual test using specific image(largestblobtest.jpg)
      * with particular thresholds(blur size, thresholds for edge detector)
@@ -31,6 +31,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
@@ -38,6 +39,7 @@ import javax.sql.DataSource;
 import lombok.Setter;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.handlers.ArrayHandler;
 import org.datavec.api.conf.Configuration;
 import org.datavec.api.records.Record;
@@ -46,6 +48,7 @@ import org.datavec.jdbc.records.metadata.RecordMetaDataJdbc;
 import org.datavec.api.records.reader.BaseRecordReader;
 import org.datavec.api.split.InputSplit;
 import org.datavec.jdbc.util.JdbcWritableConverter;
+import org.datavec.jdbc.util.PartitionedQueryIterator;
 import org.datavec.jdbc.util.ResettableResultSetIterator;
 import org.datavec.api.writable.Writable;
 
@@ -63,6 +66,13 @@ public class JDBCRecordReader extends BaseRecordReader {
     private int resultSetType = ResultSet.TYPE_SCROLL_INSENSITIVE;
     @Setter
     private DataSource dataSource;
+    @Setter
+    private int fetchSize = 0;
+    private String partitionColumn;
+    @Setter
+    private int numPartitions = 1;
+    private PartitionedQueryIterator partitionedIter;
+    private Boolean restoreAutoCommit;
     private final String metadataQuery;
     private final int[] metadataIndices;
 
@@ -72,6 +82,9 @@ public class JDBCRecordReader extends BaseRecordReader {
     public final static String JDBC_USERNAME = NAME_SPACE + ".jdbcUsername";
     public final static String JDBC_PASSWORD = NAME_SPACE + ".jdbcPassword";
     public final static String JDBC_RESULTSET_TYPE = NAME_SPACE + ".resultSetType";
+    public final static String JDBC_FETCH_SIZE = NAME_SPACE + ".fetchSize";
+    public final static String JDBC_PARTITION_COLUMN = NAME_SPACE + ".partitionColumn";
+    public final static String JDBC_NUM_PARTITIONS = NAME_SPACE + ".numPartitions";
 
     /**
      * Build a new JDBCRecordReader with a given query. After constructing the reader in this way, the initialize method
@@ -138,6 +151,11 @@ public class JDBCRecordReader extends BaseRecordReader {
      *     <li>JDBCRecordReader.JDBC_DRIVER_CLASS_NAME : Driver class to use for datasource configuration</li>
      *     <li>JDBCRecordReader.JDBC_USERNAME && JDBC_PASSWORD : Username and password to use for datasource configuration</li>
      *     <li>JDBCRecordReader.JDBC_RESULTSET_TYPE : ResultSet type to use (int value defined in jdbc doc)</li>
+     *     <li>JDBCRecordReader.JDBC_FETCH_SIZE : Number of rows fetched from the database at a time. 0 (default) to use
+     *     the driver's default. Some drivers (PostgreSQL for example) only stream results for forward only result sets,
+     *     outside of autocommit mode: if a fetch size is set, autocommit is disabled while reading</li>
+     *     <li>JDBCRecordReader.JDBC_PARTITION_COLUMN and JDBC_NUM_PARTITIONS : Integral column of the query result, and
+     *     number of key ranges to split the query into. See {@link #setPartitionColumn(String)}</li>
      * </ol>
      *
      * Url and driver class name are not mandatory. If one of them is specified, the other must be specified as well. If
@@ -152,6 +170,9 @@ public class JDBCRecordReader extends BaseRecordReader {
         this.setConf(conf);
         this.setTrimStrings(conf.getBoolean(TRIM_STRINGS, trimStrings));
         this.setResultSetType(conf.getInt(JDBC_RESULTSET_TYPE, resultSetType));
+        this.setFetchSize(conf.getInt(JDBC_FETCH_SIZE, fetchSize));
+        this.setPartitionColumn(conf.get(JDBC_PARTITION_COLUMN, partitionColumn));
+        this.setNumPartitions(conf.getInt(JDBC_NUM_PARTITIONS, numPartitions));
 
         String jdbcUrl = conf.get(JDBC_URL);
         String driverClassName = conf.get(JDBC_DRIVER_CLASS_NAME);
@@ -169,10 +190,33 @@ public class JDBCRecordReader extends BaseRecordReader {
         this.initializeJdbc();
     }
 
+    private boolean isPartitioned() {
+        return partitionColumn != null && numPartitions > 1;
+    }
+
     private void initializeJdbc() {
         try {
             this.conn = dataSource.getConnection();
+            if (isPartitioned()) {
+                //Connection is only used for metadata and loadFromMetaData: each partition uses its own connection
+                long[] minMax = PartitionedQueryIterator.minMax(conn, query, partitionColumn);
+                if (minMax == null) {
+                    //No rows, or only null keys: a single range is enough
+                    minMax = new long[] {0, 0};
+                }
+                this.partitionedIter = new PartitionedQueryIterator(dataSource, query, partitionColumn, minMax[0],
+                                minMax[1], minMax[0] == minMax[1] ? 1 : numPartitions, fetchSize, trimStrings,
+                                metadataIndices);
+                return;
+            }
+            if (fetchSize > 0 && resultSetType == ResultSet.TYPE_FORWARD_ONLY && conn.getAutoCommit()) {
+                restoreAutoCommit = true;
+                conn.setAutoCommit(false);
+            }
             this.statement = conn.createStatement(this.resultSetType, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize > 0) {
+                this.statement.setFetchSize(fetchSize);
+            }
             this.statement.closeOnCompletion();
             ResultSet rs = statement.executeQuery(this.query);
             this.meta = rs.getMetaData();
@@ -183,13 +227,44 @@ public class JDBCRecordReader extends BaseRecordReader {
         }
     }
 
+    /**
+     * Split the query into {@link #setNumPartitions(int)} key ranges on the specified column, and read all ranges
+     * concurrently, each on its own connection (see {@link PartitionedQueryIterator}). The column must be an integral
+     * (or numeric) column of the query result; rows with a null key are also returned.<br>
+     * Note that in this mode, the order of the records is not deterministic, and reset restarts all queries.
+     *
+     * @param partitionColumn Name of the column to partition on. Null (default) to read the query on a single connection
+     */
+    public void setPartitionColumn(String partitionColumn) {
+        this.partitionColumn = partitionColumn;
+    }
+
     @Override
     public List<Writable> next() {
+        if (partitionedIter != null) {
+            List<Writable> next = partitionedIter.next().getRecord();
+            invokeListeners(next);
+            return next;
+        }
         Object[] next = iter.next();
         invokeListeners(next);
         return toWritable(next);
     }
 
+    @Override
+    public boolean batchesSupported() {
+        return true;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        List<List<Writable>> out = new ArrayList<>(Math.min(num, 1024));
+        while (out.size() < num && hasNext()) {
+            out.add(next());
+        }
+        return out;
+    }
+
     private List<Writable> toWritable(Object[] item) {
         List<Writable> ret = new ArrayList<>();
         invokeListeners(item);
@@ -213,6 +288,9 @@ public class JDBCRecordReader extends BaseRecordReader {
 
     @Override
     public boolean hasNext() {
+        if (partitionedIter != null) {
+            return partitionedIter.hasNext();
+        }
         return iter.hasNext();
     }
 
@@ -226,6 +304,11 @@ public class JDBCRecordReader extends BaseRecordReader {
      */
     @Override
     public void reset() {
+        if (partitionedIter != null) {
+            closeJdbc();
+            initializeJdbc();
+            return;
+        }
         iter.reset();
     }
 
@@ -244,8 +327,25 @@ public class JDBCRecordReader extends BaseRecordReader {
      */
     @Override
     public Record nextRecord() {
-        Object[] next = iter.next();
-        invokeListeners(next);
+        List<Writable> record;
+        List<Object> params = new ArrayList<>();
+        if (partitionedIter != null) {
+            PartitionedQueryIterator.Row row = partitionedIter.next();
+            record = row.getRecord();
+            invokeListeners(record);
+            if (row.getMetadataValues() != null) {
+                params.addAll(Arrays.asList(row.getMetadataValues()));
+            }
+        } else {
+            Object[] next = iter.next();
+            invokeListeners(next);
+            if (metadataIndices != null) {
+                for (int index : metadataIndices) {
+                    params.add(next[index]);
+                }
+            }
+            record = toWritable(next);
+        }
 
         URI location;
         try {
@@ -254,15 +354,9 @@ public class JDBCRecordReader extends BaseRecordReader {
             throw new IllegalStateException("Could not get sql connection metadata", e);
         }
 
-        List<Object> params = new ArrayList<>();
-        if (metadataIndices != null) {
-            for (int index : metadataIndices) {
-                params.add(next[index]);
-            }
-        }
         RecordMetaDataJdbc rmd = new RecordMetaDataJdbc(location, this.metadataQuery, params, getClass());
 
-        return new org.datavec.api.records.impl.Record(toWritable(next), rmd);
+        return new org.datavec.api.records.impl.Record(record, rmd);
     }
 
     /**
@@ -301,9 +395,29 @@ public class JDBCRecordReader extends BaseRecordReader {
             String request = ((RecordMetaDataJdbc) rmd).getRequest();
 
             try {
-                Object[] item = runner
-                    .query(this.conn, request, new ArrayHandler(), ((RecordMetaDataJdbc) rmd).getParams().toArray());
-                ret.add(new org.datavec.api.records.impl.Record(toWritable(item), rmd));
+                List<Writable> record;
+                if (meta == null) {
+                    //Partitioned mode: no metadata from the main query, convert using the metadata of this query
+                    record = runner.query(this.conn, request, new ResultSetHandler<List<Writable>>() {
+                        @Override
+                        public List<Writable> handle(ResultSet rs) throws SQLException {
+                            if (!rs.next()) {
+                                return null;
+                            }
+                            ResultSetMetaData m = rs.getMetaData();
+                            List<Writable> out = new ArrayList<>(m.getColumnCount());
+                            for (int i = 1; i <= m.getColumnCount(); i++) {
+                                out.add(JdbcWritableConverter.convert(rs, i, m.getColumnType(i), trimStrings));
+                            }
+                            return out;
+                        }
+                    }, ((RecordMetaDataJdbc) rmd).getParams().toArray());
+                } else {
+                    Object[] item = runner
+                        .query(this.conn, request, new ArrayHandler(), ((RecordMetaDataJdbc) rmd).getParams().toArray());
+                    record = toWritable(item);
+                }
+                ret.add(new org.datavec.api.records.impl.Record(record, rmd));
             } catch (SQLException e) {
                 throw new IllegalArgumentException("Could not execute statement \"" + request + "\"", e);
             }
@@ -320,7 +434,20 @@ public class JDBCRecordReader extends BaseRecordReader {
     }
 
     private void closeJdbc() {
+        if (partitionedIter != null) {
+            partitionedIter.close();
+            partitionedIter = null;
+        }
         DbUtils.closeQuietly(statement);
+        if (restoreAutoCommit != null && conn != null) {
+            try {
+                conn.rollback();
+                conn.setAutoCommit(restoreAutoCommit);
+            } catch (SQLException e) {
+                //Ignore: connection is closed next
+            }
+            restoreAutoCommit = null;
+        }
         DbUtils.closeQuietly(conn);
     }
 
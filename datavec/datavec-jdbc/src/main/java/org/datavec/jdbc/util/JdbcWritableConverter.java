@@ -21,6 +21,8 @@
 package org.datavec.jdbc.util;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Types;
 
 import org.datavec.api.writable.BooleanWritable;
@@ -84,6 +86,71 @@ public class JdbcWritableConverter {
         }
     }
 
+    /**
+     * Convert the value of a column in the current row of a result set, using the primitive getters of the result set
+     * for numerical and boolean columns (instead of converting the values returned by {@link ResultSet#getObject(int)}).
+     * Column types are converted as in {@link #convert(Object, int)}, except that REAL columns are always read as float
+     *
+     * @param rs          Result set, positioned on a row
+     * @param column      Column number, starting from 1
+     * @param columnType  Column type, as defined in {@link Types}
+     * @param trimStrings Whether character columns should be trimmed
+     */
+    public static Writable convert(final ResultSet rs, final int column, final int columnType, final boolean trimStrings)
+                    throws SQLException {
+        Writable out;
+        switch (columnType) {
+            case Types.BOOLEAN:
+            case Types.BIT:
+                out = new BooleanWritable(rs.getBoolean(column));
+                break;
+
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP: {
+                Object value = rs.getObject(column);
+                return value == null ? new NullWritable() : new Text(value.toString());
+            }
+
+            case Types.CHAR:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.VARCHAR: {
+                String value = rs.getString(column);
+                if (value == null)
+                    return new NullWritable();
+                return new Text(trimStrings ? value.trim() : value);
+            }
+
+            case Types.FLOAT:
+            case Types.REAL:
+                out = new FloatWritable(rs.getFloat(column));
+                break;
+
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.DOUBLE:
+                out = new DoubleWritable(rs.getDouble(column));
+                break;
+
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                out = new IntWritable(rs.getInt(column));
+                break;
+
+            case Types.BIGINT:
+                out = new LongWritable(rs.getLong(column));
+                break;
+
+            default:
+                throw new IllegalArgumentException("Column type unknown");
+        }
+        return rs.wasNull() ? new NullWritable() : out;
+    }
+
     private JdbcWritableConverter() {
     }
 }
@@ -0,0 +1,334 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.jdbc.util;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.Getter;
+import org.apache.commons.dbutils.DbUtils;
+import org.datavec.api.writable.Writable;
+
+/**
+ * Iterates over the results of a query by splitting it into key ranges on an integral column, and reading all ranges
+ * concurrently, each on its own connection and forward-only cursor. Rows are converted to writables on the reading
+ * threads (see {@link JdbcWritableConverter#convert(ResultSet, int, int, boolean)}).<br>
+ * Ranges are of the form {@code lo <= key < hi}, with the first range also containing rows with a null key. Rows are
+ * returned in the order they arrive from the different cursors: the order is not deterministic, and in general differs
+ * from the order of the original query.<br>
+ * At most 4 batches per range are buffered, so memory use is bounded regardless of the size of the result.
+ */
+public class PartitionedQueryIterator implements Iterator<PartitionedQueryIterator.Row>, Closeable {
+
+    private static final int BATCH_SIZE = 256;
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final String query;
+    private final String column;
+    private final int fetchSize;
+    private final boolean trimStrings;
+    private final int[] metadataIndices;
+    private final int numPartitions;
+    private final ExecutorService executor;
+    private final BlockingQueue<Batch> queue;
+
+    private int finishedPartitions;
+    private List<Row> current;
+    private int currentIdx;
+    private volatile boolean closed;
+
+    /**
+     * @param dataSource      Data source, used to open one connection per range
+     * @param query           Query to execute
+     * @param column          Name of the integral column of the query result to split the query on
+     * @param min             Minimum value of the column
+     * @param max             Maximum value of the column
+     * @param numPartitions   Number of ranges (and concurrent connections)
+     * @param fetchSize       Fetch size for each cursor. 0 to use the driver's default
+     * @param trimStrings     Whether character columns should be trimmed
+     * @param metadataIndices Indices (starting from 0) of the columns to return in {@link Row#getMetadataValues()}.
+     *                        May be null
+     */
+    public PartitionedQueryIterator(DataSource dataSource, String query, String column, long min, long max,
+                    int numPartitions, int fetchSize, boolean trimStrings, int[] metadataIndices) {
+        if (numPartitions <= 0)
+            throw new IllegalArgumentException("Number of partitions must be positive, got " + numPartitions);
+        if (max < min)
+            throw new IllegalArgumentException("Invalid range: min=" + min + ", max=" + max);
+        this.query = query;
+        this.column = column;
+        this.fetchSize = fetchSize;
+        this.trimStrings = trimStrings;
+        this.metadataIndices = metadataIndices;
+        this.numPartitions = numPartitions;
+        this.queue = new ArrayBlockingQueue<>(4 * numPartitions);
+
+        final int poolIdx = POOL_COUNTER.getAndIncrement();
+        this.executor = Executors.newFixedThreadPool(numPartitions, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "PartitionedQueryIterator-" + poolIdx + "-" + threadCount.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        long[] bounds = rangeBounds(min, max, numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            final String rangeQuery = rangeQuery(i, bounds);
+            final DataSource ds = dataSource;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    readRange(ds, rangeQuery);
+                }
+            });
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Get the minimum and maximum values of a column of the result of a query
+     *
+     * @param conn   Connection to use
+     * @param query  Query
+     * @param column Integral column of the query result
+     * @return Minimum and maximum values (floor and ceiling, for non-integral numeric columns), or null if the query
+     * has no rows with a non-null value for the column
+     */
+    public static long[] minMax(Connection conn, String query, String column) throws SQLException {
+        Statement st = conn.createStatement();
+        try {
+            ResultSet rs = st.executeQuery("SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + query + ") AS datavec_q");
+            rs.next();
+            Object min = rs.getObject(1);
+            Object max = rs.getObject(2);
+            if (min == null || max == null)
+                return null;
+            if (!(min instanceof Number) || !(max instanceof Number))
+                throw new IllegalArgumentException("Partition column \"" + column + "\" must be numeric, got values of type "
+                                + min.getClass().getName());
+            return new long[] {floor((Number) min), ceil((Number) max)};
+        } finally {
+            DbUtils.closeQuietly(st);
+        }
+    }
+
+    private static long floor(Number n) {
+        if (n instanceof Double || n instanceof Float || n instanceof BigDecimal)
+            return (long) Math.floor(n.doubleValue());
+        return n.longValue();
+    }
+
+    private static long ceil(Number n) {
+        if (n instanceof Double || n instanceof Float || n instanceof BigDecimal)
+            return (long) Math.ceil(n.doubleValue());
+        return n.longValue();
+    }
+
+    /**
+     * @return numPartitions + 1 bounds: range i is [bounds[i], bounds[i+1]), except for the last range which
+     * includes bounds[numPartitions]
+     */
+    private static long[] rangeBounds(long min, long max, int numPartitions) {
+        //BigInteger: max - min may overflow
+        BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min));
+        long[] bounds = new long[numPartitions + 1];
+        for (int i = 0; i <= numPartitions; i++) {
+            bounds[i] = BigInteger.valueOf(min)
+                            .add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(numPartitions)))
+                            .longValue();
+        }
+        return bounds;
+    }
+
+    private String rangeQuery(int i, long[] bounds) {
+        StringBuilder sb = new StringBuilder("SELECT * FROM (").append(query).append(") AS datavec_q WHERE ");
+        if (i == 0)
+            sb.append("(").append(column).append(" IS NULL OR ");
+        sb.append(column).append(" >= ").append(bounds[i]).append(" AND ").append(column);
+        if (i == numPartitions - 1)
+            sb.append(" <= ");
+        else
+            sb.append(" < ");
+        sb.append(bounds[i + 1]);
+        if (i == 0)
+            sb.append(")");
+        return sb.toString();
+    }
+
+    private void readRange(DataSource dataSource, String rangeQuery) {
+        Connection conn = null;
+        Statement st = null;
+        Boolean autoCommit = null;
+        try {
+            conn = dataSource.getConnection();
+            if (fetchSize > 0 && conn.getAutoCommit()) {
+                //Some drivers (PostgreSQL for example) only use the fetch size for cursors outside of autocommit mode
+                autoCommit = true;
+                conn.setAutoCommit(false);
+            }
+            st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize > 0)
+                st.setFetchSize(fetchSize);
+            ResultSet rs = st.executeQuery(rangeQuery);
+            ResultSetMetaData meta = rs.getMetaData();
+            int nCols = meta.getColumnCount();
+            int[] types = new int[nCols];
+            for (int i = 0; i < nCols; i++) {
+                types[i] = meta.getColumnType(i + 1);
+            }
+
+            List<Row> batch = new ArrayList<>(BATCH_SIZE);
+            while (!closed && rs.next()) {
+                List<Writable> record = new ArrayList<>(nCols);
+                for (int i = 0; i < nCols; i++) {
+                    record.add(JdbcWritableConverter.convert(rs, i + 1, types[i], trimStrings));
+                }
+                Object[] metadataValues = null;
+                if (metadataIndices != null) {
+                    metadataValues = new Object[metadataIndices.length];
+                    for (int i = 0; i < metadataIndices.length; i++) {
+                        metadataValues[i] = rs.getObject(metadataIndices[i] + 1);
+                    }
+                }
+                batch.add(new Row(record, metadataValues));
+                if (batch.size() == BATCH_SIZE) {
+                    queue.put(new Batch(batch, false, null));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            queue.put(new Batch(batch, true, null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            if (!closed) {
+                try {
+                    queue.put(new Batch(null, true, t));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            DbUtils.closeQuietly(st);
+            if (autoCommit != null) {
+                try {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    //Ignore: connection is closed next
+                }
+            }
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || currentIdx >= current.size()) {
+            if (finishedPartitions == numPartitions || closed) {
+                return false;
+            }
+            Batch b;
+            try {
+                b = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for query results", e);
+            }
+            if (b.error != null) {
+                close();
+                throw new RuntimeException("Error executing partitioned query", b.error);
+            }
+            if (b.last) {
+                finishedPartitions++;
+            }
+            current = b.rows;
+            currentIdx = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No more rows");
+        Row r = current.get(currentIdx);
+        current.set(currentIdx++, null);
+        return r;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        queue.clear();
+    }
+
+    /**
+     * A converted row, with the raw values of the requested metadata columns
+     */
+    @Getter
+    public static class Row {
+        private final List<Writable> record;
+        private final Object[] metadataValues;
+
+        private Row(List<Writable> record, Object[] metadataValues) {
+            this.record = record;
+            this.metadataValues = metadataValues;
+        }
+    }
+
+    private static class Batch {
+        private final List<Row> rows;
+        private final boolean last;
+        private final Throwable error;
+
+        private Batch(List<Row> rows, boolean last, Throwable error) {
+            this.rows = rows;
+            this.last = last;
+            this.error = error;
+        }
+    }
+}
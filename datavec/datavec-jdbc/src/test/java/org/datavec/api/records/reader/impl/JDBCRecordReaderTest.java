@@ -31,6 +31,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.derby.jdbc.EmbeddedDataSource;
@@ -47,6 +48,7 @@ import org.datavec.api.writable.DoubleWritable;
 import org.datavec.api.writable.FloatWritable;
 import org.datavec.api.writable.IntWritable;
 import org.datavec.api.writable.LongWritable;
+import org.datavec.api.writable.NullWritable;
 import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
 import org.junit.After;
@@ -265,6 +267,62 @@ public class JDBCRecordReaderTest {
         }
     }
 
+    @Test
+    public void testPartitionedQuery() throws Exception {
+        TestDb.buildItemsTable(conn, 1000);
+        List<List<Writable>> expected = new ArrayList<>();
+        try (JDBCRecordReader reader = new JDBCRecordReader("SELECT * FROM Items", dataSource)) {
+            reader.initialize(null);
+            while (reader.hasNext()) {
+                expected.add(reader.next());
+            }
+        }
+        assertEquals(1001, expected.size());
+
+        try (JDBCRecordReader reader = new JDBCRecordReader("SELECT * FROM Items", dataSource,
+                        "SELECT * FROM Items WHERE id = ?", new int[] {0})) {
+            Configuration conf = new Configuration();
+            conf.set(JDBCRecordReader.JDBC_PARTITION_COLUMN, "id");
+            conf.setInt(JDBCRecordReader.JDBC_NUM_PARTITIONS, 4);
+            conf.setInt(JDBCRecordReader.JDBC_FETCH_SIZE, 50);
+            reader.initialize(conf, null);
+
+            assertTrue(reader.batchesSupported());
+            for (int epoch = 0; epoch < 2; epoch++) {
+                List<List<Writable>> actual = new ArrayList<>();
+                while (reader.hasNext()) {
+                    actual.addAll(reader.next(64));
+                }
+                //Order of records is not deterministic
+                assertEquals(sortById(expected), sortById(actual));
+                reader.reset();
+            }
+
+            Record r = reader.nextRecord();
+            Record recovered = reader.loadFromMetaData(r.getMetaData());
+            if (!(r.getRecord().get(0) instanceof NullWritable)) {
+                assertEquals(r.getRecord(), recovered.getRecord());
+            }
+        }
+    }
+
+    private static List<List<Writable>> sortById(List<List<Writable>> records) {
+        List<List<Writable>> out = new ArrayList<>(records);
+        Collections.sort(out, new Comparator<List<Writable>>() {
+            @Override
+            public int compare(List<Writable> o1, List<Writable> o2) {
+                //Null id (for which toDouble fails) first
+                boolean n1 = o1.get(0) instanceof NullWritable;
+                boolean n2 = o2.get(0) instanceof NullWritable;
+                if (n1 || n2) {
+                    return Boolean.compare(n2, n1);
+                }
+                return Integer.compare(o1.get(0).toInt(), o2.get(0).toInt());
+            }
+        });
+        return out;
+    }
+
     private JDBCRecordReader getInitializedReader(String query) throws Exception {
         int[] indices = {1}; // ProdNum column
         JDBCRecordReader reader = new JDBCRecordReader(query, dataSource, "SELECT * FROM Coffee WHERE ProdNum = ?",
@@ -35,6 +35,10 @@ public class TestDb {
                 stmt.execute("DROP TABLE AllTypes");
             } catch (SQLException ex) {
             }
+            try {
+                stmt.execute("DROP TABLE Items");
+            } catch (SQLException ex) {
+            }
         } catch (SQLException ex) {
             System.out.println("ERROR: " + ex.getMessage());
             ex.printStackTrace();
@@ -65,6 +69,23 @@ public class TestDb {
         }
     }
 
+    /**
+     * Creates the Items table, with ids 0 to n-1 plus one row with a null id
+     */
+    public static void buildItemsTable(Connection conn, int n) {
+        try {
+            Statement stmt = conn.createStatement();
+            stmt.execute("CREATE TABLE Items (id INTEGER, val DOUBLE, name VARCHAR(20))");
+            for (int i = 0; i < n; i++) {
+                stmt.execute("INSERT INTO Items VALUES (" + i + ", " + (i / 2.0) + ", 'item" + i + "')");
+            }
+            stmt.execute("INSERT INTO Items VALUES (NULL, -1.0, 'none')");
+        } catch (SQLException ex) {
+            System.out.println("ERROR: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
     public static void buildAllTypesTable(Connection conn) {
         try {
             Statement stmt = conn.createStatement();
@@ -26,6 +26,7 @@ import org.datavec.api.transform.ColumnType;
 import org.datavec.api.transform.analysis.AnalysisCounter;
 import org.datavec.api.transform.analysis.DataAnalysis;
 import org.datavec.api.transform.analysis.DataVecAnalysisUtils;
+import org.datavec.api.transform.analysis.StreamingDataAnalysis;
 import org.datavec.api.transform.analysis.columns.ColumnAnalysis;
 import org.datavec.api.transform.analysis.histogram.HistogramCounter;
 import org.datavec.api.transform.analysis.quality.QualityAnalysisAddFunction;
@@ -38,9 +39,11 @@ import org.datavec.local.transforms.analysis.aggregate.AnalysisAddFunction;
 import org.datavec.local.transforms.analysis.histogram.HistogramAddFunction;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 public class AnalyzeLocal {
     private static final int DEFAULT_MAX_HISTOGRAM_BUCKETS = 30;
+    private static final int STREAMING_BATCH_SIZE = 1024;
 
     /**
      * Analyse the specified data - returns a DataAnalysis object with summary information about each column
@@ -88,6 +91,99 @@ public class AnalyzeLocal {
         return new DataAnalysis(schema, list);
     }
 
+    /**
+     * Analyse the specified data in a single pass, with bounded memory use. Unlike {@link #analyze(Schema, RecordReader)},
+     * the record reader does not need to support reset, and the number of unique values and the most frequent values
+     * of each column are estimated. See {@link StreamingDataAnalysis} for details.<br>
+     * Use {@link StreamingDataAnalysis#getDataAnalysis(int)} to get the DataAnalysis
+     *
+     * @param schema Schema for data
+     * @param rr     Data to analyze
+     * @return Analysis of the data
+     */
+    public static StreamingDataAnalysis analyzeStreaming(Schema schema, RecordReader rr) {
+        return analyzeStreaming(schema, rr, StreamingDataAnalysis.DEFAULT_TOP_K, 1);
+    }
+
+    /**
+     * Analyse the specified data in a single pass, with bounded memory use. Records are read on the calling thread,
+     * and analysed in batches by the specified number of threads; the per-thread results are merged at the end.
+     * See {@link #analyzeStreaming(Schema, RecordReader)}
+     *
+     * @param schema     Schema for data
+     * @param rr         Data to analyze
+     * @param topK       Number of most frequent values to track, for string, categorical, integer and long columns
+     * @param numThreads Number of threads to use for the analysis
+     * @return Analysis of the data
+     */
+    public static StreamingDataAnalysis analyzeStreaming(Schema schema, RecordReader rr, int topK, int numThreads) {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive, got " + numThreads);
+        if (numThreads == 1) {
+            StreamingDataAnalysis analysis = new StreamingDataAnalysis(schema, topK);
+            while (rr.hasNext()) {
+                analysis.add(rr.next());
+            }
+            return analysis;
+        }
+
+        //Bounded queue: at most 2 batches per thread are held in memory at any time
+        final List<List<Writable>> end = Collections.emptyList();
+        BlockingQueue<List<List<Writable>>> queue = new ArrayBlockingQueue<>(2 * numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<StreamingDataAnalysis>> futures = new ArrayList<>(numThreads);
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    StreamingDataAnalysis analysis = new StreamingDataAnalysis(schema, topK);
+                    List<List<Writable>> batch;
+                    while ((batch = queue.take()) != end) {
+                        for (List<Writable> record : batch) {
+                            analysis.add(record);
+                        }
+                    }
+                    return analysis;
+                }));
+            }
+
+            while (rr.hasNext()) {
+                List<List<Writable>> batch = new ArrayList<>(STREAMING_BATCH_SIZE);
+                while (batch.size() < STREAMING_BATCH_SIZE && rr.hasNext()) {
+                    batch.add(rr.next());
+                }
+                putUnlessFailed(queue, batch, futures);
+            }
+            for (int i = 0; i < numThreads; i++) {
+                putUnlessFailed(queue, end, futures);
+            }
+
+            StreamingDataAnalysis out = null;
+            for (Future<StreamingDataAnalysis> f : futures) {
+                StreamingDataAnalysis a = f.get();
+                out = (out == null ? a : out.merge(a));
+            }
+            return out;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during analysis", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error during analysis", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void putUnlessFailed(BlockingQueue<List<List<Writable>>> queue, List<List<Writable>> batch,
+                                        List<Future<StreamingDataAnalysis>> workers) throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<StreamingDataAnalysis> f : workers) {
+                if (f.isDone()) {
+                    //Worker failed (workers only finish after the end of the data): rethrows the exception
+                    f.get();
+                }
+            }
+        }
+    }
 
     /**
      * Analyze the data quality of sequence data - provides a report on missing values, values that don't comply with schema, etc
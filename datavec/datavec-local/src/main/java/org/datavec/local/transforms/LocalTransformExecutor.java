@@ -27,6 +27,8 @@ import lombok.val;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
 import org.apache.arrow.vector.FieldVector;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.writer.RecordWriter;
 import org.datavec.api.transform.DataAction;
 import org.datavec.api.transform.Transform;
 import org.datavec.api.transform.TransformProcess;
@@ -55,6 +57,7 @@ import org.nd4j.common.function.Function;
 import org.nd4j.common.function.FunctionalUtils;
 import org.nd4j.common.primitives.Pair;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
@@ -68,6 +71,8 @@ public class LocalTransformExecutor {
     //returning empty records
     public final static String LOG_ERROR_PROPERTY = "org.datavec.spark.transform.logerrors";
 
+    public final static int DEFAULT_STREAMING_BATCH_SIZE = 256;
+
     private static BufferAllocator bufferAllocator = new RootAllocator(Long.MAX_VALUE);
 
     /**
@@ -94,6 +99,89 @@ public class LocalTransformExecutor {
         return execute(filteredSequence, null, transformProcess).getFirst();
     }
 
+    /**
+     * Execute the specified TransformProcess on a stream of records, using all available processors.
+     * See {@link #executeStreaming(Iterator, TransformProcess, int, int)}
+     *
+     * @param input            Input records
+     * @param transformProcess TransformProcess to execute
+     * @return Iterator over the processed records
+     */
+    public static StreamingTransformIterator executeStreaming(Iterator<List<Writable>> input,
+                                                              TransformProcess transformProcess) {
+        return executeStreaming(input, transformProcess, Runtime.getRuntime().availableProcessors(), DEFAULT_STREAMING_BATCH_SIZE);
+    }
+
+    /**
+     * Execute the specified TransformProcess on a stream of records, without loading the full data set into memory.<br>
+     * Records are processed in parallel on a fork-join pool with {@code numThreads} threads, in batches of
+     * {@code batchSize} records. Input is only read as the returned iterator is consumed, with a bounded number of
+     * batches processed ahead of the consumer. Output order matches input order.<br>
+     * Note: this method can only be used for TransformProcesses that contain only transforms and filters - i.e., no
+     * conversion to/from sequences, reductions, joins or sorting.
+     *
+     * @param input            Input records
+     * @param transformProcess TransformProcess to execute
+     * @param numThreads       Number of threads to use
+     * @param batchSize        Number of records per parallel task
+     * @return Iterator over the processed records. Should be closed if not fully consumed
+     */
+    public static StreamingTransformIterator executeStreaming(Iterator<List<Writable>> input,
+                                                              TransformProcess transformProcess,
+                                                              int numThreads, int batchSize) {
+        return new StreamingTransformIterator(input, transformProcess, numThreads, batchSize);
+    }
+
+    /**
+     * Execute the specified TransformProcess on all records from the given RecordReader.
+     * See {@link #executeStreaming(Iterator, TransformProcess, int, int)}
+     *
+     * @param input            Record reader to read from. Must be initialized
+     * @param transformProcess TransformProcess to execute
+     * @param numThreads       Number of threads to use
+     * @param batchSize        Number of records per parallel task
+     * @return Iterator over the processed records. Should be closed if not fully consumed
+     */
+    public static StreamingTransformIterator executeStreaming(RecordReader input, TransformProcess transformProcess,
+                                                              int numThreads, int batchSize) {
+        Iterator<List<Writable>> iter = new Iterator<List<Writable>>() {
+            @Override
+            public boolean hasNext() {
+                return input.hasNext();
+            }
+
+            @Override
+            public List<Writable> next() {
+                return input.next();
+            }
+        };
+        return executeStreaming(iter, transformProcess, numThreads, batchSize);
+    }
+
+    /**
+     * Execute the specified TransformProcess on all records from the given RecordReader, writing the results to
+     * the given RecordWriter. See {@link #executeStreaming(Iterator, TransformProcess, int, int)}
+     *
+     * @param input            Record reader to read from. Must be initialized
+     * @param transformProcess TransformProcess to execute
+     * @param output           Record writer to write the processed records to. Must be initialized. Not closed by
+     *                         this method
+     * @param numThreads       Number of threads to use
+     * @param batchSize        Number of records per parallel task
+     * @return Number of records written
+     */
+    public static long executeStreaming(RecordReader input, TransformProcess transformProcess, RecordWriter output,
+                                        int numThreads, int batchSize) throws IOException {
+        long count = 0;
+        try (StreamingTransformIterator iter = executeStreaming(input, transformProcess, numThreads, batchSize)) {
+            while (iter.hasNext()) {
+                output.write(iter.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Execute the specified TransformProcess with the given input data<br>
      * Note: this method can only be used if the TransformProcess
@@ -0,0 +1,180 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.transform.CompiledTransformProcess;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.schema.SequenceSchema;
+import org.datavec.api.writable.Writable;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes a (non-sequence) {@link TransformProcess} on a stream of records, using a bounded fork-join pool.<br>
+ * Records are pulled from the input in batches as the output is consumed: at most {@code 2 * numThreads} batches
+ * are read ahead and being processed at any time, so the full data set never needs to fit in memory.
+ * The output order is the same as the input order.<br>
+ * Only transforms and filters are supported, as operations such as conversion to sequences, reductions, joins and
+ * sorting require the full data set. See {@link LocalTransformExecutor#executeStreaming(Iterator, TransformProcess, int, int)}
+ */
+@Slf4j
+public class StreamingTransformIterator implements Iterator<List<Writable>>, Closeable {
+
+    private final Iterator<List<Writable>> input;
+    private final CompiledTransformProcess transformProcess;
+    private final int numInputColumns;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+    private final ForkJoinPool pool;
+    private final Deque<ForkJoinTask<List<List<Writable>>>> pending = new ArrayDeque<>();
+    private final AtomicLong invalidCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private List<List<Writable>> current;
+    private int currentIdx;
+    private boolean closed;
+
+    /**
+     * @param input            Input records
+     * @param transformProcess Transform process to execute. Must contain only transforms and filters
+     * @param numThreads       Number of threads to use
+     * @param batchSize        Number of records per task
+     */
+    public StreamingTransformIterator(@NonNull Iterator<List<Writable>> input, @NonNull TransformProcess transformProcess,
+                                      int numThreads, int batchSize) {
+        if (numThreads <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Number of threads and batch size must be positive: got numThreads="
+                    + numThreads + ", batchSize=" + batchSize);
+        }
+        if (transformProcess.getFinalSchema() instanceof SequenceSchema) {
+            throw new IllegalStateException("Cannot return sequence data with this method");
+        }
+        this.input = input;
+        this.transformProcess = transformProcess.compile();
+        this.numInputColumns = transformProcess.getInitialSchema().numColumns();
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = 2 * numThreads;
+        this.pool = new ForkJoinPool(numThreads);
+        fillQueue();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || currentIdx >= current.size()) {
+            if (pending.isEmpty()) {
+                finish();
+                return false;
+            }
+            ForkJoinTask<List<List<Writable>>> task = pending.removeFirst();
+            try {
+                current = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for transform results", e);
+            } catch (ExecutionException e) {
+                close();
+                throw new RuntimeException("Error executing transform process", e.getCause());
+            }
+            currentIdx = 0;
+            fillQueue();
+        }
+        return true;
+    }
+
+    @Override
+    public List<Writable> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more elements");
+        }
+        List<Writable> out = current.get(currentIdx);
+        current.set(currentIdx++, null);    //Allow GC of consumed records
+        return out;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ForkJoinTask<?> t : pending) {
+            t.cancel(true);
+        }
+        pending.clear();
+        pool.shutdownNow();
+    }
+
+    private void finish() {
+        if (!closed) {
+            if (invalidCount.get() > 0) {
+                log.warn("Filtered out " + invalidCount.get() + " values");
+            }
+            if (errorCount.get() > 0) {
+                log.warn("Skipped " + errorCount.get() + " records due to errors during execution");
+            }
+            close();
+        }
+    }
+
+    private void fillQueue() {
+        while (!closed && pending.size() < maxBatchesInFlight && input.hasNext()) {
+            final List<List<Writable>> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && input.hasNext()) {
+                batch.add(input.next());
+            }
+            pending.addLast(pool.submit(() -> processBatch(batch)));
+        }
+    }
+
+    private List<List<Writable>> processBatch(List<List<Writable>> batch) {
+        boolean tryCatch = LocalTransformExecutor.isTryCatch();
+        List<List<Writable>> out = new ArrayList<>(batch.size());
+        for (List<Writable> record : batch) {
+            if (record.size() != numInputColumns) {
+                invalidCount.incrementAndGet();
+                continue;
+            }
+            List<Writable> result;
+            if (tryCatch) {
+                try {
+                    result = transformProcess.execute(record);
+                } catch (Exception e) {
+                    log.warn("Error occurred " + e + " on record " + record);
+                    errorCount.incrementAndGet();
+                    continue;
+                }
+            } else {
+                result = transformProcess.execute(record);
+            }
+            if (result != null) {
+                out.add(result);
+            }
+        }
+        return out;
+    }
+}
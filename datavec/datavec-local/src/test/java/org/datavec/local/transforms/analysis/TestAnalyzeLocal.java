@@ -21,12 +21,18 @@
 package org.datavec.local.transforms.analysis;
 
 import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.impl.collection.CollectionRecordReader;
 import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
 import org.datavec.api.split.FileSplit;
 import org.datavec.api.transform.analysis.DataAnalysis;
+import org.datavec.api.transform.analysis.StreamingDataAnalysis;
+import org.datavec.api.transform.analysis.columns.DoubleAnalysis;
 import org.datavec.api.transform.analysis.columns.NumericalColumnAnalysis;
 import org.datavec.api.transform.schema.Schema;
 import org.datavec.api.util.ndarray.RecordConverter;
+import org.datavec.api.writable.DoubleWritable;
+import org.datavec.api.writable.IntWritable;
+import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
 import org.datavec.local.transforms.AnalyzeLocal;
 import org.junit.Rule;
@@ -35,11 +41,18 @@ import org.junit.rules.TemporaryFolder;
 import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.common.io.ClassPathResource;
+import org.nd4j.common.primitives.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestAnalyzeLocal {
 
@@ -81,4 +94,69 @@ public class TestAnalyzeLocal {
 
     }
 
+    @Test
+    public void testAnalysisStreaming() throws Exception {
+        Schema s = new Schema.Builder()
+                .addColumnString("str")
+                .addColumnInteger("int")
+                .addColumnDouble("double")
+                .build();
+
+        Random r = new Random(12345);
+        List<List<Writable>> data = new ArrayList<>();
+        Set<Integer> intValues = new HashSet<>();
+        for (int i = 0; i < 20000; i++) {
+            //Value 0 is the most frequent, then 1, etc
+            int v = (int) (-5 * Math.log(1.0 - r.nextDouble()));
+            intValues.add(v);
+            data.add(Arrays.<Writable>asList(new Text("s" + r.nextInt(2000)), new IntWritable(v),
+                    new DoubleWritable(r.nextGaussian())));
+        }
+
+        DataAnalysis exact = AnalyzeLocal.analyze(s, new CollectionRecordReader(data), 20);
+        for (int numThreads : new int[]{1, 4}) {
+            StreamingDataAnalysis sda = AnalyzeLocal.analyzeStreaming(s, new CollectionRecordReader(data), 5, numThreads);
+            assertEquals(data.size(), sda.getCountTotal());
+            DataAnalysis da = sda.getDataAnalysis(20);
+
+            for (int i = 1; i < 3; i++) {
+                NumericalColumnAnalysis e = (NumericalColumnAnalysis) exact.getColumnAnalysis().get(i);
+                NumericalColumnAnalysis a = (NumericalColumnAnalysis) da.getColumnAnalysis().get(i);
+                assertEquals(e.getCountTotal(), a.getCountTotal());
+                assertEquals(e.getMean(), a.getMean(), 1e-6);
+                assertEquals(e.getSampleStdev(), a.getSampleStdev(), 1e-6);
+                long sum = 0;
+                for (long l : a.getHistogramBucketCounts()) {
+                    sum += l;
+                }
+                assertEquals(data.size(), sum);
+            }
+
+            //Histogram from the digest should be close to the exact histogram
+            DoubleAnalysis e = (DoubleAnalysis) exact.getColumnAnalysis().get(2);
+            DoubleAnalysis a = (DoubleAnalysis) da.getColumnAnalysis().get(2);
+            assertEquals(20, e.getHistogramBucketCounts().length);
+            assertEquals(e.getHistogramBucketCounts().length, a.getHistogramBucketCounts().length);
+            assertArrayEquals(e.getHistogramBuckets(), a.getHistogramBuckets(), 1e-6);
+            for (int i = 0; i < e.getHistogramBucketCounts().length; i++) {
+                assertEquals(e.getHistogramBucketCounts()[i], a.getHistogramBucketCounts()[i], 0.01 * data.size());
+            }
+
+            assertEquals(2000, sda.getCardinality("str"), 100);
+            assertEquals(intValues.size(), sda.getCardinality("int"), 1);
+
+            List<Pair<String, Long>> top = sda.getTopValues("int");
+            assertEquals(5, top.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(String.valueOf(i), top.get(i).getFirst());
+            }
+            long exactCount0 = 0;
+            for (List<Writable> l : data) {
+                if (l.get(1).toInt() == 0)
+                    exactCount0++;
+            }
+            assertTrue(top.get(0).getSecond() >= exactCount0);
+            assertEquals(exactCount0, top.get(0).getSecond(), 0.001 * data.size() * 2);
+        }
+    }
 }
@@ -21,6 +21,7 @@
 package org.datavec.local.transforms.transform;
 
 
+import org.datavec.api.records.reader.impl.collection.CollectionRecordReader;
 import org.datavec.api.transform.MathFunction;
 import org.datavec.api.transform.MathOp;
 import org.datavec.api.transform.ReduceOp;
@@ -34,6 +35,7 @@ import org.datavec.api.writable.*;
 import org.datavec.python.PythonTransform;
 
 import org.datavec.local.transforms.LocalTransformExecutor;
+import org.datavec.local.transforms.StreamingTransformIterator;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -76,6 +78,46 @@ public class ExecutionTest  {
 
     }
 
+    @Test
+    public void testExecutionStreaming() throws Exception {
+        Schema schema = new Schema.Builder().addColumnInteger("col0")
+                .addColumnCategorical("col1", "state0", "state1", "state2").addColumnDouble("col2").build();
+
+        TransformProcess tp = new TransformProcess.Builder(schema).categoricalToInteger("col1")
+                .doubleMathOp("col2", MathOp.Add, 10.0)
+                .filter(new DoubleColumnCondition("col2", ConditionOp.LessThan, 10.5))
+                .build();
+
+        Random r = new Random(12345);
+        List<List<Writable>> inputData = new ArrayList<>();
+        List<List<Writable>> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            List<Writable> l = Arrays.<Writable>asList(new IntWritable(i), new Text("state" + r.nextInt(3)),
+                    new DoubleWritable(r.nextDouble()));
+            inputData.add(l);
+            List<Writable> exp = tp.execute(l);
+            if (exp != null) {
+                expected.add(exp);
+            }
+        }
+
+        List<List<Writable>> out = new ArrayList<>();
+        try (StreamingTransformIterator iter = LocalTransformExecutor.executeStreaming(inputData.iterator(), tp, 4, 64)) {
+            while (iter.hasNext()) {
+                out.add(iter.next());
+            }
+        }
+        assertEquals(expected, out);
+
+        CollectionRecordReader rr = new CollectionRecordReader(inputData);
+        List<List<Writable>> out2 = new ArrayList<>();
+        StreamingTransformIterator iter = LocalTransformExecutor.executeStreaming(rr, tp, 3, 100);
+        while (iter.hasNext()) {
+            out2.add(iter.next());
+        }
+        assertEquals(expected, out2);
+    }
+
     @Test
     public void testExecutionSimple() {
         Schema schema = new Schema.Builder().addColumnInteger("col0")
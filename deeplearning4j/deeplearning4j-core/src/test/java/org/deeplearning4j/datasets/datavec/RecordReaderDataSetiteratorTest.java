@@ -1395,4 +1395,45 @@ public class RecordReaderDataSetiteratorTest extends BaseDL4JTest {
         trainIter.setCollectMetaData(true);
         assertTrue(trainIter.isCollectMetaData());
     }
+
+    @Test
+    public void testSeqRRDSIBucketing(){
+        int[] lengths = {1, 5, 2, 6, 3, 4};
+        List<List<List<Writable>>> features = new ArrayList<>();
+        List<List<List<Writable>>> labels = new ArrayList<>();
+        for (int i = 0; i < lengths.length; i++) {
+            List<List<Writable>> f = new ArrayList<>();
+            List<List<Writable>> l = new ArrayList<>();
+            for (int j = 0; j < lengths[i]; j++) {
+                f.add(Arrays.asList((Writable) new DoubleWritable(i), new DoubleWritable(j)));
+                l.add(Collections.singletonList((Writable) new DoubleWritable(i)));
+            }
+            features.add(f);
+            labels.add(l);
+        }
+
+        SequenceRecordReaderDataSetIterator iter = new SequenceRecordReaderDataSetIterator(
+                new CollectionSequenceRecordReader(features), new CollectionSequenceRecordReader(labels), 2, -1,
+                true, SequenceRecordReaderDataSetIterator.AlignmentMode.ALIGN_START);
+        iter.setBucketingBatches(3);
+
+        //Sorted by length: examples 3, 1, 5, 4, 2, 0 -> each minibatch trimmed to its longest sequence
+        int[][] expExamples = {{3, 1}, {5, 4}, {2, 0}};
+        for (int epoch = 0; epoch < 2; epoch++) {
+            for (int[] exp : expExamples) {
+                assertTrue(iter.hasNext());
+                DataSet ds = iter.next();
+                int tsLength = lengths[exp[0]];
+                assertArrayEquals(new long[]{2, 2, tsLength}, ds.getFeatures().shape());
+                assertArrayEquals(new long[]{2, 1, tsLength}, ds.getLabels().shape());
+                assertArrayEquals(new long[]{2, tsLength}, ds.getFeaturesMaskArray().shape());
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(exp[i], ds.getFeatures().getDouble(i, 0, 0), 0.0);
+                    assertEquals(lengths[exp[i]], ds.getFeaturesMaskArray().getRow(i).sumNumber().intValue());
+                }
+            }
+            assertFalse(iter.hasNext());
+            iter.reset();
+        }
+    }
 }
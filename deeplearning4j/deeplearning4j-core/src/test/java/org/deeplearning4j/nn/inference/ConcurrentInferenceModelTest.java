@@ -0,0 +1,126 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.inference;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentInferenceModelTest extends BaseDL4JTest {
+
+    @Test
+    public void testMultiLayerNetwork() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH).build())
+                .layer(new BatchNormalization.Builder().nOut(20).build())
+                .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(20).nOut(5)
+                        .activation(Activation.SOFTMAX).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        checkConcurrentOutput(net);
+    }
+
+    @Test
+    public void testComputationGraph() throws Exception {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(10).nOut(20).activation(Activation.TANH).build(), "in")
+                .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(20).nOut(5)
+                        .activation(Activation.SOFTMAX).build(), "0")
+                .setOutputs("out")
+                .build();
+        ComputationGraph net = new ComputationGraph(conf);
+        net.init();
+
+        checkConcurrentOutput(net);
+    }
+
+    private static void checkConcurrentOutput(Model net) throws Exception {
+        //More threads than replicas: threads wait for a replica to be returned
+        final ConcurrentInferenceModel model = new ConcurrentInferenceModel(net, 2);
+        final List<INDArray> inputs = new ArrayList<>();
+        final List<INDArray> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            INDArray in = Nd4j.rand(3 + i % 4, 10);
+            inputs.add(in);
+            expected.add(net instanceof MultiLayerNetwork ? ((MultiLayerNetwork) net).output(in)
+                    : ((ComputationGraph) net).outputSingle(in));
+        }
+
+        //Replicas share the parameters array of the original network, and are reused once returned
+        Model replica = model.borrowReplica();
+        assertSame(net.params(), replica.params());
+        model.returnReplica(replica);
+        Model replica2 = model.borrowReplica();
+        assertSame(replica, replica2);
+        model.returnReplica(replica2);
+
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(exec.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int rep = 0; rep < 5; rep++) {
+                            for (int i = 0; i < inputs.size(); i++) {
+                                if (!expected.get(i).equals(model.output(inputs.get(i)))) {
+                                    return false;
+                                }
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> f : futures) {
+                assertTrue(f.get());
+            }
+            assertTrue(model.getNumReplicas() <= 2);
+        } finally {
+            exec.shutdown();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.inference;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.ActivationLayer;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.layers.FrozenLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class LayerFusionTest extends BaseDL4JTest {
+
+    private static final double EPS = 1e-6;
+
+    @Test
+    public void testMultiLayerNetwork() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .list()
+                .layer(new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4).hasBias(false)
+                        .activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().build())
+                .layer(new ActivationLayer.Builder().activation(Activation.RELU).build())
+                .layer(new ConvolutionLayer.Builder().kernelSize(2, 2).nOut(3).activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().useLogStd(false).lockGammaBeta(true).gamma(1.5).beta(0.2)
+                        .activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nOut(8).activation(Activation.IDENTITY).build())
+                .layer(new ActivationLayer.Builder().activation(Activation.SIGMOID).build())
+                .layer(new DenseLayer.Builder().nOut(6).activation(Activation.RELU).build())
+                .layer(new BatchNormalization.Builder().build())
+                .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nOut(5)
+                        .activation(Activation.SOFTMAX).build())
+                .setInputType(InputType.convolutional(8, 8, 2))
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        for (Layer l : net.getLayers()) {
+            randomizeBatchNorm(l);
+        }
+
+        MultiLayerNetwork fused = LayerFusion.fuse(net);
+
+        //conv+bn+act, conv+bn(tanh), dense+act, dense (relu, not fused), bn, output
+        assertEquals(6, fused.getnLayers());
+        assertEquals(10, net.getnLayers());
+        for (Layer l : fused.getLayers()) {
+            assertTrue(l instanceof FrozenLayer);
+        }
+
+        INDArray in = Nd4j.rand(DataType.DOUBLE, 3, 2, 8, 8);
+        INDArray exp = net.output(in);
+        INDArray out = fused.output(in);
+        assertTrue(exp.equalsWithEps(out, EPS));
+    }
+
+    @Test
+    public void testComputationGraph() {
+        Nd4j.getRandom().setSeed(12345);
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("conv", new ConvolutionLayer.Builder().kernelSize(3, 3).nOut(4)
+                        .activation(Activation.IDENTITY).build(), "in")
+                .addLayer("bn", new BatchNormalization.Builder().build(), "conv")
+                .addLayer("act", new ActivationLayer.Builder().activation(Activation.RELU).build(), "bn")
+                //conv2 output is used twice: not fused
+                .addLayer("conv2", new ConvolutionLayer.Builder().kernelSize(1, 1).nOut(4)
+                        .activation(Activation.IDENTITY).build(), "act")
+                .addLayer("bn2", new BatchNormalization.Builder().build(), "conv2")
+                .addLayer("dense", new DenseLayer.Builder().nOut(6).activation(Activation.IDENTITY).build(), "bn2")
+                .addLayer("dense2", new DenseLayer.Builder().nOut(6).activation(Activation.IDENTITY).build(), "conv2")
+                .addLayer("act2", new ActivationLayer.Builder().activation(Activation.TANH).build(), "dense")
+                .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MSE).nOut(3)
+                        .activation(Activation.IDENTITY).build(), "act2")
+                .setOutputs("out", "dense2")
+                .setInputTypes(InputType.convolutional(6, 6, 2))
+                .build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        for (Layer l : graph.getLayers()) {
+            randomizeBatchNorm(l);
+        }
+
+        ComputationGraph fused = LayerFusion.fuse(graph);
+
+        ComputationGraphConfiguration fusedConf = fused.getConfiguration();
+        assertFalse(fusedConf.getVertices().containsKey("bn"));
+        assertFalse(fusedConf.getVertices().containsKey("act"));
+        assertFalse(fusedConf.getVertices().containsKey("act2"));
+        assertTrue(fusedConf.getVertices().containsKey("conv2"));
+        assertTrue(fusedConf.getVertices().containsKey("bn2"));
+        assertEquals("conv", fusedConf.getVertexInputs().get("conv2").get(0));
+        assertEquals("dense", fusedConf.getVertexInputs().get("out").get(0));
+
+        INDArray in = Nd4j.rand(DataType.DOUBLE, 3, 2, 6, 6);
+        INDArray[] exp = graph.output(in);
+        INDArray[] out = fused.output(in);
+        assertEquals(exp.length, out.length);
+        for (int i = 0; i < exp.length; i++) {
+            assertTrue(exp[i].equalsWithEps(out[i], EPS));
+        }
+    }
+
+    @Test
+    public void testOriginalUnchanged() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(6).activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().build())
+                .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MSE).nOut(2)
+                        .activation(Activation.IDENTITY).build())
+                .setInputType(InputType.feedForward(4))
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        randomizeBatchNorm(net.getLayer(1));
+        INDArray params = net.params().dup();
+
+        MultiLayerNetwork fused = LayerFusion.fuse(net);
+        assertEquals(2, fused.getnLayers());
+        assertEquals(3, net.getnLayers());
+        assertEquals(params, net.params());
+    }
+
+    @Test
+    public void testDenseWithoutBias() {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .list()
+                .layer(new DenseLayer.Builder().nOut(6).hasBias(false).activation(Activation.IDENTITY).build())
+                .layer(new BatchNormalization.Builder().activation(Activation.RELU).build())
+                .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MSE).nOut(2)
+                        .activation(Activation.IDENTITY).build())
+                .setInputType(InputType.feedForward(4))
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        randomizeBatchNorm(net.getLayer(1));
+
+        MultiLayerNetwork fused = LayerFusion.fuse(net);
+        assertEquals(2, fused.getnLayers());
+        //The folded batch norm shift requires a bias
+        assertNotNull(fused.getLayer(0).getParam("b"));
+
+        INDArray in = Nd4j.rand(DataType.DOUBLE, 5, 4);
+        assertTrue(net.output(in).equalsWithEps(fused.output(in), EPS));
+    }
+
+    private static void randomizeBatchNorm(Layer l) {
+        if (!(l instanceof org.deeplearning4j.nn.layers.normalization.BatchNormalization))
+            return;
+        BatchNormalization conf = (BatchNormalization) l.conf().getLayer();
+        INDArray mean = l.getParam(BatchNormalizationParamInitializer.GLOBAL_MEAN);
+        mean.assign(Nd4j.rand(mean.dataType(), mean.shape()).subi(0.5));
+        if (conf.isUseLogStd()) {
+            INDArray log10s = l.getParam(BatchNormalizationParamInitializer.GLOBAL_LOG_STD);
+            log10s.assign(Nd4j.rand(log10s.dataType(), log10s.shape()).subi(0.5).muli(0.5));
+        } else {
+            INDArray var = l.getParam(BatchNormalizationParamInitializer.GLOBAL_VAR);
+            var.assign(Nd4j.rand(var.dataType(), var.shape()).addi(0.5));
+        }
+        if (!conf.isLockGammaBeta()) {
+            INDArray gamma = l.getParam(BatchNormalizationParamInitializer.GAMMA);
+            gamma.assign(Nd4j.rand(gamma.dataType(), gamma.shape()).addi(0.5));
+            INDArray beta = l.getParam(BatchNormalizationParamInitializer.BETA);
+            beta.assign(Nd4j.rand(beta.dataType(), beta.shape()).subi(0.5));
+        }
+    }
+}
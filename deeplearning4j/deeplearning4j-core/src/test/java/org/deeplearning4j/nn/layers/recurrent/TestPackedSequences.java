@@ -0,0 +1,150 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.layers.recurrent;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.RNNFormat;
+import org.deeplearning4j.nn.conf.layers.BaseRecurrentLayer;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.conf.layers.recurrent.SimpleRnn;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.NoOp;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+import static org.nd4j.linalg.indexing.NDArrayIndex.interval;
+
+public class TestPackedSequences extends BaseDL4JTest {
+
+    @Override
+    public DataType getDataType() {
+        return DataType.DOUBLE;
+    }
+
+    @Test
+    public void testFromMask() {
+        INDArray mask = Nd4j.create(new double[][]{
+                {1, 1, 0, 0},
+                {1, 1, 1, 1},
+                {1, 0, 0, 0},
+                {1, 1, 1, 0}});
+        PackedSequence p = PackedSequence.fromMask(mask);
+        assertNotNull(p);
+        assertArrayEquals(new int[]{2, 4, 1, 3}, p.getLengths());
+        assertArrayEquals(new int[]{1, 3, 0, 2}, p.getOrder());
+        assertArrayEquals(new int[]{4, 3, 2, 1}, p.getActiveCounts());
+        assertFalse(p.isSorted());
+
+        INDArray arr = Nd4j.create(new double[][]{{0, 0}, {1, 1}, {2, 2}, {3, 3}});
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.noWorkspaces();
+        INDArray packed = p.pack(arr, ArrayType.ACTIVATIONS, mgr);
+        assertEquals(Nd4j.create(new double[][]{{1, 1}, {3, 3}, {0, 0}, {2, 2}}), packed);
+        assertEquals(arr, p.unpack(packed, ArrayType.ACTIVATIONS, mgr));
+
+        //Already sorted: no reordering required
+        p = PackedSequence.fromMask(Nd4j.create(new double[][]{{1, 1, 1}, {1, 0, 0}}));
+        assertTrue(p.isSorted());
+        assertArrayEquals(new int[]{2, 1, 1}, p.getActiveCounts());
+
+        //No padding, or padding not at the end: can't/shouldn't pack
+        assertNull(PackedSequence.fromMask(Nd4j.ones(3, 4)));
+        assertNull(PackedSequence.fromMask(Nd4j.create(new double[][]{{0, 1, 1}, {1, 1, 1}})));
+    }
+
+    @Test
+    public void testPackedMatchesUnpacked() {
+        int nIn = 3;
+        int layerSize = 4;
+        int nOut = 2;
+        int tsLength = 8;
+        //Unsorted lengths, none of which use all time steps
+        int[] lengths = {3, 7, 1, 5, 7};
+        int mb = lengths.length;
+
+        for (RNNFormat format : RNNFormat.values()) {
+            for (boolean lstm : new boolean[]{true, false}) {
+                String msg = "format=" + format + ", lstm=" + lstm;
+
+                INDArray in = Nd4j.rand(DataType.DOUBLE, format == RNNFormat.NCW ? new long[]{mb, nIn, tsLength} : new long[]{mb, tsLength, nIn});
+                INDArray labels = Nd4j.rand(DataType.DOUBLE, format == RNNFormat.NCW ? new long[]{mb, nOut, tsLength} : new long[]{mb, tsLength, nOut});
+                INDArray mask = Nd4j.zeros(DataType.DOUBLE, mb, tsLength);
+                for (int i = 0; i < mb; i++) {
+                    mask.get(interval(i, i, true), interval(0, lengths[i])).assign(1);
+                }
+
+                MultiLayerNetwork unpacked = new MultiLayerNetwork(getConf(nIn, layerSize, nOut, format, lstm, false));
+                unpacked.init();
+                MultiLayerNetwork packed = new MultiLayerNetwork(getConf(nIn, layerSize, nOut, format, lstm, true));
+                packed.init();
+                packed.setParams(unpacked.params().dup());
+
+                INDArray outExp = unpacked.output(in, false, mask, mask);
+                INDArray out = packed.output(in, false, mask, mask);
+                assertEquals(msg, outExp, out);
+
+                for (MultiLayerNetwork net : new MultiLayerNetwork[]{unpacked, packed}) {
+                    net.setInput(in);
+                    net.setLabels(labels);
+                    net.setLayerMaskArrays(mask, mask);
+                    net.computeGradientAndScore();
+                }
+                assertEquals(msg, unpacked.score(), packed.score(), 1e-10);
+                for (String key : unpacked.gradient().gradientForVariable().keySet()) {
+                    INDArray gExp = unpacked.gradient().gradientForVariable().get(key);
+                    INDArray g = packed.gradient().gradientForVariable().get(key);
+                    assertTrue(msg + " - " + key, gExp.equalsWithEps(g, 1e-8));
+                }
+            }
+        }
+    }
+
+    private static MultiLayerConfiguration getConf(int nIn, int layerSize, int nOut, RNNFormat format, boolean lstm,
+                                                   boolean packedSequences) {
+        BaseRecurrentLayer layer;
+        if (lstm) {
+            layer = new LSTM.Builder().nIn(nIn).nOut(layerSize).dataFormat(format).packedSequences(packedSequences).build();
+        } else {
+            layer = new SimpleRnn.Builder().nIn(nIn).nOut(layerSize).dataFormat(format).packedSequences(packedSequences).build();
+        }
+        return new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .updater(new NoOp())
+                .weightInit(WeightInit.XAVIER)
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(layer)
+                .layer(new RnnOutputLayer.Builder().nIn(layerSize).nOut(nOut).dataFormat(format)
+                        .activation(Activation.IDENTITY).lossFunction(LossFunctions.LossFunction.MSE).build())
+                .build();
+    }
+}
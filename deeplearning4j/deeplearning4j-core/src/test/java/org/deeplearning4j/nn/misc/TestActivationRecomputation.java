@@ -0,0 +1,185 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.misc;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.executioner.OpExecutioner;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestActivationRecomputation extends BaseDL4JTest {
+
+    @Before
+    public void before() {
+        Nd4j.getExecutioner().setProfilingMode(OpExecutioner.ProfilingMode.SCOPE_PANIC);
+    }
+
+    @After
+    public void after() {
+        Nd4j.getExecutioner().setProfilingMode(OpExecutioner.ProfilingMode.DISABLED);
+    }
+
+    @Test
+    public void testRecomputationMLN() {
+        for (WorkspaceMode wsm : new WorkspaceMode[]{WorkspaceMode.ENABLED, WorkspaceMode.NONE}) {
+            MultiLayerNetwork net = new MultiLayerNetwork(getConf(false, wsm));
+            net.init();
+            MultiLayerNetwork netRecompute = new MultiLayerNetwork(getConf(true, wsm));
+            netRecompute.init();
+            netRecompute.setParams(net.params().dup());
+
+            INDArray f = Nd4j.rand(DataType.DOUBLE, 8, 10);
+            INDArray l = Nd4j.rand(DataType.DOUBLE, 8, 5);
+
+            Nd4j.getRandom().setSeed(12345);
+            net.setInput(f);
+            net.setLabels(l);
+            net.computeGradientAndScore();
+
+            Nd4j.getRandom().setSeed(12345);
+            netRecompute.setInput(f);
+            netRecompute.setLabels(l);
+            netRecompute.computeGradientAndScore();
+
+            assertEquals(net.score(), netRecompute.score(), 1e-10);
+            assertEquals(net.gradient().gradient(), netRecompute.gradient().gradient());
+
+            //Fit: parameters should remain identical
+            DataSet ds = new DataSet(f, l);
+            for (int i = 0; i < 3; i++) {
+                Nd4j.getRandom().setSeed(i);
+                net.fit(ds);
+                Nd4j.getRandom().setSeed(i);
+                netRecompute.fit(ds);
+            }
+            assertEquals(net.params(), netRecompute.params());
+        }
+    }
+
+    @Test
+    public void testRecomputationCG() {
+        for (WorkspaceMode wsm : new WorkspaceMode[]{WorkspaceMode.ENABLED, WorkspaceMode.NONE}) {
+            ComputationGraph net = new ComputationGraph(getGraphConf(false, wsm));
+            net.init();
+            ComputationGraph netRecompute = new ComputationGraph(getGraphConf(true, wsm));
+            netRecompute.init();
+            netRecompute.setParams(net.params().dup());
+
+            INDArray f = Nd4j.rand(DataType.DOUBLE, 8, 10);
+            INDArray l = Nd4j.rand(DataType.DOUBLE, 8, 5);
+
+            Nd4j.getRandom().setSeed(12345);
+            net.setInputs(f);
+            net.setLabels(l);
+            net.computeGradientAndScore();
+
+            Nd4j.getRandom().setSeed(12345);
+            netRecompute.setInputs(f);
+            netRecompute.setLabels(l);
+            netRecompute.computeGradientAndScore();
+
+            assertEquals(net.score(), netRecompute.score(), 1e-10);
+            assertEquals(net.gradient().gradient(), netRecompute.gradient().gradient());
+
+            DataSet ds = new DataSet(f, l);
+            for (int i = 0; i < 3; i++) {
+                Nd4j.getRandom().setSeed(i);
+                net.fit(ds);
+                Nd4j.getRandom().setSeed(i);
+                netRecompute.fit(ds);
+            }
+            assertEquals(net.params(), netRecompute.params());
+        }
+    }
+
+    private static MultiLayerConfiguration getConf(boolean recompute, WorkspaceMode wsm) {
+        //Segments (if recomputing): layers 0-1 and 3-4
+        return new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .trainingWorkspaceMode(wsm)
+                .inferenceWorkspaceMode(wsm)
+                .list()
+                .layer(new DenseLayer.Builder().nOut(8).activation(Activation.TANH).dropOut(0.5)
+                        .recomputeActivations(recompute).build())
+                .layer(new BatchNormalization.Builder().recomputeActivations(recompute).build())
+                .layer(new DenseLayer.Builder().nOut(8).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nOut(8).activation(Activation.SIGMOID).dropOut(0.8)
+                        .recomputeActivations(recompute).build())
+                .layer(new DenseLayer.Builder().nOut(8).activation(Activation.TANH)
+                        .recomputeActivations(recompute).build())
+                .layer(new OutputLayer.Builder().nOut(5).activation(Activation.IDENTITY)
+                        .lossFunction(LossFunctions.LossFunction.MSE).recomputeActivations(recompute).build())
+                .setInputType(InputType.feedForward(10))
+                .build();
+    }
+
+    private static ComputationGraphConfiguration getGraphConf(boolean recompute, WorkspaceMode wsm) {
+        return new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .trainingWorkspaceMode(wsm)
+                .inferenceWorkspaceMode(wsm)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("d0", new DenseLayer.Builder().nOut(8).activation(Activation.TANH).dropOut(0.5)
+                        .recomputeActivations(recompute).build(), "in")
+                .addLayer("d1", new BatchNormalization.Builder().recomputeActivations(recompute).build(), "d0")
+                .addLayer("d2", new DenseLayer.Builder().nOut(8).activation(Activation.TANH).build(), "d1")
+                .addLayer("d3", new DenseLayer.Builder().nOut(8).activation(Activation.SIGMOID).dropOut(0.8)
+                        .recomputeActivations(recompute).build(), "d1")
+                .addLayer("d4", new DenseLayer.Builder().nOut(8).activation(Activation.TANH)
+                        .recomputeActivations(recompute).build(), "d3")
+                .addVertex("merge", new MergeVertex(), "d2", "d4")
+                .addLayer("d5", new DenseLayer.Builder().nOut(8).activation(Activation.TANH).dropOut(0.5)
+                        .recomputeActivations(recompute).build(), "merge")
+                .addLayer("d6", new DenseLayer.Builder().nOut(8).activation(Activation.TANH)
+                        .recomputeActivations(recompute).build(), "d5")
+                .addLayer("out", new OutputLayer.Builder().nOut(5).activation(Activation.IDENTITY)
+                        .lossFunction(LossFunctions.LossFunction.MSE).build(), "d6")
+                .setOutputs("out")
+                .setInputTypes(InputType.feedForward(10))
+                .build();
+    }
+}
@@ -34,6 +34,7 @@ import org.deeplearning4j.nn.conf.layers.*;
 import org.deeplearning4j.nn.conf.memory.MemoryReport;
 import org.deeplearning4j.nn.conf.memory.MemoryType;
 import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.conf.memory.NetworkMemoryReport;
 import org.deeplearning4j.nn.conf.preprocessor.FeedForwardToCnnPreProcessor;
 import org.junit.Test;
 import org.nd4j.linalg.activations.Activation;
@@ -46,10 +47,12 @@ import org.nd4j.common.primitives.Pair;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestMemoryReports extends BaseDL4JTest {
 
@@ -259,6 +262,38 @@ public class TestMemoryReports extends BaseDL4JTest {
                         CacheMode.NONE, DataType.FLOAT));
     }
 
+    @Test
+    public void testRecomputationSavings() {
+        int[] nOut = {20, 30, 25, 15, 12};
+        MultiLayerConfiguration[] confs = new MultiLayerConfiguration[2];
+        for (int j = 0; j < 2; j++) {
+            NeuralNetConfiguration.ListBuilder b = new NeuralNetConfiguration.Builder().list();
+            for (int i = 0; i < nOut.length; i++) {
+                //Segments: layers 0-1 and 3-4
+                b.layer(new DenseLayer.Builder().nOut(nOut[i]).recomputeActivations(j == 1 && i != 2).build());
+            }
+            confs[j] = b.layer(new OutputLayer.Builder().nOut(5).recomputeActivations(j == 1).build())
+                            .setInputType(InputType.feedForward(10)).build();
+        }
+
+        NetworkMemoryReport noRecompute = confs[0].getMemoryReport(InputType.feedForward(10));
+        NetworkMemoryReport recompute = confs[1].getMemoryReport(InputType.feedForward(10));
+
+        assertTrue(noRecompute.getRecomputeSegments().isEmpty());
+        assertEquals(Arrays.asList(Arrays.asList("layer0", "layer1"), Arrays.asList("layer3", "layer4")),
+                        recompute.getRecomputeSegments());
+
+        //Outputs of layers 0 and 3 are dropped; one segment is recomputed at a time, so peak savings are min(20, 15)
+        long expSavings = 15 * 4 * 16;
+        assertEquals(expSavings, recompute.getRecomputationSavingsBytes(16, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataType.FLOAT));
+        assertEquals(noRecompute.getTotalMemoryBytes(16, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT)
+                        - expSavings, recompute.getTotalMemoryBytes(16, MemoryUseMode.TRAINING, CacheMode.NONE,
+                        DataType.FLOAT));
+        assertEquals(noRecompute.getTotalMemoryBytes(16, MemoryUseMode.INFERENCE, CacheMode.NONE, DataType.FLOAT),
+                        recompute.getTotalMemoryBytes(16, MemoryUseMode.INFERENCE, CacheMode.NONE, DataType.FLOAT));
+    }
+
     @Test
     public void testPreprocessors() throws Exception {
         //https://github.com/deeplearning4j/deeplearning4j/issues/4223
@@ -0,0 +1,197 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.misc;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.constraint.MaxNormConstraint;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import static org.junit.Assert.*;
+
+public class TestMixedPrecision extends BaseDL4JTest {
+
+    @Test
+    public void testMatchesFullPrecision() {
+        //Loss scaling by a power of 2, with double precision master weights: should match standard training
+        MixedPrecision mp = MixedPrecision.builder().masterDataType(DataType.DOUBLE).initialLossScale(1024).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.DOUBLE, null));
+        net.init();
+        MultiLayerNetwork netMp = new MultiLayerNetwork(getConf(DataType.DOUBLE, mp));
+        netMp.init();
+        netMp.setParams(net.params().dup());
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.DOUBLE, 8, 10), Nd4j.rand(DataType.DOUBLE, 8, 5));
+        for (int i = 0; i < 5; i++) {
+            net.fit(ds);
+            netMp.fit(ds);
+        }
+
+        assertEquals(net.score(), netMp.score(), 1e-8);
+        assertTrue(net.params().equalsWithEps(netMp.params(), 1e-8));
+        assertEquals(1024, netMp.lossScale(), 0.0);
+    }
+
+    @Test
+    public void testHalfPrecisionMasterWeights() {
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.HALF, MixedPrecision.builder().build()));
+        net.init();
+        INDArray initialParams = net.params().dup();
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.HALF, 8, 10), Nd4j.rand(DataType.HALF, 8, 5));
+        for (int i = 0; i < 5; i++) {
+            net.fit(ds);
+        }
+
+        BaseMultiLayerUpdater<?> u = (BaseMultiLayerUpdater<?>) net.getUpdater();
+        assertEquals(DataType.FLOAT, u.getMasterParams().dataType());
+        assertEquals(DataType.FLOAT, u.getStateViewArray().dataType());
+        assertEquals(DataType.HALF, net.params().dataType());
+        assertEquals(u.getMasterParams().castTo(DataType.HALF), net.params());
+        assertNotEquals(initialParams, net.params());
+        assertFalse(Double.isNaN(net.score()));
+    }
+
+    @Test
+    public void testDynamicLossScaling() {
+        MixedPrecision mp = MixedPrecision.builder().initialLossScale(1e30).growthInterval(2).build();
+        MultiLayerNetwork net = new MultiLayerNetwork(getConf(DataType.HALF, mp));
+        net.init();
+        INDArray initialParams = net.params().dup();
+
+        //Scaled gradients overflow: step should be skipped, and the loss scale reduced
+        DataSet ds = new DataSet(Nd4j.rand(DataType.HALF, 8, 10), Nd4j.rand(DataType.HALF, 8, 5));
+        net.fit(ds);
+        BaseMultiLayerUpdater<?> u = (BaseMultiLayerUpdater<?>) net.getUpdater();
+        assertEquals(1, u.getNumSkippedSteps());
+        assertEquals(5e29, net.lossScale(), 1e23);
+        assertEquals(initialParams, net.params());
+
+        //Reduce until no overflow, then grow after every 2 successful steps
+        u.setLossScale(16.0);
+        net.fit(ds);
+        assertEquals(16.0, net.lossScale(), 0.0);
+        net.fit(ds);
+        assertEquals(32.0, net.lossScale(), 0.0);
+        assertEquals(1, u.getNumSkippedSteps());
+        assertNotEquals(initialParams, net.params());
+    }
+
+    @Test
+    public void testConstraintsAndSetParams() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.HALF)
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .mixedPrecision(MixedPrecision.builder().build())
+                .constrainWeights(new MaxNormConstraint(0.5, 0))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(10).nOut(5).activation(Activation.SIGMOID)
+                        .lossFunction(LossFunctions.LossFunction.MSE).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        INDArray initialParams = net.params().dup();
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.HALF, 8, 10), Nd4j.rand(DataType.HALF, 8, 5));
+        for (int i = 0; i < 5; i++) {
+            net.fit(ds);
+        }
+
+        //Constraints are applied to the master weights: they must not be replaced by the rounded network parameters
+        BaseMultiLayerUpdater<?> u = (BaseMultiLayerUpdater<?>) net.getUpdater();
+        INDArray master = u.getMasterParams();
+        assertNotEquals(master.castTo(DataType.HALF).castTo(DataType.FLOAT), master);
+        assertEquals(master.castTo(DataType.HALF), net.params());
+        INDArray w = net.getLayer(0).getParam("W");
+        assertTrue(w.norm2(0).maxNumber().doubleValue() <= 0.5 + 1e-2);
+
+        //Explicitly set parameters replace the master weights at the next step
+        net.setParams(initialParams);
+        assertTrue(u.isMasterParamsStale());
+        net.fit(ds);
+        assertFalse(u.isMasterParamsStale());
+        assertTrue(initialParams.castTo(DataType.FLOAT).equalsWithEps(u.getMasterParams(), 0.02));
+    }
+
+    @Test
+    public void testMixedPrecisionCG() {
+        MixedPrecision mp = MixedPrecision.builder().masterDataType(DataType.DOUBLE).initialLossScale(256).build();
+        ComputationGraph net = new ComputationGraph(getGraphConf(null));
+        net.init();
+        ComputationGraph netMp = new ComputationGraph(getGraphConf(mp));
+        netMp.init();
+        netMp.setParams(net.params().dup());
+
+        DataSet ds = new DataSet(Nd4j.rand(DataType.DOUBLE, 8, 10), Nd4j.rand(DataType.DOUBLE, 8, 5));
+        for (int i = 0; i < 5; i++) {
+            net.fit(ds);
+            netMp.fit(ds);
+        }
+
+        assertTrue(net.params().equalsWithEps(netMp.params(), 1e-8));
+        assertEquals(256, netMp.lossScale(), 0.0);
+    }
+
+    private static MultiLayerConfiguration getConf(DataType dataType, MixedPrecision mp) {
+        return new NeuralNetConfiguration.Builder()
+                .dataType(dataType)
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .mixedPrecision(mp)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(10).nOut(5).activation(Activation.SIGMOID)
+                        .lossFunction(LossFunctions.LossFunction.MSE).build())
+                .build();
+    }
+
+    private static ComputationGraphConfiguration getGraphConf(MixedPrecision mp) {
+        return new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .updater(new Adam(1e-2))
+                .mixedPrecision(mp)
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(10).nOut(10).activation(Activation.TANH).build(), "in")
+                .addLayer("out", new OutputLayer.Builder().nIn(10).nOut(5).activation(Activation.SIGMOID)
+                        .lossFunction(LossFunctions.LossFunction.MSE).build(), "0")
+                .setOutputs("out")
+                .build();
+    }
+}
@@ -26,6 +26,7 @@ import org.deeplearning4j.BaseDL4JTest;
 import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.api.Updater;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.GradientNormalization;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.layers.*;
@@ -1109,4 +1110,70 @@ public class TestUpdaters extends BaseDL4JTest {
         INDArray expView3 = view.get(interval(0,0,true), interval(start3, start3 + length3));
         assertEquals(expView3, l.get(2));
     }
+
+    @Test
+    public void testFusedRegularizationAndClipping(){
+        //Same regularization for weights and biases, and same clipping threshold: one run for all parameters
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .updater(new Sgd(0.1))
+                .l2(0.01).l2Bias(0.01)
+                .gradientNormalization(GradientNormalization.ClipElementWiseAbsoluteValue)
+                .gradientNormalizationThreshold(0.5)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).build())
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).build())
+                .layer(new OutputLayer.Builder().nIn(10).nOut(5).activation(Activation.SOFTMAX).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        BaseMultiLayerUpdater u = (BaseMultiLayerUpdater) net.getUpdater();
+        assertEquals(1, u.getUpdaterBlocks().size());
+        assertEquals(1, ((UpdaterBlock) u.getUpdaterBlocks().get(0)).getRegularizationRuns().size());
+
+        //L2 on weights only, and a different clipping threshold for one layer
+        conf = new NeuralNetConfiguration.Builder()
+                .updater(new Sgd(0.1))
+                .l2(0.01)
+                .gradientNormalization(GradientNormalization.ClipElementWiseAbsoluteValue)
+                .gradientNormalizationThreshold(0.5)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).build())
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).build())
+                .layer(new DenseLayer.Builder().nIn(10).nOut(10).gradientNormalizationThreshold(1.0).build())
+                .layer(new OutputLayer.Builder().nIn(10).nOut(5).activation(Activation.SOFTMAX).build())
+                .build();
+
+        net = new MultiLayerNetwork(conf);
+        net.init();
+        u = (BaseMultiLayerUpdater) net.getUpdater();
+        assertEquals(1, u.getUpdaterBlocks().size());
+        assertEquals(8, ((UpdaterBlock) u.getUpdaterBlocks().get(0)).getRegularizationRuns().size());
+
+        INDArray view = u.getFlattenedGradientsView();
+        view.assign(Nd4j.rand(view.dataType(), view.shape()).subi(0.5).muli(4));
+        INDArray g = view.dup();
+        INDArray p = net.params().dup();
+
+        u.update(new DefaultGradient(view), 0, 0, 1, LayerWorkspaceMgr.noWorkspaces());
+        assertEquals(3, u.getClipRunViews().size());
+
+        double[] thresholds = {0.5, 0.5, 1.0, 0.5};
+        long[] nOut = {10, 10, 10, 5};
+        long soFar = 0;
+        for (int i = 0; i < 4; i++) {
+            long nW = 10 * nOut[i];
+            INDArray gW = g.get(interval(0, 0, true), interval(soFar, soFar + nW));
+            INDArray gB = g.get(interval(0, 0, true), interval(soFar + nW, soFar + nW + nOut[i]));
+            INDArray pW = p.get(interval(0, 0, true), interval(soFar, soFar + nW));
+
+            INDArray expW = Transforms.min(Transforms.max(gW, -thresholds[i], true), thresholds[i], false)
+                    .addi(pW.mul(0.01)).muli(0.1);
+            INDArray expB = Transforms.min(Transforms.max(gB, -thresholds[i], true), thresholds[i], false).muli(0.1);
+
+            assertTrue(expW.equalsWithEps(view.get(interval(0, 0, true), interval(soFar, soFar + nW)), 1e-5));
+            assertTrue(expB.equalsWithEps(view.get(interval(0, 0, true), interval(soFar + nW, soFar + nW + nOut[i])), 1e-5));
+            soFar += nW + nOut[i];
+        }
+    }
 }
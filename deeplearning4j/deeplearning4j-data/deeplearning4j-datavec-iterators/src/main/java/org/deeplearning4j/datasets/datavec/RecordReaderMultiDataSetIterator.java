@@ -38,6 +38,7 @@ import org.datavec.api.writable.Writable;
 import org.datavec.api.writable.batch.NDArrayRecordBatch;
 import org.deeplearning4j.datasets.datavec.exception.ZeroLengthSequenceException;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
@@ -379,7 +380,7 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator, S
             } else {
                 //Need to concat column vectors
                 INDArray[] asArray = list.toArray(new INDArray[list.size()]);
-                arr = Nd4j.concat(1, asArray);
+                arr = Nd4j.concat(1, toCommonFloatingPointType(asArray));
             }
         } else if (details.subsetStart == details.subsetEndInclusive || details.oneHot) {
             arr = list.get(details.subsetStart);
@@ -391,13 +392,14 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator, S
             for( int i=details.subsetStart; i<= details.subsetEndInclusive; i++){
                 temp[x++] = list.get(i);
             }
-            arr = Nd4j.concat(1, temp);
+            arr = Nd4j.concat(1, toCommonFloatingPointType(temp));
         }
 
         if (!details.oneHot || arr.size(1) == details.oneHotNumClasses) {
             //Not one-hot: no conversion required
             //Also, ImageRecordReader already does the one-hot conversion internally
-            return arr;
+            //Integer columns (for example, zero-copy views of arrow int columns) are converted to floating point
+            return arr.dataType().isFPType() ? arr : arr.castTo(Nd4j.defaultFloatingPointType());
         }
 
         //Do one-hot conversion
@@ -417,6 +419,27 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator, S
         return out;
     }
 
+    /**
+     * Batched readers may return column arrays with different data types (for example, zero-copy views of int and
+     * double arrow columns). Concatenation requires a single floating point type
+     */
+    private static INDArray[] toCommonFloatingPointType(INDArray[] arrays) {
+        DataType first = arrays[0].dataType();
+        boolean convert = !first.isFPType();
+        for (int i = 1; i < arrays.length && !convert; i++) {
+            convert = arrays[i].dataType() != first;
+        }
+        if (!convert) {
+            return arrays;
+        }
+        DataType target = Nd4j.defaultFloatingPointType();
+        INDArray[] out = new INDArray[arrays.length];
+        for (int i = 0; i < arrays.length; i++) {
+            out[i] = arrays[i].dataType() == target ? arrays[i] : arrays[i].castTo(target);
+        }
+        return out;
+    }
+
     private int countLength(List<Writable> list) {
         return countLength(list, 0, list.size() - 1);
     }
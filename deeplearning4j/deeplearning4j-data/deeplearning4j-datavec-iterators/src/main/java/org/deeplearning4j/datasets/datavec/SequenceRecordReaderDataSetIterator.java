@@ -88,6 +88,10 @@ public class SequenceRecordReaderDataSetIterator implements DataSetIterator {
     private RecordReaderMultiDataSetIterator underlying;
     private boolean underlyingIsDisjoint;
 
+    @Getter
+    private int bucketingBatches = 0;
+    private final LinkedList<DataSet> bucketed = new LinkedList<>();
+
     /**
      * Constructor where features and labels come from different RecordReaders (for example, different files),
      * and labels are for classification.
@@ -159,6 +163,24 @@ public class SequenceRecordReaderDataSetIterator implements DataSetIterator {
         this.singleSequenceReaderMode = true;
     }
 
+    /**
+     * Sequence length bucketing, for variable length time series. If set to a value greater than 1, examples for
+     * that number of minibatches are read ahead, sorted by sequence length, and split into minibatches of examples with
+     * similar lengths. Each minibatch is then trimmed to the longest sequence it contains, so that much less padding is
+     * required when sequence lengths vary widely. This pairs well with RNN layers using packed sequences.<br>
+     * Note that this changes the order of the examples: within each read ahead window, minibatches are returned in
+     * order of decreasing sequence length. Only has an effect when masking is used (ALIGN_START or ALIGN_END modes).
+     * Default: 0 (disabled)
+     *
+     * @param bucketingBatches Number of minibatches to read ahead and bucket by sequence length. 0 or 1 to disable
+     */
+    public void setBucketingBatches(int bucketingBatches) {
+        if (bucketingBatches < 0)
+            throw new IllegalArgumentException("Number of bucketing batches must be >= 0, got " + bucketingBatches);
+        this.bucketingBatches = bucketingBatches;
+        this.bucketed.clear();
+    }
+
     private void initializeUnderlyingFromReader() {
         initializeUnderlying(recordReader.nextSequence());
         underlying.reset();
@@ -279,6 +301,10 @@ public class SequenceRecordReaderDataSetIterator implements DataSetIterator {
     }
 
     private DataSet mdsToDataSet(MultiDataSet mds) {
+        return mdsToDataSet(mds, true);
+    }
+
+    private DataSet mdsToDataSet(MultiDataSet mds, boolean applyPreProcessor) {
         INDArray f;
         INDArray fm;
         if (underlyingIsDisjoint) {
@@ -320,15 +346,126 @@ public class SequenceRecordReaderDataSetIterator implements DataSetIterator {
             ds.setExampleMetaData(temp2);
         }
 
-        if (preProcessor != null) {
+        if (applyPreProcessor && preProcessor != null) {
             preProcessor.preProcess(ds);
         }
 
         return ds;
     }
 
+    /**
+     * Read ahead the examples for {@link #getBucketingBatches()} minibatches, and split them into minibatches of
+     * examples with similar sequence lengths
+     */
+    private void fillBuckets(int num) {
+        DataSet all = mdsToDataSet(underlying.next(num * bucketingBatches), false);
+        int n = all.numExamples();
+        INDArray fm = all.getFeaturesMaskArray();
+        INDArray lm = all.getLabelsMaskArray();
+        if (n <= num || (fm == null && lm == null)) {
+            //Nothing to bucket: single minibatch, or all sequences are the same length
+            for (int start = 0; start < n; start += num) {
+                int[] idx = new int[Math.min(n, start + num) - start];
+                for (int i = 0; i < idx.length; i++) {
+                    idx[i] = start + i;
+                }
+                bucketed.add(n <= num ? all : subset(all, idx));
+            }
+            return;
+        }
+
+        //Sequence length: number of time steps between the first and last present (mask 1) values of the features
+        // or labels. This is the sequence length for both ALIGN_START and ALIGN_END
+        long[] first = new long[n];
+        long[] last = new long[n];
+        Arrays.fill(first, Long.MAX_VALUE);
+        Arrays.fill(last, -1);
+        updateSpans(fm, first, last);
+        updateSpans(lm, first, last);
+        final long[] lengths = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            lengths[i] = Math.max(0, last[i] - first[i] + 1);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(lengths[o2], lengths[o1]);
+            }
+        });
+
+        for (int start = 0; start < n; start += num) {
+            int[] idx = new int[Math.min(n, start + num) - start];
+            long from = Long.MAX_VALUE;
+            long to = -1;
+            for (int i = 0; i < idx.length; i++) {
+                idx[i] = order[start + i];
+                from = Math.min(from, first[idx[i]]);
+                to = Math.max(to, last[idx[i]]);
+            }
+            DataSet ds = subset(all, idx);
+            if (to >= from && (from > 0 || to < ds.getFeatures().size(2) - 1)) {
+                //Trim the padding not required for any example in this minibatch
+                ds = trimTimeSteps(ds, from, to + 1);
+            }
+            bucketed.add(ds);
+        }
+    }
+
+    private static void updateSpans(INDArray mask, long[] first, long[] last) {
+        if (mask == null || mask.rank() != 2) {
+            return;
+        }
+        double[][] m = mask.toDoubleMatrix();
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[i].length; j++) {
+                if (m[i][j] != 0.0) {
+                    first[i] = Math.min(first[i], j);
+                    last[i] = Math.max(last[i], j);
+                }
+            }
+        }
+    }
+
+    private DataSet subset(DataSet all, int[] idx) {
+        DataSet ds = all.get(idx);
+        if (collectMetaData && all.getExampleMetaData() != null) {
+            List<Serializable> meta = new ArrayList<>(idx.length);
+            for (int i : idx) {
+                meta.add(all.getExampleMetaData().get(i));
+            }
+            ds.setExampleMetaData(meta);
+        }
+        return ds;
+    }
+
+    private static DataSet trimTimeSteps(DataSet ds, long from, long to) {
+        DataSet out = new DataSet(trimTimeSteps(ds.getFeatures(), from, to), trimTimeSteps(ds.getLabels(), from, to),
+                        trimTimeSteps(ds.getFeaturesMaskArray(), from, to), trimTimeSteps(ds.getLabelsMaskArray(), from, to));
+        out.setExampleMetaData(ds.getExampleMetaData());
+        return out;
+    }
+
+    private static INDArray trimTimeSteps(INDArray arr, long from, long to) {
+        if (arr == null) {
+            return null;
+        }
+        if (arr.rank() == 3) {
+            return arr.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.interval(from, to)).dup();
+        } else if (arr.rank() == 2 && arr.size(1) >= to) {
+            //Per time step mask array; other rank 2 arrays (per example labels, for sequence classification) are
+            // left unchanged
+            return arr.get(NDArrayIndex.all(), NDArrayIndex.interval(from, to)).dup();
+        }
+        return arr;
+    }
+
     @Override
     public boolean hasNext() {
+        if (!bucketed.isEmpty()) {
+            return true;
+        }
         if (underlying == null) {
             initializeUnderlyingFromReader();
         }
@@ -358,8 +495,19 @@ public class SequenceRecordReaderDataSetIterator implements DataSetIterator {
             initializeUnderlyingFromReader();
         }
 
-        MultiDataSet mds = underlying.next(num);
-        DataSet ds = mdsToDataSet(mds);
+        DataSet ds;
+        if (bucketingBatches > 1) {
+            if (bucketed.isEmpty()) {
+                fillBuckets(num);
+            }
+            ds = bucketed.removeFirst();
+            if (preProcessor != null) {
+                preProcessor.preProcess(ds);
+            }
+        } else {
+            MultiDataSet mds = underlying.next(num);
+            ds = mdsToDataSet(mds);
+        }
 
         if (totalOutcomes == -1) {
             inputColumns = (int) ds.getFeatures().size(1);
@@ -411,6 +559,7 @@ public class SequenceRecordReaderDataSetIterator implements DataSetIterator {
         cursor = 0;
         stored = null;
         useStored = false;
+        bucketed.clear();
     }
 
     @Override
@@ -79,6 +79,10 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
     @Setter
     protected DataType dataType = DataType.FLOAT;   //Default to float for 1.0.0-beta3 and earlier nets
 
+    @Getter
+    @Setter
+    protected MixedPrecision mixedPrecision;
+
     protected boolean validateOutputLayerConfig = true;     //Default for 1.0.0-beta3 and earlier nets
 
     /**
@@ -334,6 +338,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         conf.defaultConfiguration.cacheMode = this.cacheMode;
         conf.validateOutputLayerConfig = this.validateOutputLayerConfig;
         conf.dataType = this.dataType;
+        conf.mixedPrecision = (this.mixedPrecision == null ? null : this.mixedPrecision.clone());
 
         return conf;
     }
@@ -687,7 +692,44 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         }
 
         return new NetworkMemoryReport(memoryReportMap, ComputationGraphConfiguration.class, "ComputationGraph",
-                inputTypes);
+                recomputeSegments(topologicalOrdering), inputTypes);
+    }
+
+    /**
+     * Segments of layer vertices with activation recomputation enabled, as used by ComputationGraph: chains of
+     * consecutive vertices in the topological order, where each vertex except the last has the next vertex as its
+     * only output. Network outputs are never recomputed
+     */
+    private List<List<String>> recomputeSegments(List<String> topologicalOrdering) {
+        Map<String, Integer> numOutputs = new HashMap<>();
+        for (List<String> in : vertexInputs.values()) {
+            for (String s : in) {
+                Integer n = numOutputs.get(s);
+                numOutputs.put(s, n == null ? 1 : n + 1);
+            }
+        }
+
+        List<List<String>> segments = new ArrayList<>();
+        List<String> currSegment = null;
+        String prev = null;
+        for (String s : topologicalOrdering) {
+            GraphVertex gv = vertices.get(s);
+            boolean recompute = gv instanceof LayerVertex && !networkOutputs.contains(s)
+                    && ((LayerVertex) gv).getLayerConf().getLayer().isRecomputeActivations();
+            if (recompute) {
+                boolean chained = currSegment != null && Integer.valueOf(1).equals(numOutputs.get(prev))
+                        && vertexInputs.get(s).get(0).equals(prev);
+                if (!chained) {
+                    currSegment = new ArrayList<>();
+                    segments.add(currSegment);
+                }
+                currSegment.add(s);
+            } else {
+                currSegment = null;
+            }
+            prev = s;
+        }
+        return segments;
     }
 
     @Data
@@ -1184,6 +1226,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             conf.cacheMode = globalConfiguration.cacheMode;
             conf.validateOutputLayerConfig = validateOutputConfig;
             conf.dataType = globalConfiguration.dataType;
+            conf.mixedPrecision = globalConfiguration.mixedPrecision;
 
             conf.defaultConfiguration = globalConfiguration.build();
 
@@ -0,0 +1,96 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.conf;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.nd4j.linalg.api.buffer.DataType;
+
+import java.io.Serializable;
+
+/**
+ * Configuration for mixed precision training.<br>
+ * With mixed precision, the network (parameters, activations and gradients) uses a low precision data type, set via
+ * {@link NeuralNetConfiguration.Builder#dataType(DataType)} - usually {@link DataType#HALF} or {@link DataType#BFLOAT16}.
+ * The updater keeps a copy of the parameters (the "master" weights) and the updater state in a higher precision
+ * data type ({@link #getMasterDataType()}, FLOAT by default): gradients are converted to this type, the updater is
+ * applied to the master weights, and the network parameters are then set from the master weights. This avoids small
+ * updates being lost to rounding in the low precision parameters.<br>
+ * <br>
+ * Loss scaling: the gradients of the loss are multiplied by a loss scale factor at the start of backprop, so that small
+ * activation gradients are not flushed to zero in the low precision type, and divided by the same factor (in the master
+ * data type) before the updater is applied. With dynamic loss scaling, if any gradient is NaN or infinite
+ * (i.e., overflow), the parameter update for the iteration is skipped and the loss scale is multiplied by
+ * {@link #getBackoffFactor()}; after {@link #getGrowthInterval()} consecutive iterations without overflow, the loss scale is
+ * multiplied by {@link #getGrowthFactor()}.<br>
+ * <br>
+ * Note: the network parameters are updated directly by the updater, hence the gradient (update) array is zero after
+ * the updater has been applied. For this reason, mixed precision cannot be combined with gradient sharing training
+ * (i.e., when the updates themselves are shared between workers).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MixedPrecision implements Serializable {
+
+    /**
+     * Data type for the master copy of the parameters, and the updater state. Default: FLOAT
+     */
+    @Builder.Default private DataType masterDataType = DataType.FLOAT;
+    /**
+     * Initial loss scale factor. 1.0 to disable loss scaling. Default: 2^15
+     */
+    @Builder.Default private double initialLossScale = 32768.0;
+    /**
+     * If true (default): adjust the loss scale during training, and skip updates when the gradients overflow. If
+     * false: the loss scale is fixed to the initial loss scale, and all updates are applied
+     */
+    @Builder.Default private boolean dynamicLossScaling = true;
+    /**
+     * Number of consecutive iterations without overflow after which the loss scale is increased. Default: 2000
+     */
+    @Builder.Default private int growthInterval = 2000;
+    /**
+     * Factor to multiply the loss scale by after {@link #getGrowthInterval()} iterations without overflow. Default: 2.0
+     */
+    @Builder.Default private double growthFactor = 2.0;
+    /**
+     * Factor to multiply the loss scale by after an overflow. Default: 0.5
+     */
+    @Builder.Default private double backoffFactor = 0.5;
+    /**
+     * Minimum loss scale. Default: 1.0
+     */
+    @Builder.Default private double minLossScale = 1.0;
+    /**
+     * Maximum loss scale. Default: 2^24
+     */
+    @Builder.Default private double maxLossScale = 16777216.0;
+
+    @Override
+    public MixedPrecision clone() {
+        return new MixedPrecision(masterDataType, initialLossScale, dynamicLossScaling, growthInterval, growthFactor,
+                        backoffFactor, minLossScale, maxLossScale);
+    }
+}
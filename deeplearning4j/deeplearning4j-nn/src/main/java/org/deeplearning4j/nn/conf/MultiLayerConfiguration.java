@@ -81,6 +81,10 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     @Setter
     protected DataType dataType = DataType.FLOAT;   //Default to float for deserialization of beta3 and earlier nets
 
+    @Getter
+    @Setter
+    protected MixedPrecision mixedPrecision;
+
     //Counter for the number of parameter updates so far
     // This is important for learning rate schedules, for example, and is stored here to ensure it is persisted
     // for Spark and model serialization
@@ -392,6 +396,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             clone.cacheMode = this.cacheMode;
             clone.validateOutputLayerConfig = this.validateOutputLayerConfig;
             clone.dataType = this.dataType;
+            clone.mixedPrecision = (this.mixedPrecision == null ? null : this.mixedPrecision.clone());
 
             return clone;
 
@@ -414,6 +419,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
     public NetworkMemoryReport getMemoryReport(InputType inputType) {
 
         Map<String, MemoryReport> memoryReportMap = new LinkedHashMap<>();
+        List<List<String>> recomputeSegments = new ArrayList<>();
+        List<String> currSegment = null;
         int nLayers = confs.size();
         for (int i = 0; i < nLayers; i++) {
             String layerName = confs.get(i).getLayer().getLayerName();
@@ -421,6 +428,17 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
                 layerName = String.valueOf(i);
             }
 
+            //Activation recomputation: consecutive layers (excluding the output layer) form a segment
+            if (i < nLayers - 1 && confs.get(i).getLayer().isRecomputeActivations()) {
+                if (currSegment == null) {
+                    currSegment = new ArrayList<>();
+                    recomputeSegments.add(currSegment);
+                }
+                currSegment.add(layerName);
+            } else {
+                currSegment = null;
+            }
+
             //Pass input type through preprocessor, if necessary
             InputPreProcessor preproc = getInputPreProcess(i);
             //TODO memory requirements for preprocessor
@@ -434,7 +452,8 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             inputType = confs.get(i).getLayer().getOutputType(i, inputType);
         }
 
-        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork", inputType);
+        return new NetworkMemoryReport(memoryReportMap, MultiLayerConfiguration.class, "MultiLayerNetwork",
+                        recomputeSegments, inputType);
     }
 
     /**
@@ -478,6 +497,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
         protected boolean validateOutputConfig = true;
         protected boolean validateTbpttConfig = true;
         protected DataType dataType;
+        protected MixedPrecision mixedPrecision;
         protected boolean overrideNinUponBuild = true;
 
 
@@ -544,6 +564,16 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Mixed precision training configuration. See {@link MixedPrecision} for details. Default: null (disabled)
+         *
+         * @param mixedPrecision Mixed precision configuration. May be null
+         */
+        public Builder mixedPrecision(MixedPrecision mixedPrecision) {
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
         /**
          * The type of backprop. Default setting is used for most networks (MLP, CNN etc),
          * but optionally truncated BPTT can be used for training recurrent neural networks.
@@ -750,6 +780,7 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
             conf.cacheMode = cacheMode;
             conf.dataType = dataType;
+            conf.mixedPrecision = mixedPrecision;
 
             Nd4j.getRandom().setSeed(conf.getConf(0).getSeed());
 
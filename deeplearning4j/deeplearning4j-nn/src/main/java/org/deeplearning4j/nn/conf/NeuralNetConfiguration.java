@@ -253,6 +253,7 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
                             .trainingWorkspaceMode(wsmTrain).cacheMode(globalConfig.cacheMode)
                             .inferenceWorkspaceMode(wsmTest).confs(list).validateOutputLayerConfig(validateOutputConfig)
                             .dataType(globalConfig.dataType)
+                            .mixedPrecision(globalConfig.mixedPrecision)
                             .build();
         }
 
@@ -407,6 +408,7 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
         protected boolean setIWM = false;
         protected CacheMode cacheMode = CacheMode.NONE;
         protected DataType dataType = DataType.FLOAT;
+        protected MixedPrecision mixedPrecision;
 
         protected ConvolutionMode convolutionMode = ConvolutionMode.Truncate;
         protected ConvolutionLayer.AlgoMode cudnnAlgoMode = ConvolutionLayer.AlgoMode.PREFER_FASTEST;
@@ -1066,15 +1068,30 @@ public class NeuralNetConfiguration implements Serializable, Cloneable {
 
         /**
          * Set the DataType for the network parameters and activations. Must be a floating point type: {@link DataType#DOUBLE},
-         * {@link DataType#FLOAT} or {@link DataType#HALF}.<br>
+         * {@link DataType#FLOAT}, {@link DataType#HALF} or {@link DataType#BFLOAT16}.<br>
+         * HALF and BFLOAT16 are usually combined with {@link #mixedPrecision(MixedPrecision)} for training.
          */
         public Builder dataType(@NonNull DataType dataType){
-            Preconditions.checkState(dataType == DataType.DOUBLE || dataType == DataType.FLOAT || dataType == DataType.HALF,
-                    "Data type must be a floating point type: one of DOUBLE, FLOAT, or HALF. Got datatype: %s", dataType);
+            Preconditions.checkState(dataType == DataType.DOUBLE || dataType == DataType.FLOAT || dataType == DataType.HALF
+                            || dataType == DataType.BFLOAT16,
+                    "Data type must be a floating point type: one of DOUBLE, FLOAT, HALF or BFLOAT16. Got datatype: %s", dataType);
             this.dataType = dataType;
             return this;
         }
 
+        /**
+         * Mixed precision training: the network uses the data type set via {@link #dataType(DataType)} (usually HALF
+         * or BFLOAT16), while the updater keeps the parameters and updater state in a higher precision type, and loss
+         * scaling is used to avoid gradient underflow. See {@link MixedPrecision} for details.<br>
+         * Default: null (disabled)
+         *
+         * @param mixedPrecision Mixed precision configuration. May be null
+         */
+        public Builder mixedPrecision(MixedPrecision mixedPrecision) {
+            this.mixedPrecision = mixedPrecision;
+            return this;
+        }
+
         /**
          * Return a configuration based on this builder
          *
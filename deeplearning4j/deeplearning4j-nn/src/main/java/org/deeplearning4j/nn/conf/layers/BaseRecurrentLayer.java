@@ -41,11 +41,13 @@ public abstract class BaseRecurrentLayer extends FeedForwardLayer {
 
     protected IWeightInit weightInitFnRecurrent;
     protected RNNFormat rnnDataFormat;
+    protected boolean packedSequences;
 
     protected BaseRecurrentLayer(Builder builder) {
         super(builder);
         this.weightInitFnRecurrent = builder.weightInitFnRecurrent;
         this.rnnDataFormat = builder.rnnDataFormat;
+        this.packedSequences = builder.packedSequences;
     }
 
     @Override
@@ -116,6 +118,11 @@ public abstract class BaseRecurrentLayer extends FeedForwardLayer {
          */
         protected IWeightInit weightInitFnRecurrent;
 
+        /**
+         * See {@link #packedSequences(boolean)}
+         */
+        protected boolean packedSequences = false;
+
         /**
          * Set constraints to be applied to the RNN recurrent weight parameters of this layer. Default: no
          * constraints.<br> Constraints can be used to enforce certain conditions (non-negativity of parameters,
@@ -184,5 +191,21 @@ public abstract class BaseRecurrentLayer extends FeedForwardLayer {
             this.rnnDataFormat = rnnDataFormat;
             return (T)this;
         }
+
+        /**
+         * Packed sequence execution for variable length time series. If enabled, and a mask array is present with
+         * the padding at the end of each sequence (AlignmentMode.ALIGN_START), examples are sorted by length and each
+         * time step is computed only for the examples that are still active at that time step, instead of computing
+         * the padding and masking it. This can save a lot of computation when sequence lengths are skewed.<br>
+         * Packing is not used when continuing from stored RNN state (rnnTimeStep, truncated BPTT), or if the mask
+         * can't be packed. Activations and gradients are the same as without packing.<br>
+         * Currently supported by LSTM and SimpleRnn (without layer normalization). Default: false
+         *
+         * @param packedSequences Whether to use packed sequence execution
+         */
+        public T packedSequences(boolean packedSequences){
+            this.setPackedSequences(packedSequences);
+            return (T)this;
+        }
     }
 }
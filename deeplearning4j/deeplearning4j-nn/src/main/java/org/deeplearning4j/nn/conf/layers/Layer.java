@@ -56,11 +56,13 @@ public abstract class Layer implements TrainingConfig, Serializable, Cloneable {
     protected String layerName;
     protected IDropout iDropout;
     protected List<LayerConstraint> constraints;
+    protected boolean recomputeActivations;
 
 
     public Layer(Builder builder) {
         this.layerName = builder.layerName;
         this.iDropout = builder.iDropout;
+        this.recomputeActivations = builder.recomputeActivations;
     }
 
     /**
@@ -254,6 +256,8 @@ public abstract class Layer implements TrainingConfig, Serializable, Cloneable {
 
         protected IDropout iDropout;
 
+        protected boolean recomputeActivations = false;
+
         /**
          * Layer name assigns layer string name. Allows easier differentiation between layers.
          */
@@ -344,6 +348,26 @@ public abstract class Layer implements TrainingConfig, Serializable, Cloneable {
             return (T) this;
         }
 
+        /**
+         * Activation checkpointing (recomputation). If true, the activations and other forward pass state of this
+         * layer are not kept in memory between the forward and backward pass at training time; instead, they are
+         * recomputed during backprop. This trades extra computation (one additional forward pass for this layer)
+         * for lower peak memory use during training.<br>
+         * Consecutive layers with recomputation enabled form a segment: only the input to the segment and the
+         * output of the last layer of the segment are kept, and the segment is recomputed just before its backward
+         * pass. As the activations of one segment are recomputed at a time, memory is saved only when there are
+         * several segments: for example, by enabling recomputation for all layers except every k-th layer.
+         * Dropout masks are reproduced exactly when recomputing.<br>
+         * Note: recomputation requires training workspaces to be enabled, and is not applied to output layers or
+         * when using truncated BPTT. Default: false
+         *
+         * @param recomputeActivations Whether to recompute the activations of this layer during backprop
+         */
+        public T recomputeActivations(boolean recomputeActivations) {
+            this.setRecomputeActivations(recomputeActivations);
+            return (T) this;
+        }
+
         public abstract <E extends Layer> E build();
     }
 }
@@ -27,11 +27,13 @@ import org.deeplearning4j.nn.conf.CacheMode;
 import org.deeplearning4j.nn.conf.inputs.InputType;
 import org.nd4j.linalg.api.buffer.DataBuffer;
 import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.shade.jackson.annotation.JsonCreator;
 import org.nd4j.shade.jackson.annotation.JsonProperty;
 
 import java.text.DecimalFormat;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Getter
@@ -44,15 +46,27 @@ public class NetworkMemoryReport extends MemoryReport {
     private final Class<?> modelClass;
     private final String modelName;
     private final InputType[] networkInputTypes;
+    /**
+     * Segments of layers with activation recomputation enabled, in forward pass order. May be null
+     */
+    private final List<List<String>> recomputeSegments;
+
+    public NetworkMemoryReport(@NonNull Map<String, MemoryReport> layerAndVertexReports, @NonNull Class<?> modelClass,
+                    String modelName, @NonNull InputType... networkInputTypes) {
+        this(layerAndVertexReports, modelClass, modelName, null, networkInputTypes);
+    }
 
+    @JsonCreator
     public NetworkMemoryReport(
                     @NonNull @JsonProperty("layerAndVertexReports") Map<String, MemoryReport> layerAndVertexReports,
                     @NonNull @JsonProperty("modelClass") Class<?> modelClass,
                     @JsonProperty("modelName") String modelName,
+                    @JsonProperty("recomputeSegments") List<List<String>> recomputeSegments,
                     @NonNull @JsonProperty("networkInputTypes") InputType... networkInputTypes) {
         this.layerAndVertexReports = layerAndVertexReports;
         this.modelClass = modelClass;
         this.modelName = modelName;
+        this.recomputeSegments = recomputeSegments;
         this.networkInputTypes = networkInputTypes;
     }
 
@@ -101,7 +115,46 @@ public class NetworkMemoryReport extends MemoryReport {
             }
         }
 
-        return totalBytes + maxWorkingFixed + maxWorkingVariable;
+        return totalBytes + maxWorkingFixed + maxWorkingVariable
+                        - getRecomputationSavingsBytes(minibatchSize, memoryUseMode, cacheMode, dataType);
+    }
+
+    /**
+     * Reduction in peak memory due to activation recomputation (checkpointing), for layers with recomputation
+     * enabled. Only applies to training.<br>
+     * For each segment of recomputed layers, the activations and cached memory of all layers in the segment except
+     * the output of the last layer are not kept during training. However, the activations of one segment are
+     * recomputed (and held) at a time during backprop, hence the savings are the sum over segments, minus the largest
+     * segment.
+     */
+    public long getRecomputationSavingsBytes(int minibatchSize, @NonNull MemoryUseMode memoryUseMode,
+                    @NonNull CacheMode cacheMode, @NonNull DataType dataType) {
+        if (memoryUseMode != MemoryUseMode.TRAINING || recomputeSegments == null || recomputeSegments.isEmpty()) {
+            return 0;
+        }
+
+        long sum = 0;
+        long max = 0;
+        for (List<String> segment : recomputeSegments) {
+            long segmentBytes = 0;
+            for (int i = 0; i < segment.size(); i++) {
+                MemoryReport lmr = layerAndVertexReports.get(segment.get(i));
+                if (lmr == null) {
+                    continue;
+                }
+                if (i < segment.size() - 1) {
+                    segmentBytes += lmr.getMemoryBytes(MemoryType.ACTIVATIONS, minibatchSize, memoryUseMode, cacheMode,
+                                    dataType);
+                }
+                segmentBytes += lmr.getMemoryBytes(MemoryType.CACHED_MEMORY_FIXED, minibatchSize, memoryUseMode,
+                                cacheMode, dataType);
+                segmentBytes += lmr.getMemoryBytes(MemoryType.CACHED_MEMORY_VARIABLE, minibatchSize, memoryUseMode,
+                                cacheMode, dataType);
+            }
+            sum += segmentBytes;
+            max = Math.max(max, segmentBytes);
+        }
+        return sum - max;
     }
 
     @Override
@@ -158,6 +211,13 @@ public class NetworkMemoryReport extends MemoryReport {
 
         appendFixedPlusVariable(sb, "  Inference Memory (FP32)             ", fixedMemBytes, perEx);
         appendFixedPlusVariable(sb, "  Training Memory (FP32):             ", fixedMemBytesTrain, perExTrain);
+        if (recomputeSegments != null && !recomputeSegments.isEmpty()) {
+            long savedFixed = getRecomputationSavingsBytes(0, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT);
+            long savedPerEx = getRecomputationSavingsBytes(1, MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT)
+                            - savedFixed;
+            sb.append("  Recomputed Layer Segments:          ").append(recomputeSegments).append("\n");
+            appendFixedPlusVariable(sb, "  Recomputation Savings (FP32):       ", savedFixed, savedPerEx);
+        }
 
         sb.append("  Inference Memory Breakdown (FP32):\n");
         appendBreakDown(sb, MemoryUseMode.INFERENCE, CacheMode.NONE, DataType.FLOAT);
@@ -122,6 +122,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
     private transient final AtomicLong occupiedBy = new AtomicLong(-1);
 
+    //Activation recomputation: segments of chained layer vertices ({first, last} position in topological order), and
+    // for each segment whether its activations were dropped in the last training forward pass, and the RNG state then
+    protected transient int[][] recomputeSegments;
+    protected transient boolean[] recomputeDropped;
+    protected transient long[][] recomputeRngStates;
+
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
      * Note that this is opened/closed once per op (activate/backpropGradient call)
@@ -142,6 +148,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      */
     protected static final String WS_OUTPUT_MEM = "WS_OUTPUT_MEM";
 
+    /**
+     * Workspace for the activations of one segment of layers with activation recomputation enabled. Opened for the
+     * forward pass of the segment, and again for the recomputation + backward pass of the segment
+     */
+    protected static final String WS_RECOMPUTE_ACT = "WS_RECOMPUTE_ACT";
+
     protected final WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
 
     protected static final WorkspaceConfiguration WS_ALL_LAYERS_ACT_CONFIG = WorkspaceConfiguration.builder()
@@ -1369,7 +1381,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         //Calculate activations (which are stored in each layer, and used in backprop)
         try(MemoryWorkspace wsAllActivations = workspaceMgr.notifyScopeEntered(ArrayType.ACTIVATIONS)) {
             Map<String, INDArray> activations = ffToLayerActivationsInWS(true, -1, getOutputLayerIndices(),
-                    fwdType, tbptt, inputs, inputMaskArrays, labelMaskArrays, false);
+                    fwdType, tbptt, inputs, inputMaskArrays, labelMaskArrays, false, !tbptt);
             if (!trainingListeners.isEmpty()) {
                 try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                     for (TrainingListener tl : trainingListeners) {
@@ -1377,7 +1389,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     }
                 }
             }
-            calcBackpropGradients(false,false);
+            calcBackpropGradients(false, false, lossScale());
 
             workspaceMgr.assertCurrentWorkspace(ArrayType.ACTIVATIONS, null);
 
@@ -2063,6 +2075,24 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     protected synchronized Map<String,INDArray> ffToLayerActivationsInWS(boolean train, int layerIndex, int[] excludeIdxs,
                                                                          FwdPassType fwdPassType, boolean storeLastForTBPTT,
                                                                          INDArray[] input, INDArray[] fMask, INDArray[] lMask, boolean clearInputs) {
+        return ffToLayerActivationsInWS(train, layerIndex, excludeIdxs, fwdPassType, storeLastForTBPTT, input, fMask,
+                lMask, clearInputs, false);
+    }
+
+    /**
+     * As per {@link #ffToLayerActivationsInWS(boolean, int, int[], FwdPassType, boolean, INDArray[], INDArray[], INDArray[], boolean)},
+     * optionally dropping the activations of layers with activation recomputation enabled (see
+     * {@link org.deeplearning4j.nn.conf.layers.Layer.Builder#recomputeActivations(boolean)}). Dropped activations are
+     * recomputed by {@link #calcBackpropGradients(boolean, boolean, INDArray...)}, and are not present in the returned
+     * map.
+     *
+     * @param dropRecomputed If true: drop the activations of layers with recomputation enabled. Only supported for
+     *                       the standard forward pass in training mode, with training workspaces enabled
+     */
+    protected synchronized Map<String,INDArray> ffToLayerActivationsInWS(boolean train, int layerIndex, int[] excludeIdxs,
+                                                                         FwdPassType fwdPassType, boolean storeLastForTBPTT,
+                                                                         INDArray[] input, INDArray[] fMask, INDArray[] lMask,
+                                                                         boolean clearInputs, boolean dropRecomputed) {
         if(layerIndex != -1 && (layerIndex < 0 || layerIndex >= topologicalOrder.length)){
             throw new IllegalArgumentException("Invalid input index - index must be >= 0 and < " + topologicalOrder.length
                     + ", got index " + layerIndex);
@@ -2099,6 +2129,21 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         }
         workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
 
+        int[][] segments = null;
+        LayerWorkspaceMgr recomputeMgr = null;
+        recomputeDropped = null;
+        if(dropRecomputed && train && fwdPassType == FwdPassType.STANDARD && recomputeSegments().length > 0){
+            if(wsm == WorkspaceMode.NONE){
+                OneTimeLogger.warn(log, "Activation recomputation is enabled for some layers, but is not supported" +
+                        " with training workspace mode NONE - activations will be stored instead");
+            } else {
+                segments = recomputeSegments();
+                recomputeDropped = new boolean[segments.length];
+                recomputeRngStates = new long[segments.length][];
+                recomputeMgr = recomputeWorkspaceMgr(input[0]);
+            }
+        }
+
         boolean traceLog = log.isTraceEnabled();
 
         Map<String, INDArray> activations = new HashMap<>();
@@ -2109,80 +2154,224 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         } else {
             stopIndex = topologicalOrder.length -1;
         }
-        for (int i = 0; i <= stopIndex; i++) {
-            GraphVertex current = vertices[topologicalOrder[i]];
-            String vName = current.getVertexName();
-            int vIdx = current.getVertexIndex();
+        MemoryWorkspace wsRecompute = null;
+        try {
+            for (int i = 0; i <= stopIndex; i++) {
+                GraphVertex current = vertices[topologicalOrder[i]];
+                String vName = current.getVertexName();
+                int vIdx = current.getVertexIndex();
 
-            if(traceLog){
-                log.trace("About forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
-            }
+                if(traceLog){
+                    log.trace("About forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
+                }
 
-            if(excludeIdxs != null && ArrayUtils.contains(excludeIdxs, vIdx)){
-                continue;
-            }
+                if(excludeIdxs != null && ArrayUtils.contains(excludeIdxs, vIdx)){
+                    continue;
+                }
 
-            try(MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
-                VertexIndices[] inputsTo = current.getOutputVertices();
+                //Vertices in a recomputation segment: all arrays go in WS_RECOMPUTE_ACT, which is closed at the end of the
+                // segment. Only the output of the last vertex of the segment is kept
+                int seg = (segments == null ? -1 : recomputeSegmentOf(i));
+                boolean segEnd = seg >= 0 && i == segments[seg][1];
+                LayerWorkspaceMgr vertexMgr = workspaceMgr;
+                if(seg >= 0){
+                    if(i == segments[seg][0]){
+                        recomputeDropped[seg] = true;
+                        recomputeRngStates[seg] = new long[]{Nd4j.getRandom().rootState(), Nd4j.getRandom().nodeState()};
+                        wsRecompute = recomputeMgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+                        //Re-apply the preprocessor (if any) so the preprocessed input is in WS_RECOMPUTE_ACT
+                        current.setInput(0, current.getInputs()[0], recomputeMgr);
+                    }
+                    vertexMgr = recomputeMgr;
+                }
 
-                INDArray out;
-                if(current.isInputVertex()){
-                    out = inputs[vIdx];
-                } else {
+                try(MemoryWorkspace wsFFWorking = vertexMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
+                    VertexIndices[] inputsTo = current.getOutputVertices();
 
-                    if(fwdPassType == FwdPassType.STANDARD){
-                        out = current.doForward(train, workspaceMgr);
-                    } else if(fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE) {
-                        if (current.hasLayer()) {
-                            Layer l = current.getLayer();
-                            if (l instanceof RecurrentLayer) {
-                                out = ((RecurrentLayer) l).rnnActivateUsingStoredState(current.getInputs()[0], train,
-                                        storeLastForTBPTT, workspaceMgr);
-                            } else if(l instanceof org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer && ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer)l).getUnderlying() instanceof RecurrentLayer) {
-                                RecurrentLayer rl = (RecurrentLayer) ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer)l).getUnderlying();
-                                out = rl.rnnActivateUsingStoredState(current.getInputs()[0], train,storeLastForTBPTT, workspaceMgr);
-                            } else if (l instanceof MultiLayerNetwork) {
-                                List<INDArray> temp = ((MultiLayerNetwork) l).rnnActivateUsingStoredState(
-                                        current.getInputs()[0], train, storeLastForTBPTT);
-                                out = temp.get(temp.size() - 1);
+                    INDArray out;
+                    if(current.isInputVertex()){
+                        out = inputs[vIdx];
+                    } else {
+
+                        if(fwdPassType == FwdPassType.STANDARD){
+                            out = current.doForward(train, vertexMgr);
+                        } else if(fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE) {
+                            if (current.hasLayer()) {
+                                Layer l = current.getLayer();
+                                if (l instanceof RecurrentLayer) {
+                                    out = ((RecurrentLayer) l).rnnActivateUsingStoredState(current.getInputs()[0], train,
+                                            storeLastForTBPTT, workspaceMgr);
+                                } else if(l instanceof org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer && ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer)l).getUnderlying() instanceof RecurrentLayer) {
+                                    RecurrentLayer rl = (RecurrentLayer) ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer)l).getUnderlying();
+                                    out = rl.rnnActivateUsingStoredState(current.getInputs()[0], train,storeLastForTBPTT, workspaceMgr);
+                                } else if (l instanceof MultiLayerNetwork) {
+                                    List<INDArray> temp = ((MultiLayerNetwork) l).rnnActivateUsingStoredState(
+                                            current.getInputs()[0], train, storeLastForTBPTT);
+                                    out = temp.get(temp.size() - 1);
+                                } else {
+                                    //non-recurrent layer
+                                    out = current.doForward(train, workspaceMgr);
+                                }
                             } else {
-                                //non-recurrent layer
                                 out = current.doForward(train, workspaceMgr);
                             }
                         } else {
-                            out = current.doForward(train, workspaceMgr);
+                            throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
                         }
-                    } else {
-                        throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
+
+                        validateArrayWorkspaces(vertexMgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (inference)");
+                    }
+                    if(segEnd){
+                        //End of segment: keep the output only, as input to the next vertices
+                        out = workspaceMgr.leverageTo(ArrayType.ACTIVATIONS, out);
+                    }
+                    if(seg < 0 || segEnd) {
+                        activations.put(current.getVertexName(), out);
                     }
 
-                    validateArrayWorkspaces(workspaceMgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (inference)");
-                }
-                activations.put(current.getVertexName(), out);
+                    if(inputsTo != null) {
+                        //Can be null for output layers
+                        //Within a segment, the (single) next vertex gets its input in WS_RECOMPUTE_ACT
+                        LayerWorkspaceMgr nextMgr = (seg >= 0 && !segEnd ? recomputeMgr : workspaceMgr);
+                        for (VertexIndices v : inputsTo) {
+                            //Note that we don't have to do anything special here: the activations are always detached in
+                            // this method
+                            int inputToIndex = v.getVertexIndex();
+                            int vIdxEdge = v.getVertexEdgeNumber();
+                            vertices[inputToIndex].setInput(vIdxEdge, out, nextMgr);
+                        }
+                    }
 
-                if(inputsTo != null) {
-                    //Can be null for output layers
-                    for (VertexIndices v : inputsTo) {
-                        //Note that we don't have to do anything special here: the activations are always detached in
-                        // this method
-                        int inputToIndex = v.getVertexIndex();
-                        int vIdxEdge = v.getVertexEdgeNumber();
-                        vertices[inputToIndex].setInput(vIdxEdge, out, workspaceMgr);
+                    if(clearInputs) {
+                        current.clear();
                     }
                 }
 
-                if(clearInputs) {
-                    current.clear();
+                if(segEnd){
+                    wsRecompute.close();
+                    wsRecompute = null;
                 }
-            }
 
-            if(traceLog){
-                log.trace("Completed forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
+                if(traceLog){
+                    log.trace("Completed forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
+                }
+            }
+        } finally {
+            if(wsRecompute != null){
+                //Only on exception
+                wsRecompute.close();
             }
         }
         return activations;
     }
 
+    /**
+     * @return Segments of layer vertices with activation recomputation enabled, as {first, last} position in the
+     * topological order. Each segment is a chain: every vertex but the last has the next vertex in the topological
+     * order as its only output. Output layers are never recomputed
+     */
+    protected int[][] recomputeSegments(){
+        if(recomputeSegments == null){
+            List<int[]> segments = new ArrayList<>();
+            int start = -1;
+            for( int i = 0; i < topologicalOrder.length; i++) {
+                GraphVertex gv = vertices[topologicalOrder[i]];
+                boolean recompute = gv instanceof LayerVertex && !gv.isOutputVertex()
+                        && gv.getLayer().conf().getLayer().isRecomputeActivations();
+                if(recompute && start >= 0){
+                    VertexIndices[] prevOutputs = vertices[topologicalOrder[i - 1]].getOutputVertices();
+                    if(prevOutputs == null || prevOutputs.length != 1 || prevOutputs[0].getVertexIndex() != gv.getVertexIndex()){
+                        //Not a chain: start a new segment
+                        segments.add(new int[]{start, i - 1});
+                        start = i;
+                    }
+                } else if(recompute){
+                    start = i;
+                } else if(start >= 0){
+                    segments.add(new int[]{start, i - 1});
+                    start = -1;
+                }
+            }
+            if(start >= 0){
+                segments.add(new int[]{start, topologicalOrder.length - 1});
+            }
+            recomputeSegments = segments.toArray(new int[segments.size()][0]);
+        }
+        return recomputeSegments;
+    }
+
+    /**
+     * @return Index of the recomputation segment containing the specified position in the topological order, or -1
+     * if none
+     */
+    protected int recomputeSegmentOf(int topoPosition){
+        int[][] segments = recomputeSegments();
+        for( int i = 0; i < segments.length; i++) {
+            if(topoPosition >= segments[i][0] && topoPosition <= segments[i][1]){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected LayerWorkspaceMgr recomputeWorkspaceMgr(INDArray input){
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.INPUT, WS_RECOMPUTE_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.ACTIVATIONS, WS_RECOMPUTE_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_CACHE, WS_RECOMPUTE_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        if(input != null && input.isAttached()){
+            //Don't leverage out of async DataMultiSetIterator workspaces
+            mgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
+        }
+        mgr.setHelperWorkspacePointers(helperWorkspaces);
+        return mgr;
+    }
+
+    /**
+     * Recompute the forward pass for the specified segment, as part of backprop. Opens workspace WS_RECOMPUTE_ACT,
+     * which should be closed once backprop for the segment is done. The random number generator state is restored
+     * to its state at the start of the original forward pass of the segment (for identical dropout masks, etc) and
+     * reset afterwards.
+     *
+     * @param seg Index of the segment
+     * @return WS_RECOMPUTE_ACT workspace
+     */
+    protected MemoryWorkspace recomputeSegment(int seg){
+        int[] segment = recomputeSegments()[seg];
+        GraphVertex first = vertices[topologicalOrder[segment[0]]];
+        LayerWorkspaceMgr mgr = recomputeWorkspaceMgr(inputs == null ? null : inputs[0]);
+
+        org.nd4j.linalg.api.rng.Random rng = Nd4j.getRandom();
+        long rootState = rng.rootState();
+        long nodeState = rng.nodeState();
+        rng.setStates(recomputeRngStates[seg][0], recomputeRngStates[seg][1]);
+
+        MemoryWorkspace ws = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+        try {
+            //Input to the first vertex of the segment is still stored (in WS_ALL_LAYERS_ACT, or a network input)
+            first.setInput(0, first.getInputs()[0], mgr);
+            for( int i = segment[0]; i <= segment[1]; i++) {
+                try(MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
+                    INDArray out = vertices[topologicalOrder[i]].doForward(true, mgr);
+                    if(i < segment[1]){
+                        vertices[topologicalOrder[i + 1]].setInput(0, out, mgr);
+                    }
+                }
+            }
+        } catch (Throwable t){
+            ws.close();
+            throw t;
+        } finally {
+            rng.setStates(rootState, nodeState);
+        }
+        recomputeDropped[seg] = false;
+        return ws;
+    }
+
 
     /**
      * Provide the output of the specified layers, detached from any workspace. This is most commonly used at inference/test
@@ -2579,6 +2768,17 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      *                         learning situations.
      */
     protected void calcBackpropGradients(boolean clearLayers, boolean truncatedBPTT, INDArray... externalEpsilons) {
+        calcBackpropGradients(clearLayers, truncatedBPTT, 1.0, externalEpsilons);
+    }
+
+    /**
+     * As per {@link #calcBackpropGradients(boolean, boolean, INDArray...)}, with loss scaling for mixed precision
+     * training: the gradients and epsilons of the output vertices are multiplied by the loss scale, before they are
+     * propagated to the rest of the network
+     *
+     * @param lossScale Loss scale factor. 1.0 for no scaling
+     */
+    protected void calcBackpropGradients(boolean clearLayers, boolean truncatedBPTT, double lossScale, INDArray... externalEpsilons) {
         if (flattenedGradients == null) {
             initGradientsView();
         }
@@ -2655,6 +2855,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         LinkedList<Triple<String, INDArray, Character>> gradients = new LinkedList<>();
         boolean[] setVertexEpsilon = new boolean[topologicalOrder.length]; //If true: already set epsilon for this vertex; later epsilons should be *added* to the existing one, not set
         MemoryWorkspace initialWorkspace = Nd4j.getMemoryManager().getCurrentWorkspace();
+        MemoryWorkspace wsRecompute = null;
 
         boolean traceLog = log.isTraceEnabled();
 
@@ -2717,6 +2918,14 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                 }
                 workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
 
+                //Activation recomputation: activations for the segment were dropped during the forward pass. Recompute
+                // them before backprop of the last vertex in the segment; WS_RECOMPUTE_ACT is closed after the first
+                int seg = (recomputeDropped == null ? -1 : recomputeSegmentOf(i));
+                if (seg >= 0 && recomputeDropped[seg] && i == recomputeSegments[seg][1]) {
+                    wsRecompute = recomputeSegment(seg);
+                    wsRecompute.setPreviousWorkspace(initialWorkspace);
+                }
+
                 if (current.isOutputVertex()) {
                     //Two reasons for a vertex to be an output vertex:
                     //(a) it's an output layer (i.e., instanceof IOutputLayer), or
@@ -2771,6 +2980,20 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     pair = current.doBackward(truncatedBPTT, workspaceMgr);
                     epsilons = pair.getSecond();
 
+                    if (lossScale != 1.0 && current.isOutputVertex()) {
+                        //Loss scaling: scale the output layer gradients, before they are propagated to other vertices
+                        if (pair.getFirst() != null) {
+                            for (INDArray g : pair.getFirst().gradientForVariable().values()) {
+                                g.muli(lossScale);
+                            }
+                        }
+                        for (INDArray epsilon : epsilons) {
+                            if (epsilon != null) {
+                                epsilon.muli(lossScale);
+                            }
+                        }
+                    }
+
                     //Validate workspace location for the activation gradients:
                     //validateArrayWorkspaces(LayerWorkspaceMgr mgr, INDArray array, ArrayType arrayType, String vertexName, boolean isInputVertex, String op){
                     for (INDArray epsilon : epsilons) {
@@ -2831,6 +3054,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     closeAtEndIteraton[i] = null;
                 }
 
+                if (wsRecompute != null && seg >= 0 && i == recomputeSegments[seg][0]) {
+                    wsRecompute.close();
+                    wsRecompute = null;
+                }
+
                 if (traceLog) {
                     log.trace("Completed backprop: {} (\"{}\") - {}", i, vertexName, current.getClass().getSimpleName());
                 }
@@ -2850,6 +3078,19 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     }
                 }
             }
+            if(wsRecompute != null) {
+                //Non-null on exception, or if backprop stopped at a frozen vertex within a recomputation segment
+                try {
+                    wsRecompute.close();
+                } catch (Throwable t2) {
+                    if (t != null) {
+                        log.error("Encountered second exception while trying to close workspace after initial exception");
+                        log.error("Original exception:", t);
+                        throw t2;
+                    }
+                }
+            }
+            recomputeDropped = null;
             Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
 
             if(t != null){
@@ -3001,6 +3242,19 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return null;
     }
 
+    /**
+     * @return The current loss scale for mixed precision training (see {@link MixedPrecision}), or 1.0 if mixed
+     * precision training is not enabled
+     */
+    public double lossScale() {
+        MixedPrecision mp = configuration.getMixedPrecision();
+        if (mp == null) {
+            return 1.0;
+        }
+        ComputationGraphUpdater u = getUpdater(false);
+        return u == null ? mp.getInitialLossScale() : u.getLossScale();
+    }
+
     /**
      * Set the computationGraphUpdater for the network
      */
@@ -3328,6 +3582,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
         if (this.flattenedParams != null && this.flattenedParams.length() == params.length()) {
             this.flattenedParams.assign(params);
+            parametersChanged();
             return;
         }
 
@@ -3344,6 +3599,18 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             layer.setParams(get);
             idx += range;
         }
+        parametersChanged();
+    }
+
+    /**
+     * Notify the updater that the parameters were set outside of training, so that the master copy of the parameters
+     * used for mixed precision training is updated
+     */
+    protected void parametersChanged() {
+        ComputationGraphUpdater u = getUpdater(false);
+        if (u != null) {
+            u.masterParamsChanged();
+        }
     }
 
     @Override
@@ -3470,6 +3737,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             INDArray arrNew = paramTable.get(s);
             arrCurrent.assign(arrNew);
         }
+        parametersChanged();
     }
 
     @Override
@@ -3481,6 +3749,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         String layerName = key.substring(0, idx);
         String paramType = key.substring(idx + 1);
         getLayer(layerName).setParam(paramType, val);
+        parametersChanged();
     }
 
     @Override
@@ -0,0 +1,234 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.inference;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.adapters.OutputAdapter;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Thread safe, read-only inference on a single {@link MultiLayerNetwork} or {@link ComputationGraph}.<br>
+ * The output methods of MultiLayerNetwork and ComputationGraph are synchronized, as layers store their input and
+ * other state during the forward pass. This class instead keeps a bounded pool of lightweight replicas of the network:
+ * each call borrows a replica for the duration of the forward pass, and returns it afterwards. A replica has its own
+ * layer objects (and hence its own forward pass state), but uses the parameters array of the original network
+ * directly - parameters are never copied. Up to maxReplicas threads calling the output methods of this class
+ * therefore do not block each other; further threads wait until a replica is returned. Memory use is one copy of the
+ * parameters plus at most maxReplicas sets of layer state, regardless of the number of calling threads.<br>
+ * <br>
+ * Parameters are assumed to be immutable while this class is in use: training or otherwise modifying the parameters of
+ * the original network at the same time as calling output methods here gives undefined results. If the parameters array
+ * of the original network is replaced (for example, by re-initializing it), replicas are re-created on their next use.
+ */
+public class ConcurrentInferenceModel {
+
+    @Getter
+    private final Model model;
+    @Getter
+    private final int maxReplicas;
+    //Replicas not currently in use. Guarded by itself
+    private final Deque<Model> idleReplicas = new ArrayDeque<>();
+    private int numReplicas;
+
+    /**
+     * Create an instance with at most one replica per available processor
+     *
+     * @param model MultiLayerNetwork or ComputationGraph to use for inference. Must be initialized
+     */
+    public ConcurrentInferenceModel(@NonNull Model model) {
+        this(model, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param model       MultiLayerNetwork or ComputationGraph to use for inference. Must be initialized
+     * @param maxReplicas Maximum number of replicas, i.e., the maximum number of concurrent forward passes
+     */
+    public ConcurrentInferenceModel(@NonNull Model model, int maxReplicas) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalArgumentException("Only MultiLayerNetwork and ComputationGraph models are supported, got "
+                            + model.getClass().getName());
+        if (model.params() == null)
+            throw new IllegalStateException("Model must be initialized before use");
+        if (maxReplicas < 1)
+            throw new IllegalArgumentException("Maximum number of replicas must be positive, got " + maxReplicas);
+        this.model = model;
+        this.maxReplicas = maxReplicas;
+    }
+
+    /**
+     * Borrow a replica of the network, blocking until one is available. The returned network shares its parameters
+     * with the original network, and must be used for inference only, by one thread at a time. It must be returned
+     * using {@link #returnReplica(Model)} after use.
+     *
+     * @return MultiLayerNetwork or ComputationGraph, depending on the type of the original network
+     */
+    public Model borrowReplica() {
+        Model replica;
+        synchronized (idleReplicas) {
+            while (idleReplicas.isEmpty() && numReplicas >= maxReplicas) {
+                try {
+                    idleReplicas.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for a network replica", e);
+                }
+            }
+            replica = idleReplicas.pollFirst();
+            if (replica == null) {
+                numReplicas++;
+            }
+        }
+
+        INDArray params = model.params();
+        if (replica == null || replica.params() != params) {
+            //New replica, or the parameters array of the original network has been replaced
+            try {
+                replica = createReplica(params);
+            } catch (RuntimeException e) {
+                synchronized (idleReplicas) {
+                    numReplicas--;
+                    idleReplicas.notifyAll();
+                }
+                throw e;
+            }
+        }
+        return replica;
+    }
+
+    /**
+     * Return a replica obtained from {@link #borrowReplica()}, making it available to other threads
+     *
+     * @param replica Replica to return
+     */
+    public void returnReplica(@NonNull Model replica) {
+        synchronized (idleReplicas) {
+            idleReplicas.addFirst(replica);
+            idleReplicas.notifyAll();
+        }
+    }
+
+    /**
+     * @return Number of replicas created so far, at most {@link #getMaxReplicas()}
+     */
+    public int getNumReplicas() {
+        synchronized (idleReplicas) {
+            return numReplicas;
+        }
+    }
+
+    private Model createReplica(INDArray params) {
+        if (model instanceof MultiLayerNetwork) {
+            MultiLayerNetwork net = new MultiLayerNetwork(((MultiLayerNetwork) model).getLayerWiseConfigurations().clone());
+            net.init(params, false);
+            return net;
+        } else {
+            ComputationGraph net = new ComputationGraph(((ComputationGraph) model).getConfiguration().clone());
+            net.init(params, false);
+            return net;
+        }
+    }
+
+    /**
+     * Perform inference (forward pass in test mode) on the given input, for networks with a single input and output
+     *
+     * @param input Input to the network
+     * @return Network output
+     */
+    public INDArray output(INDArray input) {
+        return output(input, null);
+    }
+
+    /**
+     * Perform inference (forward pass in test mode) on the given input, for networks with a single input and output
+     *
+     * @param input        Input to the network
+     * @param featuresMask Features mask array. May be null
+     * @return Network output
+     */
+    public INDArray output(INDArray input, INDArray featuresMask) {
+        if (model instanceof MultiLayerNetwork) {
+            Model replica = borrowReplica();
+            try {
+                return ((MultiLayerNetwork) replica).output(input, false, featuresMask, null);
+            } finally {
+                returnReplica(replica);
+            }
+        }
+        INDArray[] out = output(new INDArray[] {input}, featuresMask == null ? null : new INDArray[] {featuresMask});
+        if (out.length != 1)
+            throw new IllegalStateException("Network has " + out.length + " outputs: use output(INDArray[], INDArray[])");
+        return out[0];
+    }
+
+    /**
+     * Perform inference (forward pass in test mode) on the given inputs
+     *
+     * @param inputs     Inputs to the network. Must be of length 1 for MultiLayerNetwork
+     * @param inputMasks Input mask arrays. May be null
+     * @return Network outputs
+     */
+    public INDArray[] output(INDArray[] inputs, INDArray[] inputMasks) {
+        if (model instanceof MultiLayerNetwork && (inputs.length != 1 || (inputMasks != null && inputMasks.length != 1)))
+            throw new IllegalArgumentException("MultiLayerNetwork can only have a single input");
+        Model replica = borrowReplica();
+        try {
+            if (replica instanceof MultiLayerNetwork) {
+                return new INDArray[] {((MultiLayerNetwork) replica).output(inputs[0], false,
+                                inputMasks == null ? null : inputMasks[0], null)};
+            }
+            return ((ComputationGraph) replica).output(false, inputs, inputMasks, null, null);
+        } finally {
+            returnReplica(replica);
+        }
+    }
+
+    /**
+     * Perform inference (forward pass in test mode) on the given inputs, and convert the output using the given adapter.
+     * The network output is placed in a workspace, and is only valid inside the adapter.
+     * See {@link MultiLayerNetwork#output(INDArray, INDArray, INDArray, OutputAdapter)}
+     *
+     * @param inputs        Inputs to the network. Must be of length 1 for MultiLayerNetwork
+     * @param inputMasks    Input mask arrays. May be null
+     * @param outputAdapter Adapter for the output
+     * @return Adapter output
+     */
+    public <T> T output(INDArray[] inputs, INDArray[] inputMasks, @NonNull OutputAdapter<T> outputAdapter) {
+        if (model instanceof MultiLayerNetwork && (inputs.length != 1 || (inputMasks != null && inputMasks.length != 1)))
+            throw new IllegalArgumentException("MultiLayerNetwork can only have a single input");
+        Model replica = borrowReplica();
+        try {
+            if (replica instanceof MultiLayerNetwork) {
+                return ((MultiLayerNetwork) replica).output(inputs[0], inputMasks == null ? null : inputMasks[0], null,
+                                outputAdapter);
+            }
+            return ((ComputationGraph) replica).output(inputs, inputMasks, null, outputAdapter);
+        } finally {
+            returnReplica(replica);
+        }
+    }
+}
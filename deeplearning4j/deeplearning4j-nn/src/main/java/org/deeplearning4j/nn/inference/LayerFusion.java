@@ -0,0 +1,328 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.inference;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.InputPreProcessor;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.ActivationLayer;
+import org.deeplearning4j.nn.conf.layers.BaseLayer;
+import org.deeplearning4j.nn.conf.layers.BatchNormalization;
+import org.deeplearning4j.nn.conf.layers.ConvolutionLayer;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.FeedForwardLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.params.BatchNormalizationParamInitializer;
+import org.deeplearning4j.nn.params.DefaultParamInitializer;
+import org.deeplearning4j.nn.transferlearning.TransferLearning;
+import org.nd4j.linalg.activations.IActivation;
+import org.nd4j.linalg.activations.impl.ActivationIdentity;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inference-time layer fusion for {@link MultiLayerNetwork} and {@link ComputationGraph}.<br>
+ * The following patterns are fused into a single layer:
+ * <ul>
+ *     <li>{@link ConvolutionLayer} or {@link DenseLayer} followed by {@link BatchNormalization}: the batch norm global
+ *     mean and variance, gamma and beta are folded into the weights and bias of the preceding layer. For
+ *     scale = gamma / sqrt(var + eps), the fused weights are W * scale (per output channel) and the fused bias is
+ *     (b - mean) * scale + beta. A bias is added to convolution layers without one</li>
+ *     <li>{@link ConvolutionLayer} or {@link DenseLayer} (optionally with a batch norm layer folded in) followed by
+ *     {@link ActivationLayer}: the activation function is moved into the preceding layer. The activation function of a
+ *     folded batch norm layer is moved in the same way</li>
+ * </ul>
+ * Layers are only fused when the first layer has the identity activation function (and, for dense layers, no layer
+ * normalization), the following layers have no input preprocessor and, for computation graphs, the output of each
+ * fused layer is used only by the next layer of the pattern and is not a network output. Subclasses of
+ * ConvolutionLayer (depthwise, separable, deconvolution, etc) are not fused.<br>
+ * <br>
+ * The returned network is a new network with all layers frozen: it is intended for inference only, and the original
+ * network is not modified. Fusion changes the order of floating point operations, so outputs match the original
+ * network within floating point tolerance only - for example, approximately 1e-5 relative error for FLOAT networks.
+ * Batch norm is always folded using its global (inference) statistics, so outputs only match the original network in
+ * inference (not training) mode.<br>
+ * For computation graphs, the fused layer keeps the name of the first layer in the pattern; inputs and network outputs
+ * referring to the removed layers are updated to refer to the fused layer instead.
+ */
+public class LayerFusion {
+
+    private LayerFusion() {
+    }
+
+    /**
+     * Fuse the layers of the given network, as described in the class javadoc
+     *
+     * @param net Network to fuse. Must be initialized. Not modified
+     * @return New network, with layers fused and all layers frozen
+     */
+    public static MultiLayerNetwork fuse(@NonNull MultiLayerNetwork net) {
+        if (net.params() == null)
+            throw new IllegalStateException("Network must be initialized before fusing layers");
+
+        MultiLayerConfiguration origConf = net.getLayerWiseConfigurations();
+        MultiLayerConfiguration conf = origConf.clone();
+        int n = origConf.getConfs().size();
+
+        List<NeuralNetConfiguration> confs = new ArrayList<>();
+        Map<Integer, InputPreProcessor> preProcessors = new HashMap<>();
+        List<Layer[]> sources = new ArrayList<>();
+        int i = 0;
+        while (i < n) {
+            NeuralNetConfiguration c = conf.getConf(i);
+            InputPreProcessor pp = conf.getInputPreProcess(i);
+            if (pp != null)
+                preProcessors.put(confs.size(), pp);
+
+            Layer bn = null;
+            IActivation activation = null;
+            int next = i + 1;
+            if (isFusionTarget(c.getLayer())) {
+                long nOut = ((FeedForwardLayer) c.getLayer()).getNOut();
+                if (next < n && canFoldBatchNorm(conf.getConf(next).getLayer(), nOut)
+                                && conf.getInputPreProcess(next) == null) {
+                    bn = net.getLayer(next);
+                    activation = batchNormActivation(conf.getConf(next).getLayer());
+                    next++;
+                }
+                if (activation == null && next < n && conf.getConf(next).getLayer() instanceof ActivationLayer
+                                && conf.getInputPreProcess(next) == null) {
+                    activation = ((ActivationLayer) conf.getConf(next).getLayer()).getActivationFn();
+                    next++;
+                }
+            }
+
+            confs.add(bn == null && activation == null ? c : fusedConf(c, bn != null, activation));
+            sources.add(new Layer[] {net.getLayer(i), bn});
+            i = next;
+        }
+
+        conf.setConfs(confs);
+        conf.setInputPreProcessors(preProcessors);
+        MultiLayerNetwork fused = new MultiLayerNetwork(conf);
+        fused.init();
+        for (int j = 0; j < confs.size(); j++) {
+            copyParams(sources.get(j)[0], sources.get(j)[1], fused.getLayer(j));
+        }
+
+        return new TransferLearning.Builder(fused).setFeatureExtractor(confs.size() - 1).build();
+    }
+
+    /**
+     * Fuse the layers of the given network, as described in the class javadoc
+     *
+     * @param graph Network to fuse. Must be initialized. Not modified
+     * @return New network, with layers fused and all layers frozen
+     */
+    public static ComputationGraph fuse(@NonNull ComputationGraph graph) {
+        if (graph.params() == null)
+            throw new IllegalStateException("Network must be initialized before fusing layers");
+
+        ComputationGraphConfiguration conf = graph.getConfiguration().clone();
+        Map<String, GraphVertex> vertices = conf.getVertices();
+        Map<String, List<String>> vertexInputs = conf.getVertexInputs();
+        Map<String, List<String>> vertexOutputs = new HashMap<>();
+        for (Map.Entry<String, List<String>> e : vertexInputs.entrySet()) {
+            for (String in : e.getValue()) {
+                if (!vertexOutputs.containsKey(in))
+                    vertexOutputs.put(in, new ArrayList<String>());
+                vertexOutputs.get(in).add(e.getKey());
+            }
+        }
+
+        Map<String, Layer> bnSources = new HashMap<>();
+        Map<String, String> replaced = new HashMap<>();
+        for (String name : new ArrayList<>(vertices.keySet())) {
+            if (replaced.containsKey(name) || !(vertices.get(name) instanceof LayerVertex))
+                continue;
+            LayerVertex lv = (LayerVertex) vertices.get(name);
+            if (!isFusionTarget(lv.getLayerConf().getLayer()))
+                continue;
+            long nOut = ((FeedForwardLayer) lv.getLayerConf().getLayer()).getNOut();
+
+            Layer bn = null;
+            IActivation activation = null;
+            String last = name;
+            String next = onlyConsumer(conf, vertexOutputs, last);
+            if (next != null && canFoldBatchNorm(layerConf(vertices.get(next)), nOut)) {
+                bn = graph.getLayer(next);
+                activation = batchNormActivation(layerConf(vertices.get(next)));
+                replaced.put(next, name);
+                last = next;
+                next = onlyConsumer(conf, vertexOutputs, last);
+            }
+            if (activation == null && next != null && layerConf(vertices.get(next)) instanceof ActivationLayer) {
+                activation = ((ActivationLayer) layerConf(vertices.get(next))).getActivationFn();
+                replaced.put(next, name);
+                last = next;
+            }
+            if (last.equals(name))
+                continue;
+
+            lv.setLayerConf(fusedConf(lv.getLayerConf(), bn != null, activation));
+            if (bn != null)
+                bnSources.put(name, bn);
+        }
+
+        for (String r : replaced.keySet()) {
+            vertices.remove(r);
+            vertexInputs.remove(r);
+        }
+        for (List<String> inputs : vertexInputs.values()) {
+            for (int i = 0; i < inputs.size(); i++) {
+                inputs.set(i, resolve(replaced, inputs.get(i)));
+            }
+        }
+        List<String> outputs = conf.getNetworkOutputs();
+        for (int i = 0; i < outputs.size(); i++) {
+            outputs.set(i, resolve(replaced, outputs.get(i)));
+        }
+
+        ComputationGraph fused = new ComputationGraph(conf);
+        fused.init();
+        for (Layer l : fused.getLayers()) {
+            String name = l.conf().getLayer().getLayerName();
+            copyParams(graph.getLayer(name), bnSources.get(name), l);
+        }
+
+        return new TransferLearning.GraphBuilder(fused)
+                        .setFeatureExtractor(outputs.toArray(new String[outputs.size()])).build();
+    }
+
+    private static boolean isFusionTarget(org.deeplearning4j.nn.conf.layers.Layer l) {
+        if (l == null || (l.getClass() != ConvolutionLayer.class && l.getClass() != DenseLayer.class))
+            return false;
+        if (l instanceof DenseLayer && ((DenseLayer) l).hasLayerNorm())
+            return false;
+        return ((BaseLayer) l).getActivationFn() instanceof ActivationIdentity;
+    }
+
+    private static boolean canFoldBatchNorm(org.deeplearning4j.nn.conf.layers.Layer l, long nOut) {
+        return l instanceof BatchNormalization && ((BatchNormalization) l).getNOut() == nOut;
+    }
+
+    private static IActivation batchNormActivation(org.deeplearning4j.nn.conf.layers.Layer bn) {
+        IActivation a = ((BatchNormalization) bn).getActivationFn();
+        return a == null || a instanceof ActivationIdentity ? null : a;
+    }
+
+    private static org.deeplearning4j.nn.conf.layers.Layer layerConf(GraphVertex v) {
+        if (!(v instanceof LayerVertex) || ((LayerVertex) v).getPreProcessor() != null)
+            return null;
+        return ((LayerVertex) v).getLayerConf().getLayer();
+    }
+
+    /**
+     * @return Name of the only vertex using the output of the given vertex, or null if there is not exactly one, or
+     * the output of the vertex is also a network output
+     */
+    private static String onlyConsumer(ComputationGraphConfiguration conf, Map<String, List<String>> vertexOutputs,
+                    String name) {
+        List<String> out = vertexOutputs.get(name);
+        if (out == null || out.size() != 1 || conf.getNetworkOutputs().contains(name))
+            return null;
+        String next = out.get(0);
+        return conf.getVertexInputs().get(next).size() == 1 ? next : null;
+    }
+
+    private static String resolve(Map<String, String> replaced, String name) {
+        return replaced.containsKey(name) ? replaced.get(name) : name;
+    }
+
+    private static NeuralNetConfiguration fusedConf(NeuralNetConfiguration c, boolean foldBatchNorm,
+                    IActivation activation) {
+        NeuralNetConfiguration ret = c.clone();
+        BaseLayer l = (BaseLayer) ret.getLayer();
+        if (activation != null)
+            l.setActivationFn(activation);
+        //The folded batch norm shift is stored in the bias, so the fused layer needs one even if the original didn't
+        if (foldBatchNorm && l instanceof ConvolutionLayer)
+            ((ConvolutionLayer) l).setHasBias(true);
+        else if (foldBatchNorm && l instanceof DenseLayer)
+            ((DenseLayer) l).setHasBias(true);
+        return ret;
+    }
+
+    /**
+     * Copy the parameters of a layer to the fused layer, folding in the batch norm layer if one is present
+     */
+    private static void copyParams(Layer src, Layer bn, Layer dst) {
+        if (bn == null) {
+            for (Map.Entry<String, INDArray> e : src.paramTable().entrySet()) {
+                dst.setParam(e.getKey(), e.getValue());
+            }
+            return;
+        }
+
+        BatchNormalization bnConf = (BatchNormalization) bn.conf().getLayer();
+        long nOut = bnConf.getNOut();
+        //Fold in double precision, to avoid adding rounding error for lower precision networks
+        INDArray mean = bn.getParam(BatchNormalizationParamInitializer.GLOBAL_MEAN).castTo(DataType.DOUBLE).reshape(1, nOut);
+        INDArray var;
+        if (bnConf.isUseLogStd()) {
+            INDArray log10s = bn.getParam(BatchNormalizationParamInitializer.GLOBAL_LOG_STD).castTo(DataType.DOUBLE);
+            var = Transforms.pow(Nd4j.valueArrayOf(log10s.shape(), 10.0, DataType.DOUBLE), log10s, false);
+            var.muli(var);
+        } else {
+            var = bn.getParam(BatchNormalizationParamInitializer.GLOBAL_VAR).castTo(DataType.DOUBLE).dup();
+        }
+        INDArray scale = Transforms.sqrt(var.reshape(1, nOut).addi(bnConf.getEps()), false).rdivi(1.0);
+        INDArray beta;
+        if (bnConf.isLockGammaBeta()) {
+            scale.muli(bnConf.getGamma());
+            beta = Nd4j.valueArrayOf(new long[] {1, nOut}, bnConf.getBeta(), DataType.DOUBLE);
+        } else {
+            scale.muli(bn.getParam(BatchNormalizationParamInitializer.GAMMA).castTo(DataType.DOUBLE).reshape(1, nOut));
+            beta = bn.getParam(BatchNormalizationParamInitializer.BETA).castTo(DataType.DOUBLE).reshape(1, nOut);
+        }
+
+        INDArray w = src.getParam(DefaultParamInitializer.WEIGHT_KEY).castTo(DataType.DOUBLE).dup('c');
+        if (w.rank() == 4) {
+            //Convolution weights: [nOut, nIn, kH, kW]
+            w = w.reshape('c', nOut, -1).muliColumnVector(scale.reshape(nOut, 1)).reshape('c', w.shape());
+        } else {
+            //Dense weights: [nIn, nOut]
+            w.muliRowVector(scale);
+        }
+
+        INDArray b = src.paramTable().containsKey(DefaultParamInitializer.BIAS_KEY)
+                        ? src.getParam(DefaultParamInitializer.BIAS_KEY).castTo(DataType.DOUBLE).reshape(1, nOut).dup()
+                        : Nd4j.zeros(DataType.DOUBLE, 1, nOut);
+        b.subi(mean).muli(scale).addi(beta);
+
+        INDArray dstBias = dst.getParam(DefaultParamInitializer.BIAS_KEY);
+        dst.setParam(DefaultParamInitializer.WEIGHT_KEY, w.castTo(dstBias.dataType()));
+        dst.setParam(DefaultParamInitializer.BIAS_KEY, b.reshape(dstBias.shape()).castTo(dstBias.dataType()));
+    }
+}
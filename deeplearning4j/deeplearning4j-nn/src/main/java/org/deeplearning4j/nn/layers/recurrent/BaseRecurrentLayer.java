@@ -50,10 +50,29 @@ public abstract class BaseRecurrentLayer<LayerConfT extends org.deeplearning4j.n
 
     protected int helperCountFail = 0;
 
+    //Packed sequence for the current mask array, if packed sequences are enabled
+    protected INDArray packedMask;
+    protected PackedSequence packedSequence;
+
     public BaseRecurrentLayer(NeuralNetConfiguration conf, DataType dataType) {
         super(conf, dataType);
     }
 
+    /**
+     * @return The packed sequence for the current mask array, or null if packed sequences are not enabled for this
+     * layer, or the mask array is absent or can't be packed
+     */
+    protected PackedSequence packedSequence() {
+        if (!layerConf().isPackedSequences() || maskArray == null) {
+            return null;
+        }
+        if (packedMask != maskArray) {
+            packedSequence = PackedSequence.fromMask(maskArray);
+            packedMask = maskArray;
+        }
+        return packedSequence;
+    }
+
     /**
      * Returns a shallow copy of the stateMap
      */
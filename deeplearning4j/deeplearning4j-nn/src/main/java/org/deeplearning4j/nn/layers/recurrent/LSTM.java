@@ -35,6 +35,7 @@ import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.Pair;
+import org.deeplearning4j.nn.workspace.ArrayType;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.nd4j.common.util.OneTimeLogger;
 
@@ -108,34 +109,56 @@ public class LSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.layers.L
             tBpttStateMap.put(STATE_KEY_PREV_ACTIVATION, fwdPass.lastAct.detach());
             tBpttStateMap.put(STATE_KEY_PREV_MEMCELL, fwdPass.lastMemCell.detach());
         } else {
-            fwdPass = activateHelper(true, null, null, true, workspaceMgr);
+            fwdPass = activateHelper(true, null, null, true, true, workspaceMgr);
+        }
+        //Packed sequences: forward pass arrays are in packed (sorted by length) order
+        PackedSequence packed = truncatedBPTT ? null : packedSequence();
+        INDArray bpInput = permuteIfNWC(this.input);
+        INDArray bpEpsilon = permuteIfNWC(epsilon);
+        if (packed != null) {
+            bpInput = packed.pack(bpInput, ArrayType.BP_WORKING_MEM, workspaceMgr);
+            bpEpsilon = packed.pack(bpEpsilon, ArrayType.BP_WORKING_MEM, workspaceMgr);
         }
         fwdPass.fwdPassOutput = permuteIfNWC(fwdPass.fwdPassOutput);
         Pair<Gradient,INDArray> p = LSTMHelpers.backpropGradientHelper(this,
-                        this.conf, this.layerConf().getGateActivationFn(), permuteIfNWC(this.input),
-                        recurrentWeights, inputWeights, permuteIfNWC(epsilon), truncatedBPTT, tbpttBackwardLength, fwdPass, true,
+                        this.conf, this.layerConf().getGateActivationFn(), bpInput,
+                        recurrentWeights, inputWeights, bpEpsilon, truncatedBPTT, tbpttBackwardLength, fwdPass, true,
                         LSTMParamInitializer.INPUT_WEIGHT_KEY, LSTMParamInitializer.RECURRENT_WEIGHT_KEY,
                         LSTMParamInitializer.BIAS_KEY, gradientViews, null, false, helper, workspaceMgr,
-                        layerConf().isHelperAllowFallback());
+                        layerConf().isHelperAllowFallback(), packed == null ? null : packed.getActiveCounts());
 
         weightNoiseParams.clear();
-        p.setSecond(permuteIfNWC(backpropDropOutIfPresent(p.getSecond())));
+        INDArray epsOut = p.getSecond();
+        if (packed != null) {
+            epsOut = packed.unpack(epsOut, ArrayType.ACTIVATION_GRAD, workspaceMgr);
+        }
+        p.setSecond(permuteIfNWC(backpropDropOutIfPresent(epsOut)));
         return p;
     }
 
     @Override
     public INDArray activate(INDArray input, boolean training, LayerWorkspaceMgr workspaceMgr) {
         setInput(input, workspaceMgr);
-        return activateHelper(training, null, null, false, workspaceMgr).fwdPassOutput;
+        return activateHelper(training, null, null, false, true, workspaceMgr).fwdPassOutput;
     }
 
     @Override
     public INDArray activate(boolean training, LayerWorkspaceMgr workspaceMgr) {
-        return activateHelper(training, null, null, false, workspaceMgr).fwdPassOutput;
+        return activateHelper(training, null, null, false, true, workspaceMgr).fwdPassOutput;
     }
 
     private FwdPassReturn activateHelper(final boolean training, final INDArray prevOutputActivations,
                     final INDArray prevMemCellState, boolean forBackprop, LayerWorkspaceMgr workspaceMgr) {
+        return activateHelper(training, prevOutputActivations, prevMemCellState, forBackprop, false, workspaceMgr);
+    }
+
+    /**
+     * @param allowPacking If true: use packed sequences if enabled and possible for the current mask. Must only be
+     *                     true when the last time step state isn't needed (i.e., not for rnnTimeStep or TBPTT).
+     *                     When packed and forBackprop is true, the returned arrays are in packed order
+     */
+    private FwdPassReturn activateHelper(final boolean training, final INDArray prevOutputActivations,
+                    final INDArray prevMemCellState, boolean forBackprop, boolean allowPacking, LayerWorkspaceMgr workspaceMgr) {
         assertInputSet(false);
         Preconditions.checkState(input.rank() == 3,
                 "3D input expected to RNN layer expected, got " + input.rank());
@@ -161,11 +184,26 @@ public class LSTM extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.layers.L
         final INDArray recurrentWeights = getParamWithNoise(LSTMParamInitializer.RECURRENT_WEIGHT_KEY, training, workspaceMgr); //Shape: [hiddenLayerSize,4*hiddenLayerSize+3]; order: [wI,wF,wO,wG,wFF,wOO,wGG]
         final INDArray inputWeights = getParamWithNoise(LSTMParamInitializer.INPUT_WEIGHT_KEY, training, workspaceMgr); //Shape: [n^(L-1),4*hiddenLayerSize]; order: [wi,wf,wo,wg]
         final INDArray biases = getParamWithNoise(LSTMParamInitializer.BIAS_KEY, training, workspaceMgr); //by row: IFOG			//Shape: [4,hiddenLayerSize]; order: [bi,bf,bo,bg]^T
-        FwdPassReturn fwd = LSTMHelpers.activateHelper(this, this.conf, this.layerConf().getGateActivationFn(),
-                        input, recurrentWeights, inputWeights, biases, training, prevOutputActivations,
-                        prevMemCellState, (training && cacheMode != CacheMode.NONE) || forBackprop, true,
-                        LSTMParamInitializer.INPUT_WEIGHT_KEY, maskArray, false, helper,
-                        forBackprop ? cacheMode : CacheMode.NONE, workspaceMgr, layerConf().isHelperAllowFallback());
+        PackedSequence packed = (allowPacking && prevOutputActivations == null && prevMemCellState == null) ? packedSequence() : null;
+        FwdPassReturn fwd;
+        if (packed != null) {
+            INDArray packedInput = packed.pack(input, forBackprop ? ArrayType.BP_WORKING_MEM : ArrayType.FF_WORKING_MEM, workspaceMgr);
+            fwd = LSTMHelpers.activateHelper(this, this.conf, this.layerConf().getGateActivationFn(),
+                            packedInput, recurrentWeights, inputWeights, biases, training, null,
+                            null, (training && cacheMode != CacheMode.NONE) || forBackprop, true,
+                            LSTMParamInitializer.INPUT_WEIGHT_KEY, null, false, null,
+                            forBackprop ? cacheMode : CacheMode.NONE, workspaceMgr, layerConf().isHelperAllowFallback(),
+                            packed.getActiveCounts());
+            if (!forBackprop) {
+                fwd.fwdPassOutput = packed.unpack(fwd.fwdPassOutput, ArrayType.ACTIVATIONS, workspaceMgr);
+            }
+        } else {
+            fwd = LSTMHelpers.activateHelper(this, this.conf, this.layerConf().getGateActivationFn(),
+                            input, recurrentWeights, inputWeights, biases, training, prevOutputActivations,
+                            prevMemCellState, (training && cacheMode != CacheMode.NONE) || forBackprop, true,
+                            LSTMParamInitializer.INPUT_WEIGHT_KEY, maskArray, false, helper,
+                            forBackprop ? cacheMode : CacheMode.NONE, workspaceMgr, layerConf().isHelperAllowFallback());
+        }
 
         fwd.fwdPassOutput = permuteIfNWC(fwd.fwdPassOutput);
 
@@ -77,6 +77,35 @@ public class LSTMHelpers {
                                                final LSTMHelper helper, final CacheMode cacheMode, // cacheMode for layer calling this helper
                                                final LayerWorkspaceMgr workspaceMgr, boolean isHelperAllowFallback
                                                ) {
+        return activateHelper(layer, conf, gateActivationFn, input, recurrentWeights, originalInputWeights, biases,
+                training, originalPrevOutputActivations, originalPrevMemCellState, forBackprop, forwards,
+                inputWeightKey, maskArray, hasPeepholeConnections, helper, cacheMode, workspaceMgr,
+                isHelperAllowFallback, null);
+    }
+
+    /**
+     * As per {@link #activateHelper(BaseRecurrentLayer, NeuralNetConfiguration, IActivation, INDArray, INDArray, INDArray, INDArray, boolean, INDArray, INDArray, boolean, boolean, String, INDArray, boolean, LSTMHelper, CacheMode, LayerWorkspaceMgr, boolean)},
+     * with optional packed sequence execution.
+     *
+     * @param activeCounts Packed sequences (see {@link PackedSequence}): number of active examples for each time step,
+     *                     with the input sorted by sequence length (longest first). Only the first activeCounts[t]
+     *                     examples are computed at time step t; activations for the other examples are 0, and the
+     *                     per time step arrays of the returned FwdPassReturn have activeCounts[t] rows.
+     *                     Only supported for the forwards direction. Null for standard (unpacked) execution
+     */
+    static public FwdPassReturn activateHelper(final BaseRecurrentLayer layer, final NeuralNetConfiguration conf,
+                                               final IActivation gateActivationFn,
+                                               INDArray input, final INDArray recurrentWeights,
+                                               final INDArray originalInputWeights,
+                                               final INDArray biases,
+                                               final boolean training, final INDArray originalPrevOutputActivations,
+                                               final INDArray originalPrevMemCellState, boolean forBackprop, boolean forwards,
+                                               final String inputWeightKey, INDArray maskArray,
+                                               final boolean hasPeepholeConnections,
+                                               final LSTMHelper helper, final CacheMode cacheMode,
+                                               final LayerWorkspaceMgr workspaceMgr, boolean isHelperAllowFallback,
+                                               final int[] activeCounts) {
+        Preconditions.checkState(activeCounts == null || forwards, "Packed sequences are only supported for the forwards direction");
 
         //Mini-batch data format: for mini-batch size m, nIn inputs, and T time series length
         //Data has shape [m,nIn,T]. Layer activations/output has shape [m,nHiddenUnits,T]
@@ -181,7 +210,7 @@ public class LSTMHelpers {
             prevOutputActivations = Nd4j.zeros(input.dataType(), new long[] {miniBatchSize, hiddenLayerSize});
         }
 
-        if (helper != null && (layer.helperCountFail == 0 || !isHelperAllowFallback)) {
+        if (helper != null && activeCounts == null && (layer.helperCountFail == 0 || !isHelperAllowFallback)) {
             FwdPassReturn ret = null;
             try {
                 ret = helper.activate(layer, conf, gateActivationFn, input, recurrentWeights, inputWeights,
@@ -216,9 +245,19 @@ public class LSTMHelpers {
                     time = timeSeriesLength - iTimeIndex - 1;
                 }
 
+                //Packed sequences: only the first n examples are active at this time step
+                int n = (activeCounts == null ? miniBatchSize : activeCounts[time]);
+                if (n == 0) {
+                    //No active examples for this or any later time step
+                    continue;
+                }
+                if (n != miniBatchSize) {
+                    prevOutputActivations = Shape.toMmulCompatible(PackedSequence.activeRows(prevOutputActivations, n));
+                    prevMemCellState = PackedSequence.activeRows(prevMemCellState, n);
+                }
 
                 INDArray miniBatchData = (is2dInput ? input : input.tensorAlongDimension(time, 1, 0)); //[Expected shape: [m,nIn]. Also deals with edge case of T=1, with 'time series' data of shape [m,nIn], equiv. to [m,nIn,1]
-                miniBatchData = Shape.toMmulCompatible(miniBatchData);
+                miniBatchData = Shape.toMmulCompatible(PackedSequence.activeRows(miniBatchData, n));
 
                 // if we're using cache here - let's create ifogActivations within cache workspace, so all views from this array will be valid in cache
                 cacheEnter(training, cacheMode, workspaceMgr);
@@ -381,10 +420,10 @@ public class LSTMHelpers {
                     }
 
                     if (cacheMode != CacheMode.NONE) {
-                        outputActivations.tensorAlongDimension(time, 1, 0).assign(currHiddenUnitActivations);
+                        PackedSequence.activeRows(outputActivations.tensorAlongDimension(time, 1, 0), n).assign(currHiddenUnitActivations);
                     }
                 } else {
-                    outputActivations.tensorAlongDimension(time, 1, 0).assign(currHiddenUnitActivations);
+                    PackedSequence.activeRows(outputActivations.tensorAlongDimension(time, 1, 0), n).assign(currHiddenUnitActivations);
                 }
 
                 prevOutputActivations = currHiddenUnitActivations;
@@ -436,6 +475,34 @@ public class LSTMHelpers {
                     final LSTMHelper helper,
                     final LayerWorkspaceMgr workspaceMgr,
                     final boolean isHelperAllowFallback) {
+        return backpropGradientHelper(layer, conf, gateActivationFn, input, recurrentWeights, inputWeights, epsilon,
+                truncatedBPTT, tbpttBackwardLength, fwdPass, forwards, inputWeightKey, recurrentWeightKey,
+                biasWeightKey, gradientViews, maskArray, hasPeepholeConnections, helper, workspaceMgr,
+                isHelperAllowFallback, null);
+    }
+
+    /**
+     * As per {@link #backpropGradientHelper(BaseRecurrentLayer, NeuralNetConfiguration, IActivation, INDArray, INDArray, INDArray, INDArray, boolean, int, FwdPassReturn, boolean, String, String, String, Map, INDArray, boolean, LSTMHelper, LayerWorkspaceMgr, boolean)},
+     * with optional packed sequence execution.
+     *
+     * @param activeCounts Packed sequences: number of active examples for each time step, as used for the forward pass
+     *                     (see {@link #activateHelper(BaseRecurrentLayer, NeuralNetConfiguration, IActivation, INDArray, INDArray, INDArray, INDArray, boolean, INDArray, INDArray, boolean, boolean, String, INDArray, boolean, LSTMHelper, CacheMode, LayerWorkspaceMgr, boolean, int[])}).
+     *                     Null for standard (unpacked) execution
+     */
+    static public Pair<Gradient, INDArray> backpropGradientHelper(final BaseRecurrentLayer layer, final NeuralNetConfiguration conf,
+                    final IActivation gateActivationFn, INDArray input, final INDArray recurrentWeights,
+                    final INDArray inputWeights,
+                    final INDArray epsilon, final boolean truncatedBPTT, final int tbpttBackwardLength,
+                    final FwdPassReturn fwdPass, final boolean forwards, final String inputWeightKey,
+                    final String recurrentWeightKey, final String biasWeightKey,
+                    final Map<String, INDArray> gradientViews, INDArray maskArray,
+                    final boolean hasPeepholeConnections,
+                    final LSTMHelper helper,
+                    final LayerWorkspaceMgr workspaceMgr,
+                    final boolean isHelperAllowFallback,
+                    final int[] activeCounts) {
+        Preconditions.checkState(activeCounts == null || (forwards && !truncatedBPTT),
+                "Packed sequences are only supported for the forwards direction, without truncated BPTT");
 
         input = input.castTo(inputWeights.dataType());  //No-op if
 
@@ -497,7 +564,7 @@ public class LSTMHelpers {
             rwGradientsGG = rwGradientsOut.get(all(), NDArrayIndex.point(4 * hiddenLayerSize + 2)).reshape(1, recurrentWeights.size(0));
         }
 
-        if (helper != null && (layer.helperCountFail == 0 || !isHelperAllowFallback)) {
+        if (helper != null && activeCounts == null && (layer.helperCountFail == 0 || !isHelperAllowFallback)) {
             Pair<Gradient, INDArray> ret = null;
             try {
                 ret = helper.backpropGradient(conf, gateActivationFn, input, recurrentWeights,
@@ -542,28 +609,39 @@ public class LSTMHelpers {
                     inext = -1;
                 }
 
+                //Packed sequences: only the first n examples are active at this time step. Rows of the delta arrays
+                // for examples not active at the next time step are still 0 here, as they have never been written
+                int n = (activeCounts == null ? miniBatchSize : activeCounts[time]);
+                if (n == 0) {
+                    continue;
+                }
+                INDArray deltaifog = PackedSequence.activeRows(deltaifogNext, n);
+                INDArray deltaiCurr = PackedSequence.activeRows(deltaiNext, n);
+                INDArray deltafCurr = PackedSequence.activeRows(deltafNext, n);
+                INDArray deltaoCurr = PackedSequence.activeRows(deltaoNext, n);
+                INDArray deltagCurr = PackedSequence.activeRows(deltagNext, n);
 
                 //First: calclate the components of nablaCellState that relies on the next time step deltas, so we can overwrite the deltas
                 INDArray nablaCellState;
                 if (iTimeIndex != timeSeriesLength - 1 && hasPeepholeConnections) {
-                    nablaCellState = deltafNext.dup('f').muliRowVector(wFFTranspose);
-                    nablaCellState.addi(deltagNext.dup('f').muliRowVector(wGGTranspose));
+                    nablaCellState = deltafCurr.dup('f').muliRowVector(wFFTranspose);
+                    nablaCellState.addi(deltagCurr.dup('f').muliRowVector(wGGTranspose));
                 } else {
-                    nablaCellState = Nd4j.create(inputWeights.dataType(), new long[]{miniBatchSize, hiddenLayerSize}, 'f');
+                    nablaCellState = Nd4j.create(inputWeights.dataType(), new long[]{n, hiddenLayerSize}, 'f');
                 }
 
-                INDArray prevMemCellState = (iTimeIndex == 0 ? fwdPass.prevMemCell : fwdPass.memCellState[(time - inext)]);
+                INDArray prevMemCellState = (iTimeIndex == 0 ? fwdPass.prevMemCell : PackedSequence.activeRows(fwdPass.memCellState[(time - inext)], n));
                 INDArray prevHiddenUnitActivation =
-                        (iTimeIndex == 0 ? fwdPass.prevAct : fwdPass.fwdPassOutputAsArrays[(time - inext)]);
+                        (iTimeIndex == 0 ? fwdPass.prevAct : PackedSequence.activeRows(fwdPass.fwdPassOutputAsArrays[(time - inext)], n));
                 INDArray currMemCellState = fwdPass.memCellState[time];
 
                 //LSTM unit output errors (dL/d(a_out)); not to be confused with \delta=dL/d(z_out)
 
                 INDArray epsilonSlice = (is2dInput ? epsilon : epsilon.tensorAlongDimension(time, 1, 0)); //(w^{L+1}*(delta^{(L+1)t})^T)^T or equiv.
-                INDArray nablaOut = Shape.toOffsetZeroCopy(epsilonSlice, 'f'); //Shape: [m,n^L]
+                INDArray nablaOut = Shape.toOffsetZeroCopy(PackedSequence.activeRows(epsilonSlice, n), 'f'); //Shape: [m,n^L]
                 if (iTimeIndex != timeSeriesLength - 1) {
                     //if t == timeSeriesLength-1 then deltaiNext etc are zeros
-                    Nd4j.gemm(deltaifogNext, wIFOG, nablaOut, false, true, 1.0, 1.0);
+                    Nd4j.gemm(Shape.toMmulCompatible(deltaifog), wIFOG, nablaOut, false, true, 1.0, 1.0);
                 }
 
                 //Output gate deltas:
@@ -571,7 +649,7 @@ public class LSTMHelpers {
                 INDArray ao = fwdPass.oa[time];
 
                 //Normally would use zo.dup() in above line, but won't be using zo again (for this time step). Ditto for zf, zg, zi
-                INDArray deltao = deltaoNext;
+                INDArray deltao = deltaoCurr;
                 Nd4j.getExecutioner().exec(new MulOp(nablaOut, sigmahOfS, deltao));
                 if (sigmoidGates) {
                     INDArray sigmaoPrimeOfZo = Nd4j.getExecutioner().exec(new TimesOneMinus(ao.dup('f'))); //Equivalent to sigmoid deriv on zo
@@ -588,9 +666,10 @@ public class LSTMHelpers {
                     INDArray deltaMulRowWOO = deltao.dup('f').muliRowVector(wOOTranspose);
                     nablaCellState.addi(deltaMulRowWOO);
                 }
-                if (iTimeIndex != timeSeriesLength - 1) {
+                if (iTimeIndex != timeSeriesLength - 1 && nablaCellStateNext != null) {
+                    //nablaCellStateNext may be null for packed sequences, if no examples are active at later time steps
                     INDArray nextForgetGateAs = fwdPass.fa[time + inext];
-                    nablaCellState.addi(nextForgetGateAs.muli(nablaCellStateNext));
+                    PackedSequence.activeRows(nablaCellState, nablaCellStateNext.size(0)).addi(nextForgetGateAs.muli(nablaCellStateNext));
                 }
 
 
@@ -603,7 +682,7 @@ public class LSTMHelpers {
                 INDArray deltaf = null;
                 if (iTimeIndex > 0 || prevMemCellState != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
                     //Note that prevMemCellState may be non-null at t=0 for TBPTT
-                    deltaf = deltafNext;
+                    deltaf = deltafCurr;
                     if (sigmoidGates) {
                         Nd4j.getExecutioner().exec(new TimesOneMinus(af, deltaf));
                         deltaf.muli(nablaCellState);
@@ -619,7 +698,7 @@ public class LSTMHelpers {
                 //Input modulation gate delta:
                 INDArray ag = fwdPass.ga[time];
                 INDArray ai = fwdPass.ia[time];
-                INDArray deltag = deltagNext;
+                INDArray deltag = deltagCurr;
                 if (sigmoidGates) {
                     Nd4j.getExecutioner().exec(new TimesOneMinus(ag, deltag)); //Equivalent to sigmoid deriv on zg
                     deltag.muli(ai);
@@ -633,7 +712,7 @@ public class LSTMHelpers {
 
                 //Network input delta:
                 INDArray zi = fwdPass.iz[time];
-                INDArray deltai = deltaiNext;
+                INDArray deltai = deltaiCurr;
                 temp = Nd4j.getExecutioner().exec(new MulOp(ag, nablaCellState, Nd4j.createUninitialized(inputWeights.dataType(), deltai.shape(), 'f')))[0];
                 deltai.assign(afn.backprop(zi, temp).getFirst());
                 //TODO activation functions with params; also: optimize this (no assign)
@@ -645,23 +724,30 @@ public class LSTMHelpers {
                     //Mask array is present: bidirectional RNN -> need to zero out these errors to avoid using errors from a masked time step
                     // to calculate the parameter gradients.  Mask array has shape [minibatch, timeSeriesLength] -> get column(this time step)
                     timeStepMaskColumn = maskArray.getColumn(time, true);
-                    deltaifogNext.muli(timeStepMaskColumn);
+                    deltaifog.muli(timeStepMaskColumn);
                     //Later, the deltaifogNext is used to calculate: input weight gradients, recurrent weight gradients, bias gradients
                 }
 
                 INDArray prevLayerActivationSlice =
-                        Shape.toMmulCompatible(is2dInput ? input : input.tensorAlongDimension(time, 1, 0));
+                        Shape.toMmulCompatible(PackedSequence.activeRows(is2dInput ? input : input.tensorAlongDimension(time, 1, 0), n));
+                if (n != miniBatchSize) {
+                    //Row subsets of the delta arrays: copy to a layout that can be used in gemm
+                    deltaifog = Shape.toMmulCompatible(deltaifog);
+                    deltai = Shape.toMmulCompatible(deltai);
+                    if (prevHiddenUnitActivation != null)
+                        prevHiddenUnitActivation = Shape.toMmulCompatible(prevHiddenUnitActivation);
+                }
                 if (iTimeIndex > 0 || prevHiddenUnitActivation != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
                     //Note that prevHiddenUnitActivations may be non-null at t=0 for TBPTT
                     //Again, deltaifog_current == deltaifogNext at this point... same array
-                    Nd4j.gemm(prevLayerActivationSlice, deltaifogNext, iwGradientsOut, true, false, 1.0, 1.0);
+                    Nd4j.gemm(prevLayerActivationSlice, deltaifog, iwGradientsOut, true, false, 1.0, 1.0);
                 } else {
                     INDArray iwGradients_i =
                             iwGradientsOut.get(all(), interval(0, hiddenLayerSize));
                     Nd4j.gemm(prevLayerActivationSlice, deltai, iwGradients_i, true, false, 1.0, 1.0);
                     INDArray iwGradients_og = iwGradientsOut.get(all(),
                             interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
-                    INDArray deltaog = deltaifogNext.get(all(),
+                    INDArray deltaog = deltaifog.get(all(),
                             interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
                     Nd4j.gemm(prevLayerActivationSlice, deltaog, iwGradients_og, true, false, 1.0, 1.0);
                 }
@@ -671,7 +757,7 @@ public class LSTMHelpers {
                     // will end up as 0 anyway
                     //At this point: deltaifog and deltaifogNext are the same thing...
                     //So what we are actually doing here is sum of (prevAct^transpose * deltaifog_current)
-                    Nd4j.gemm(prevHiddenUnitActivation, deltaifogNext, rwGradientsIFOG, true, false, 1.0, 1.0);
+                    Nd4j.gemm(prevHiddenUnitActivation, deltaifog, rwGradientsIFOG, true, false, 1.0, 1.0);
 
                     //Shape: [1,n^L]. sum(0) is sum over examples in mini-batch.
                     //Can use axpy here because result of sum and rwGradients[4 to 6] have order Nd4j.order(), via Nd4j.create()
@@ -690,10 +776,10 @@ public class LSTMHelpers {
 
                 if (iTimeIndex > 0 || prevHiddenUnitActivation != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
                     //Note that prevHiddenUnitActivation may be non-null at t=0 for TBPTT
-                    bGradientsOut.addi(deltaifogNext.sum(true, 0));
+                    bGradientsOut.addi(deltaifog.sum(true, 0));
                 } else {
                     bGradientsOut.get(interval(0,0,true), interval(0, hiddenLayerSize)).addi(deltai.sum(true, 0));
-                    INDArray ogBiasToAdd = deltaifogNext.get(all(), interval(2 * hiddenLayerSize, 4 * hiddenLayerSize)).sum(true, 0);
+                    INDArray ogBiasToAdd = deltaifog.get(all(), interval(2 * hiddenLayerSize, 4 * hiddenLayerSize)).sum(true, 0);
                     INDArray ogBiasGrad = bGradientsOut.get(interval(0,0,true), interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
                     ogBiasGrad.addi(ogBiasToAdd);
                 }
@@ -701,14 +787,19 @@ public class LSTMHelpers {
                 //Calculate epsilonNext - i.e., equiv. to what would be (w^L*(d^(Lt))^T)^T in a normal network
                 //But here, need to add 4 weights * deltas for the IFOG gates
                 INDArray epsilonNextSlice = epsilonNext.tensorAlongDimension(time, 1, 0); //This slice: f order and contiguous, due to epsilonNext being defined as f order.
+                INDArray epsilonNextTimeStep = epsilonNextSlice;
+                if (n != miniBatchSize) {
+                    //Packed sequences: gemm output must be contiguous, so calculate for the active examples separately
+                    epsilonNextSlice = Nd4j.create(epsilonNext.dataType(), new long[] {n, prevLayerSize}, 'f');
+                }
                 if (iTimeIndex > 0 || prevHiddenUnitActivation != null) {
                     //Note that prevHiddenUnitActivation may be non-null at t=0 for TBPTT
-                    Nd4j.gemm(deltaifogNext, inputWeights, epsilonNextSlice, false, true, 1.0, 1.0);
+                    Nd4j.gemm(deltaifog, inputWeights, epsilonNextSlice, false, true, 1.0, 1.0);
                 } else {
                     //No contribution from forget gate at t=0
                     INDArray wi = inputWeights.get(all(), interval(0, hiddenLayerSize));
                     Nd4j.gemm(deltai, wi, epsilonNextSlice, false, true, 1.0, 1.0);
-                    INDArray deltaog = deltaifogNext.get(all(), interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
+                    INDArray deltaog = deltaifog.get(all(), interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
                     INDArray wog = inputWeights.get(all(), interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
                     Nd4j.gemm(deltaog, wog, epsilonNextSlice, false, true, 1.0, 1.0); //epsilonNextSlice.addi(deltao.mmul(woTranspose)).addi(deltag.mmul(wgTranspose));
                 }
@@ -718,6 +809,9 @@ public class LSTMHelpers {
                     // but 0s to the layer below at this time step (for the given example)
                     epsilonNextSlice.muli(timeStepMaskColumn);
                 }
+                if (epsilonNextSlice != epsilonNextTimeStep) {
+                    PackedSequence.activeRows(epsilonNextTimeStep, n).assign(epsilonNextSlice);
+                }
             }
         }
 
@@ -0,0 +1,176 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.nn.layers.recurrent;
+
+import lombok.Getter;
+import org.deeplearning4j.nn.workspace.ArrayType;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.shape.Gather;
+import org.nd4j.linalg.factory.Nd4j;
+
+import static org.nd4j.linalg.indexing.NDArrayIndex.all;
+import static org.nd4j.linalg.indexing.NDArrayIndex.interval;
+
+/**
+ * Packed representation of a minibatch of variable length time series, used by RNN layers with
+ * {@link org.deeplearning4j.nn.conf.layers.BaseRecurrentLayer#isPackedSequences()} enabled.<br>
+ * Examples are sorted by sequence length (longest first), so that the examples that are still active at time step t
+ * are the first {@code activeCounts[t]} examples of the (sorted) minibatch. The RNN then only computes the active
+ * examples at each time step, instead of computing all time steps of all examples and masking the padding.<br>
+ * Only masks where the padding is at the end of each sequence (i.e., as per AlignmentMode.ALIGN_START) can be packed;
+ * see {@link #fromMask(INDArray)}.
+ */
+@Getter
+public class PackedSequence {
+
+    private final int[] lengths;
+    private final int[] order;
+    private final int[] inverseOrder;
+    private final int[] activeCounts;
+
+    private PackedSequence(int[] lengths, int[] order, int[] inverseOrder, int[] activeCounts) {
+        this.lengths = lengths;
+        this.order = order;
+        this.inverseOrder = inverseOrder;
+        this.activeCounts = activeCounts;
+    }
+
+    /**
+     * Create a packed sequence from a time series mask array
+     *
+     * @param mask Mask array, shape [minibatch, timeSeriesLength]
+     * @return The packed sequence, or null if the mask can't be packed (values other than 0 and 1, or padding other
+     * than at the end of the sequences) or if there is nothing to gain from packing (no padding)
+     */
+    public static PackedSequence fromMask(INDArray mask) {
+        if (mask == null || mask.rank() != 2) {
+            return null;
+        }
+
+        double[][] m = mask.toDoubleMatrix();
+        int n = m.length;
+        int tsLength = (n == 0 ? 0 : m[0].length);
+        int[] lengths = new int[n];
+        boolean anyPadding = false;
+        for (int i = 0; i < n; i++) {
+            int len = 0;
+            while (len < tsLength && m[i][len] == 1.0) {
+                len++;
+            }
+            for (int j = len; j < tsLength; j++) {
+                if (m[i][j] != 0.0) {
+                    return null;
+                }
+            }
+            lengths[i] = len;
+            anyPadding |= len < tsLength;
+        }
+        if (!anyPadding) {
+            return null;
+        }
+
+        //Stable counting sort by length, longest first
+        int[] countByLength = new int[tsLength + 1];
+        for (int l : lengths) {
+            countByLength[l]++;
+        }
+        int[] start = new int[tsLength + 1];
+        for (int l = tsLength - 1; l >= 0; l--) {
+            start[l] = start[l + 1] + countByLength[l + 1];
+        }
+        int[] order = new int[n];
+        int[] inverseOrder = new int[n];
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            int pos = start[lengths[i]]++;
+            order[pos] = i;
+            inverseOrder[i] = pos;
+            sorted &= (pos == i);
+        }
+
+        //Number of examples with length > t, for each time step t
+        int[] activeCounts = new int[tsLength];
+        int active = n;
+        for (int t = 0; t < tsLength; t++) {
+            active -= countByLength[t];
+            activeCounts[t] = active;
+        }
+
+        return new PackedSequence(lengths, sorted ? null : order, sorted ? null : inverseOrder, activeCounts);
+    }
+
+    /**
+     * @return True if the examples were already sorted by length, and hence {@link #pack(INDArray, ArrayType, LayerWorkspaceMgr)}
+     * and {@link #unpack(INDArray, ArrayType, LayerWorkspaceMgr)} are no-ops
+     */
+    public boolean isSorted() {
+        return order == null;
+    }
+
+    /**
+     * Sort the examples of the array by sequence length (longest first)
+     *
+     * @param arr       Array to sort, with shape [minibatch, ...]
+     * @param arrayType Array type for the result
+     * @return The sorted array, or the original array if the examples are already sorted
+     */
+    public INDArray pack(INDArray arr, ArrayType arrayType, LayerWorkspaceMgr workspaceMgr) {
+        return reorder(arr, order, arrayType, workspaceMgr);
+    }
+
+    /**
+     * Restore the original order of the examples of a packed array - i.e., the inverse of
+     * {@link #pack(INDArray, ArrayType, LayerWorkspaceMgr)}
+     *
+     * @param arr       Array to restore the order of, with shape [minibatch, ...]
+     * @param arrayType Array type for the result
+     * @return The array in the original example order, or the original array if the examples are already sorted
+     */
+    public INDArray unpack(INDArray arr, ArrayType arrayType, LayerWorkspaceMgr workspaceMgr) {
+        return reorder(arr, inverseOrder, arrayType, workspaceMgr);
+    }
+
+    private static INDArray reorder(INDArray arr, int[] indices, ArrayType arrayType, LayerWorkspaceMgr workspaceMgr) {
+        if (arr == null || indices == null) {
+            return arr;
+        }
+        INDArray out = workspaceMgr.createUninitialized(arrayType, arr.dataType(), arr.shape(), 'f');
+        Gather g = new Gather(arr, indices, 0);
+        g.addOutputArgument(out);
+        Nd4j.exec(g);
+        return out;
+    }
+
+    /**
+     * Get the first n rows of a 2d array (the active examples at a time step)
+     *
+     * @param arr 2d array, shape [minibatch, size]. May be null
+     * @param n   Number of rows
+     * @return The array itself if it has n rows, or a view of the first n rows otherwise
+     */
+    public static INDArray activeRows(INDArray arr, long n) {
+        if (arr == null || arr.size(0) == n) {
+            return arr;
+        }
+        return arr.get(interval(0, n), all());
+    }
+}
@@ -94,6 +94,12 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
         //First: Do forward pass to get gate activations and Zs
         Quad<INDArray,INDArray, INDArray, INDArray> p = activateHelper(null, true, true, workspaceMgr);
 
+        //Packed sequences: forward pass arrays are in packed (sorted by length) order
+        PackedSequence packed = (hasLayerNorm() ? null : packedSequence());
+        if (packed != null) {
+            input = packed.pack(input, ArrayType.BP_WORKING_MEM, workspaceMgr);
+        }
+
         INDArray w = getParamWithNoise(SimpleRnnParamInitializer.WEIGHT_KEY, true, workspaceMgr);
         INDArray rw = getParamWithNoise(SimpleRnnParamInitializer.RECURRENT_WEIGHT_KEY, true, workspaceMgr);
         INDArray b = getParamWithNoise(SimpleRnnParamInitializer.BIAS_KEY, true, workspaceMgr);
@@ -114,7 +120,9 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
 
         val tsLength = input.size(2);
 
-        INDArray epsOut = workspaceMgr.createUninitialized(ArrayType.ACTIVATION_GRAD, input.dataType(), input.shape(), 'f');
+        //Packed sequences: time steps are only calculated for active examples, hence epsOut must be zero initialized
+        INDArray epsOut = (packed != null ? workspaceMgr.create(ArrayType.ACTIVATION_GRAD, input.dataType(), input.shape(), 'f') :
+                workspaceMgr.createUninitialized(ArrayType.ACTIVATION_GRAD, input.dataType(), input.shape(), 'f'));
 
         INDArray dldzNext = null;
         long end;
@@ -124,27 +132,48 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
             end = 0;
         }
         epsilon = permuteIfNWC(epsilon);
+        if (packed != null) {
+            epsilon = packed.pack(epsilon, ArrayType.BP_WORKING_MEM, workspaceMgr);
+        }
+        long m = input.size(0);
         for( long i = tsLength - 1; i >= end; i--) {
-            INDArray dldaCurrent = epsilon.get(all(), all(), point(i)).dup();
-            INDArray aCurrent = p.getFirst().get(all(), all(), point(i));
-            INDArray zCurrent = p.getSecond().get(all(), all(), point(i));
+            //Packed sequences: only the first n examples are active at this time step
+            long n = (packed == null ? m : packed.getActiveCounts()[(int) i]);
+            if (n == 0) {
+                continue;
+            }
+            INDArray dldaCurrent = PackedSequence.activeRows(epsilon.get(all(), all(), point(i)), n).dup();
+            INDArray aCurrent = PackedSequence.activeRows(p.getFirst().get(all(), all(), point(i)), n);
+            INDArray zCurrent = PackedSequence.activeRows(p.getSecond().get(all(), all(), point(i)), n);
             INDArray nCurrent = (hasLayerNorm() ? p.getThird().get(all(), all(), point(i)) : null);
             INDArray rCurrent = (hasLayerNorm() ? p.getFourth().get(all(), all(), point(i)) : null);
             INDArray inCurrent = input.get(all(), all(), point(i));
             INDArray epsOutCurrent = epsOut.get(all(), all(), point(i));
+            INDArray epsOutActive = epsOutCurrent;
+            if (n != m) {
+                //Row subsets: copy inputs to a layout usable in gemm, and calculate epsilons in a separate array
+                inCurrent = Shape.toMmulCompatible(PackedSequence.activeRows(inCurrent, n));
+                epsOutActive = Nd4j.create(epsOut.dataType(), new long[]{n, epsOut.size(1)}, 'f');
+            }
 
             if(dldzNext != null){
-                //Backprop the component of dL/da (for current time step) from the recurrent connections
-                Nd4j.gemm(dldzNext, rw, dldaCurrent, false, true, 1.0, 1.0);
+                long nNext = dldzNext.size(0);
+                if (nNext == n) {
+                    //Backprop the component of dL/da (for current time step) from the recurrent connections
+                    Nd4j.gemm(dldzNext, rw, dldaCurrent, false, true, 1.0, 1.0);
+                } else {
+                    //Packed sequences: fewer active examples at the next time step
+                    PackedSequence.activeRows(dldaCurrent, nNext).addi(Nd4j.gemm(dldzNext, rw, false, true));
+                }
 
                 //Recurrent weight gradients:
-                Nd4j.gemm(aCurrent, dldzNext, rwg, true, false, 1.0, 1.0);
+                Nd4j.gemm(Shape.toMmulCompatible(PackedSequence.activeRows(aCurrent, nNext)), dldzNext, rwg, true, false, 1.0, 1.0);
             }
             INDArray dldzCurrent = a.backprop(zCurrent.dup(), dldaCurrent).getFirst();
 
             //Handle masking
             INDArray maskCol = null;
-            if( maskArray != null) {
+            if( maskArray != null && packed == null) {
                 //Mask array: shape [minibatch, tsLength]
                 //If mask array is present (for example, with bidirectional RNN) -> need to zero out these errors to
                 // avoid using errors from a masked time step to calculate the parameter gradients
@@ -170,7 +199,10 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
             Nd4j.gemm(inCurrent, dldnCurrent, wg, true, false, 1.0, 1.0);
 
             //Epsilon out to layer below (i.e., dL/dIn)
-            Nd4j.gemm(dldnCurrent, w, epsOutCurrent, false, true, 1.0, 0.0);
+            Nd4j.gemm(dldnCurrent, w, epsOutActive, false, true, 1.0, 0.0);
+            if (epsOutActive != epsOutCurrent) {
+                PackedSequence.activeRows(epsOutCurrent, n).assign(epsOutActive);
+            }
 
             // propagate epsilon to previous iteration
             if(hasLayerNorm() && i > end){
@@ -182,11 +214,14 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
                 dldzNext = dldzCurrent;
             }
 
-            if( maskArray != null){
+            if( maskCol != null){
                 //If mask array is present: Also need to zero out errors to avoid sending anything but 0s to layer below for masked steps
                 epsOutCurrent.muliColumnVector(maskCol);
             }
         }
+        if (packed != null) {
+            epsOut = packed.unpack(epsOut, ArrayType.ACTIVATION_GRAD, workspaceMgr);
+        }
 
         weightNoiseParams.clear();
 
@@ -236,13 +271,21 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
         INDArray gx = (g != null ? g.get(interval(0, 0, true), interval(0, nOut)) : null);
         INDArray gr = (g != null ? g.get(interval(0, 0, true), interval(nOut, nOut * 2)) : null);
 
+        //Packed sequences: only when there is no previous state. Steps for inactive examples aren't calculated, hence
+        // outZ must be zero initialized
+        PackedSequence packed = (prevStepOut == null && !hasLayerNorm() ? packedSequence() : null);
+
         INDArray out = workspaceMgr.createUninitialized(ArrayType.ACTIVATIONS, w.dataType(), new long[]{m, nOut, tsLength}, 'f');
-        INDArray outZ = (forBackprop ? workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM, w.dataType(), out.shape()) : null);
+        INDArray outZ = (forBackprop ? (packed != null ? workspaceMgr.create(ArrayType.BP_WORKING_MEM, w.dataType(), out.shape()) :
+                workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM, w.dataType(), out.shape())) : null);
         INDArray outPreNorm = (forBackprop && hasLayerNorm() ? workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM, w.dataType(), out.shape(), 'f') : null);
         INDArray recPreNorm = (forBackprop && hasLayerNorm() ? workspaceMgr.createUninitialized(ArrayType.BP_WORKING_MEM, w.dataType(), out.shape(), 'f') : null);
 
         if(input.ordering() != 'f' || Shape.strideDescendingCAscendingF(input))
             input = workspaceMgr.dup(ArrayType.ACTIVATIONS, input, 'f');
+        if (packed != null) {
+            input = packed.pack(input, forBackprop ? ArrayType.BP_WORKING_MEM : ArrayType.FF_WORKING_MEM, workspaceMgr);
+        }
 
         //TODO implement 'mmul across time' optimization
 
@@ -254,9 +297,24 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
         IActivation a = layerConf().getActivationFn();
 
         for( int i = 0; i < tsLength; i++) {
+            //Packed sequences: only the first n examples are active at this time step
+            long n = (packed == null ? m : packed.getActiveCounts()[i]);
+            if (n == 0) {
+                //No active examples at this or any later time step
+                break;
+            }
             //out = activationFn(in*w + last*rw + bias)
-            INDArray currOut = out.get(all(), all(), point(i)); //F order
+            INDArray currOutAll = out.get(all(), all(), point(i)); //F order
+            INDArray currOut = currOutAll;
             INDArray currIn = input.get(all(), all(), point(i));
+            if (n != m) {
+                //Row subsets: calculate in a separate array (contiguous, as required for gemm)
+                currOut = PackedSequence.activeRows(currOutAll, n).dup('f');
+                currIn = Shape.toMmulCompatible(PackedSequence.activeRows(currIn, n));
+                if (prevStepOut != null) {
+                    prevStepOut = Shape.toMmulCompatible(PackedSequence.activeRows(prevStepOut, n));
+                }
+            }
             if(hasLayerNorm()){
                 INDArray currOutPreNorm = (forBackprop ? outPreNorm : out).get(all(), all(), point(i));
                 Nd4j.gemm(currIn, w, currOutPreNorm, false, false, 1.0, 0.0);
@@ -278,12 +336,15 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
             }
 
             if(forBackprop){
-                outZ.get(all(), all(), point(i)).assign(currOut);
+                PackedSequence.activeRows(outZ.get(all(), all(), point(i)), n).assign(currOut);
             }
 
             a.getActivation(currOut, training);
+            if (currOut != currOutAll) {
+                PackedSequence.activeRows(currOutAll, n).assign(currOut);
+            }
 
-            if( maskArray != null){
+            if( maskArray != null && packed == null){
                 //If mask array is present: Also need to zero out errors to avoid sending anything but 0s to layer below for masked steps
                 INDArray maskCol = maskArray.getColumn(i, true).castTo(dataType);
                 currOut.muliColumnVector(maskCol);
@@ -295,13 +356,20 @@ public class SimpleRnn extends BaseRecurrentLayer<org.deeplearning4j.nn.conf.lay
         //Apply mask, if present:
         if(maskArray != null) {
             //Mask should be shape [minibatch, tsLength]
+            //Packed sequences: this also zeros the (not calculated) padding steps in out, which contain only the bias
             INDArray mask = maskArray.castTo(dataType);
+            if (packed != null) {
+                mask = packed.pack(mask, ArrayType.FF_WORKING_MEM, workspaceMgr);
+            }
             Nd4j.getExecutioner().exec(new BroadcastMulOp(out, mask, out, 0, 2));
             if(forBackprop){
                 Nd4j.getExecutioner().exec(new BroadcastMulOp(outZ, mask, outZ, 0, 2));
             }
         }
         if (!forBackprop) {
+            if (packed != null) {
+                out = packed.unpack(out, ArrayType.ACTIVATIONS, workspaceMgr);
+            }
             out = permuteIfNWC(out);
             outZ = permuteIfNWC(outZ);
             outPreNorm = permuteIfNWC(outPreNorm);
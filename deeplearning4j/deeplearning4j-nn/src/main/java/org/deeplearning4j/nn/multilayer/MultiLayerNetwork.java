@@ -50,6 +50,7 @@ import org.deeplearning4j.nn.layers.FrozenLayerWithBackprop;
 import org.deeplearning4j.nn.layers.LayerHelper;
 import org.deeplearning4j.nn.layers.recurrent.BidirectionalLayer;
 import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
 import org.deeplearning4j.nn.updater.UpdaterCreator;
 import org.deeplearning4j.nn.workspace.ArrayType;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
@@ -136,6 +137,12 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     @Getter
     protected transient Map<String,Pointer> helperWorkspaces = new HashMap<>();
 
+    //Activation recomputation: segments of consecutive layers ({first, last} layer index), and for each segment the
+    // input and RNG state from the last training forward pass. Input is null if the segment has not been dropped
+    protected transient int[][] recomputeSegments;
+    protected transient INDArray[] recomputeInputs;
+    protected transient long[][] recomputeRngStates;
+
 
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
@@ -166,6 +173,12 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected static final String WS_RNN_LOOP_WORKING_MEM = "WS_RNN_LOOP_WORKING_MEM";
 
+    /**
+     * Workspace for the activations of one segment of layers with activation recomputation enabled. Opened for the
+     * forward pass of the segment, and again for the recomputation + backward pass of the segment
+     */
+    protected static final String WS_RECOMPUTE_ACT = "WS_RECOMPUTE_ACT";
+
 
     protected WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
 
@@ -560,6 +573,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             INDArray toSet = paramTable.get(s);
             curr.assign(toSet);
         }
+        parametersChanged();
     }
 
     /**
@@ -578,6 +592,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         String newKey = key.substring(idx + 1);
 
         layers[layerIdx].setParam(newKey, val);
+        parametersChanged();
     }
 
     /**
@@ -1085,6 +1100,22 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected synchronized List<INDArray> ffToLayerActivationsInWs(int layerIndex, @NonNull FwdPassType fwdPassType, boolean storeLastForTBPTT,
                                                                    @NonNull INDArray input, INDArray fMask, INDArray lMask){
+        return ffToLayerActivationsInWs(layerIndex, fwdPassType, storeLastForTBPTT, input, fMask, lMask, false);
+    }
+
+    /**
+     * As per {@link #ffToLayerActivationsInWs(int, FwdPassType, boolean, INDArray, INDArray, INDArray)}, optionally
+     * dropping the activations of layers with activation recomputation enabled (see
+     * {@link org.deeplearning4j.nn.conf.layers.Layer.Builder#recomputeActivations(boolean)}). Dropped activations are
+     * recomputed by {@link #calcBackpropGradients(INDArray, boolean, boolean, boolean)}, and are null in the returned
+     * list.
+     *
+     * @param dropRecomputed If true: drop the activations of layers with recomputation enabled. Only supported for
+     *                       the standard forward pass, with training workspaces enabled
+     */
+    protected synchronized List<INDArray> ffToLayerActivationsInWs(int layerIndex, @NonNull FwdPassType fwdPassType, boolean storeLastForTBPTT,
+                                                                   @NonNull INDArray input, INDArray fMask, INDArray lMask,
+                                                                   boolean dropRecomputed){
         setInput(input);
         setLayerMaskArrays(fMask, lMask);
 
@@ -1115,60 +1146,199 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         }
         workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
 
+        int[][] segments = null;
+        LayerWorkspaceMgr recomputeMgr = null;
+        recomputeInputs = null;
+        if(dropRecomputed && fwdPassType == FwdPassType.STANDARD && recomputeSegments().length > 0){
+            if(layerWiseConfigurations.getTrainingWorkspaceMode() == WorkspaceMode.NONE){
+                OneTimeLogger.warn(log, "Activation recomputation is enabled for some layers, but is not supported" +
+                        " with training workspace mode NONE - activations will be stored instead");
+            } else {
+                segments = recomputeSegments();
+                recomputeInputs = new INDArray[segments.length];
+                recomputeRngStates = new long[segments.length][];
+                recomputeMgr = recomputeWorkspaceMgr(input);
+            }
+        }
+
         List<INDArray> out = new ArrayList<>();
         out.add(workspaceMgr.leverageTo(ArrayType.INPUT, input));    //Probably unnecessary usually
 
         boolean traceLog = log.isTraceEnabled();
 
-        for( int i = 0; i <=layerIndex; i++) {
-            try(MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
-                if (getLayerWiseConfigurations().getInputPreProcess(i) != null) {
-                    input = getLayerWiseConfigurations().getInputPreProcess(i).preProcess(input, getInputMiniBatchSize(), workspaceMgr);
-                    //Validation: Exception if invalid (bad preprocessor implementation)
-                    validateArrayWorkspaces(workspaceMgr, input, ArrayType.ACTIVATIONS, i, true, "Feed forward to layer (training)");
+        MemoryWorkspace wsRecompute = null;
+        try {
+            for( int i = 0; i <=layerIndex; i++) {
+                //Layers in a recomputation segment: all arrays go in WS_RECOMPUTE_ACT, which is closed at the end of the
+                // segment. Only the output of the last layer of the segment is kept
+                int seg = (segments == null ? -1 : recomputeSegmentOf(i));
+                LayerWorkspaceMgr layerMgr = workspaceMgr;
+                if(seg >= 0){
+                    if(i == segments[seg][0]){
+                        recomputeInputs[seg] = input;
+                        recomputeRngStates[seg] = new long[]{Nd4j.getRandom().rootState(), Nd4j.getRandom().nodeState()};
+                        wsRecompute = recomputeMgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+                    }
+                    layerMgr = recomputeMgr;
                 }
 
-                if(traceLog){
-                    log.trace("About to forward pass: {} - {}", i, layers[i].getClass().getSimpleName());
-                }
+                try(MemoryWorkspace wsFFWorking = layerMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
+                    if (getLayerWiseConfigurations().getInputPreProcess(i) != null) {
+                        input = getLayerWiseConfigurations().getInputPreProcess(i).preProcess(input, getInputMiniBatchSize(), layerMgr);
+                        //Validation: Exception if invalid (bad preprocessor implementation)
+                        validateArrayWorkspaces(layerMgr, input, ArrayType.ACTIVATIONS, i, true, "Feed forward to layer (training)");
+                    }
 
-                if(fwdPassType == FwdPassType.STANDARD){
-                    input = layers[i].activate(input, true, workspaceMgr);
-                } else if(fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE){
-                    if (layers[i] instanceof RecurrentLayer) {
-                        input = ((RecurrentLayer) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT, workspaceMgr);
-                    }else if(layers[i] instanceof BaseWrapperLayer && ((BaseWrapperLayer)layers[i]).getUnderlying() instanceof RecurrentLayer) {
-                        RecurrentLayer rl = (RecurrentLayer) ((BaseWrapperLayer)layers[i]).getUnderlying();
-                        input = rl.rnnActivateUsingStoredState(input, true, storeLastForTBPTT, workspaceMgr);
-                    } else if (layers[i] instanceof MultiLayerNetwork) {
-                        List<INDArray> temp = ((MultiLayerNetwork) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT);
-                        input = temp.get(temp.size() - 1);
+                    if(traceLog){
+                        log.trace("About to forward pass: {} - {}", i, layers[i].getClass().getSimpleName());
+                    }
+
+                    if(fwdPassType == FwdPassType.STANDARD){
+                        input = layers[i].activate(input, true, layerMgr);
+                    } else if(fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE){
+                        if (layers[i] instanceof RecurrentLayer) {
+                            input = ((RecurrentLayer) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT, workspaceMgr);
+                        }else if(layers[i] instanceof BaseWrapperLayer && ((BaseWrapperLayer)layers[i]).getUnderlying() instanceof RecurrentLayer) {
+                            RecurrentLayer rl = (RecurrentLayer) ((BaseWrapperLayer)layers[i]).getUnderlying();
+                            input = rl.rnnActivateUsingStoredState(input, true, storeLastForTBPTT, workspaceMgr);
+                        } else if (layers[i] instanceof MultiLayerNetwork) {
+                            List<INDArray> temp = ((MultiLayerNetwork) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT);
+                            input = temp.get(temp.size() - 1);
+                        } else {
+                            input = layers[i].activate(input, true, workspaceMgr);
+                        }
                     } else {
-                        input = layers[i].activate(input, true, workspaceMgr);
+                        throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
                     }
-                } else {
-                    throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
-                }
 
-                if(input == null){
-                    throw new IllegalStateException("Layer " + i + " returned null activations");
-                }
+                    if(input == null){
+                        throw new IllegalStateException("Layer " + i + " returned null activations");
+                    }
 
-                //Validation: Exception if invalid (bad layer implementation)
-                validateArrayWorkspaces(workspaceMgr, input, ArrayType.ACTIVATIONS, i, false, "Feed forward to layer (training)");
-                validateArrayWorkspaces(workspaceMgr, layers[i].input(), ArrayType.INPUT, i, false, "Feed forward to layer (training)");
+                    //Validation: Exception if invalid (bad layer implementation)
+                    validateArrayWorkspaces(layerMgr, input, ArrayType.ACTIVATIONS, i, false, "Feed forward to layer (training)");
+                    validateArrayWorkspaces(layerMgr, layers[i].input(), ArrayType.INPUT, i, false, "Feed forward to layer (training)");
 
-                out.add(input);
+                    if(seg >= 0 && i == segments[seg][1]){
+                        //End of segment: keep the output only, as input to the next layer
+                        input = workspaceMgr.leverageTo(ArrayType.ACTIVATIONS, input);
+                    }
+                    out.add(seg >= 0 && i != segments[seg][1] ? null : input);
 
-                if(traceLog){
-                    log.trace("Completed forward pass: {} - {}", i, layers[i].getClass().getSimpleName());
+                    if(traceLog){
+                        log.trace("Completed forward pass: {} - {}", i, layers[i].getClass().getSimpleName());
+                    }
+                }
+
+                if(seg >= 0 && i == segments[seg][1]){
+                    wsRecompute.close();
+                    wsRecompute = null;
                 }
             }
+        } finally {
+            if(wsRecompute != null){
+                //Only on exception
+                wsRecompute.close();
+            }
         }
 
         return out;
     }
 
+    /**
+     * @return Segments of consecutive layers with activation recomputation enabled, as {first, last} layer index.
+     * The output layer is never recomputed
+     */
+    protected int[][] recomputeSegments(){
+        if(recomputeSegments == null){
+            List<int[]> segments = new ArrayList<>();
+            int start = -1;
+            for( int i = 0; i < layers.length - 1; i++) {
+                boolean recompute = layers[i].conf().getLayer().isRecomputeActivations();
+                if(recompute && start < 0){
+                    start = i;
+                } else if(!recompute && start >= 0){
+                    segments.add(new int[]{start, i - 1});
+                    start = -1;
+                }
+            }
+            if(start >= 0){
+                segments.add(new int[]{start, layers.length - 2});
+            }
+            recomputeSegments = segments.toArray(new int[segments.size()][0]);
+        }
+        return recomputeSegments;
+    }
+
+    /**
+     * @return Index of the recomputation segment containing the specified layer, or -1 if none
+     */
+    protected int recomputeSegmentOf(int layerIdx){
+        int[][] segments = recomputeSegments();
+        for( int i = 0; i < segments.length; i++) {
+            if(layerIdx >= segments[i][0] && layerIdx <= segments[i][1]){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected LayerWorkspaceMgr recomputeWorkspaceMgr(INDArray input){
+        LayerWorkspaceMgr mgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.INPUT, WS_RECOMPUTE_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.ACTIVATIONS, WS_RECOMPUTE_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_CACHE, WS_RECOMPUTE_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+        if(input != null && input.isAttached()){
+            //Don't leverage out of async DataSetIterator workspaces
+            mgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
+        }
+        mgr.setHelperWorkspacePointers(helperWorkspaces);
+        return mgr;
+    }
+
+    /**
+     * Recompute the forward pass for the specified segment, as part of backprop. Opens workspace WS_RECOMPUTE_ACT,
+     * which should be closed once backprop for the segment is done. The random number generator state is restored
+     * to its state at the start of the original forward pass of the segment (for identical dropout masks, etc) and
+     * reset afterwards.
+     *
+     * @param seg Index of the segment
+     * @return WS_RECOMPUTE_ACT workspace
+     */
+    protected MemoryWorkspace recomputeSegment(int seg){
+        int[] segment = recomputeSegments()[seg];
+        INDArray input = recomputeInputs[seg];
+        LayerWorkspaceMgr mgr = recomputeWorkspaceMgr(input);
+
+        org.nd4j.linalg.api.rng.Random rng = Nd4j.getRandom();
+        long rootState = rng.rootState();
+        long nodeState = rng.nodeState();
+        rng.setStates(recomputeRngStates[seg][0], recomputeRngStates[seg][1]);
+
+        MemoryWorkspace ws = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+        try {
+            for( int i = segment[0]; i <= segment[1]; i++) {
+                try(MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)){
+                    if (getLayerWiseConfigurations().getInputPreProcess(i) != null) {
+                        input = getLayerWiseConfigurations().getInputPreProcess(i).preProcess(input, getInputMiniBatchSize(), mgr);
+                    }
+                    input = layers[i].activate(input, true, mgr);
+                }
+            }
+        } catch (Throwable t){
+            ws.close();
+            throw t;
+        } finally {
+            rng.setStates(rootState, nodeState);
+        }
+        recomputeInputs[seg] = null;
+        return ws;
+    }
+
     /**
      * Provide the output of the specified layer, detached from any workspace. This is most commonly used at inference/test
      * time, and is more memory efficient than {@link #ffToLayerActivationsDetached(boolean, FwdPassType, boolean, int, INDArray, INDArray, INDArray, boolean)}
@@ -1574,6 +1744,18 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                 idx += range;
             }
         }
+        parametersChanged();
+    }
+
+    /**
+     * Notify the updater that the parameters were set outside of training, so that the master copy of the parameters
+     * used for mixed precision training is updated
+     */
+    protected void parametersChanged() {
+        Updater u = getUpdater(false);
+        if (u instanceof BaseMultiLayerUpdater) {
+            ((BaseMultiLayerUpdater) u).masterParamsChanged();
+        }
     }
 
     @Override
@@ -1821,7 +2003,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             //First: do a feed-forward through the network
             //Note that we don't actually need to do the full forward pass through the output layer right now; but we do
             // need the input to the output layer to be set (such that backprop can be done)
-            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, FwdPassType.STANDARD, false, input, mask, fMask);
+            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, FwdPassType.STANDARD, false, input, mask, fMask, true);
             if (!trainingListeners.isEmpty()) {
                 //TODO: We possibly do want output layer activations in some cases here...
                 for (TrainingListener tl : trainingListeners) {
@@ -1856,6 +2038,18 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected Pair<Gradient, INDArray> calcBackpropGradients(INDArray epsilon, boolean withOutputLayer, boolean tbptt,
                                                              boolean returnInputActGrad) {
+        return calcBackpropGradients(epsilon, withOutputLayer, tbptt, returnInputActGrad, 1.0);
+    }
+
+    /**
+     * As per {@link #calcBackpropGradients(INDArray, boolean, boolean, boolean)}, with loss scaling for mixed precision
+     * training: the gradients of the output layer (and hence all gradients, other than gradients that are not divided
+     * by the minibatch size, such as batch norm mean/variance) are multiplied by the loss scale
+     *
+     * @param lossScale Loss scale factor. 1.0 for no scaling. Only applied if withOutputLayer is true
+     */
+    protected Pair<Gradient, INDArray> calcBackpropGradients(INDArray epsilon, boolean withOutputLayer, boolean tbptt,
+                                                             boolean returnInputActGrad, double lossScale) {
         if (flattenedGradients == null) {
             initGradientsView();
         }
@@ -1935,6 +2129,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         Pair<Gradient, INDArray> currPair = null;
         MemoryWorkspace wsActGradCloseNext = null;
         MemoryWorkspace wsActGradTemp = null;
+        MemoryWorkspace wsRecompute = null;
         MemoryWorkspace initialWorkspace = Nd4j.getMemoryManager().getCurrentWorkspace();
 
         boolean traceLog = log.isTraceEnabled();
@@ -1952,6 +2147,14 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
 
                 LayerWorkspaceMgr workspaceMgr = (i % 2 == 0 ? mgrEven : mgrOdd);
 
+                //Activation recomputation: activations for the segment were dropped during the forward pass. Recompute
+                // them before backprop of the last layer in the segment; WS_RECOMPUTE_ACT is closed after the first
+                int seg = (recomputeInputs == null ? -1 : recomputeSegmentOf(i));
+                if (seg >= 0 && recomputeInputs[seg] != null && i == recomputeSegments[seg][1]) {
+                    wsRecompute = recomputeSegment(seg);
+                    wsRecompute.setPreviousWorkspace(initialWorkspace);
+                }
+
                 if (withOutputLayer && i == layers.length - 1) {
                     if (!(getOutputLayer() instanceof IOutputLayer)) {
                         log.warn("Warning: final layer isn't output layer. You cannot use backprop without an output layer.");
@@ -1989,6 +2192,16 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                         }
                     }
 
+                    if (lossScale != 1.0 && withOutputLayer && i == layers.length - 1) {
+                        //Loss scaling: scale the output layer gradients, before they are propagated to other layers
+                        for (INDArray g : currPair.getFirst().gradientForVariable().values()) {
+                            g.muli(lossScale);
+                        }
+                        if (currPair.getSecond() != null) {
+                            currPair.getSecond().muli(lossScale);
+                        }
+                    }
+
                     if (currPair.getSecond() != null) {
                         //Edge case: may be null for Embedding layer, for example
                         validateArrayWorkspaces(workspaceMgr, currPair.getSecond(), ArrayType.ACTIVATION_GRAD, i,
@@ -2026,6 +2239,11 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                     wsActGradTemp = null;
                 }
 
+                if (wsRecompute != null && seg >= 0 && i == recomputeSegments[seg][0]) {
+                    wsRecompute.close();
+                    wsRecompute = null;
+                }
+
                 if (traceLog) {
                     log.trace("Completed backprop: {} - {}", i, layers[i].getClass().getSimpleName());
                 }
@@ -2056,6 +2274,19 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                     }
                 }
             }
+            if(wsRecompute != null) {
+                //Non-null on exception, or if backprop stopped at a frozen layer within a recomputation segment
+                try {
+                    wsRecompute.close();
+                } catch (Throwable t2) {
+                    if (t != null) {
+                        log.error("Encountered second exception while trying to close workspace after initial exception");
+                        log.error("Original exception:", t);
+                        throw t2;
+                    }
+                }
+            }
+            recomputeInputs = null;
             Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
 
             if(t != null){
@@ -2778,7 +3009,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             //First: do a feed-forward through the network
             //Note that we don't actually need to do the full forward pass through the output layer right now; but we do
             // need the input to the output layer to be set (such that backprop can be done)
-            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, fwdType, tbptt, input, mask, null);
+            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, fwdType, tbptt, input, mask, null, !tbptt);
             if (!trainingListeners.isEmpty()) {
                 //TODO: We possibly do want output layer activations in some cases here...
                 for (TrainingListener tl : trainingListeners) {
@@ -2793,7 +3024,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
             }
             getOutputLayer().setInput(inputToOutputLayer, mgr);
             //Then: compute gradients
-            Pair<Gradient, INDArray> pair = calcBackpropGradients(null, true, false, false);
+            Pair<Gradient, INDArray> pair = calcBackpropGradients(null, true, false, false, lossScale());
             this.gradient = (pair == null ? null : pair.getFirst());
 
             //Calculate score
@@ -3274,6 +3505,22 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return null;
     }
 
+    /**
+     * @return The current loss scale for mixed precision training (see {@link MixedPrecision}), or 1.0 if mixed
+     * precision training is not enabled
+     */
+    public double lossScale() {
+        MixedPrecision mp = layerWiseConfigurations.getMixedPrecision();
+        if (mp == null) {
+            return 1.0;
+        }
+        Updater u = getUpdater(false);
+        if (u instanceof BaseMultiLayerUpdater) {
+            return ((BaseMultiLayerUpdater) u).getLossScale();
+        }
+        return mp.getInitialLossScale();
+    }
+
     /** Set the updater for the MultiLayerNetwork */
     public void setUpdater(Updater updater) {
         if (solver == null) {
@@ -24,10 +24,14 @@ import lombok.Getter;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.api.Trainable;
 import org.deeplearning4j.nn.api.Updater;
+import org.deeplearning4j.nn.api.layers.LayerConstraint;
 import org.deeplearning4j.nn.conf.GradientNormalization;
+import org.deeplearning4j.nn.conf.MixedPrecision;
+import org.deeplearning4j.nn.conf.constraint.BaseConstraint;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.CustomOp;
@@ -36,7 +40,9 @@ import org.nd4j.linalg.api.ops.DynamicCustomOp;
 import org.nd4j.linalg.api.ops.impl.reduce.floating.Norm2;
 import org.nd4j.linalg.exception.ND4JArraySizeException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.BooleanIndexing;
 import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.indexing.conditions.Conditions;
 import org.deeplearning4j.nn.workspace.ArrayType;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.nd4j.linalg.learning.config.IUpdater;
@@ -53,6 +59,28 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
     protected boolean initializedMinibatchDivision;
     protected List<INDArray> gradientsForMinibatchDivision;
 
+    //Mixed precision training state - see MixedPrecision
+    protected double lossScale = 1.0;
+    protected int stepsSinceOverflow;
+    protected long numSkippedSteps;
+    protected INDArray masterParams;
+    protected INDArray masterGradient;
+    protected List<INDArray> masterGradientsForDivision;
+    protected INDArray[] masterLayerGradientViews;
+    protected Gradient[] masterLayerGradients;
+    protected List<Map<String, INDArray>> masterLayerParams;
+    protected INDArray[] masterLayerParamViews;
+    protected INDArray[] layerParamViews;
+    protected boolean masterParamsStale;
+
+    //Fused gradient normalization: element-wise clipping of contiguous layers with the same threshold is done with
+    // one op per run of layers, on the flattened gradient view
+    protected Boolean hasGradientNormalization;
+    protected INDArray clipRunsGradientView;
+    protected List<INDArray> clipRunViews;
+    protected List<Double> clipRunThresholds;
+    protected Set<Trainable> clipRunLayers;
+
     public BaseMultiLayerUpdater(T network) {
         this(network, null);
     }
@@ -65,6 +93,12 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
     public BaseMultiLayerUpdater(T network, INDArray updaterState) {
         this.network = network;
         Trainable[] layers = getOrderedLayers();    //May also include vertices
+        MixedPrecision mixedPrecision = getMixedPrecision();
+        //With mixed precision training, the updater state is kept in the (higher precision) master weights data type
+        DataType stateDataType = mixedPrecision == null ? network.params().dataType() : mixedPrecision.getMasterDataType();
+        if (mixedPrecision != null) {
+            lossScale = mixedPrecision.getInitialLossScale();
+        }
 
         int updaterStateSize = 0;
         //Iterate through layers, and variables for each layer.
@@ -141,11 +175,15 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         //Initialize the updater state, if required
         boolean updaterRequiresInit = false;
         if (updaterState != null) {
+            if (updaterState.dataType() != stateDataType) {
+                //For example, updater state saved before mixed precision training was enabled
+                updaterState = updaterState.castTo(stateDataType);
+            }
             updaterStateViewArray = updaterState;
             updaterRequiresInit = false;
         } else if (updaterStateSize > 0) {
             //May be 0 if all SGD or NONE updaters, for example
-            updaterStateViewArray = Nd4j.createUninitialized(network.params().dataType(), new long[] {1, updaterStateSize}, Nd4j.order());
+            updaterStateViewArray = Nd4j.createUninitialized(stateDataType, new long[] {1, updaterStateSize}, Nd4j.order());
             updaterRequiresInit = true;
         }
 
@@ -169,6 +207,8 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
                 INDArray gradientViewSubset = gradientView.get(NDArrayIndex.interval(0, 0, true),
                                 NDArrayIndex.interval(paramsViewSoFar, paramsViewSoFar + gradSize));
                 ub.setGradientView(gradientViewSubset);
+                ub.setParamView(paramsView.get(NDArrayIndex.interval(0, 0, true),
+                                NDArrayIndex.interval(paramsViewSoFar, paramsViewSoFar + gradSize)));
             }
 
             ub.init();
@@ -200,6 +240,14 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      */
     protected abstract boolean isMiniBatch();
 
+    /**
+     * @return The mixed precision training configuration for the model, or null if mixed precision training is not
+     * enabled
+     */
+    protected MixedPrecision getMixedPrecision() {
+        return null;
+    }
+
     /**
      * Set the view array. Note that this does an assign operation - the provided array is not stored internally.
      *
@@ -263,11 +311,20 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         // hence should be the same object under normal circumstances
         boolean isExternal = gradient.gradient() != getFlattenedGradientsView();
 
-        //Split up the gradients on a per-layer basis, for pre-apply
+        MixedPrecision mixedPrecision = getMixedPrecision();
+        if (mixedPrecision != null && !isExternal && !(this instanceof LayerUpdater)) {
+            updateMixedPrecision(mixedPrecision, iteration, epoch, batchSize, workspaceMgr);
+            return;
+        }
+
+        //Split up the gradients on a per-layer basis, for pre-apply. Not required if no layers use gradient normalization
         Map<String, Gradient> layerGradients = new HashMap<>();
+        boolean preApply = hasGradientNormalization();
 
         Trainable[] layers = getOrderedLayers();
-        if (layers.length == 1 && isSingleLayerUpdater()) {
+        if (!preApply) {
+            //No op
+        } else if (layers.length == 1 && isSingleLayerUpdater()) {
             layerGradients.put(layers[0].getConfig().getLayerName(), gradient);
         } else {
             for (Map.Entry<String, INDArray> gradientPair : gradient.gradientForVariable().entrySet()) {
@@ -293,10 +350,17 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             divideByMinibatch(isExternal, gradient, batchSize);
         }
 
-        //PRE apply (gradient clipping, etc): done on a per-layer basis
+        //PRE apply (gradient clipping, etc): done on a per-layer basis, other than fused element-wise clipping
+        boolean fusedClipping = preApply && !isExternal;
+        if (fusedClipping) {
+            applyFusedClipping();
+        }
         for (Map.Entry<String, Gradient> entry : layerGradients.entrySet()) {
             String layerName = entry.getKey();
             Trainable layer = layersByName.get(layerName);
+            if (fusedClipping && clipRunLayers.contains(layer)) {
+                continue;
+            }
 
             preApply(layer, layerGradients.get(layerName), iteration);
         }
@@ -324,6 +388,178 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         }
     }
 
+    /**
+     * Mixed precision update. The (loss scaled, possibly low precision) gradients are copied to the master gradient
+     * array and unscaled, then the updaters are applied to the master gradients and the result is subtracted from the
+     * master parameters; finally the master parameters are copied back to the network parameters.<br>
+     * If the gradients contain NaN or infinite values (and dynamic loss scaling is enabled), the step is skipped and
+     * the loss scale is reduced. After the update, the network gradient view array is zero, hence the subsequent
+     * step function (params -= update) is a no-op.<br>
+     * Layer constraints are applied to the master parameters, before they are copied back to the network (the
+     * constraints subsequently applied to the network parameters then have no further effect). Constraints other
+     * than {@link BaseConstraint} subclasses can only be applied to the network parameters: the master parameters of
+     * those layers are instead updated from the network parameters at the start of the next step.
+     */
+    protected void updateMixedPrecision(MixedPrecision mixedPrecision, int iteration, int epoch, int batchSize,
+                                        LayerWorkspaceMgr workspaceMgr) {
+        INDArray params = getParams();
+        INDArray gradientView = getFlattenedGradientsView();
+        if (masterParams == null) {
+            initMasterArrays(mixedPrecision.getMasterDataType(), params);
+        }
+
+        workspaceMgr.assertNotOpen(ArrayType.UPDATER_WORKING_MEM, "Updater working memory");
+        try (MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.UPDATER_WORKING_MEM)) {
+            //Parameters were set outside of the updater (setParams, etc) since the last step
+            if (masterParamsStale) {
+                masterParams.assign(params);
+                masterParamsStale = false;
+            }
+            //Constraints that can't be applied to the master parameters were applied to the network parameters
+            applyMasterConstraints(getOrderedLayers(), false);
+
+            if (mixedPrecision.isDynamicLossScaling() && !BooleanIndexing.and(gradientView, Conditions.isFinite())) {
+                //Overflow: skip this step, and reduce the loss scale
+                lossScale = Math.max(mixedPrecision.getMinLossScale(), lossScale * mixedPrecision.getBackoffFactor());
+                stepsSinceOverflow = 0;
+                numSkippedSteps++;
+                gradientView.assign(0);
+                return;
+            }
+
+            masterGradient.assign(gradientView);
+        }
+
+        //Unscale, and divide by minibatch size if required. BatchNorm mean/variance "gradients" are not scaled
+        double divisor = lossScale * (isMiniBatch() ? batchSize : 1);
+        if (divisor != 1.0) {
+            for (INDArray arr : masterGradientsForDivision) {
+                arr.divi(divisor);
+            }
+        }
+
+        Trainable[] layers = getOrderedLayers();
+        for (int i = 0; i < layers.length; i++) {
+            if (masterLayerGradients[i] != null) {
+                preApply(layers[i], masterLayerGradientViews[i], masterLayerGradients[i], iteration);
+            }
+        }
+
+        for (UpdaterBlock ub : updaterBlocks) {
+            if (ub.skipDueToPretrainConfig(false)) {
+                continue;
+            }
+            try (MemoryWorkspace ws = workspaceMgr.notifyScopeEntered(ArrayType.UPDATER_WORKING_MEM)) {
+                ub.updateExternalGradient(iteration, epoch, masterGradient, masterParams);
+            }
+        }
+
+        //Skipped updater blocks (pretrain params) have unmodified gradients here, as per the standard update
+        masterParams.subi(masterGradient);
+        applyMasterConstraints(layers, true);
+        params.assign(masterParams);
+        gradientView.assign(0);
+
+        if (mixedPrecision.isDynamicLossScaling() && ++stepsSinceOverflow >= mixedPrecision.getGrowthInterval()) {
+            lossScale = Math.min(mixedPrecision.getMaxLossScale(), lossScale * mixedPrecision.getGrowthFactor());
+            stepsSinceOverflow = 0;
+        }
+    }
+
+    /**
+     * Apply the layer constraints to the master parameters
+     *
+     * @param layers    Layers to apply the constraints of
+     * @param onlyBase  If true: apply the {@link BaseConstraint} constraints to the master parameters. Otherwise: update
+     *                  the master parameters of layers with other constraints from the (constrained) network parameters
+     */
+    protected void applyMasterConstraints(Trainable[] layers, boolean onlyBase) {
+        for (int i = 0; i < layers.length; i++) {
+            if (masterLayerParamViews[i] == null || !(layers[i].getConfig() instanceof org.deeplearning4j.nn.conf.layers.Layer))
+                continue;
+            List<LayerConstraint> constraints = ((org.deeplearning4j.nn.conf.layers.Layer) layers[i].getConfig()).getConstraints();
+            if (constraints == null)
+                continue;
+            for (LayerConstraint lc : constraints) {
+                if (onlyBase && lc instanceof BaseConstraint) {
+                    for (String param : lc.getParams()) {
+                        INDArray view = masterLayerParams.get(i).get(param);
+                        if (view != null)
+                            ((BaseConstraint) lc).apply(view);
+                    }
+                } else if (!onlyBase && !(lc instanceof BaseConstraint)) {
+                    masterLayerParamViews[i].assign(layerParamViews[i]);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Notify the updater that the network parameters were modified outside of the updater (for example, by setting the
+     * parameters of the network). With mixed precision training, the master copy of the parameters is then updated
+     * from the network parameters at the start of the next step. Has no effect if mixed precision training is not
+     * enabled.<br>
+     * Note that parameters modified in-place (for example, using {@code getParam(String).assign(...)}) are not
+     * detected: this method should be called after doing so.
+     */
+    public synchronized void masterParamsChanged() {
+        masterParamsStale = true;
+    }
+
+    /**
+     * Set the current loss scale for mixed precision training - for example, to restore the loss scale of a network
+     * that was saved during training. Has no effect if mixed precision training is not enabled
+     *
+     * @param lossScale Loss scale to use
+     */
+    public synchronized void setLossScale(double lossScale) {
+        Preconditions.checkArgument(lossScale > 0, "Loss scale must be positive, got %s", lossScale);
+        this.lossScale = lossScale;
+        this.stepsSinceOverflow = 0;
+    }
+
+    protected void initMasterArrays(DataType dataType, INDArray params) {
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            masterParams = Nd4j.createUninitialized(dataType, params.shape(), params.ordering());
+            masterParams.assign(params);
+            masterGradient = Nd4j.create(dataType, params.shape(), params.ordering());
+        }
+        masterGradientsForDivision = getMinibatchDivisionSubsets(masterGradient);
+
+        Trainable[] layers = getOrderedLayers();
+        masterLayerGradientViews = new INDArray[layers.length];
+        masterLayerGradients = new Gradient[layers.length];
+        masterLayerParams = new ArrayList<>(layers.length);
+        masterLayerParamViews = new INDArray[layers.length];
+        layerParamViews = new INDArray[layers.length];
+        long soFar = 0;
+        for (int i = 0; i < layers.length; i++) {
+            Map<String, INDArray> paramTable = layers[i].paramTable(false);
+            Map<String, INDArray> layerMasterParams = new LinkedHashMap<>();
+            masterLayerParams.add(layerMasterParams);
+            if (paramTable == null || paramTable.isEmpty()) {
+                continue;
+            }
+            long start = soFar;
+            Gradient g = new DefaultGradient();
+            for (Map.Entry<String, INDArray> e : paramTable.entrySet()) {
+                long length = e.getValue().length();
+                INDArray view = masterGradient.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(soFar, soFar + length));
+                g.setGradientFor(e.getKey(), view);
+                layerMasterParams.put(e.getKey(), masterParams.get(NDArrayIndex.interval(0, 0, true),
+                        NDArrayIndex.interval(soFar, soFar + length)).reshape(e.getValue().ordering(), e.getValue().shape()));
+                soFar += length;
+            }
+            if (soFar > start) {
+                masterLayerGradientViews[i] = masterGradient.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(start, soFar));
+                masterLayerGradients[i] = g;
+                masterLayerParamViews[i] = masterParams.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(start, soFar));
+                layerParamViews[i] = params.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(start, soFar));
+            }
+        }
+    }
+
     protected void divideByMinibatch(boolean isExternal, Gradient gradient, int batchSize){
         //Challenge here: most gradients are actual gradients, and should be divided by the minibatch to get the average
         //However, some 'gradients' are actually updates - an example being BatchNorm mean/variance estimates... these
@@ -378,6 +614,75 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         return out;
     }
 
+    /**
+     * @return True if any layer in the network uses gradient normalization or clipping
+     */
+    protected boolean hasGradientNormalization() {
+        if (hasGradientNormalization == null) {
+            boolean any = false;
+            for (Trainable t : getOrderedLayers()) {
+                GradientNormalization gn = (t.getConfig() == null ? null : t.getConfig().getGradientNormalization());
+                if (t.numParams() > 0 && gn != null && gn != GradientNormalization.None) {
+                    any = true;
+                    break;
+                }
+            }
+            hasGradientNormalization = any;
+        }
+        return hasGradientNormalization;
+    }
+
+    /**
+     * Apply {@link GradientNormalization#ClipElementWiseAbsoluteValue} to the flattened gradient view, with one op for
+     * each run of contiguous layers that have the same clipping threshold
+     */
+    protected void applyFusedClipping() {
+        INDArray gradientView = getFlattenedGradientsView();
+        if (clipRunViews == null || clipRunsGradientView != gradientView) {
+            clipRunViews = new ArrayList<>();
+            clipRunThresholds = new ArrayList<>();
+            clipRunLayers = Collections.newSetFromMap(new IdentityHashMap<Trainable, Boolean>());
+            long soFar = 0;
+            long runStart = -1;
+            double runThreshold = 0;
+            for (Trainable t : getOrderedLayers()) {
+                long n = t.numParams();
+                boolean clip = n > 0 && t.getConfig() != null
+                        && t.getConfig().getGradientNormalization() == GradientNormalization.ClipElementWiseAbsoluteValue;
+                double threshold = clip ? t.getConfig().getGradientNormalizationThreshold() : 0;
+                if (runStart >= 0 && (n > 0 || clip) && !(clip && threshold == runThreshold)) {
+                    //End of the current run
+                    clipRunViews.add(gradientView.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(runStart, soFar)));
+                    clipRunThresholds.add(runThreshold);
+                    runStart = -1;
+                }
+                if (clip) {
+                    if (runStart < 0) {
+                        runStart = soFar;
+                        runThreshold = threshold;
+                    }
+                    clipRunLayers.add(t);
+                }
+                soFar += n;
+            }
+            if (runStart >= 0) {
+                clipRunViews.add(gradientView.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(runStart, soFar)));
+                clipRunThresholds.add(runThreshold);
+            }
+            clipRunsGradientView = gradientView;
+        }
+
+        for (int i = 0; i < clipRunViews.size(); i++) {
+            double threshold = clipRunThresholds.get(i);
+            CustomOp op = DynamicCustomOp.builder("clipbyvalue")
+                    .addInputs(clipRunViews.get(i))
+                    .callInplace(true)
+                    .addFloatingPointArguments(-threshold, threshold)
+                    .build();
+            Nd4j.getExecutioner().exec(op);
+        }
+    }
+
     protected boolean isSingleLayerUpdater() {
         return false;
     }
@@ -390,6 +695,18 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
      * @param iteration The current iteration (i.e., number of parameter updates so far)
      */
     public void preApply(Trainable layer, Gradient gradient, int iteration) {
+        preApply(layer, layer.getGradientsViewArray(), gradient, iteration);
+    }
+
+    /**
+     * Pre-apply: Apply gradient normalization/clipping
+     *
+     * @param layer              Layer to apply gradient normalization/clipping for
+     * @param layerGradientView  Gradient view array for all parameters of the layer
+     * @param gradient           Gradient to update
+     * @param iteration          The current iteration (i.e., number of parameter updates so far)
+     */
+    protected void preApply(Trainable layer, INDArray layerGradientView, Gradient gradient, int iteration) {
 
         if (layer.getConfig() == null || layer.numParams() == 0) {
             //Layer does not have parameters -> no gradient
@@ -401,7 +718,6 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
             return; //no op
 
         final double threshold = layer.getConfig().getGradientNormalizationThreshold();
-        INDArray layerGradientView = layer.getGradientsViewArray();
 
         switch (normalization) {
             case RenormalizeL2PerLayer:
@@ -22,6 +22,8 @@ package org.deeplearning4j.nn.updater;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.val;
 import org.deeplearning4j.nn.api.Layer;
 import org.deeplearning4j.nn.api.Trainable;
@@ -32,10 +34,14 @@ import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.learning.GradientUpdater;
+import org.nd4j.linalg.learning.regularization.L1Regularization;
+import org.nd4j.linalg.learning.regularization.L2Regularization;
 import org.nd4j.linalg.learning.regularization.Regularization;
+import org.nd4j.linalg.learning.regularization.WeightDecay;
 import org.nd4j.linalg.ops.transforms.Transforms;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Data
@@ -48,10 +54,16 @@ public class UpdaterBlock {
 
     private INDArray updaterView;
     private INDArray gradientView;
+    private INDArray paramView;
     private boolean updaterViewRequiresInitialization;
 
     private GradientUpdater gradientUpdater;
 
+    //Contiguous runs of parameters in this block with identical (element-wise) regularization; created lazily
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private List<ParamState> regularizationRuns;
+
 
     @AllArgsConstructor
     @Data
@@ -166,7 +178,7 @@ public class UpdaterBlock {
 
     protected void applyRegularizationAllVariables(Regularization.ApplyStep applyStep, int iteration, int epoch, boolean externalGradient, INDArray fullNetworkGradientView,
                                                    INDArray fullNetworkParamsArray) {
-        for (ParamState p : layersAndVariablesInBlock) {
+        for (ParamState p : getRegularizationRuns()) {
             INDArray paramView;
             INDArray gradView;
             if (externalGradient) {
@@ -186,17 +198,86 @@ public class UpdaterBlock {
         }
     }
 
+    /**
+     * Get the regularization runs for this block: contiguous parameters that have identical, element-wise
+     * regularization (L1, L2, weight decay) are merged into a single {@link ParamState}, so the regularization can be
+     * applied with one op per run instead of one op per parameter. The layer and parameter name of each run are those
+     * of the first parameter in the run.
+     *
+     * @return Regularization runs for this block
+     */
+    public List<ParamState> getRegularizationRuns() {
+        if (regularizationRuns != null) {
+            return regularizationRuns;
+        }
+
+        List<ParamState> runs = new ArrayList<>();
+        ParamState first = null;
+        ParamState last = null;
+        List<Regularization> firstReg = null;
+        for (ParamState p : layersAndVariablesInBlock) {
+            List<Regularization> reg = regularizationFor(p);
+            if (first != null && last.getParamOffsetEnd() == p.getParamOffsetStart() && fusable(firstReg)
+                    && firstReg.equals(reg)) {
+                last = p;
+                continue;
+            }
+            if (first != null) {
+                runs.add(mergeRun(first, last));
+            }
+            first = p;
+            last = p;
+            firstReg = reg;
+        }
+        if (first != null) {
+            runs.add(mergeRun(first, last));
+        }
+
+        regularizationRuns = runs;
+        return regularizationRuns;
+    }
+
+    private ParamState mergeRun(ParamState first, ParamState last) {
+        if (first == last) {
+            return first;
+        }
+        INDArray runParams = null;
+        INDArray runGrads = null;
+        if (paramView != null && gradientView != null) {
+            runParams = paramView.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(
+                    first.getParamOffsetStart() - paramOffsetStart, last.getParamOffsetEnd() - paramOffsetStart));
+            runGrads = gradientView.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.interval(
+                    first.getParamOffsetStart() - paramOffsetStart, last.getParamOffsetEnd() - paramOffsetStart));
+        }
+        return new ParamState(first.getLayer(), first.getParamName(), first.getParamOffsetStart(),
+                last.getParamOffsetEnd(), runParams, runGrads);
+    }
+
+    private static List<Regularization> regularizationFor(ParamState p) {
+        List<Regularization> l = p.getLayer().getConfig().getRegularizationByParam(p.getParamName());
+        return l == null ? Collections.<Regularization>emptyList() : l;
+    }
+
+    private static boolean fusable(List<Regularization> l) {
+        //Only for regularization types known to be element-wise; custom types may depend on the array as a whole
+        for (Regularization r : l) {
+            if (r.getClass() != L1Regularization.class && r.getClass() != L2Regularization.class
+                    && r.getClass() != WeightDecay.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Apply L1 and L2 regularization, if necessary. Note that L1/L2 may differ for different layers in the same block
      *
-     * @param layer        The layer to apply L1/L2 to
+     * @param layer        The layer to apply L1/L2 to (for a regularization run: the first layer in the run)
      * @param paramName    Parameter name in the given layer
      * @param gradientView Gradient view array for the layer + param
      * @param paramsView   Parameter view array for the layer + param
      */
     protected void applyRegularization(Regularization.ApplyStep step, Trainable layer, String paramName, INDArray gradientView, INDArray paramsView, int iter, int epoch, double lr) {
-        //TODO: do this for multiple contiguous params/layers (fewer, larger ops)
-
         List<Regularization> l = layer.getConfig().getRegularizationByParam(paramName);
         if(l != null && !l.isEmpty()){
             for(Regularization r : l){
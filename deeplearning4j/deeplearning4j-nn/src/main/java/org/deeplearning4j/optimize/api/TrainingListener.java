@@ -54,7 +54,7 @@ public interface TrainingListener {
      * only at training time
      *
      * @param model       Model
-     * @param activations Layer activations (including input)
+     * @param activations Layer activations (including input). Null for layers with activation recomputation enabled
      */
     void onForwardPass(Model model, List<INDArray> activations);
 
@@ -63,7 +63,8 @@ public interface TrainingListener {
      * only at training time
      *
      * @param model       Model
-     * @param activations Layer activations (including input)
+     * @param activations Layer activations (including input). Layers with activation recomputation enabled are not
+     *                    included
      */
     void onForwardPass(Model model, Map<String, INDArray> activations);
 
@@ -37,7 +37,9 @@ import org.nd4j.linalg.factory.Nd4j;
 
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -91,6 +93,24 @@ public class InplaceParallelInference extends ParallelInference {
         return selector.output(input, inputMasks);
     }
 
+    /**
+     * In INPLACE mode inference is applied in the calling thread: if callbackExecutor is null, the output is computed
+     * in the calling thread before this method returns. Otherwise, the output is computed on the callback executor.
+     */
+    @Override
+    public CompletableFuture<INDArray[]> outputAsync(INDArray[] input, INDArray[] inputMasks, Executor callbackExecutor) {
+        if (callbackExecutor != null)
+            return CompletableFuture.supplyAsync(() -> output(input, inputMasks), callbackExecutor);
+
+        val future = new CompletableFuture<INDArray[]>();
+        try {
+            future.complete(output(input, inputMasks));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * This method does forward pass and returns output provided by OutputAdapter
      *
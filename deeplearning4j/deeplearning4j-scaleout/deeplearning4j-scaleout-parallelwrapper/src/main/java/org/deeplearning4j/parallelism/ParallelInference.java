@@ -29,12 +29,15 @@ import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.AdaptiveBatchScheduler;
+import org.deeplearning4j.parallelism.inference.InferenceMetrics;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
 import org.deeplearning4j.parallelism.inference.LoadBalanceMode;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
 import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.FutureInferenceObserver;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
@@ -45,7 +48,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Observer;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -59,6 +65,10 @@ public class ParallelInference {
     protected InferenceMode inferenceMode;
     protected int queueLimit;
     protected LoadBalanceMode loadBalanceMode = LoadBalanceMode.FIFO;
+    protected long latencyTargetNanos;
+    protected long maxQueueDelayNanos;
+    protected boolean padSequences;
+    protected int sequenceBucketWidth;
 
     // this queue holds data for inference
     private BlockingQueue<InferenceObservable> observables;
@@ -67,6 +77,7 @@ public class ParallelInference {
 
     private InferenceWorker[] zoo;
     private ObservablesProvider provider;
+    private AdaptiveBatchScheduler scheduler;
 
 
 
@@ -74,6 +85,7 @@ public class ParallelInference {
     public final static int DEFAULT_BATCH_LIMIT = 32;
     public final static InferenceMode DEFAULT_INFERENCE_MODE = InferenceMode.BATCHED;
     public final static int DEFAULT_QUEUE_LIMIT = 64;
+    public final static long DEFAULT_LATENCY_TARGET_MS = 100;
 
 
 
@@ -118,6 +130,12 @@ public class ParallelInference {
     protected void init() {
         observables = new LinkedBlockingQueue<>(queueLimit);
 
+        // scheduler should be available before workers are started
+        if (inferenceMode == InferenceMode.ADAPTIVE) {
+            scheduler = new AdaptiveBatchScheduler(batchLimit, queueLimit, latencyTargetNanos, maxQueueDelayNanos,
+                    TimeUnit.NANOSECONDS, padSequences, sequenceBucketWidth);
+        }
+
         int numDevices = Nd4j.getAffinityManager().getNumberOfDevices();
         int currentDevice = Nd4j.getAffinityManager().getDeviceForCurrentThread();
         AtomicBoolean assignedRoot = new AtomicBoolean(false);
@@ -137,10 +155,20 @@ public class ParallelInference {
 
         if (inferenceMode == InferenceMode.BATCHED) {
             log.info("Initializing ObservablesProvider...");
-            provider = new ObservablesProvider(nanos, batchLimit, observables);
+            provider = new ObservablesProvider(nanos, batchLimit, observables, padSequences);
         }
     }
 
+    /**
+     * This method returns request and batch statistics: queueing time per request, and batch size histogram.
+     * PLEASE NOTE: Statistics are only collected in ADAPTIVE inference mode
+     *
+     * @return Metrics, or null if inference mode isn't ADAPTIVE
+     */
+    public InferenceMetrics getMetrics() {
+        return scheduler == null ? null : scheduler.getMetrics();
+    }
+
     protected long getWorkerCounter(int workerIdx) {
         return zoo[workerIdx].getCounterValue();
     }
@@ -226,10 +254,112 @@ public class ParallelInference {
      * @return Output from the network
      */
     public INDArray[] output(INDArray[] input, INDArray[] inputMasks){
-        Nd4j.getExecutioner().commit(); //Commit before passing input to other thread
-
         // basically, depending on model type we either throw stuff to specific model, or wait for batch
         BasicInferenceObserver observer = new BasicInferenceObserver();
+        InferenceObservable observable = submit(observer, input, inputMasks);
+
+        try {
+            // submit query to processing
+            // and block until Observable returns
+            //observer.wait();
+
+            observer.waitTillDone();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        return observable.getOutput();
+    }
+
+    /**
+     * Generate predictions/output from the network without blocking until the output is available.
+     * See {@link #outputAsync(INDArray[], INDArray[], Executor)}
+     *
+     * @param input Input to the network
+     * @return Future for the output of the network
+     */
+    public CompletableFuture<INDArray> outputAsync(INDArray input) {
+        return outputAsync(input, null);
+    }
+
+    /**
+     * Generate predictions/output from the network without blocking until the output is available.
+     * See {@link #outputAsync(INDArray[], INDArray[], Executor)}
+     *
+     * @param input     Input to the network
+     * @param inputMask Input mask for the network. May be null.
+     * @return Future for the output of the network
+     */
+    public CompletableFuture<INDArray> outputAsync(INDArray input, INDArray inputMask) {
+        return outputAsync(new INDArray[]{input}, (inputMask == null ? null : new INDArray[]{inputMask}), null)
+                .thenApply(out -> {
+                    if (out.length != 1) {
+                        throw new IllegalArgumentException("Network has multiple (" + out.length + ") output arrays, but only a" +
+                                " single output can be returned using this method. Use for outputAsync(INDArray[] input, INDArray[] " +
+                                "inputMasks) for multi-output nets");
+                    }
+                    return out[0];
+                });
+    }
+
+    /**
+     * Generate predictions/output from the network without blocking until the output is available.
+     * See {@link #outputAsync(INDArray[], INDArray[], Executor)}
+     *
+     * @param input Input to the network
+     * @return Future for the outputs of the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray... input) {
+        return outputAsync(input, null, null);
+    }
+
+    /**
+     * Generate predictions/output from the network without blocking until the output is available.
+     * See {@link #outputAsync(INDArray[], INDArray[], Executor)}
+     *
+     * @param input      Input to the network
+     * @param inputMasks Input masks for the network. May be null.
+     * @return Future for the outputs of the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray[] input, INDArray[] inputMasks) {
+        return outputAsync(input, inputMasks, null);
+    }
+
+    /**
+     * Generate predictions/outputs from the network without blocking until the output is available: the calling
+     * thread only blocks while the request queue is full (see {@link Builder#queueLimit(int)}), so a small number of
+     * threads can keep many requests in flight.<br>
+     * If callbackExecutor is null, the returned future is completed on the inference worker thread - as are any
+     * dependent stages added with non-async methods, so these should be short. Otherwise the future is completed on
+     * the given executor (for example, an event loop, or an executor using virtual threads).<br>
+     * Errors during inference complete the future exceptionally.
+     *
+     * @param input            Input to the network
+     * @param inputMasks       Input masks for the network. May be null.
+     * @param callbackExecutor Executor to complete the future on. May be null
+     * @return Future for the outputs of the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray[] input, INDArray[] inputMasks, Executor callbackExecutor) {
+        FutureInferenceObserver observer = new FutureInferenceObserver(callbackExecutor);
+        try {
+            observer.setObservable(submit(observer, input, inputMasks));
+        } catch (Exception e) {
+            observer.setException(e);
+        }
+        return observer.getFuture();
+    }
+
+    /**
+     * This method passes input to the workers, with given observer to be notified once output is available
+     *
+     * @param observer
+     * @param input
+     * @param inputMasks
+     * @return observable to get output from
+     */
+    protected InferenceObservable submit(@NonNull Observer observer, INDArray[] input, INDArray[] inputMasks) {
+        Nd4j.getExecutioner().commit(); //Commit before passing input to other thread
+
         InferenceObservable observable;
 
         if (inferenceMode == InferenceMode.SEQUENTIAL) {
@@ -241,21 +371,18 @@ public class ParallelInference {
                 Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
             }
+        } else if (inferenceMode == InferenceMode.ADAPTIVE) {
+            try {
+                observable = scheduler.submit(observer, input, inputMasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
         } else {
             observable = provider.setInput(observer, input, inputMasks);
         }
 
-        try {
-            // submit query to processing
-            // and block until Observable returns
-            //observer.wait();
-
-            observer.waitTillDone();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-
-        return observable.getOutput();
+        return observable;
     }
 
     /**
@@ -290,6 +417,10 @@ public class ParallelInference {
         private InferenceMode inferenceMode = DEFAULT_INFERENCE_MODE;
         private int queueLimit = DEFAULT_QUEUE_LIMIT;
         protected LoadBalanceMode loadBalanceMode = LoadBalanceMode.FIFO;
+        private long latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LATENCY_TARGET_MS);
+        private long maxQueueDelayNanos = 0;
+        private boolean padSequences = false;
+        private int sequenceBucketWidth = 0;
 
         public Builder(@NonNull Model model) {
             this.model = model;
@@ -302,6 +433,8 @@ public class ParallelInference {
          * SEQUENTIAL: Input will be sent to last-used worker unmodified.
          * BATCHED: Multiple inputs will be packed into single batch, and
          * sent to last-used device.
+         * ADAPTIVE: Inputs will be queued, and packed into batches sized
+         * to meet latency target when worker becomes available.
          *
          * @param inferenceMode
          * @return
@@ -375,6 +508,86 @@ public class ParallelInference {
             return this;
         }
 
+        /**
+         * This method defines target latency (queueing + execution time) per request.
+         * Batch size will be reduced when queue is long, so requests still meet this target.
+         *
+         * PLEASE NOTE: This value has effect only in ADAPTIVE inference mode
+         * Default value: 100 ms. 0 disables latency-based batch sizing
+         *
+         * @param latencyTarget
+         * @param timeUnit
+         * @return
+         */
+        public Builder latencyTarget(long latencyTarget, @NonNull TimeUnit timeUnit) {
+            if (latencyTarget < 0)
+                throw new IllegalStateException("Latency target should be non-negative value");
+
+            long nanos = timeUnit.toNanos(latencyTarget);
+            if (latencyTarget > 0 && nanos == 0)
+                throw new IllegalStateException("Latency target " + latencyTarget + " " + timeUnit + " is too small");
+
+            this.latencyTargetNanos = nanos;
+            return this;
+        }
+
+        /**
+         * This method defines, how long worker may wait for more requests to arrive, to build larger batch.
+         * Worker will only wait if requests are expected to arrive within this time and within latency target.
+         *
+         * PLEASE NOTE: This value has effect only in ADAPTIVE inference mode
+         * Default value: 0, workers never wait
+         *
+         * @param maxQueueDelay
+         * @param timeUnit
+         * @return
+         */
+        public Builder maxQueueDelay(long maxQueueDelay, @NonNull TimeUnit timeUnit) {
+            if (maxQueueDelay < 0)
+                throw new IllegalStateException("Max queue delay should be non-negative value");
+
+            long nanos = timeUnit.toNanos(maxQueueDelay);
+            if (maxQueueDelay > 0 && nanos == 0)
+                throw new IllegalStateException("Max queue delay " + maxQueueDelay + " " + timeUnit + " is too small");
+
+            this.maxQueueDelayNanos = nanos;
+            return this;
+        }
+
+        /**
+         * This method enables batching of time series inputs with different lengths: inputs will be padded to the
+         * longest length and masked, and time series outputs will be trimmed back to the input length.
+         *
+         * PLEASE NOTE: This value has effect only in BATCHED and ADAPTIVE inference modes
+         * PLEASE NOTE: Results for padded inputs are only the same as for unpadded inputs if the model supports masking
+         * (for example: LSTM, RnnOutputLayer, GlobalPoolingLayer)
+         *
+         * @param padSequences
+         * @return
+         */
+        public Builder padSequences(boolean padSequences) {
+            this.padSequences = padSequences;
+            return this;
+        }
+
+        /**
+         * This method limits padding overhead when padding time series: only sequences with lengths in the same
+         * bucket (1 to width, width+1 to 2*width, etc) will be batched together.
+         *
+         * PLEASE NOTE: This value has effect only in ADAPTIVE inference mode, with padSequences enabled
+         * Default value: 0, no limit
+         *
+         * @param width
+         * @return
+         */
+        public Builder sequenceBucketWidth(int width) {
+            if (width < 0)
+                throw new IllegalStateException("Bucket width should be non-negative value");
+
+            this.sequenceBucketWidth = width;
+            return this;
+        }
+
         /**
          * This method builds new ParallelInference instance
          *
@@ -399,6 +612,10 @@ public class ParallelInference {
                 inference.model = this.model;
                 inference.workers = this.workers;
                 inference.loadBalanceMode = this.loadBalanceMode;
+                inference.latencyTargetNanos = this.latencyTargetNanos;
+                inference.maxQueueDelayNanos = this.maxQueueDelayNanos;
+                inference.padSequences = this.padSequences;
+                inference.sequenceBucketWidth = this.sequenceBucketWidth;
 
                 inference.init();
 
@@ -497,7 +714,7 @@ public class ParallelInference {
                 boolean isMLN = replicatedModel instanceof  MultiLayerNetwork;
 
                 while (shouldWork.get()) {
-                    InferenceObservable request = inputQueue.take();
+                    InferenceObservable request = scheduler != null ? scheduler.take() : inputQueue.take();
 
                     if (request != null) {
                         counter.incrementAndGet();
@@ -574,14 +791,21 @@ public class ParallelInference {
         private BlockingQueue<InferenceObservable> targetQueue;
         private long nanos;
         private int batchLimit;
+        private boolean padSequences;
 
         private volatile BatchedInferenceObservable currentObservable;
         private final Object locker = new Object();
 
         protected ObservablesProvider(long nanos, int batchLimit, @NonNull BlockingQueue<InferenceObservable> queue) {
+            this(nanos, batchLimit, queue, false);
+        }
+
+        protected ObservablesProvider(long nanos, int batchLimit, @NonNull BlockingQueue<InferenceObservable> queue,
+                                      boolean padSequences) {
             this.targetQueue = queue;
             this.nanos = nanos;
             this.batchLimit = batchLimit;
+            this.padSequences = padSequences;
         }
 
         protected InferenceObservable setInput(@NonNull Observer observer, INDArray input){
@@ -598,7 +822,7 @@ public class ParallelInference {
                 if (currentObservable == null || currentObservable.getCounter() >= batchLimit
                                 || currentObservable.isLocked()) {
                     isNew = true;
-                    currentObservable = new BatchedInferenceObservable();
+                    currentObservable = new BatchedInferenceObservable(padSequences);
                 }
 
                 currentObservable.addInput(input, inputMask);
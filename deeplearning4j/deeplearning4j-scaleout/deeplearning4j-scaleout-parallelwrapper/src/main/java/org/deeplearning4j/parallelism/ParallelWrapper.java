@@ -45,9 +45,11 @@ import org.deeplearning4j.optimize.solvers.accumulation.GradientsAccumulator;
 import org.deeplearning4j.optimize.solvers.accumulation.Registerable;
 import org.deeplearning4j.optimize.solvers.accumulation.encoding.ResidualPostProcessor;
 import org.deeplearning4j.optimize.solvers.accumulation.encoding.ThresholdAlgorithm;
+import org.deeplearning4j.parallelism.factory.AllReduceTrainerContext;
 import org.deeplearning4j.parallelism.factory.DefaultTrainerContext;
 import org.deeplearning4j.parallelism.factory.SymmetricTrainerContext;
 import org.deeplearning4j.parallelism.factory.TrainerContext;
+import org.deeplearning4j.parallelism.trainer.SharedMemoryAllReducer;
 import org.deeplearning4j.parallelism.trainer.Trainer;
 import org.nd4j.common.base.Preconditions;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -85,6 +87,12 @@ public class ParallelWrapper implements AutoCloseable {
          * This option assumes use of GradientsAccumulator with any MessageHandler
          */
         CUSTOM,
+
+        /**
+         * Gradients are averaged across all models with synchronous all-reduce every iteration, before updaters are
+         * applied. Equivalent to training a single model on the combined minibatches, without parameters averaging
+         */
+        ALL_REDUCE,
     }
 
     protected Supplier<INDArray> modelParamsSupplier;
@@ -118,6 +126,8 @@ public class ParallelWrapper implements AutoCloseable {
     @Getter
     @Setter
     protected GradientsAccumulator gradientsAccumulator;
+    @Getter
+    protected SharedMemoryAllReducer allReducer;
 
     // log uncaught exceptions
     Thread.UncaughtExceptionHandler handler = new Thread.UncaughtExceptionHandler() {
@@ -269,6 +279,9 @@ public class ParallelWrapper implements AutoCloseable {
                 ((Registerable) gradientsAccumulator).registerConsumers(dataSets.length);
             }
 
+            if (allReducer != null)
+                allReducer.registerConsumers(dataSets.length);
+
             /*
              now dataSet should be dispatched to next free workers, until all workers are busy. And then we should block till all finished.
             */
@@ -286,6 +299,9 @@ public class ParallelWrapper implements AutoCloseable {
                 zoo[pos].waitTillRunning();
             }
 
+            if (allReducer != null && dataSets.length < workers)
+                syncIdleReplicas(dataSets.length);
+
             //Nd4j.getMemoryManager().invokeGcOccasionally();
 
             // optional averaging
@@ -362,6 +378,46 @@ public class ParallelWrapper implements AutoCloseable {
         return score;
     }
 
+    /**
+     * In all-reduce mode, only the first numActive workers take part in a round with fewer minibatches than workers.
+     * Copy the parameters, updater state and iteration/epoch counts of worker 0 to the workers that sat out the round,
+     * so that all replicas remain identical for the following rounds and fit calls
+     */
+    private void syncIdleReplicas(int numActive) {
+        Model source = zoo[0].getModel();
+        INDArray updaterState = null;
+        int iterationCount;
+        int epochCount;
+        if (source instanceof MultiLayerNetwork) {
+            MultiLayerNetwork net = (MultiLayerNetwork) source;
+            if (net.getUpdater() != null)
+                updaterState = net.getUpdater().getStateViewArray();
+            iterationCount = net.getIterationCount();
+            epochCount = net.getEpochCount();
+        } else {
+            ComputationGraph graph = (ComputationGraph) source;
+            if (graph.getUpdater() != null)
+                updaterState = graph.getUpdater().getStateViewArray();
+            iterationCount = graph.getIterationCount();
+            epochCount = graph.getEpochCount();
+        }
+
+        for (int cnt = numActive; cnt < workers; cnt++) {
+            zoo[cnt].updateModelParams(source.params());
+            if (updaterState != null)
+                zoo[cnt].updateUpdaterParams(updaterState);
+
+            Model replica = zoo[cnt].getModel();
+            if (replica instanceof MultiLayerNetwork) {
+                ((MultiLayerNetwork) replica).setIterationCount(iterationCount);
+                ((MultiLayerNetwork) replica).setEpochCount(epochCount);
+            } else {
+                ((ComputationGraph) replica).getConfiguration().setIterationCount(iterationCount);
+                ((ComputationGraph) replica).getConfiguration().setEpochCount(epochCount);
+            }
+        }
+    }
+
     private void averageUpdatersState(AtomicInteger locker, double score) {
         // averaging updaters state
         if (model instanceof MultiLayerNetwork) {
@@ -571,6 +627,9 @@ public class ParallelWrapper implements AutoCloseable {
                 ((Registerable) gradientsAccumulator).registerConsumers(dataSets.length);
             }
 
+            if (allReducer != null)
+                allReducer.registerConsumers(dataSets.length);
+
 
             // feeding datasets
             for (int pos = 0; pos < dataSets.length; pos++) {
@@ -592,6 +651,9 @@ public class ParallelWrapper implements AutoCloseable {
                 }
             }
 
+            if (allReducer != null && dataSets.length < workers)
+                syncIdleReplicas(dataSets.length);
+
 
             // optional averaging
             if (iterationsCounter.get() % averagingFrequency == 0 && zoo[0].averagingRequired() ) {
@@ -687,6 +749,7 @@ public class ParallelWrapper implements AutoCloseable {
         protected ThresholdAlgorithm thresholdAlgorithm;
         protected ResidualPostProcessor residualPostProcessor;
         protected Long encoderMemory = -1L;
+        protected long allReduceBucketSize = SharedMemoryAllReducer.DEFAULT_BUCKET_SIZE;
 
         protected GradientsAccumulator accumulator;
 
@@ -827,6 +890,7 @@ public class ParallelWrapper implements AutoCloseable {
          *  1) AVERAGING - stands for parameters averaging. Each X epochs weights and updaters state will be averaged across all models<br>
          *  2) SHARED_GRADIENTS - stands for gradients sharing - more details available here: <a href="https://deeplearning4j.konduit.ai/distributed-deep-learning/intro">https://deeplearning4j.konduit.ai/distributed-deep-learning/intro</a><br>
          *  3) CUSTOM - this method allows you to specify custom gradients accumulator, this giving you better control of configuration params for training.<br>
+         *  4) ALL_REDUCE - stands for synchronous gradients all-reduce between models on this host. Gradients are averaged every iteration, without encoding or parameters averaging<br>
          *
          * @param mode
          * @return
@@ -894,6 +958,21 @@ public class ParallelWrapper implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Set the number of gradient elements per bucket, for {@link TrainingMode#ALL_REDUCE} mode. Buckets are
+         * the unit of work of the all-reduce, distributed over the workers.
+         *
+         * Default value: 65536
+         * @param numElements number of elements per bucket
+         * @return
+         */
+        public Builder allReduceBucketSize(long numElements) {
+            if (numElements < 1)
+                throw new IllegalArgumentException("Bucket size must be positive, got " + numElements);
+            this.allReduceBucketSize = numElements;
+            return this;
+        }
+
         /**
          * This method returns ParallelWrapper instance
          *
@@ -946,6 +1025,12 @@ public class ParallelWrapper implements AutoCloseable {
                                         "Please specify GradientsAccumulator fo encoded gradients mode");
                 }
                     break;
+                case ALL_REDUCE: {
+                    this.trainerContext = new AllReduceTrainerContext();
+                    this.accumulator = null;
+                    wrapper.allReducer = new SharedMemoryAllReducer(workers, allReduceBucketSize);
+                }
+                    break;
                 default:
                     throw new UnsupportedOperationException("Unknown trainingMode: [" + trainingMode + "]");
             }
@@ -0,0 +1,580 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.layers.RecurrentLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.RnnSessionStore;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stateful streaming inference for RNNs, for many concurrent sessions (streams) sharing a single network.<br>
+ * Unlike {@link MultiLayerNetwork#rnnTimeStep(INDArray)}, where the RNN state is kept in the layers (and hence a
+ * network can only carry one stream at a time), the state of each session is kept in a {@link RnnSessionStore},
+ * keyed by session ID. Requests are queued, and a worker thread executes the pending steps of all sessions together:
+ * the inputs and states of the sessions are stacked into a single minibatch, a single rnnTimeStep call is done, and
+ * the updated states are split and stored back per session.<br>
+ * Notes:
+ * <ul>
+ *     <li>Each request is for a single session (input minibatch size 1), usually for a single time step. Only requests
+ *     with the same input shapes are batched together</li>
+ *     <li>Steps of the same session are executed in submission order; at most one step per session is included in
+ *     each batch</li>
+ *     <li>Sessions without state (new sessions, ended sessions and evicted sessions) start from the default (zero)
+ *     initial state. Session state is evicted in least recently used order when the maximum number of sessions is
+ *     exceeded, or when idle for longer than the idle timeout</li>
+ *     <li>The network must not be used elsewhere (for rnnTimeStep) while this instance is in use, as the layer
+ *     state is overwritten for each batch</li>
+ * </ul>
+ */
+@Slf4j
+public class StreamingRnnInference {
+    public final static int DEFAULT_BATCH_LIMIT = 256;
+    public final static int DEFAULT_QUEUE_LIMIT = 4096;
+    public final static int DEFAULT_MAX_SESSIONS = 10000;
+
+    private final Model model;
+    private final int batchLimit;
+    private final int queueLimit;
+    @Getter
+    private final RnnSessionStore sessionStore;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedList<Request> pending = new LinkedList<>();
+    private final Worker worker;
+    private volatile boolean shutdown;
+
+    //Keys of the RNN layers (layer index for MultiLayerNetwork, layer name for ComputationGraph)
+    private final List<String> rnnLayers = new ArrayList<>();
+    //Layout of the (flattened) per session state, determined by the first executed step
+    private List<StateEntry> layout;
+    private long stateLength;
+    private DataType stateDataType;
+
+    protected StreamingRnnInference(@NonNull Model model, int batchLimit, int queueLimit, RnnSessionStore sessionStore) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalArgumentException("Model must be a MultiLayerNetwork or ComputationGraph, got "
+                            + model.getClass().getName());
+        this.model = model;
+        this.batchLimit = batchLimit;
+        this.queueLimit = queueLimit;
+        this.sessionStore = sessionStore;
+
+        Layer[] layers = (model instanceof MultiLayerNetwork) ? ((MultiLayerNetwork) model).getLayers()
+                        : ((ComputationGraph) model).getLayers();
+        for (int i = 0; i < layers.length; i++) {
+            Layer l = layers[i];
+            if (l instanceof BaseWrapperLayer)
+                l = ((BaseWrapperLayer) l).getUnderlying();
+            if (l instanceof RecurrentLayer) {
+                rnnLayers.add(model instanceof MultiLayerNetwork ? String.valueOf(i) : l.conf().getLayer().getLayerName());
+            }
+        }
+        if (rnnLayers.isEmpty())
+            throw new IllegalArgumentException("Model does not have any recurrent layers");
+
+        this.worker = new Worker();
+        this.worker.start();
+    }
+
+    /**
+     * Execute a step for the given session, blocking until the output is available
+     *
+     * @param sessionId Session ID
+     * @param input     Input for the step, with minibatch size 1. Usually a single time step: shape [1, nIn]
+     * @return Network output for the step
+     */
+    public INDArray output(@NonNull String sessionId, @NonNull INDArray input) {
+        return output(sessionId, new INDArray[]{input})[0];
+    }
+
+    /**
+     * Execute a step for the given session, blocking until the output is available
+     *
+     * @param sessionId Session ID
+     * @param input     Inputs for the step (one per network input), with minibatch size 1
+     * @return Network outputs for the step
+     */
+    public INDArray[] output(@NonNull String sessionId, @NonNull INDArray[] input) {
+        try {
+            return outputAsync(sessionId, input).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Queue a step for the given session. Blocks only while the request queue is full
+     *
+     * @param sessionId Session ID
+     * @param input     Input for the step, with minibatch size 1. Usually a single time step: shape [1, nIn]
+     * @return Future for the network output for the step
+     */
+    public CompletableFuture<INDArray> outputAsync(@NonNull String sessionId, @NonNull INDArray input) {
+        return outputAsync(sessionId, new INDArray[]{input}).thenApply(o -> o[0]);
+    }
+
+    /**
+     * Queue a step for the given session. Blocks only while the request queue is full
+     *
+     * @param sessionId Session ID
+     * @param input     Inputs for the step (one per network input), with minibatch size 1
+     * @return Future for the network outputs for the step
+     */
+    public CompletableFuture<INDArray[]> outputAsync(@NonNull String sessionId, @NonNull INDArray[] input) {
+        CompletableFuture<INDArray[]> future = new CompletableFuture<>();
+        for (INDArray in : input) {
+            if (in == null || in.rank() < 2 || in.size(0) != 1) {
+                future.completeExceptionally(new IllegalArgumentException("Inputs must have minibatch size 1, got "
+                                + (in == null ? "null" : Arrays.toString(in.shape()))));
+                return future;
+            }
+        }
+
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (pending.size() >= queueLimit && !shutdown) {
+                    notFull.await();
+                }
+                if (shutdown) {
+                    future.completeExceptionally(new IllegalStateException("StreamingRnnInference has been shut down"));
+                    return future;
+                }
+                pending.add(new Request(sessionId, input, future));
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * End a session, releasing its state. A later step with the same session ID starts from the initial state.<br>
+     * Steps for the session that are already queued are still executed.
+     *
+     * @param sessionId Session ID
+     */
+    public void endSession(@NonNull String sessionId) {
+        sessionStore.remove(sessionId);
+    }
+
+    /**
+     * @return Number of queued requests
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Shut down the worker thread. Queued requests are completed exceptionally, and all session state is released
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (shutdown)
+                return;
+            shutdown = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        lock.lock();
+        try {
+            for (Request r : pending) {
+                r.future.completeExceptionally(new IllegalStateException("StreamingRnnInference has been shut down"));
+            }
+            pending.clear();
+        } finally {
+            lock.unlock();
+        }
+        sessionStore.clear();
+    }
+
+    /**
+     * Take the next batch: requests with the same input shapes as the oldest request, at most one per session, in
+     * submission order. If the session store has an idle timeout, waits at most that long for a request, returning an
+     * empty batch if none arrived - so idle sessions are also evicted when there are no requests
+     */
+    private List<Request> take() throws InterruptedException {
+        long idleTimeoutNanos = sessionStore.getIdleTimeoutNanos();
+        lock.lockInterruptibly();
+        try {
+            long waitNanos = idleTimeoutNanos;
+            while (pending.isEmpty() && !shutdown) {
+                if (idleTimeoutNanos == 0) {
+                    notEmpty.await();
+                } else if (waitNanos > 0) {
+                    waitNanos = notEmpty.awaitNanos(waitNanos);
+                } else {
+                    return Collections.emptyList();
+                }
+            }
+            if (shutdown)
+                return Collections.emptyList();
+
+            Request first = pending.getFirst();
+            List<Request> batch = new ArrayList<>();
+            //Sessions already seen, whether included or not: later steps of a session can't be executed before earlier ones
+            Set<String> seen = new HashSet<>();
+            Iterator<Request> iter = pending.iterator();
+            while (iter.hasNext() && batch.size() < batchLimit) {
+                Request r = iter.next();
+                if (seen.add(r.sessionId) && compatible(first.input, r.input)) {
+                    batch.add(r);
+                    iter.remove();
+                }
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean compatible(INDArray[] first, INDArray[] other) {
+        if (first.length != other.length)
+            return false;
+        for (int i = 0; i < first.length; i++) {
+            if (!Arrays.equals(first[i].shape(), other[i].shape()) || first[i].dataType() != other[i].dataType())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Execute a batch of steps: set the stacked states of the sessions, do a single rnnTimeStep call, then store
+     * the updated states and complete the requests
+     */
+    private void execute(List<Request> batch) {
+        int n = batch.size();
+        try (MemoryWorkspace ws = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            //Set the states of the sessions, stacked along the minibatch dimension
+            if (layout == null) {
+                //No step executed yet: no session can have state
+                for (String l : rnnLayers) {
+                    setState(l, Collections.<String, INDArray>emptyMap());
+                }
+            } else {
+                INDArray states = Nd4j.create(stateDataType, n, stateLength);
+                for (int i = 0; i < n; i++) {
+                    sessionStore.copyTo(batch.get(i).sessionId, states.getRow(i));
+                }
+                Map<String, Map<String, INDArray>> layerStates = new TreeMap<>();
+                for (StateEntry e : layout) {
+                    long[] shape = new long[e.shape.length + 1];
+                    shape[0] = n;
+                    System.arraycopy(e.shape, 0, shape, 1, e.shape.length);
+                    INDArray s = states.get(NDArrayIndex.all(), NDArrayIndex.interval(e.offset, e.offset + e.length))
+                                    .dup('c').reshape('c', shape);
+                    layerStates.computeIfAbsent(e.layer, k -> new TreeMap<>()).put(e.key, s);
+                }
+                for (String l : rnnLayers) {
+                    Map<String, INDArray> m = layerStates.get(l);
+                    setState(l, m == null ? Collections.<String, INDArray>emptyMap() : m);
+                }
+            }
+
+            //Stack the inputs and execute the step
+            INDArray[] first = batch.get(0).input;
+            INDArray[] input = new INDArray[first.length];
+            for (int j = 0; j < input.length; j++) {
+                INDArray[] toStack = new INDArray[n];
+                for (int i = 0; i < n; i++) {
+                    toStack[i] = batch.get(i).input[j];
+                }
+                input[j] = n == 1 ? toStack[0] : Nd4j.concat(0, toStack);
+            }
+            INDArray[] output;
+            if (model instanceof MultiLayerNetwork) {
+                output = new INDArray[]{((MultiLayerNetwork) model).rnnTimeStep(input[0])};
+            } else {
+                output = ((ComputationGraph) model).rnnTimeStep(input);
+            }
+
+            //Store the updated states
+            List<Map<String, INDArray>> newStates = new ArrayList<>(rnnLayers.size());
+            for (String l : rnnLayers) {
+                newStates.add(getState(l));
+            }
+            if (layout == null) {
+                initLayout(newStates, n);
+            }
+            INDArray states = Nd4j.create(stateDataType, n, stateLength);
+            for (StateEntry e : layout) {
+                INDArray s = newStates.get(rnnLayers.indexOf(e.layer)).get(e.key);
+                if (s == null || s.size(0) != n)
+                    throw new IllegalStateException("Missing or invalid state \"" + e.key + "\" for layer " + e.layer);
+                states.get(NDArrayIndex.all(), NDArrayIndex.interval(e.offset, e.offset + e.length))
+                                .assign(s.reshape('c', n, e.length));
+            }
+            for (int i = 0; i < n; i++) {
+                sessionStore.put(batch.get(i).sessionId, states.getRow(i).dup());
+            }
+
+            //Complete the requests
+            for (int i = 0; i < n; i++) {
+                INDArray[] out = new INDArray[output.length];
+                for (int j = 0; j < out.length; j++) {
+                    out[j] = n == 1 ? output[j] : example(output[j], i);
+                }
+                batch.get(i).future.complete(out);
+            }
+        } catch (Throwable t) {
+            for (Request r : batch) {
+                r.future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private void initLayout(List<Map<String, INDArray>> states, int n) {
+        List<StateEntry> l = new ArrayList<>();
+        long offset = 0;
+        for (int i = 0; i < rnnLayers.size(); i++) {
+            //Sorted by key, for a consistent order
+            for (Map.Entry<String, INDArray> e : new TreeMap<>(states.get(i)).entrySet()) {
+                INDArray s = e.getValue();
+                if (stateDataType == null)
+                    stateDataType = s.dataType();
+                long length = s.length() / n;
+                l.add(new StateEntry(rnnLayers.get(i), e.getKey(), Arrays.copyOfRange(s.shape(), 1, s.rank()), offset, length));
+                offset += length;
+            }
+        }
+        if (l.isEmpty())
+            throw new IllegalStateException("No RNN state was stored by the model's recurrent layers");
+        this.stateLength = offset;
+        this.layout = l;
+    }
+
+    private Map<String, INDArray> getState(String layer) {
+        if (model instanceof MultiLayerNetwork)
+            return ((MultiLayerNetwork) model).rnnGetPreviousState(Integer.parseInt(layer));
+        return ((ComputationGraph) model).rnnGetPreviousState(layer);
+    }
+
+    private void setState(String layer, Map<String, INDArray> state) {
+        if (model instanceof MultiLayerNetwork)
+            ((MultiLayerNetwork) model).rnnSetPreviousState(Integer.parseInt(layer), state);
+        else
+            ((ComputationGraph) model).rnnSetPreviousState(layer, state);
+    }
+
+    private static INDArray example(INDArray arr, int i) {
+        INDArrayIndex[] idx = new INDArrayIndex[arr.rank()];
+        idx[0] = NDArrayIndex.interval(i, i, true);
+        for (int j = 1; j < idx.length; j++) {
+            idx[j] = NDArrayIndex.all();
+        }
+        return arr.get(idx).dup();
+    }
+
+    private class Worker extends Thread {
+        private Worker() {
+            setDaemon(true);
+            setName("StreamingRnnInferenceThread");
+        }
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                try {
+                    List<Request> batch = take();
+                    sessionStore.evictIdle();
+                    if (!batch.isEmpty())
+                        execute(batch);
+                } catch (InterruptedException e) {
+                    if (!shutdown)
+                        log.warn("StreamingRnnInference worker interrupted", e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Request {
+        private final String sessionId;
+        private final INDArray[] input;
+        private final CompletableFuture<INDArray[]> future;
+
+        private Request(String sessionId, INDArray[] input, CompletableFuture<INDArray[]> future) {
+            this.sessionId = sessionId;
+            this.input = input;
+            this.future = future;
+        }
+    }
+
+    private static class StateEntry {
+        private final String layer;
+        private final String key;
+        private final long[] shape;
+        private final long offset;
+        private final long length;
+
+        private StateEntry(String layer, String key, long[] shape, long offset, long length) {
+            this.layer = layer;
+            this.key = key;
+            this.shape = shape;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    public static class Builder {
+        private final Model model;
+        private int batchLimit = DEFAULT_BATCH_LIMIT;
+        private int queueLimit = DEFAULT_QUEUE_LIMIT;
+        private int maxSessions = DEFAULT_MAX_SESSIONS;
+        private long idleTimeoutMs = 0;
+
+        public Builder(@NonNull Model model) {
+            this.model = model;
+        }
+
+        /**
+         * This method defines the maximum number of sessions (examples) executed in a single batch.
+         *
+         * Default value: 256
+         *
+         * @param limit
+         * @return
+         */
+        public Builder batchLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalStateException("Batch limit should be positive value");
+
+            this.batchLimit = limit;
+            return this;
+        }
+
+        /**
+         * This method defines the maximum number of queued requests. Submitting blocks while the queue is full.
+         *
+         * Default value: 4096
+         *
+         * @param limit
+         * @return
+         */
+        public Builder queueLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalStateException("Queue limit should be positive value");
+
+            this.queueLimit = limit;
+            return this;
+        }
+
+        /**
+         * This method defines the maximum number of sessions to keep state for. When exceeded, the state of the least
+         * recently used session is evicted.
+         *
+         * Default value: 10000
+         *
+         * @param maxSessions
+         * @return
+         */
+        public Builder maxSessions(int maxSessions) {
+            if (maxSessions < 1)
+                throw new IllegalStateException("Max sessions should be positive value");
+
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        /**
+         * This method defines, after how long without any steps the state of a session is evicted.
+         *
+         * Default value: 0, sessions are only evicted when the maximum number of sessions is exceeded
+         *
+         * @param idleTimeout
+         * @param timeUnit
+         * @return
+         */
+        public Builder idleTimeout(long idleTimeout, @NonNull TimeUnit timeUnit) {
+            if (idleTimeout < 0)
+                throw new IllegalStateException("Idle timeout should be non-negative value");
+
+            this.idleTimeoutMs = timeUnit.toMillis(idleTimeout);
+            return this;
+        }
+
+        /**
+         * This method builds new StreamingRnnInference instance, and starts its worker thread
+         *
+         * @return
+         */
+        public StreamingRnnInference build() {
+            return new StreamingRnnInference(model, batchLimit, queueLimit,
+                            new RnnSessionStore(maxSessions, idleTimeoutMs, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.ScheduledBatchObservable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latency target aware request batching, used by ParallelInference in {@link InferenceMode#ADAPTIVE} mode.<br>
+ * Requests are queued until a worker becomes free. The worker then takes a batch of compatible requests, in arrival
+ * order, with the number of examples in the batch chosen as follows:
+ * <ul>
+ *     <li>The execution time of a batch is estimated from the measured execution times of previous batches, using a
+ *     linear model (fixed cost plus cost per example) fitted with exponentially weighted moving averages</li>
+ *     <li>The batch size is the largest size (up to the batch limit) for which the queueing time of the oldest request
+ *     plus the estimated execution time stays within the latency target. When the queue is short, all compatible
+ *     queued requests are taken; when it is long, batches are limited so that requests near the head of the queue
+ *     still meet the target</li>
+ *     <li>If the latency target cannot be met even for a single request (the system is overloaded), or before any
+ *     batch has been measured, the batch limit is used to maximize throughput</li>
+ *     <li>If a maximum queue delay is set, a worker may wait (up to that delay, and within the latency target) for
+ *     more requests to arrive, as long as the measured request arrival rate suggests more will arrive in time</li>
+ * </ul>
+ * Requests are compatible if their inputs can be merged into a single batch
+ * (see {@link BatchedInferenceObservable#canBatch(INDArray[], INDArray[], boolean)}). With sequence padding enabled,
+ * time series of different lengths are batched by padding and masking; a bucket width limits padding overhead by only
+ * batching sequences with lengths in the same bucket: lengths 1 to width, width+1 to 2*width, etc.
+ */
+public class AdaptiveBatchScheduler {
+    //Weight of the most recent measurement, for the latency model and arrival rate
+    private static final double ALPHA = 0.2;
+
+    private final int batchLimit;
+    private final int queueLimit;
+    private final long latencyTargetNanos;
+    private final long maxQueueDelayNanos;
+    private final boolean padSequences;
+    private final int bucketWidth;
+    @Getter
+    private final InferenceMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedList<Request> pending = new LinkedList<>();
+
+    //Latency model and arrival rate; guarded by lock
+    private boolean hasModel;
+    private double meanX;
+    private double meanY;
+    private double meanXX;
+    private double meanXY;
+    private long lastArrival;
+    private double meanInterArrivalNanos = -1;
+
+    /**
+     * @param batchLimit    Maximum number of examples per batch
+     * @param queueLimit    Maximum number of queued requests. Submitting blocks when the queue is full
+     * @param latencyTarget Target latency (queueing plus execution time) per request. 0 to disable, in which case
+     *                      all compatible queued requests (up to the batch limit) are batched
+     * @param maxQueueDelay Maximum time a worker may wait for more requests to form a larger batch. 0 to never wait
+     * @param timeUnit      Time unit for the latency target and maximum queue delay
+     * @param padSequences  Whether time series inputs of different lengths may be batched together
+     * @param bucketWidth   Bucket width for sequence lengths, when padding sequences. 0 for no limit
+     */
+    public AdaptiveBatchScheduler(int batchLimit, int queueLimit, long latencyTarget, long maxQueueDelay,
+                    @NonNull TimeUnit timeUnit, boolean padSequences, int bucketWidth) {
+        if (batchLimit < 1 || queueLimit < 1)
+            throw new IllegalArgumentException("Batch limit and queue limit must be positive, got batchLimit="
+                            + batchLimit + ", queueLimit=" + queueLimit);
+        if (latencyTarget < 0 || maxQueueDelay < 0 || bucketWidth < 0)
+            throw new IllegalArgumentException("Latency target, max queue delay and bucket width must be >= 0");
+        this.batchLimit = batchLimit;
+        this.queueLimit = queueLimit;
+        this.latencyTargetNanos = timeUnit.toNanos(latencyTarget);
+        this.maxQueueDelayNanos = timeUnit.toNanos(maxQueueDelay);
+        this.padSequences = padSequences;
+        this.bucketWidth = bucketWidth;
+        this.metrics = new InferenceMetrics(batchLimit);
+    }
+
+    /**
+     * Queue a request for execution. Blocks while the queue is full
+     *
+     * @param observer   Observer to notify when the output (or an exception) is available
+     * @param input      Input arrays
+     * @param inputMasks Input mask arrays. May be null
+     * @return Observable for the request
+     */
+    public InferenceObservable submit(@NonNull Observer observer, @NonNull INDArray[] input, INDArray[] inputMasks)
+                    throws InterruptedException {
+        BasicInferenceObservable observable = new BasicInferenceObservable(input, inputMasks);
+        observable.addObserver(observer);
+        Request r = new Request(observable, input, inputMasks);
+
+        lock.lockInterruptibly();
+        try {
+            while (pending.size() >= queueLimit) {
+                notFull.await();
+            }
+            long now = System.nanoTime();
+            r.submitted = now;
+            if (lastArrival != 0) {
+                double gap = now - lastArrival;
+                meanInterArrivalNanos = meanInterArrivalNanos < 0 ? gap : ALPHA * gap + (1 - ALPHA) * meanInterArrivalNanos;
+            }
+            lastArrival = now;
+            pending.add(r);
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return observable;
+    }
+
+    /**
+     * Take the next batch of requests for execution. Blocks until at least one request is available
+     *
+     * @return Batch of compatible requests
+     */
+    public InferenceObservable take() throws InterruptedException {
+        List<Request> batch;
+        long now;
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                while (pending.isEmpty()) {
+                    notEmpty.await();
+                }
+                Request first = pending.getFirst();
+                now = System.nanoTime();
+                long target = targetBatchSize(now - first.submitted);
+                long wait = waitTime(first, target, now);
+                if (wait <= 0)
+                    break;
+                notEmpty.awaitNanos(wait);
+            }
+
+            Request first = pending.getFirst();
+            long target = targetBatchSize(now - first.submitted);
+            batch = new ArrayList<>();
+            long numExamples = 0;
+            Iterator<Request> iter = pending.iterator();
+            while (iter.hasNext() && numExamples < target) {
+                Request r = iter.next();
+                if (batch.isEmpty() || (compatible(first, r) && numExamples + r.numExamples <= target)) {
+                    batch.add(r);
+                    numExamples += r.numExamples;
+                    iter.remove();
+                }
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        ScheduledBatchObservable observable = new ScheduledBatchObservable(this, padSequences);
+        for (Request r : batch) {
+            metrics.recordQueueTime(now - r.submitted);
+            observable.addRequest(r.observable, r.input, r.inputMasks);
+        }
+        return observable;
+    }
+
+    /**
+     * Record the execution time of a batch, to update the latency model
+     *
+     * @param numExamples Number of examples in the batch
+     * @param nanos       Execution time, in nanoseconds
+     */
+    public void batchCompleted(long numExamples, long nanos) {
+        metrics.recordBatch(numExamples, nanos);
+        lock.lock();
+        try {
+            double x = numExamples;
+            double y = nanos;
+            if (!hasModel) {
+                meanX = x;
+                meanY = y;
+                meanXX = x * x;
+                meanXY = x * y;
+                hasModel = true;
+            } else {
+                meanX = ALPHA * x + (1 - ALPHA) * meanX;
+                meanY = ALPHA * y + (1 - ALPHA) * meanY;
+                meanXX = ALPHA * x * x + (1 - ALPHA) * meanXX;
+                meanXY = ALPHA * x * y + (1 - ALPHA) * meanXY;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param numExamples Number of examples
+     * @return Estimated execution time of a batch with the given number of examples, in nanoseconds, or -1 if no
+     * batches have been measured yet
+     */
+    public double estimateLatencyNanos(long numExamples) {
+        lock.lock();
+        try {
+            if (!hasModel)
+                return -1;
+            double[] m = model();
+            return m[0] + m[1] * numExamples;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {fixed cost, cost per example} of a batch, in nanoseconds. Must be called with the lock held
+     */
+    private double[] model() {
+        double var = meanXX - meanX * meanX;
+        double slope = var > 0.25 ? (meanXY - meanX * meanY) / var : -1;
+        if (slope <= 0) {
+            //Not enough variation in batch sizes (or noise): assume cost proportional to batch size
+            return new double[] {0.0, meanY / Math.max(1.0, meanX)};
+        }
+        return new double[] {Math.max(0.0, meanY - slope * meanX), slope};
+    }
+
+    /**
+     * @param queueTimeNanos Queueing time of the oldest request so far
+     * @return Target number of examples for the next batch. Must be called with the lock held
+     */
+    private long targetBatchSize(long queueTimeNanos) {
+        if (latencyTargetNanos == 0 || !hasModel)
+            return batchLimit;
+        double[] m = model();
+        double budget = latencyTargetNanos - queueTimeNanos - m[0];
+        if (budget < m[1]) {
+            //Target can't be met: maximize throughput to reduce the queue as fast as possible
+            return batchLimit;
+        }
+        return Math.max(1, Math.min(batchLimit, (long) (budget / m[1])));
+    }
+
+    /**
+     * @return Time to wait for more requests before taking a batch, in nanoseconds. 0 or less to not wait. Must be
+     * called with the lock held
+     */
+    private long waitTime(Request first, long target, long now) {
+        if (maxQueueDelayNanos == 0 || meanInterArrivalNanos < 0)
+            return 0;
+        long available = 0;
+        for (Request r : pending) {
+            if (compatible(first, r)) {
+                available += r.numExamples;
+                if (available >= target)
+                    return 0;
+            }
+        }
+        long wait = first.submitted + maxQueueDelayNanos - now;
+        if (latencyTargetNanos > 0 && hasModel) {
+            double estimate = estimateLatencyNanos(available + 1);
+            wait = Math.min(wait, (long) (first.submitted + latencyTargetNanos - estimate - now));
+        }
+        //Only wait if another request is expected to arrive in time
+        if (meanInterArrivalNanos > wait)
+            return 0;
+        return wait;
+    }
+
+    private boolean compatible(Request first, Request r) {
+        if (!BatchedInferenceObservable.canBatch(first.input, r.input, padSequences))
+            return false;
+        if (padSequences && bucketWidth > 0 && first.length > 0)
+            return (first.length - 1) / bucketWidth == (r.length - 1) / bucketWidth;
+        return true;
+    }
+
+    /**
+     * @return Number of queued requests
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Request {
+        private final InferenceObservable observable;
+        private final INDArray[] input;
+        private final INDArray[] inputMasks;
+        private final long numExamples;
+        private final long length;
+        private long submitted;
+
+        private Request(InferenceObservable observable, INDArray[] input, INDArray[] inputMasks) {
+            this.observable = observable;
+            this.input = input;
+            this.inputMasks = inputMasks;
+            this.numExamples = input[0].size(0);
+            this.length = BatchedInferenceObservable.sequenceLength(input);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request and batch statistics for ParallelInference in {@link InferenceMode#ADAPTIVE} mode. All methods are thread safe.
+ * <br>
+ * Queueing time is the time from a request being submitted to its batch being picked up by a worker. Queueing times
+ * are recorded in a histogram with power of 2 microsecond buckets: bucket 0 counts times below 1 microsecond, and
+ * bucket i (i &gt; 0) counts times in [2^(i-1), 2^i) microseconds.<br>
+ * Batch sizes (number of examples per batch) are recorded in a histogram with one bucket per size: bucket i counts
+ * batches of size i+1. Batches larger than the batch limit (from single requests with more examples than the limit)
+ * are counted in the last bucket.
+ */
+public class InferenceMetrics {
+    public static final int NUM_QUEUE_TIME_BUCKETS = 40;
+
+    private final AtomicLongArray queueTimes = new AtomicLongArray(NUM_QUEUE_TIME_BUCKETS);
+    private final AtomicLongArray batchSizes;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder examples = new LongAdder();
+    private final LongAdder queueTimeNanos = new LongAdder();
+    private final LongAdder batchTimeNanos = new LongAdder();
+
+    /**
+     * @param batchLimit Maximum number of examples per batch
+     */
+    public InferenceMetrics(int batchLimit) {
+        this.batchSizes = new AtomicLongArray(batchLimit);
+    }
+
+    /**
+     * Record the queueing time of a single request
+     *
+     * @param nanos Time from submission until the request was picked up for execution, in nanoseconds
+     */
+    public void recordQueueTime(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = micros <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(micros), NUM_QUEUE_TIME_BUCKETS - 1);
+        queueTimes.incrementAndGet(bucket);
+        queueTimeNanos.add(nanos);
+        requests.increment();
+    }
+
+    /**
+     * Record the execution of a single batch
+     *
+     * @param numExamples Number of examples in the batch
+     * @param nanos       Execution time (forward pass, including merging and splitting) of the batch, in nanoseconds
+     */
+    public void recordBatch(long numExamples, long nanos) {
+        int bucket = (int) Math.max(0, Math.min(numExamples, batchSizes.length()) - 1);
+        batchSizes.incrementAndGet(bucket);
+        examples.add(numExamples);
+        batchTimeNanos.add(nanos);
+        batches.increment();
+    }
+
+    /**
+     * @return Number of requests picked up for execution
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return Number of batches executed
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return Mean number of examples per executed batch
+     */
+    public double getMeanBatchSize() {
+        long b = batches.sum();
+        return b == 0 ? 0.0 : examples.sum() / (double) b;
+    }
+
+    /**
+     * @return Mean execution time per batch, in milliseconds
+     */
+    public double getMeanBatchLatencyMs() {
+        long b = batches.sum();
+        return b == 0 ? 0.0 : batchTimeNanos.sum() / (1e6 * b);
+    }
+
+    /**
+     * @return Mean queueing time per request, in milliseconds
+     */
+    public double getMeanQueueTimeMs() {
+        long r = requests.sum();
+        return r == 0 ? 0.0 : queueTimeNanos.sum() / (1e6 * r);
+    }
+
+    /**
+     * Estimate a percentile of the queueing time, from the histogram
+     *
+     * @param percentile Percentile, 0 to 100
+     * @return Upper bound of the histogram bucket containing the percentile, in milliseconds. 0 if no requests have
+     * been recorded
+     */
+    public double getQueueTimePercentileMs(double percentile) {
+        long[] hist = getQueueTimeHistogram();
+        long total = 0;
+        for (long l : hist) {
+            total += l;
+        }
+        if (total == 0)
+            return 0.0;
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long sum = 0;
+        for (int i = 0; i < hist.length; i++) {
+            sum += hist[i];
+            if (sum >= rank && sum > 0) {
+                return (1L << i) / 1000.0;
+            }
+        }
+        return (1L << (hist.length - 1)) / 1000.0;
+    }
+
+    /**
+     * @return Copy of the queueing time histogram. See the class javadoc for the bucket boundaries
+     */
+    public long[] getQueueTimeHistogram() {
+        return toArray(queueTimes);
+    }
+
+    /**
+     * @return Copy of the batch size histogram: element i is the number of batches with i+1 examples
+     */
+    public long[] getBatchSizeHistogram() {
+        return toArray(batchSizes);
+    }
+
+    /**
+     * Reset all statistics
+     */
+    public void reset() {
+        for (int i = 0; i < queueTimes.length(); i++) {
+            queueTimes.set(i, 0);
+        }
+        for (int i = 0; i < batchSizes.length(); i++) {
+            batchSizes.set(i, 0);
+        }
+        requests.reset();
+        batches.reset();
+        examples.reset();
+        queueTimeNanos.reset();
+        batchTimeNanos.reset();
+    }
+
+    private static long[] toArray(AtomicLongArray a) {
+        long[] out = new long[a.length()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = a.get(i);
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InferenceMetrics(requests=%d, batches=%d, meanBatchSize=%.2f, meanBatchLatencyMs=%.3f, "
+                        + "meanQueueTimeMs=%.3f, p50QueueTimeMs=%.3f, p99QueueTimeMs=%.3f)", getRequestCount(),
+                        getBatchCount(), getMeanBatchSize(), getMeanBatchLatencyMs(), getMeanQueueTimeMs(),
+                        getQueueTimePercentileMs(50), getQueueTimePercentileMs(99));
+    }
+}
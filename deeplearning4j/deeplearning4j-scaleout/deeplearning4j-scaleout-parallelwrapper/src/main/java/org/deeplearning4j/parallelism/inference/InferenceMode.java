@@ -35,4 +35,10 @@ public enum InferenceMode {
      * Inference will applied in the calling thread instead of workers. Worker models will be using shared parameters on per-device basis.
      */
     INPLACE,
+
+    /**
+     * inputs will be queued, and grouped into batches when a worker becomes available. Batch size is chosen based on
+     * queue depth and measured batch latency, to meet a latency target. See {@link AdaptiveBatchScheduler}
+     */
+    ADAPTIVE,
 }
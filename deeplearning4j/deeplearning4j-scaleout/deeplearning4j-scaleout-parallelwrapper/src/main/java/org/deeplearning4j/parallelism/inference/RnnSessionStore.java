@@ -0,0 +1,198 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session keyed store for RNN state, used by {@link org.deeplearning4j.parallelism.StreamingRnnInference}.<br>
+ * Each session has a single detached (i.e., not in any workspace, and hence off-heap) state array. Sessions are kept
+ * in least recently used order, and evicted when:
+ * <ul>
+ *     <li>The number of sessions exceeds the maximum number of sessions: least recently used sessions are evicted first</li>
+ *     <li>A session has not been used for longer than the idle timeout (if set), on the next call of {@link #evictIdle()}</li>
+ * </ul>
+ * The memory of evicted state arrays is released immediately, instead of waiting for garbage collection. Hence state
+ * arrays returned by {@link #get(String)} must not be used after the session has been updated, removed or evicted.<br>
+ * All methods are thread safe.
+ */
+public class RnnSessionStore {
+
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long evictions;
+
+    /**
+     * @param maxSessions Maximum number of sessions to keep state for
+     * @param idleTimeout Time after which the state of an idle session is evicted. 0 for no timeout
+     * @param timeUnit    Time unit for the idle timeout
+     */
+    public RnnSessionStore(int maxSessions, long idleTimeout, @NonNull TimeUnit timeUnit) {
+        if (maxSessions < 1)
+            throw new IllegalArgumentException("Maximum number of sessions must be positive, got " + maxSessions);
+        if (idleTimeout < 0)
+            throw new IllegalArgumentException("Idle timeout must be >= 0, got " + idleTimeout);
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = timeUnit.toNanos(idleTimeout);
+    }
+
+    /**
+     * Get the state of a session, marking the session as recently used
+     *
+     * @param sessionId Session ID
+     * @return State of the session, or null if the session has no state (new, removed or evicted session)
+     */
+    public synchronized INDArray get(@NonNull String sessionId) {
+        Entry e = sessions.get(sessionId);
+        if (e == null)
+            return null;
+        e.lastAccess = System.nanoTime();
+        return e.state;
+    }
+
+    /**
+     * Copy the state of a session into the given array, marking the session as recently used. Unlike
+     * {@link #get(String)}, this is safe when the session may be concurrently removed or evicted
+     *
+     * @param sessionId Session ID
+     * @param target    Array to copy the state into. Must have the same length as the state
+     * @return True if the session has state (and it was copied), false otherwise (target is not modified)
+     */
+    public synchronized boolean copyTo(@NonNull String sessionId, @NonNull INDArray target) {
+        INDArray state = get(sessionId);
+        if (state == null)
+            return false;
+        target.assign(state.reshape(target.shape()));
+        return true;
+    }
+
+    /**
+     * Set the state of a session, marking the session as recently used. If the maximum number of sessions is exceeded,
+     * the least recently used session is evicted
+     *
+     * @param sessionId Session ID
+     * @param state     State of the session. Must be detached, and must not be used elsewhere after this call
+     */
+    public synchronized void put(@NonNull String sessionId, @NonNull INDArray state) {
+        Entry e = new Entry(state, System.nanoTime());
+        Entry old = sessions.put(sessionId, e);
+        if (old != null && old.state != state)
+            release(old.state);
+
+        while (sessions.size() > maxSessions) {
+            Iterator<Map.Entry<String, Entry>> iter = sessions.entrySet().iterator();
+            release(iter.next().getValue().state);
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove the state of a session - for example, when the session has ended
+     *
+     * @param sessionId Session ID
+     * @return True if the session had state
+     */
+    public synchronized boolean remove(@NonNull String sessionId) {
+        Entry e = sessions.remove(sessionId);
+        if (e == null)
+            return false;
+        release(e.state);
+        return true;
+    }
+
+    /**
+     * Evict the state of all sessions that have not been used for longer than the idle timeout
+     *
+     * @return Number of sessions evicted
+     */
+    public synchronized int evictIdle() {
+        if (idleTimeoutNanos == 0)
+            return 0;
+        long now = System.nanoTime();
+        int count = 0;
+        //Access ordered: least recently used sessions first
+        Iterator<Map.Entry<String, Entry>> iter = sessions.entrySet().iterator();
+        while (iter.hasNext()) {
+            Entry e = iter.next().getValue();
+            if (now - e.lastAccess <= idleTimeoutNanos)
+                break;
+            release(e.state);
+            iter.remove();
+            count++;
+        }
+        evictions += count;
+        return count;
+    }
+
+    /**
+     * Remove the state of all sessions
+     */
+    public synchronized void clear() {
+        for (Entry e : sessions.values()) {
+            release(e.state);
+        }
+        sessions.clear();
+    }
+
+    /**
+     * @return Number of sessions with state
+     */
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return Idle timeout in nanoseconds, or 0 for no timeout
+     */
+    public long getIdleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+
+    /**
+     * @return Number of sessions evicted so far, due to either the maximum number of sessions or the idle timeout
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private static void release(INDArray state) {
+        if (state.closeable())
+            state.close();
+    }
+
+    private static class Entry {
+        private final INDArray state;
+        private long lastAccess;
+
+        private Entry(INDArray state, long lastAccess) {
+            this.state = state;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
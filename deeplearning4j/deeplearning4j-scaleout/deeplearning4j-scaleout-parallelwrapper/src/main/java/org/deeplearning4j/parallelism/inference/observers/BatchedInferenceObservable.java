@@ -52,8 +52,19 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
     private AtomicBoolean isLocked = new AtomicBoolean(false);
     private AtomicBoolean isReadLocked = new AtomicBoolean(false);
 
+    private final boolean padSequences;
+
     public BatchedInferenceObservable() {
+        this(false);
+    }
 
+    /**
+     * @param padSequences If true: time series inputs (rank 3) that differ only in length are batched together, by
+     *                     padding them to the longest length and masking the padded time steps. Time series outputs
+     *                     are trimmed back to the length of the corresponding input
+     */
+    public BatchedInferenceObservable(boolean padSequences) {
+        this.padSequences = padSequences;
     }
 
     @Override
@@ -87,7 +98,7 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
                 //First: determine which we can actually batch...
                 int lastPossible = pos;
                 for (int i = pos+1; i < inputs.size(); i++) {
-                    if (canBatch(inputs.get(pos), inputs.get(i))) {
+                    if (canBatch(inputs.get(pos), inputs.get(i), padSequences)) {
                         lastPossible = i;
                     } else {
                         break;
@@ -128,21 +139,48 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
         }
     }
 
-    private static boolean canBatch(INDArray[] first, INDArray[] candidate){
+    /**
+     * Check if two inputs can be merged into a single batch
+     *
+     * @param first        First input
+     * @param candidate    Input to batch with the first one
+     * @param padSequences Whether time series inputs of different lengths may be batched (with padding and masking)
+     * @return True if the inputs can be batched
+     */
+    public static boolean canBatch(INDArray[] first, INDArray[] candidate, boolean padSequences){
         //Check if we can batch these inputs into the one array. This isn't always possible - for example, some fully
         // convolutional nets can support different input image sizes
-        //For now: let's simply require that the inputs have the same shape
-        //In the future: we'll intelligently handle the RNN variable length case
+        //Inputs can be batched if all dimensions other than the minibatch dimension are equal - or, for time series
+        // with padding enabled, if only the minibatch and time series length dimensions differ
         //Note also we can ignore input masks here - they should have shared dimensions with the input, thus if the
         // inputs can be batched, so can the masks
+        if(first.length != candidate.length)
+            return false;
         for(int i=0; i<first.length; i++ ){
-            if(!Arrays.equals(first[i].shape(), candidate[i].shape())){
+            if(first[i].rank() != candidate[i].rank())
                 return false;
+            for(int j=1; j<first[i].rank(); j++ ){
+                if(first[i].size(j) != candidate[i].size(j) && !(padSequences && j == 2 && first[i].rank() == 3)){
+                    return false;
+                }
             }
         }
         return true;
     }
 
+    /**
+     * @param input Input arrays for a single request
+     * @return Maximum time series length of the rank 3 arrays in the input, or -1 if there are none
+     */
+    public static long sequenceLength(INDArray[] input){
+        long length = -1;
+        for(INDArray in : input){
+            if(in.rank() == 3)
+                length = Math.max(length, in.size(2));
+        }
+        return length;
+    }
+
     @Override
     public void setOutputBatches(List<INDArray[]> output) {
         //this method should split batched output INDArray[] into multiple separate INDArrays
@@ -187,10 +225,24 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
             for(int i=1; i<indices.length; i++ ){
                 indices[i] = NDArrayIndex.all();
             }
+            //If the inputs were padded: time series outputs of the padded length are trimmed to the input length
+            long paddedLength = -1;
+            if(padSequences && netOutput.rank() == 3){
+                for( int inNum = 0; inNum < numSplits; inNum++ ){
+                    paddedLength = Math.max(paddedLength, sequenceLength(inputs.get(firstInputComponent + inNum)));
+                }
+            }
             int examplesSoFar = 0;
             for( int inNum = 0; inNum < numSplits; inNum++ ){
-                val inSizeEx = inputs.get(firstInputComponent + inNum)[0].size(0);
+                INDArray[] in = inputs.get(firstInputComponent + inNum);
+                val inSizeEx = in[0].size(0);
                 indices[0] = NDArrayIndex.interval(examplesSoFar, examplesSoFar+inSizeEx);
+                long length = sequenceLength(in);
+                if(paddedLength > 0 && netOutput.size(2) == paddedLength && length > 0 && length < paddedLength){
+                    indices[2] = NDArrayIndex.interval(0, length);
+                } else if(indices.length > 2){
+                    indices[2] = NDArrayIndex.all();
+                }
                 out[inNum] = netOutput.get(indices);
                 examplesSoFar += inSizeEx;
             }
@@ -236,7 +288,26 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
     @Override
     public INDArray[] getOutput() {
         // basically we should take care of splits here: each client should get its own part of output, wrt order number
+        return getOutput(position.get());
+    }
+
+    /**
+     * This method returns position of the input most recently added by the current thread
+     *
+     * @return
+     */
+    public int getPosition() {
+        return position.get();
+    }
+
+    /**
+     * This method returns output for the input at given position. Unlike {@link #getOutput()}, it may be called from any thread
+     *
+     * @param position position of the input, as returned by {@link #getPosition()} in the thread that added it
+     * @return
+     */
+    public INDArray[] getOutput(int position) {
         checkOutputException();
-        return outputs.get(position.get());
+        return outputs.get(position);
     }
 }
@@ -0,0 +1,115 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Observer that completes a {@link CompletableFuture} with the output of a request, instead of blocking a thread
+ * until the output is available.<br>
+ * The future is completed once both the observable has been notified, and the submitting thread has called
+ * {@link #setObservable(InferenceObservable)} - in either order, as the output may be available before submission
+ * returns. If a callback executor is set, the future is completed on that executor; otherwise it is completed on the
+ * inference worker thread (and so are any dependent stages added with non-async methods).
+ */
+public class FutureInferenceObserver implements Observer {
+    @Getter
+    private final CompletableFuture<INDArray[]> future = new CompletableFuture<>();
+    private final Executor callbackExecutor;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private volatile boolean notified;
+    private volatile int position = -1;
+    private volatile InferenceObservable observable;
+
+    /**
+     * @param callbackExecutor Executor used to complete the future. May be null
+     */
+    public FutureInferenceObserver(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        notified = true;
+        tryComplete();
+    }
+
+    /**
+     * Set the observable this observer was added to. Must be called by the thread that submitted the request,
+     * after submission, as the position of the request within a {@link BatchedInferenceObservable} is thread local
+     *
+     * @param observable Observable returned on submission
+     */
+    public void setObservable(@NonNull InferenceObservable observable) {
+        if (observable instanceof BatchedInferenceObservable)
+            position = ((BatchedInferenceObservable) observable).getPosition();
+        this.observable = observable;
+        tryComplete();
+    }
+
+    /**
+     * Complete the future exceptionally, for failures before the request could be submitted
+     *
+     * @param t Cause of the failure
+     */
+    public void setException(@NonNull Throwable t) {
+        if (completed.compareAndSet(false, true))
+            future.completeExceptionally(t);
+    }
+
+    private void tryComplete() {
+        if (!notified || observable == null || !completed.compareAndSet(false, true))
+            return;
+
+        if (callbackExecutor == null) {
+            complete();
+        } else {
+            try {
+                callbackExecutor.execute(this::complete);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void complete() {
+        try {
+            INDArray[] output;
+            if (observable instanceof BatchedInferenceObservable)
+                output = ((BatchedInferenceObservable) observable).getOutput(position);
+            else
+                output = observable.getOutput();
+            future.complete(output);
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+}
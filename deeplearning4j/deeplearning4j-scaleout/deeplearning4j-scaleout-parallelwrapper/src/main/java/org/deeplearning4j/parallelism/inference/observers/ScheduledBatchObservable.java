@@ -0,0 +1,85 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.NonNull;
+import org.deeplearning4j.parallelism.inference.AdaptiveBatchScheduler;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch of requests formed by {@link AdaptiveBatchScheduler}. Unlike {@link BatchedInferenceObservable}, requests are
+ * added by the worker thread after the batch has been formed: each request keeps its own observable, which is
+ * notified with its part of the output. The execution time of the batch is reported back to the scheduler.
+ */
+public class ScheduledBatchObservable extends BatchedInferenceObservable {
+    private final AdaptiveBatchScheduler scheduler;
+    private final List<InferenceObservable> requests = new ArrayList<>();
+    private long numExamples;
+    private long startTime;
+
+    public ScheduledBatchObservable(@NonNull AdaptiveBatchScheduler scheduler, boolean padSequences) {
+        super(padSequences);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Add a request to this batch
+     *
+     * @param request    Observable of the request, to notify with the output
+     * @param input      Input of the request
+     * @param inputMasks Input masks of the request. May be null
+     */
+    public void addRequest(@NonNull InferenceObservable request, INDArray[] input, INDArray[] inputMasks) {
+        requests.add(request);
+        addInput(input, inputMasks);
+        numExamples += input[0].size(0);
+    }
+
+    @Override
+    public List<Pair<INDArray[], INDArray[]>> getInputBatches() {
+        startTime = System.nanoTime();
+        return super.getInputBatches();
+    }
+
+    @Override
+    public void setOutputBatches(List<INDArray[]> output) {
+        super.setOutputBatches(output);
+        scheduler.batchCompleted(numExamples, System.nanoTime() - startTime);
+        List<INDArray[]> outputs = getOutputs();
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).setOutputBatches(Collections.singletonList(outputs.get(i)));
+        }
+    }
+
+    @Override
+    public void setOutputException(Exception e) {
+        super.setOutputException(e);
+        for (InferenceObservable r : requests) {
+            r.setOutputException(e);
+        }
+    }
+}
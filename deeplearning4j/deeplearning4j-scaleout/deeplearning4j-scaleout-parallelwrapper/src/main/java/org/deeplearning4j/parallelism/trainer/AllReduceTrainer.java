@@ -0,0 +1,117 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.trainer;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Trainer for {@link ParallelWrapper.TrainingMode#ALL_REDUCE} mode: after backprop, the gradients of all workers are
+ * averaged with a {@link SharedMemoryAllReducer}, before each worker applies its updater. No parameter averaging is
+ * required, as all replicas apply identical updates.
+ */
+@Slf4j
+public class AllReduceTrainer extends DefaultTrainer {
+    protected SharedMemoryAllReducer allReducer;
+
+    public AllReduceTrainer(@NonNull Model originalModel, String uuid, int threadIdx, @NonNull WorkspaceMode mode,
+                    @NonNull ParallelWrapper wrapper, boolean useMDS, @NonNull SharedMemoryAllReducer allReducer) {
+        super();
+        this.uuid = uuid + "_thread_" + threadIdx;
+        this.useMDS = useMDS;
+        this.originalModel = originalModel;
+        this.threadId = threadIdx;
+        this.workspaceMode = mode;
+        this.parallelWrapper = wrapper;
+        this.allReducer = allReducer;
+    }
+
+    @Override
+    public boolean averagingRequired() {
+        return false;
+    }
+
+    @Override
+    protected void postInit() {
+        Collection<TrainingListener> oldListeners = new ArrayList<>();
+        Collection<TrainingListener> replicatedListeners = new ArrayList<>();
+
+        // all-reduce goes first, so other listeners see the averaged gradients
+        replicatedListeners.add(new AllReduceListener(allReducer, threadId));
+
+        if (parallelWrapper.getListeners() != null) {
+            oldListeners.addAll(parallelWrapper.getListeners());
+        }
+        configureListeners(uuid, oldListeners, replicatedListeners);
+
+        this.replicatedModel.setListeners(replicatedListeners);
+    }
+
+    @Override
+    protected void fit(DataSet dataSet) {
+        try {
+            super.fit(dataSet);
+        } catch (RuntimeException e) {
+            allReducer.abort();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void fit(MultiDataSet dataSet) {
+        try {
+            super.fit(dataSet);
+        } catch (RuntimeException e) {
+            allReducer.abort();
+            throw e;
+        }
+    }
+
+    protected static class AllReduceListener extends BaseTrainingListener {
+        private final SharedMemoryAllReducer allReducer;
+        private final int consumerId;
+
+        protected AllReduceListener(SharedMemoryAllReducer allReducer, int consumerId) {
+            this.allReducer = allReducer;
+            this.consumerId = consumerId;
+        }
+
+        @Override
+        public void onGradientCalculation(Model model) {
+            try {
+                allReducer.allReduce(consumerId, model.getGradientsViewArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
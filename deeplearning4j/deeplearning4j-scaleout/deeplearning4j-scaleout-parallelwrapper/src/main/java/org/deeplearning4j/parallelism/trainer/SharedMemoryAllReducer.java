@@ -0,0 +1,181 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.trainer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.optimize.solvers.accumulation.Registerable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Synchronous all-reduce of flattened gradients between the workers of a single host, used by ParallelWrapper in
+ * {@link org.deeplearning4j.parallelism.ParallelWrapper.TrainingMode#ALL_REDUCE} mode.<br>
+ * Each worker calls {@link #allReduce(int, INDArray)} with its gradient once per iteration, after backprop and
+ * before the updater is applied. The gradients are split into fixed size buckets, and the reduction is done in two
+ * phases, directly on the gradient arrays of the workers:
+ * <ul>
+ *     <li>Reduce-scatter: each bucket is owned by one worker (round robin), which averages that bucket across all
+ *     workers into its own gradient array</li>
+ *     <li>All-gather: each worker copies the buckets it doesn't own from the owners' gradient arrays</li>
+ * </ul>
+ * Reduction work and memory traffic is spread evenly over the workers, and no worker waits on a single reducing
+ * thread. As all workers end up with bitwise identical gradients, replicas that start from the same parameters and
+ * updater state stay in sync without parameter averaging.<br>
+ * Gradients are averaged with equal weights per worker. Since the updater divides gradients by the minibatch size,
+ * this is exactly equivalent to training a single model on the combined minibatch when all workers have the same
+ * minibatch size.
+ */
+public class SharedMemoryAllReducer implements Registerable {
+    public static final long DEFAULT_BUCKET_SIZE = 1 << 16;
+
+    @Getter
+    private final int maxConsumers;
+    @Getter
+    private final long bucketSize;
+    private final INDArray[] gradients;
+    private final INDArray[][] buckets;
+
+    private volatile int consumers;
+    private volatile CyclicBarrier barrier;
+    private volatile boolean singleConsumerMode;
+
+    /**
+     * @param maxConsumers Maximum number of workers
+     * @param bucketSize   Number of gradient elements per bucket
+     */
+    public SharedMemoryAllReducer(int maxConsumers, long bucketSize) {
+        if (maxConsumers < 1 || bucketSize < 1)
+            throw new IllegalArgumentException("Number of consumers and bucket size must be positive, got maxConsumers="
+                            + maxConsumers + ", bucketSize=" + bucketSize);
+        this.maxConsumers = maxConsumers;
+        this.bucketSize = bucketSize;
+        this.gradients = new INDArray[maxConsumers];
+        this.buckets = new INDArray[maxConsumers][];
+        registerConsumers(maxConsumers);
+    }
+
+    /**
+     * Set the number of workers taking part in the next iterations. Workers 0 to numConsumers-1 must each call
+     * {@link #allReduce(int, INDArray)} once per iteration. Must not be called while an all-reduce is in progress
+     */
+    @Override
+    public synchronized void registerConsumers(int numConsumers) {
+        if (numConsumers < 1 || numConsumers > maxConsumers)
+            throw new IllegalArgumentException("Number of consumers must be between 1 and " + maxConsumers + ", got "
+                            + numConsumers);
+        if (barrier == null || consumers != numConsumers || barrier.isBroken())
+            barrier = new CyclicBarrier(numConsumers);
+        consumers = numConsumers;
+    }
+
+    @Override
+    public void fallbackToSingleConsumerMode(boolean reallyFallback) {
+        this.singleConsumerMode = reallyFallback;
+    }
+
+    /**
+     * Replace the gradient of the given worker with the mean gradient of all registered workers. Blocks until all
+     * registered workers have called this method, and are done reading each other's gradients.
+     *
+     * @param consumerId Index of the worker, 0 to (number of registered consumers - 1)
+     * @param gradient   Flattened gradient of the worker. Modified in place
+     */
+    public void allReduce(int consumerId, @NonNull INDArray gradient) throws InterruptedException {
+        int n = consumers;
+        if (n == 1 || singleConsumerMode)
+            return;
+        if (consumerId < 0 || consumerId >= n)
+            throw new IllegalStateException("Consumer " + consumerId + " is not registered: " + n + " consumers");
+
+        INDArray[] own = bucketViews(consumerId, gradient);
+        Nd4j.getExecutioner().commit();
+        await();
+
+        //Reduce-scatter: average the buckets owned by this worker, in place
+        for (int b = consumerId; b < own.length; b += n) {
+            INDArray dst = own[b];
+            for (int k = 0; k < n; k++) {
+                if (k != consumerId)
+                    dst.addi(buckets[k][b]);
+            }
+            dst.divi(n);
+        }
+        Nd4j.getExecutioner().commit();
+        await();
+
+        //All-gather: copy the buckets owned by other workers
+        for (int b = 0; b < own.length; b++) {
+            int owner = b % n;
+            if (owner != consumerId)
+                own[b].assign(buckets[owner][b]);
+        }
+        Nd4j.getExecutioner().commit();
+
+        //Owned buckets may only be modified (by the updater) once all workers have copied them
+        await();
+    }
+
+    /**
+     * Abort the current all-reduce, if any: workers blocked in {@link #allReduce(int, INDArray)} fail with an
+     * exception. Used when a worker fails during an iteration, so that the other workers don't wait for it forever
+     */
+    public void abort() {
+        CyclicBarrier b = barrier;
+        if (b != null)
+            b.reset();
+    }
+
+    private INDArray[] bucketViews(int consumerId, INDArray gradient) {
+        if (gradients[consumerId] != gradient) {
+            if (gradient.rank() > 2 || (gradient.rank() == 2 && gradient.size(0) != 1))
+                throw new IllegalArgumentException("Expected flattened gradient (vector or row vector), got shape "
+                                + Arrays.toString(gradient.shape()));
+            long length = gradient.length();
+            int numBuckets = (int) ((length + bucketSize - 1) / bucketSize);
+            INDArray[] views = new INDArray[numBuckets];
+            for (int b = 0; b < numBuckets; b++) {
+                long start = b * bucketSize;
+                long end = Math.min(length, start + bucketSize);
+                if (gradient.rank() == 1)
+                    views[b] = gradient.get(NDArrayIndex.interval(start, end));
+                else
+                    views[b] = gradient.get(NDArrayIndex.point(0), NDArrayIndex.interval(start, end));
+            }
+            buckets[consumerId] = views;
+            gradients[consumerId] = gradient;
+        }
+        return buckets[consumerId];
+    }
+
+    private void await() throws InterruptedException {
+        try {
+            barrier.await();
+        } catch (BrokenBarrierException e) {
+            throw new IllegalStateException("Gradients all-reduce was aborted: another worker failed", e);
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.nd4j.linalg.activations.Activation;
 import org.deeplearning4j.datasets.iterator.impl.MnistDataSetIterator;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.InferenceMetrics;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
@@ -54,8 +55,13 @@ import org.nd4j.common.resources.Resources;
 import java.io.File;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
@@ -870,6 +876,223 @@ public class ParallelInferenceTest extends BaseDL4JTest {
     }
 
 
+    @Test(timeout = 120000L)
+    public void testAdaptiveBatchingMetrics() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(nIn).nOut(20).build())
+                .layer(new OutputLayer.Builder().nIn(20).nOut(5).activation(Activation.SOFTMAX).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        for (long maxDelay : new long[]{0, 5}) {
+            final ParallelInference inf =
+                    new ParallelInference.Builder(net)
+                            .inferenceMode(InferenceMode.ADAPTIVE)
+                            .batchLimit(8)
+                            .queueLimit(64)
+                            .latencyTarget(50, TimeUnit.MILLISECONDS)
+                            .maxQueueDelay(maxDelay, TimeUnit.MILLISECONDS)
+                            .workers(2).build();
+            try {
+                Random r = new Random(12345);
+                List<INDArray> in = new ArrayList<>();
+                List<INDArray> exp = new ArrayList<>();
+                long totalExamples = 0;
+                for (int i = 0; i < 200; i++) {
+                    int numEx = 1 + r.nextInt(3);
+                    INDArray arr = Nd4j.rand(numEx, nIn);
+                    in.add(arr);
+                    exp.add(net.output(arr));
+                    totalExamples += numEx;
+                }
+
+                testParallelInference(inf, in, exp);
+
+                InferenceMetrics metrics = inf.getMetrics();
+                assertNotNull(metrics);
+                log.info("Max queue delay {}: {}", maxDelay, metrics);
+                assertEquals(in.size(), metrics.getRequestCount());
+
+                long queueTimeCount = 0;
+                for (long l : metrics.getQueueTimeHistogram())
+                    queueTimeCount += l;
+                assertEquals(in.size(), queueTimeCount);
+
+                long[] batchSizes = metrics.getBatchSizeHistogram();
+                assertEquals(8, batchSizes.length);
+                long batches = 0;
+                long examples = 0;
+                for (int i = 0; i < batchSizes.length; i++) {
+                    batches += batchSizes[i];
+                    examples += (i + 1) * batchSizes[i];
+                }
+                assertEquals(metrics.getBatchCount(), batches);
+                assertEquals(totalExamples, examples);
+                assertTrue(metrics.getBatchCount() <= in.size());
+                assertTrue(metrics.getQueueTimePercentileMs(99) >= metrics.getQueueTimePercentileMs(50));
+            } finally {
+                inf.shutdown();
+            }
+        }
+
+        ParallelInference batched = new ParallelInference.Builder(net).inferenceMode(InferenceMode.BATCHED).workers(1).build();
+        assertNull(batched.getMetrics());
+        batched.shutdown();
+    }
+
+    @Test(timeout = 120000L)
+    public void testSubMillisecondLatencySettings() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .list()
+                .layer(new OutputLayer.Builder().nIn(4).nOut(3).activation(Activation.SOFTMAX).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        //Sub-millisecond values must not be truncated to 0 (i.e., disabled)
+        ParallelInference inf = new ParallelInference.Builder(net)
+                .inferenceMode(InferenceMode.ADAPTIVE)
+                .latencyTarget(500, TimeUnit.MICROSECONDS)
+                .maxQueueDelay(200, TimeUnit.MICROSECONDS)
+                .workers(1).build();
+        try {
+            assertEquals(500000L, inf.latencyTargetNanos);
+            assertEquals(200000L, inf.maxQueueDelayNanos);
+            INDArray in = Nd4j.rand(2, 4);
+            assertEquals(net.output(in), inf.output(in));
+        } finally {
+            inf.shutdown();
+        }
+    }
+
+    @Test(timeout = 120000L)
+    public void testPaddedSequenceBatching() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new LSTM.Builder().nIn(nIn).nOut(5).build())
+                .layer(new RnnOutputLayer.Builder().nIn(5).nOut(5).activation(Activation.SOFTMAX).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        for (InferenceMode m : new InferenceMode[]{InferenceMode.BATCHED, InferenceMode.ADAPTIVE}) {
+            for (int bucketWidth : new int[]{0, 4}) {
+                final ParallelInference inf =
+                        new ParallelInference.Builder(net)
+                                .inferenceMode(m)
+                                .batchLimit(20)
+                                .queueLimit(64)
+                                .padSequences(true)
+                                .sequenceBucketWidth(bucketWidth)
+                                .workers(2).build();
+                try {
+                    Random r = new Random(12345);
+                    List<INDArray> in = new ArrayList<>();
+                    List<INDArray> exp = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        INDArray arr = Nd4j.rand(new int[]{1 + r.nextInt(3), nIn, 1 + r.nextInt(12)});
+                        in.add(arr);
+                        exp.add(net.output(arr));
+                    }
+
+                    //Outputs should be trimmed back to the input length, and the same as unpadded outputs
+                    testParallelInference(inf, in, exp);
+                } finally {
+                    inf.shutdown();
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 120000L)
+    public void testOutputAsync() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(nIn).nOut(20).build())
+                .layer(new OutputLayer.Builder().nIn(20).nOut(5).activation(Activation.SOFTMAX).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        ExecutorService callbackExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "CallbackThread");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            for (InferenceMode m : InferenceMode.values()) {
+                for (boolean useExecutor : new boolean[]{false, true}) {
+                    final ParallelInference inf =
+                            new ParallelInference.Builder(net)
+                                    .inferenceMode(m)
+                                    .batchLimit(8)
+                                    .queueLimit(64)
+                                    .workers(2).build();
+                    try {
+                        //All requests are submitted from a single thread, without waiting for outputs
+                        List<INDArray> exp = new ArrayList<>();
+                        List<CompletableFuture<INDArray[]>> futures = new ArrayList<>();
+                        Set<String> callbackThreads = Collections.synchronizedSet(new HashSet<>());
+                        for (int i = 0; i < 200; i++) {
+                            INDArray in = Nd4j.rand(1 + i % 3, nIn);
+                            exp.add(net.output(in));
+                            CompletableFuture<INDArray[]> f = inf.outputAsync(new INDArray[]{in}, null,
+                                    useExecutor ? callbackExecutor : null);
+                            futures.add(f.whenComplete((out, t) -> callbackThreads.add(Thread.currentThread().getName())));
+                        }
+
+                        for (int i = 0; i < futures.size(); i++) {
+                            INDArray[] out = futures.get(i).get(30, TimeUnit.SECONDS);
+                            assertEquals("Failed at iteration [" + i + "] for mode " + m, exp.get(i), out[0]);
+                        }
+                        if (useExecutor)
+                            assertEquals(Collections.singleton("CallbackThread"), callbackThreads);
+
+                        //Single output variant
+                        INDArray in = Nd4j.rand(1, nIn);
+                        assertEquals(net.output(in), inf.outputAsync(in).get(30, TimeUnit.SECONDS));
+
+                        //Errors should complete the future exceptionally
+                        CompletableFuture<INDArray[]> f = inf.outputAsync(new INDArray[]{Nd4j.ones(1, 5)}, null,
+                                useExecutor ? callbackExecutor : null);
+                        try {
+                            f.get(30, TimeUnit.SECONDS);
+                            fail("Expected exception");
+                        } catch (ExecutionException e) {
+                            assertTrue(e.getCause() instanceof DL4JInvalidInputException);
+                        }
+                    } finally {
+                        inf.shutdown();
+                    }
+                }
+            }
+        } finally {
+            callbackExecutor.shutdown();
+        }
+    }
+
     private static void testParallelInference(ParallelInference inf, List<INDArray> in, List<INDArray> exp) throws Exception {
         testParallelInference(inf, in, null, exp);
     }
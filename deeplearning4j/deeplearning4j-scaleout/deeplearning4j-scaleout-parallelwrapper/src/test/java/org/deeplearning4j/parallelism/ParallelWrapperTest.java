@@ -23,6 +23,7 @@ package org.deeplearning4j.parallelism;
 import lombok.val;
 import org.deeplearning4j.BaseDL4JTest;
 import org.deeplearning4j.datasets.iterator.EarlyTerminationDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
 import org.deeplearning4j.datasets.iterator.impl.MnistDataSetIterator;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
@@ -37,14 +38,21 @@ import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
 import org.junit.Test;
 import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
 import org.nd4j.linalg.learning.config.Nesterovs;
+import org.nd4j.linalg.learning.config.Sgd;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertTrue;
 
 
@@ -141,4 +149,94 @@ public class ParallelWrapperTest extends BaseDL4JTest {
 
         wrapper.shutdown();
     }
+
+    @Test(timeout = 60000L)
+    public void testAllReduceMatchesSingleModel() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .dataType(DataType.DOUBLE)
+                        .weightInit(WeightInit.XAVIER)
+                        .updater(new Sgd(0.1)).list()
+                        .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(8).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+
+        MultiLayerNetwork model = new MultiLayerNetwork(conf);
+        model.init();
+        MultiLayerNetwork reference = model.clone();
+
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> minibatches = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            INDArray labels = Nd4j.zeros(DataType.DOUBLE, 8, 3);
+            for (int j = 0; j < 8; j++) {
+                labels.putScalar(j, (i + j) % 3, 1.0);
+            }
+            minibatches.add(new DataSet(Nd4j.rand(DataType.DOUBLE, 8, 4), labels));
+        }
+
+        ParallelWrapper wrapper = new ParallelWrapper.Builder(model)
+                        .workers(2)
+                        .prefetchBuffer(2)
+                        .trainingMode(ParallelWrapper.TrainingMode.ALL_REDUCE)
+                        .allReduceBucketSize(7)
+                        .build();
+        wrapper.fit(new ListDataSetIterator<>(minibatches, 1));
+        wrapper.shutdown();
+
+        //With gradients all-reduce, each round is equivalent to a single step on both minibatches combined
+        for (int i = 0; i < minibatches.size(); i += 2) {
+            reference.fit(DataSet.merge(minibatches.subList(i, i + 2)));
+        }
+
+        INDArray exp = reference.params();
+        INDArray act = model.params();
+        assertTrue(exp.equalsWithEps(act, 1e-10));
+    }
+
+    @Test(timeout = 60000L)
+    public void testAllReducePartialRoundsMatchSingleModel() throws Exception {
+        //Adam: updater state and iteration count must stay in sync too
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .dataType(DataType.DOUBLE)
+                        .weightInit(WeightInit.XAVIER)
+                        .updater(new Adam(0.01)).list()
+                        .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(8).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .build();
+
+        MultiLayerNetwork model = new MultiLayerNetwork(conf);
+        model.init();
+        MultiLayerNetwork reference = model.clone();
+
+        //5 minibatches, 2 workers: the last round of each fit call only uses worker 0
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> minibatches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            INDArray labels = Nd4j.zeros(DataType.DOUBLE, 8, 3);
+            for (int j = 0; j < 8; j++) {
+                labels.putScalar(j, (i + j) % 3, 1.0);
+            }
+            minibatches.add(new DataSet(Nd4j.rand(DataType.DOUBLE, 8, 4), labels));
+        }
+
+        ParallelWrapper wrapper = new ParallelWrapper.Builder(model)
+                        .workers(2)
+                        .prefetchBuffer(2)
+                        .trainingMode(ParallelWrapper.TrainingMode.ALL_REDUCE)
+                        .build();
+        for (int epoch = 0; epoch < 3; epoch++) {
+            wrapper.fit(new ListDataSetIterator<>(minibatches, 1));
+
+            reference.fit(DataSet.merge(minibatches.subList(0, 2)));
+            reference.fit(DataSet.merge(minibatches.subList(2, 4)));
+            reference.fit(minibatches.get(4));
+
+            INDArray exp = reference.params();
+            INDArray act = model.params();
+            assertTrue("Epoch " + epoch, exp.equalsWithEps(act, 1e-10));
+        }
+        wrapper.shutdown();
+    }
 }
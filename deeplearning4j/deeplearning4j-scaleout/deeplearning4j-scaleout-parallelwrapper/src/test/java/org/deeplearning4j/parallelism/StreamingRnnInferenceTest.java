@@ -0,0 +1,169 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.inference.RnnSessionStore;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class StreamingRnnInferenceTest extends BaseDL4JTest {
+
+    private static MultiLayerNetwork getNet(int nIn, int nOut) {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .dataType(DataType.DOUBLE)
+                .seed(12345)
+                .list()
+                .layer(new LSTM.Builder().nIn(nIn).nOut(6).activation(Activation.TANH).build())
+                .layer(new LSTM.Builder().nIn(6).nOut(5).activation(Activation.TANH).build())
+                .layer(new RnnOutputLayer.Builder().nIn(5).nOut(nOut).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    @Test(timeout = 60000L)
+    public void testSessionsMatchSequential() throws Exception {
+        int nIn = 4;
+        int nOut = 3;
+        int numSessions = 5;
+        int numSteps = 6;
+        MultiLayerNetwork net = getNet(nIn, nOut);
+        MultiLayerNetwork ref = net.clone();
+
+        INDArray[][] inputs = new INDArray[numSessions][numSteps];
+        for (int s = 0; s < numSessions; s++) {
+            for (int t = 0; t < numSteps; t++) {
+                inputs[s][t] = Nd4j.rand(DataType.DOUBLE, 1, nIn);
+            }
+        }
+
+        StreamingRnnInference inf = new StreamingRnnInference.Builder(net)
+                .batchLimit(3)
+                .build();
+        try {
+            //Interleave steps of all sessions; multiple steps of the same session may be queued at once
+            List<List<CompletableFuture<INDArray>>> futures = new ArrayList<>();
+            for (int s = 0; s < numSessions; s++) {
+                futures.add(new ArrayList<CompletableFuture<INDArray>>());
+            }
+            for (int t = 0; t < numSteps; t++) {
+                for (int s = 0; s < numSessions; s++) {
+                    futures.get(s).add(inf.outputAsync("session" + s, inputs[s][t]));
+                }
+            }
+
+            for (int s = 0; s < numSessions; s++) {
+                ref.rnnClearPreviousState();
+                for (int t = 0; t < numSteps; t++) {
+                    INDArray exp = ref.rnnTimeStep(inputs[s][t]);
+                    INDArray act = futures.get(s).get(t).get(30, TimeUnit.SECONDS);
+                    assertEquals("session=" + s + ", step=" + t, exp, act);
+                }
+            }
+            assertEquals(numSessions, inf.getSessionStore().size());
+
+            //Ended session restarts from the initial state
+            inf.endSession("session0");
+            ref.rnnClearPreviousState();
+            assertEquals(ref.rnnTimeStep(inputs[0][0]), inf.output("session0", inputs[0][0]));
+        } finally {
+            inf.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testEviction() throws Exception {
+        int nIn = 4;
+        MultiLayerNetwork net = getNet(nIn, 3);
+        MultiLayerNetwork ref = net.clone();
+        INDArray in = Nd4j.rand(DataType.DOUBLE, 1, nIn);
+
+        StreamingRnnInference inf = new StreamingRnnInference.Builder(net)
+                .maxSessions(2)
+                .build();
+        try {
+            INDArray first = inf.output("a", in);
+            INDArray second = inf.output("a", in);
+            assertNotEquals(first, second);
+            inf.output("b", in);
+            inf.output("c", in);
+
+            //Least recently used session "a" was evicted: starts again from the initial state
+            RnnSessionStore store = inf.getSessionStore();
+            assertEquals(2, store.size());
+            assertEquals(1, store.getEvictionCount());
+            assertNull(store.get("a"));
+            assertEquals(first, inf.output("a", in));
+            ref.rnnClearPreviousState();
+            assertEquals(ref.rnnTimeStep(in), first);
+        } finally {
+            inf.shutdown();
+        }
+
+        RnnSessionStore store = new RnnSessionStore(10, 100, TimeUnit.MILLISECONDS);
+        store.put("x", Nd4j.ones(1, 3));
+        Thread.sleep(300);
+        store.put("y", Nd4j.ones(1, 3));
+        assertEquals(1, store.evictIdle());
+        assertNull(store.get("x"));
+        assertNotNull(store.get("y"));
+    }
+
+    @Test(timeout = 60000L)
+    public void testIdleEvictionWithoutRequests() throws Exception {
+        int nIn = 4;
+        StreamingRnnInference inf = new StreamingRnnInference.Builder(getNet(nIn, 3))
+                .idleTimeout(100, TimeUnit.MILLISECONDS)
+                .build();
+        try {
+            inf.output("a", Nd4j.rand(DataType.DOUBLE, 1, nIn));
+            RnnSessionStore store = inf.getSessionStore();
+            assertEquals(1, store.size());
+
+            //No further requests: the idle session must still be evicted by the worker
+            while (store.size() > 0) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, store.getEvictionCount());
+        } finally {
+            inf.shutdown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
+import org.junit.Test;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveBatchSchedulerTest extends BaseDL4JTest {
+
+    @Test(timeout = 20000L)
+    public void testCompatibleRequestsBatched() throws Exception {
+        AdaptiveBatchScheduler scheduler = new AdaptiveBatchScheduler(16, 64, 0, 0, TimeUnit.MILLISECONDS, false, 0);
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(new BasicInferenceObserver(), new INDArray[]{Nd4j.rand(1, 10)}, null);
+        }
+        scheduler.submit(new BasicInferenceObserver(), new INDArray[]{Nd4j.rand(1, 7)}, null);
+        scheduler.submit(new BasicInferenceObserver(), new INDArray[]{Nd4j.rand(2, 10)}, null);
+        assertEquals(7, scheduler.getQueueSize());
+
+        //All requests with 10 columns, regardless of the number of examples
+        List<Pair<INDArray[], INDArray[]>> batches = scheduler.take().getInputBatches();
+        assertEquals(1, batches.size());
+        assertArrayEquals(new long[]{7, 10}, batches.get(0).getFirst()[0].shape());
+        assertEquals(1, scheduler.getQueueSize());
+
+        batches = scheduler.take().getInputBatches();
+        assertArrayEquals(new long[]{1, 7}, batches.get(0).getFirst()[0].shape());
+        assertEquals(0, scheduler.getQueueSize());
+        assertEquals(7, scheduler.getMetrics().getRequestCount());
+    }
+
+    @Test(timeout = 20000L)
+    public void testBatchSizeFromLatencyModel() throws Exception {
+        AdaptiveBatchScheduler scheduler = new AdaptiveBatchScheduler(32, 64, 1000, 0, TimeUnit.MILLISECONDS, false, 0);
+
+        //Measured: 1 ms fixed cost + 50 ms per example
+        for (int i = 0; i < 20; i++) {
+            long n = 1 + (i % 4);
+            scheduler.batchCompleted(n, TimeUnit.MILLISECONDS.toNanos(1 + 50 * n));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(101), scheduler.estimateLatencyNanos(2), 1e5);
+
+        for (int i = 0; i < 40; i++) {
+            scheduler.submit(new BasicInferenceObserver(), new INDArray[]{Nd4j.rand(1, 10)}, null);
+        }
+
+        //Latency target of 1 second allows at most (1000 - 1) / 50 = 19 examples
+        InferenceObservable o = scheduler.take();
+        long size = o.getInputBatches().get(0).getFirst()[0].size(0);
+        assertTrue(String.valueOf(size), size <= 19 && size >= 15);
+        assertEquals(40 - size, scheduler.getQueueSize());
+    }
+
+    @Test(timeout = 20000L)
+    public void testSequenceBuckets() throws Exception {
+        AdaptiveBatchScheduler scheduler = new AdaptiveBatchScheduler(32, 64, 0, 0, TimeUnit.MILLISECONDS, true, 5);
+
+        int[] lengths = {3, 12, 5, 1, 7, 10};
+        for (int l : lengths) {
+            scheduler.submit(new BasicInferenceObserver(), new INDArray[]{Nd4j.rand(new int[]{1, 4, l})}, null);
+        }
+
+        //Buckets: lengths 1-5, 6-10, 11-15
+        long[][] expShapes = {{3, 4, 5}, {1, 4, 12}, {2, 4, 10}};
+        for (long[] exp : expShapes) {
+            Pair<INDArray[], INDArray[]> p = scheduler.take().getInputBatches().get(0);
+            assertArrayEquals(exp, p.getFirst()[0].shape());
+            if (exp[0] > 1) {
+                assertNotNull(p.getSecond());
+                assertArrayEquals(new long[]{exp[0], exp[2]}, p.getSecond()[0].shape());
+            }
+        }
+        assertEquals(0, scheduler.getQueueSize());
+    }
+}
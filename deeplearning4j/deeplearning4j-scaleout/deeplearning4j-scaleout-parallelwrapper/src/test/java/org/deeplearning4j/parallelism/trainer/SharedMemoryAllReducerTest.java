@@ -0,0 +1,101 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.trainer;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.junit.Test;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SharedMemoryAllReducerTest extends BaseDL4JTest {
+
+    @Test(timeout = 30000L)
+    public void testAllReduce() throws Exception {
+        int numWorkers = 3;
+        SharedMemoryAllReducer reducer = new SharedMemoryAllReducer(4, 3);
+        reducer.registerConsumers(numWorkers);
+
+        for (int iter = 0; iter < 3; iter++) {
+            final INDArray[] gradients = new INDArray[numWorkers];
+            INDArray exp = Nd4j.zeros(DataType.DOUBLE, 1, 10);
+            for (int i = 0; i < numWorkers; i++) {
+                gradients[i] = Nd4j.rand(DataType.DOUBLE, 1, 10);
+                exp.addi(gradients[i]);
+            }
+            exp.divi(numWorkers);
+
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < numWorkers; i++) {
+                final int id = i;
+                Thread t = new Thread(() -> {
+                    try {
+                        reducer.allReduce(id, gradients[id]);
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                t.start();
+                threads.add(t);
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+
+            assertNull(failure.get());
+            for (int i = 0; i < numWorkers; i++) {
+                assertTrue(exp.equalsWithEps(gradients[i], 1e-10));
+                //All workers must end up with exactly the same gradient
+                assertEquals(gradients[0], gradients[i]);
+            }
+        }
+    }
+
+    @Test(timeout = 30000L)
+    public void testAbort() throws Exception {
+        SharedMemoryAllReducer reducer = new SharedMemoryAllReducer(2, 16);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                reducer.allReduce(0, Nd4j.rand(DataType.FLOAT, 1, 10));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        t.start();
+
+        //Second worker fails before reaching the all-reduce
+        while (t.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        reducer.abort();
+        t.join();
+
+        assertTrue(failure.get() instanceof IllegalStateException);
+    }
+}
@@ -250,7 +250,9 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
             int count = 0;
             for (INDArray arr : activations) {
                 String layerName = (count == 0 ? "input" : String.valueOf(count - 1));
-                activationsMap.put(layerName, arr);
+                //Null for layers with activation recomputation enabled
+                if (arr != null)
+                    activationsMap.put(layerName, arr);
                 count++;
             }
             onForwardPass(model, activationsMap);
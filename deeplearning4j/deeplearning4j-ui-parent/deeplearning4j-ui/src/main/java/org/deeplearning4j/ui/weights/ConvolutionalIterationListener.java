@@ -143,12 +143,14 @@ public class ConvolutionalIterationListener extends BaseTrainingListener {
             if (model instanceof ComputationGraph) {
                 ComputationGraph l = (ComputationGraph) model;
                 Layer[] layers = l.getLayers();
-                if(layers.length != activations.size())
-                    throw new RuntimeException("layers.length != activations.size(). Got layers.length="+layers.length+", activations.size()="+activations.size());
                 for( int i=0; i<layers.length; i++ ){
                     if(layers[i].type() == Layer.Type.CONVOLUTIONAL){
                         String layerName = layers[i].conf().getLayer().getLayerName();
-                        INDArray output = activations.get(layerName); //Offset by 1 - activations list includes input
+                        INDArray output = activations.get(layerName);
+                        if(output == null){
+                            //Not available for layers with activation recomputation enabled
+                            continue;
+                        }
 
                         if(sampleIdx < 0){
                             sampleIdx = output.shape()[0] == 1 ? 0 : rnd.nextInt((int) output.shape()[0] - 1) + 1;
@@ -175,6 +177,8 @@ public class ConvolutionalIterationListener extends BaseTrainingListener {
             if(arr[0].rank() == 4){
                 sourceImage = null;
                 if (cnt == 0) {
+                    if (sampleIdx < 0)
+                        sampleIdx = 0;  //No (available) convolutional layer activations
                     try {
                         sourceImage = restoreRGBImage(arr[0].tensorAlongDimension(sampleIdx, 3, 2, 1));
                     } catch (Exception e) {
@@ -208,18 +212,27 @@ public class ConvolutionalIterationListener extends BaseTrainingListener {
                 for( int i=0; i<layers.length; i++ ){
                     if(layers[i].type() == Layer.Type.CONVOLUTIONAL){
                         INDArray output = activations.get(i+1); //Offset by 1 - activations list includes input
+                        if(output == null){
+                            //Null for layers with activation recomputation enabled
+                            continue;
+                        }
 
                         if (output.shape()[0] - 1 > Integer.MAX_VALUE)
                             throw new ND4JArraySizeException();
                         int sampleDim = output.shape()[0] == 1 ? 0 : rnd.nextInt((int) output.shape()[0] - 1) + 1;
                         if (cnt == 0) {
-                            INDArray inputs = layers[i].input();
-
-                            try {
-                                sourceImage = restoreRGBImage(
-                                        inputs.tensorAlongDimension(sampleDim, new int[] {3, 2, 1}));
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
+                            //The stored input of a recomputed layer is in a workspace that has been closed already:
+                            // use the activations of the previous layer instead, if available
+                            INDArray inputs = layers[i].conf().getLayer().isRecomputeActivations() ? activations.get(i)
+                                    : layers[i].input();
+
+                            if (inputs != null && inputs.rank() == 4) {
+                                try {
+                                    sourceImage = restoreRGBImage(
+                                            inputs.tensorAlongDimension(sampleDim, new int[] {3, 2, 1}));
+                                } catch (Exception e) {
+                                    throw new RuntimeException(e);
+                                }
                             }
                         }
 
@@ -32,10 +32,14 @@ import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
+import org.deeplearning4j.ui.model.storage.InMemoryStatsStorage;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.learning.config.Nesterovs;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 
@@ -90,4 +94,41 @@ public class TestConvolutionalListener {
 
         Thread.sleep(100000);
     }
+
+    @Test
+    public void testRecomputedActivations() throws Exception {
+        //Activations of layers with recomputation enabled are not available to listeners: these must be skipped
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .updater(new Nesterovs(0.01, 0.9)).list()
+                        .layer(new ConvolutionLayer.Builder(3, 3).nOut(4).activation(Activation.RELU)
+                                        .recomputeActivations(true).build())
+                        .layer(new ConvolutionLayer.Builder(3, 3).nOut(4).activation(Activation.RELU)
+                                        .recomputeActivations(true).build())
+                        .layer(new ConvolutionLayer.Builder(3, 3).nOut(4).activation(Activation.RELU).build())
+                        .layer(new SubsamplingLayer.Builder(SubsamplingLayer.PoolingType.MAX).kernelSize(2, 2)
+                                        .stride(2, 2).build())
+                        .layer(new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nOut(3)
+                                        .activation(Activation.SOFTMAX).build())
+                        .setInputType(InputType.convolutional(12, 12, 3))
+                        .build();
+
+        INDArray labels = Nd4j.zeros(4, 3);
+        for (int i = 0; i < 4; i++) {
+            labels.putScalar(i, i % 3, 1.0);
+        }
+        DataSet ds = new DataSet(Nd4j.rand(new int[]{4, 3, 12, 12}), labels);
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        net.setListeners(new ConvolutionalIterationListener(new InMemoryStatsStorage(), 1, false));
+        for (int i = 0; i < 3; i++) {
+            net.fit(ds);
+        }
+
+        ComputationGraph cg = net.toComputationGraph();
+        cg.setListeners(new ConvolutionalIterationListener(new InMemoryStatsStorage(), 1, false));
+        for (int i = 0; i < 3; i++) {
+            cg.fit(ds);
+        }
+    }
 }
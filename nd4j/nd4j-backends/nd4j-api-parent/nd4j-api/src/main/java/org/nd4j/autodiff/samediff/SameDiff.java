@@ -112,6 +112,11 @@ public class SameDiff extends SDBaseOps {
     private final Map<String, SameDiffOp> ops = new LinkedHashMap<>();
     @Getter
     private final Map<Long, InferenceSession> sessions = new ConcurrentHashMap<>();      //Key: thread ID
+    @Getter
+    private volatile InferenceSessionPool sessionPool;      //Null unless session pooling is enabled
+    @Getter
+    private volatile InterOpScheduler interOpScheduler;     //Null unless inter-op parallelism is enabled
+    private volatile long structureVersion;                 //Incremented on every change to the graph structure
 
     private ArrayHolder constantArrays = new ThreadSafeArrayHolder(true);
     private ArrayHolder variablesArrays = new ThreadSafeArrayHolder(true);
@@ -544,6 +549,7 @@ public class SameDiff extends SDBaseOps {
             }
 
             sameDiff.ops.put(function.getOwnName(), op);
+            sameDiff.structureChanged();
         }
 
         return sameDiff.variables().get(sameDiff.variables().size() - 1);
@@ -600,6 +606,7 @@ public class SameDiff extends SDBaseOps {
 
         if (!ops.containsKey(id)) {
             ops.put(id, SameDiffOp.builder().name(id).op(function).build());
+            structureChanged();
         }
     }
 
@@ -1091,6 +1098,7 @@ public class SameDiff extends SDBaseOps {
         //TODO could "not existing" be a bug sometimes?
         if (!ops.containsKey(function.getOwnName())) {
             ops.put(function.getOwnName(), SameDiffOp.builder().name(function.getOwnName()).op(function).build());
+            structureChanged();
         }
 
         //Update variable 'inputs to op' accounting for repeated inputs (like y = x+x)
@@ -2562,7 +2570,8 @@ public class SameDiff extends SDBaseOps {
 
         Preconditions.checkState(outputs != null && outputs.length > 0, "No outputs were specified");
         long threadId = Thread.currentThread().getId();
-        if (!sessions.containsKey(threadId)) {
+        InferenceSessionPool pool = sessionPool;
+        if (pool == null && !sessions.containsKey(threadId)) {
             log.info("Creating new InferenceSession for thread {}", threadId);
             sessions.put(threadId, new InferenceSession(this));
         }
@@ -2575,11 +2584,115 @@ public class SameDiff extends SDBaseOps {
 
         //Placeholder validation is performed in InferenceSession
 
+        if (pool != null) {
+            InferenceSession is = pool.borrow();
+            try {
+                return is.output(Arrays.asList(outputs), placeholders, batch, requiredActivations, activeListeners, at);
+            } finally {
+                pool.release(is);
+            }
+        }
+
         InferenceSession is = sessions.get(threadId);
         return is.output(outputs == null ? Collections.emptyList() : Arrays.asList(outputs),
                 placeholders, batch, requiredActivations, activeListeners, at);
     }
 
+    /**
+     * Set the maximum number of pooled inference sessions, or disable session pooling.<br>
+     * By default, one inference session is created (and kept) for each thread that calls the output methods. This
+     * suits a fixed set of long lived threads, but with elastic thread pools or virtual threads it creates a new session
+     * (and memory manager) for most executions, and retains all of them. With pooling enabled, each execution instead
+     * borrows a session from a bounded {@link InferenceSessionPool}, and returns it once done: sessions, with their
+     * memory manager caches and execution plans, are reused by whichever thread executes next. When all sessions are
+     * in use, executions wait for a session to be returned.<br>
+     * Note that with pooling enabled, the arrays of ARRAY type variables from the last execution are not available via
+     * {@link SDVariable#getArr()}, as sessions are not associated with threads.
+     *
+     * @param maxSessions Maximum number of sessions, usually the maximum number of concurrent executions.
+     *                    0 to disable pooling and use one session per thread
+     */
+    public void setSessionPoolSize(int maxSessions) {
+        Preconditions.checkArgument(maxSessions >= 0, "Maximum number of sessions must be >= 0, got %s", maxSessions);
+        InferenceSessionPool old = sessionPool;
+        sessionPool = maxSessions == 0 ? null : new InferenceSessionPool(this, maxSessions);
+        if (old != null)
+            old.clear();
+        if (sessionPool != null) {
+            //Per-thread sessions are no longer used for execution
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Enable or disable inter-op parallelism for inference, using the available processors: see
+     * {@link #setInterOpParallelism(int, int)}. The number of intra-op threads is the number of available processors
+     * divided by the number of inter-op threads
+     *
+     * @param interOpThreads Maximum number of ops to execute concurrently. 0 or 1 to disable
+     */
+    public void setInterOpParallelism(int interOpThreads) {
+        setInterOpParallelism(interOpThreads, 0);
+    }
+
+    /**
+     * Enable or disable inter-op parallelism for inference.<br>
+     * By default, ops are executed one at a time, in dependency order, on the thread calling the output methods; each
+     * op may use multiple threads internally (intra-op parallelism). For graphs with wide independent branches (such
+     * as inception blocks or multi-head models) at small batch sizes, single ops often can't use all of the cores.
+     * With inter-op parallelism enabled, ops that are ready for execution (all of the ops they depend on have been
+     * executed) are dispatched to a bounded pool of interOpThreads worker threads, each op using up to intraOpThreads
+     * threads internally. Usually interOpThreads x intraOpThreads should equal the number of cores.<br>
+     * Parallel execution only applies to graphs that are executed from a cached execution plan: graphs without control
+     * flow ops, executed without listeners. Other executions are performed sequentially as before.
+     * Note that the intra-op setting is global - it applies to all op execution, until inter-op parallelism is disabled
+     * for all SameDiff instances; see {@link InterOpScheduler} for details.
+     * This method should not be called while the output methods are being executed by other threads.
+     *
+     * @param interOpThreads Maximum number of ops to execute concurrently. 0 or 1 to disable
+     * @param intraOpThreads Number of threads to use within each op. If &lt;= 0: the number of available processors
+     *                       divided by interOpThreads
+     */
+    public void setInterOpParallelism(int interOpThreads, int intraOpThreads) {
+        Preconditions.checkArgument(interOpThreads >= 0, "Number of inter-op threads must be >= 0, got %s", interOpThreads);
+        InterOpScheduler old = interOpScheduler;
+        if (old != null) {
+            interOpScheduler = null;
+            old.shutdown();
+        }
+        if (interOpThreads > 1) {
+            interOpScheduler = new InterOpScheduler(interOpThreads, intraOpThreads);
+        }
+    }
+
+    /**
+     * @return Version of the graph structure: incremented whenever ops or variables are added, removed or renamed, or
+     * the inputs or outputs of an op are changed. Used to invalidate cached execution plans
+     */
+    public long getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Record a change to the graph structure (see {@link #getStructureVersion()}). This is called by all SameDiff
+     * methods that modify the graph; it only needs to be called explicitly after modifying the maps returned by
+     * {@link #getOps()} or {@link #getVariables()}, or the lists of op inputs and outputs, directly
+     */
+    public void structureChanged() {
+        structureVersion++;
+    }
+
+    /**
+     * Remove all inference sessions - both per-thread sessions and pooled sessions - in case they have any cached
+     * arrays or state. Should be called after modifying the structure of the graph
+     */
+    public void clearSessions() {
+        sessions.clear();
+        InferenceSessionPool pool = sessionPool;
+        if (pool != null)
+            pool.clear();
+    }
+
     /**
      * See {@link #one(String, DataType, int...)}.
      * Creates a constant - i.e., CONSTANT type SDVariable.
@@ -2697,6 +2810,7 @@ public class SameDiff extends SDBaseOps {
         SDVariable v = new SDVariable(name, VariableType.CONSTANT, this, constant.shape(), constant.dataType());
         name = v.name();
         variables.put(name, Variable.builder().name(name).variable(v).build());
+        structureChanged();
         constantArrays.setArray(name, constant);
         return v;
     }
@@ -2716,6 +2830,7 @@ public class SameDiff extends SDBaseOps {
         Preconditions.checkState(!variables.containsKey(name), "Variable already exists with name %s", name);
         SDVariable ret = new SDVariable(name, VariableType.PLACEHOLDER, this, shape, dataType);
         variables.put(name, Variable.builder().name(name).variable(ret).build());
+        structureChanged();
         return ret;
     }
 
@@ -3054,7 +3169,7 @@ public class SameDiff extends SDBaseOps {
         }
 
         //Remove all sessions in case they have any cached arrays/state
-        sessions.clear();
+        clearSessions();
 
         //If gradient function has been defined, remove it (so it will be recreated later)
         sameDiffFunctionInstances.remove(GRAD_FN_KEY);
@@ -3152,7 +3267,7 @@ public class SameDiff extends SDBaseOps {
         }
 
         //Remove all sessions in case they have any cached arrays/state
-        sessions.clear();
+        clearSessions();
 
         //If gradient function has been defined, remove it (so it will be recreated later)
         sameDiffFunctionInstances.remove(GRAD_FN_KEY);
@@ -3264,7 +3379,7 @@ public class SameDiff extends SDBaseOps {
         }
 
         if (anyChanged) {
-            sessions.clear();
+            clearSessions();
 
             //Recalculate datatypes of outputs, and dynamically update them
             Set<String> allSeenOps = new HashSet<>();
@@ -3389,6 +3504,7 @@ public class SameDiff extends SDBaseOps {
 
         variables.remove(from);
         variables.put(to, v);
+        structureChanged();
 
         if(v.getVariable().getVariableType() == VariableType.CONSTANT && constantArrays.hasArray(from)) {
             constantArrays.rename(from, to);
@@ -3477,6 +3593,35 @@ public class SameDiff extends SDBaseOps {
     }
 
 
+    /**
+     * Remove a variable from the graph, along with its array (if any). The variable must not be used as an input to
+     * any op, and must not be the output of any op.<br>
+     * This is intended for graph transformations, once a variable is no longer required.
+     *
+     * @param name Name of the variable to remove
+     */
+    public void removeVariable(@NonNull String name) {
+        Variable v = variables.get(name);
+        Preconditions.checkState(v != null, "Cannot remove variable \"%s\": no variable with this name exists", name);
+        Preconditions.checkState(v.getInputsForOp() == null || v.getInputsForOp().isEmpty(), "Cannot remove variable \"%s\":" +
+                " variable is used as input to ops %s", name, v.getInputsForOp());
+        Preconditions.checkState(v.getOutputOfOp() == null || !ops.containsKey(v.getOutputOfOp()), "Cannot remove variable" +
+                " \"%s\": variable is the output of op %s", name, v.getOutputOfOp());
+
+        VariableType vt = v.getVariable().getVariableType();
+        if (vt == VariableType.CONSTANT && constantArrays.hasArray(name)) {
+            constantArrays.removeArray(name);
+        } else if (vt == VariableType.VARIABLE && variablesArrays.hasArray(name)) {
+            variablesArrays.removeArray(name);
+        } else if (vt == VariableType.PLACEHOLDER) {
+            for (Map<String, INDArray> m : placeholdersPerThread.values()) {
+                m.remove(name);
+            }
+        }
+        variables.remove(name);
+        structureChanged();
+    }
+
     /**
      * Remove an argument for a function. Note that if this function does not contain the argument, it will just be a no op.
      *
@@ -3791,6 +3936,7 @@ public class SameDiff extends SDBaseOps {
 
         Preconditions.checkState(variable.getSameDiff() == this, "Same diff instance for variable must be the same!");
         variables.put(variable.name(), Variable.builder().name(variable.name()).variable(variable).build());
+        structureChanged();
         return variable;
     }
 
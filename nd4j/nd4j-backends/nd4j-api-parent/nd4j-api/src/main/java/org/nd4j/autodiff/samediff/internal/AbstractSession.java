@@ -81,6 +81,29 @@ public abstract class AbstractSession<T, O> {
      */
     protected final Set<String> zeroInputOpsInSubgraph = new HashSet<>();
 
+    /**
+     * Maximum number of cached execution plans per session
+     */
+    public static final int MAX_CACHED_PLANS = 32;
+
+    /**
+     * If true: cache and replay execution plans for graphs without control flow. See {@link ExecutionPlan}
+     */
+    @Getter
+    @Setter
+    protected boolean planCaching = true;
+    protected final Map<ExecutionPlan.Key, ExecutionPlan> plans = new LinkedHashMap<ExecutionPlan.Key, ExecutionPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ExecutionPlan.Key, ExecutionPlan> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    };
+    /**
+     * The plan being executed, and the index of the current step in the plan. Null when executing without a plan
+     */
+    protected ExecutionPlan currentPlan;
+    protected int currentStep;
+
     public AbstractSession(@NonNull SameDiff sameDiff) {
         this.sameDiff = sameDiff;
     }
@@ -138,15 +161,37 @@ public abstract class AbstractSession<T, O> {
 
         Set<String> reqOutputVariablesSet = new HashSet<>(variables);
 
+        //Use the cached execution plan, if one exists
+        ExecutionPlan.Key planKey = null;
+        currentPlan = null;
+        if (planCaching) {
+            planKey = new ExecutionPlan.Key(variables, requiredActivations, placeholderValues == null ? null : placeholderValues.keySet());
+            ExecutionPlan plan = plans.get(planKey);
+            if (plan != null && plan.isValid(sameDiff)) {
+                currentPlan = plan;
+            } else if (plan != null) {
+                plans.clear();
+            }
+        }
+
         placeholderValues = preprocessPlaceholders(placeholderValues, at);
 
         //Clear state from past iterations, if any
         dt.clear();
-        subgraph.clear();
-        subgraphOps.clear();
         nodeOutputs.clear();            //TODO eventually we'll have (optional) cache here for later execs... main challenge is detecting in-place array modifications and invalidating old results. And overall memory use...
         tensorArrays.clear();
 
+        if (currentPlan != null) {
+            try {
+                return executePlan(currentPlan, reqOutputVariablesSet, placeholderValues, batch, listeners, at);
+            } finally {
+                currentPlan = null;
+            }
+        }
+
+        subgraph.clear();
+        subgraphOps.clear();
+
         //Step 1: determine subgraph structure we actually need to execute
         //Basic plan: work backwards from the variables we want, based on the graph structure, to work out what
         // we actually need to execute
@@ -156,6 +201,12 @@ public abstract class AbstractSession<T, O> {
         allRequired.addAll(variables);
         initSubgraph(allRequired);
 
+        //Record the executed steps, so later executions can replay them without dependency tracking
+        List<ExecutionPlan.Step> planSteps = null;
+        if (planKey != null && ExecutionPlan.canPlan(sameDiff, subgraphOps)) {
+            planSteps = new ArrayList<>();
+        }
+
         //Step 2: Check that we have required placeholders
         List<String> phNames = sameDiff.inputs();
         if (placeholderValues == null || !placeholderValues.keySet().containsAll(phNames)) {
@@ -292,6 +343,9 @@ public abstract class AbstractSession<T, O> {
                 if(allRequired.contains(es.getName())){
                     allExecuted.add(es.getName());
                 }
+                if (planSteps != null && subgraph.contains(es.getName())) {
+                    planSteps.add(new ExecutionPlan.Step(es, null, null, null));
+                }
             } else if (es.getType() == ExecType.PLACEHOLDER) {
                 VarId vid = new VarId(es.getName(), OUTER_FRAME, 0, null);
                 T phVal = placeholderValues == null ? null : placeholderValues.get(es.getName());
@@ -307,6 +361,9 @@ public abstract class AbstractSession<T, O> {
                 if(allRequired.contains(es.getName())){
                     allExecuted.add(es.getName());
                 }
+                if (planSteps != null && subgraph.contains(es.getName())) {
+                    planSteps.add(new ExecutionPlan.Step(es, null, null, null));
+                }
             } else if (es.getType() == ExecType.OP) {
                 String opName = es.getName();
                 SameDiffOp op = sameDiff.getOps().get(opName);
@@ -379,6 +436,10 @@ public abstract class AbstractSession<T, O> {
                 }
 
 
+                if (planSteps != null) {
+                    planSteps.add(new ExecutionPlan.Step(es, inputs, allIterInputs, constAndPhInputs));
+                }
+
                 // Do execution of the op, in 2 steps
                 // (a) "Parameterize" the op - i.e., find and set the arrays on the op, allocate outputs, etc ready for execution
                 // (b) actually execute the operation
@@ -486,9 +547,99 @@ public abstract class AbstractSession<T, O> {
         //TODO we should clear the node outputs map to get rid of the invalid (closed, out of workspace, etc) arrays
 
         out = postProcessOutput(out);   //Hook-in for subclass sessions, if needed
+
+        if (planSteps != null) {
+            plans.put(planKey, new ExecutionPlan(sameDiff, planKey, planSteps, subgraph, subgraphOps));
+        }
         return out;
     }
 
+    /**
+     * Execute the steps of a cached execution plan, in order. No dependency tracking is required, as the steps
+     * (and the inputs of each op) were recorded from a previous execution with the same requested outputs and
+     * placeholders
+     */
+    protected Map<String, T> executePlan(ExecutionPlan plan, Set<String> reqOutputVariablesSet, Map<String, T> placeholderValues,
+                                         MultiDataSet batch, List<Listener> listeners, At at) {
+        Set<String> allRequired = new HashSet<>(plan.getKey().getRequiredActivations());
+        allRequired.addAll(reqOutputVariablesSet);
+        Map<String, T> out = new HashMap<>();
+        FrameIter outerFrame = new FrameIter(OUTER_FRAME, 0, null);
+        List<ExecutionPlan.Step> steps = plan.getSteps();
+        for (int i = 0; i < steps.size(); i++) {
+            currentStep = i;
+            ExecutionPlan.Step step = steps.get(i);
+            ExecStep es = step.getExecStep();
+            String name = es.getName();
+            if (es.getType() != ExecType.OP) {
+                executeValueStep(es, reqOutputVariablesSet, allRequired, placeholderValues, out);
+            } else {
+                O parameterizedOp = getAndParameterizeOp(name, outerFrame, step.getInputs(), step.getAllIterInputs(),
+                        step.getConstAndPhInputs(), placeholderValues, reqOutputVariablesSet);
+                T[] opOutputValues = getOutputs(parameterizedOp, outerFrame, step.getInputs(), step.getAllIterInputs(),
+                        step.getConstAndPhInputs(), listeners, at, batch, reqOutputVariablesSet);
+                storeOpOutputs(name, opOutputValues, reqOutputVariablesSet, out);
+            }
+        }
+
+        return postProcessOutput(out);
+    }
+
+    /**
+     * Execute a constant, variable or placeholder step of an execution plan: i.e., make the array available to the ops
+     * using it
+     */
+    protected void executeValueStep(ExecStep es, Set<String> reqOutputVariablesSet, Set<String> allRequired,
+                                    Map<String, T> placeholderValues, Map<String, T> out) {
+        String name = es.getName();
+        if (es.getType() == ExecType.CONSTANT || es.getType() == ExecType.VARIABLE) {
+            T arr = getConstantOrVariable(name);
+            Preconditions.checkNotNull(arr, "Encountered null placeholder array for constant: %s", name);
+            nodeOutputs.put(new VarId(name, OUTER_FRAME, 0, null), arr);
+            if (reqOutputVariablesSet.contains(name)) {
+                out.put(name, arr);
+            }
+        } else if (es.getType() == ExecType.PLACEHOLDER) {
+            T phVal = placeholderValues == null ? null : placeholderValues.get(name);
+            nodeOutputs.put(new VarId(name, OUTER_FRAME, 0, null), phVal);
+            if (allRequired.contains(name)) {
+                Preconditions.checkState(phVal != null, "No array was provided for the placeholder variable \"%s\" that is required for execution", name);
+                out.put(name, phVal);
+            }
+        }
+    }
+
+    /**
+     * Store the outputs of an op executed as part of an execution plan, for use by later steps (and as outputs, if
+     * requested)
+     */
+    protected void storeOpOutputs(String opName, T[] opOutputValues, Set<String> reqOutputVariablesSet, Map<String, T> out) {
+        List<String> opOutVarNames = sameDiff.getOps().get(opName).getOutputsOfOp();
+        Preconditions.checkState(opOutputValues.length == opOutVarNames.size(), "Unexpected number of outputs from executed op %s:" +
+                " got %s outputs when %s outputs were expected (%s)", opName, opOutputValues.length, opOutVarNames.size(), opOutVarNames);
+        for (int j = 0; j < opOutputValues.length; j++) {
+            String n = opOutVarNames.get(j);
+            nodeOutputs.put(new VarId(n, OUTER_FRAME, 0, null), opOutputValues[j]);
+            if (reqOutputVariablesSet.contains(n)) {
+                out.put(n, opOutputValues[j]);
+            }
+        }
+    }
+
+    /**
+     * @return Number of execution plans currently cached by this session
+     */
+    public int numCachedPlans() {
+        return plans.size();
+    }
+
+    /**
+     * Remove all cached execution plans
+     */
+    public void clearPlans() {
+        plans.clear();
+    }
+
     /**
      * Add the control dependency from Op -> variable
      *
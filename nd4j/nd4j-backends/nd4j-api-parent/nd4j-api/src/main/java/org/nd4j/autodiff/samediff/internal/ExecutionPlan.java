@@ -0,0 +1,264 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.internal;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.linalg.api.ops.impl.controlflow.compat.BaseCompatOp;
+import org.nd4j.linalg.api.ops.impl.shape.tensorops.BaseTensorOp;
+import org.nd4j.linalg.api.ops.impl.transforms.same.Identity;
+
+import java.util.*;
+
+/**
+ * A cached, linear execution schedule for a session, for a given set of requested outputs.<br>
+ * Building the schedule (working out the required subgraph and tracking dependencies between execution steps) usually
+ * costs more than executing the ops, for small graphs. For graphs without control flow (no Enter, Exit, Switch, Merge,
+ * NextIteration, LoopCond or TensorArray ops in the required subgraph) the order of execution does not depend on the
+ * values of any arrays, so the steps (and their resolved inputs) from one execution can be replayed directly by later
+ * executions with the same requested outputs and provided placeholders. Graphs with control flow are always executed
+ * dynamically.<br>
+ * <br>
+ * The plan also records array lifetimes: for each step, the variables that are no longer needed after that step (the
+ * last use of the array, or the step that produced it if it is not used at all). Identity ops pass through their
+ * input array, so the lifetime of an array covers all of the variables it is passed through to. Arrays that are
+ * requested outputs, placeholders, constants or variables are never released.<br>
+ * For executing independent ops in parallel (see {@link InterOpScheduler}) the linear order does not apply, so the
+ * plan also records the op steps each step depends on, and the number of steps using each releasable array: an array
+ * is released once all of the steps using it have completed, in whichever order they complete.<br>
+ * <br>
+ * Output shapes are not part of the plan: they are recalculated on each execution, as some ops have data dependent
+ * output shapes. Hence the same plan is used for any placeholder shapes (for example, different minibatch sizes).
+ * Plans are invalidated by any change to the structure of the graph (see {@link SameDiff#getStructureVersion()}).
+ */
+@Getter
+public class ExecutionPlan {
+
+    private final Key key;
+    private final List<Step> steps;
+    private final Set<String> subgraph;
+    private final Set<String> subgraphOps;
+    private final int numOps;
+    private final int numVariables;
+    private final long structureVersion;
+    /**
+     * Number of op steps using the array of each releasable op output variable (after resolving Identity
+     * pass-through). Variables not present in the map are never released
+     */
+    private final Map<String, Integer> numUses = new HashMap<>();
+
+    protected ExecutionPlan(@NonNull SameDiff sameDiff, @NonNull Key key, @NonNull List<Step> steps,
+                            @NonNull Set<String> subgraph, @NonNull Set<String> subgraphOps) {
+        this.key = key;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.subgraph = Collections.unmodifiableSet(new HashSet<>(subgraph));
+        this.subgraphOps = Collections.unmodifiableSet(new HashSet<>(subgraphOps));
+        this.numOps = sameDiff.getOps().size();
+        this.numVariables = sameDiff.getVariables().size();
+        this.structureVersion = sameDiff.getStructureVersion();
+        computeLifetimes(sameDiff);
+    }
+
+    /**
+     * @return True if the plan can be used for the given SameDiff instance - i.e., the graph structure has not changed
+     * since the plan was created
+     */
+    public boolean isValid(SameDiff sameDiff) {
+        return sameDiff.getStructureVersion() == structureVersion && sameDiff.getOps().size() == numOps
+                && sameDiff.getVariables().size() == numVariables;
+    }
+
+    /**
+     * @return Number of op execution steps in the plan
+     */
+    public int numOpSteps() {
+        int count = 0;
+        for (Step s : steps) {
+            if (s.getExecStep().getType() == AbstractSession.ExecType.OP)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param sameDiff   SameDiff instance
+     * @param subgraphOps Ops that may be executed
+     * @return True if none of the ops are control flow or TensorArray ops, in which case a plan can be used
+     */
+    public static boolean canPlan(@NonNull SameDiff sameDiff, @NonNull Collection<String> subgraphOps) {
+        for (String s : subgraphOps) {
+            DifferentialFunction df = sameDiff.getOps().get(s).getOp();
+            if (df instanceof BaseCompatOp || df instanceof BaseTensorOp)
+                return false;
+        }
+        return true;
+    }
+
+    private void computeLifetimes(SameDiff sameDiff) {
+        Map<String, String> aliasOf = new HashMap<>();          //Identity op output -> array it passes through
+        Map<String, Integer> lastUse = new HashMap<>();         //Op output variable -> index of last step using it
+        for (int i = 0; i < steps.size(); i++) {
+            AbstractSession.ExecStep es = steps.get(i).getExecStep();
+            if (es.getType() != AbstractSession.ExecType.OP)
+                continue;
+            SameDiffOp op = sameDiff.getOps().get(es.getName());
+            if (op.getInputsToOp() != null) {
+                for (String in : op.getInputsToOp()) {
+                    String root = root(aliasOf, in);
+                    if (lastUse.containsKey(root))
+                        lastUse.put(root, i);
+                }
+            }
+            List<String> outs = op.getOutputsOfOp();
+            if (op.getOp() instanceof Identity) {
+                aliasOf.put(outs.get(0), root(aliasOf, op.getInputsToOp().get(0)));
+            } else {
+                for (String out : outs) {
+                    lastUse.put(out, i);
+                }
+            }
+        }
+
+        Map<String, Integer> producer = new HashMap<>();          //Op output variable -> index of step producing it
+        Map<String, Integer> opStep = new HashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            AbstractSession.ExecStep es = steps.get(i).getExecStep();
+            if (es.getType() != AbstractSession.ExecType.OP)
+                continue;
+            opStep.put(es.getName(), i);
+            for (String out : sameDiff.getOps().get(es.getName()).getOutputsOfOp()) {
+                producer.put(out, i);
+            }
+        }
+
+        Set<String> keep = new HashSet<>();
+        for (String s : key.getOutputs()) {
+            keep.add(root(aliasOf, s));
+        }
+        for (String s : key.getRequiredActivations()) {
+            keep.add(root(aliasOf, s));
+        }
+
+        for (Map.Entry<String, Integer> e : lastUse.entrySet()) {
+            if (!keep.contains(e.getKey())) {
+                steps.get(e.getValue()).release.add(e.getKey());
+                numUses.put(e.getKey(), 0);
+            }
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            if (step.getExecStep().getType() != AbstractSession.ExecType.OP)
+                continue;
+            SameDiffOp op = sameDiff.getOps().get(step.getExecStep().getName());
+            Set<Integer> deps = new TreeSet<>();
+            if (op.getInputsToOp() != null) {
+                for (String in : op.getInputsToOp()) {
+                    addDependency(deps, producer.get(in), i);
+                    String root = root(aliasOf, in);
+                    if (numUses.containsKey(root) && !step.inputArrays.contains(root)) {
+                        step.inputArrays.add(root);
+                        numUses.put(root, numUses.get(root) + 1);
+                    }
+                    List<String> varCds = sameDiff.getVariables().get(in).getControlDeps();
+                    if (varCds != null) {
+                        for (String cd : varCds) {
+                            addDependency(deps, opStep.get(cd), i);
+                        }
+                    }
+                }
+            }
+            if (op.getControlDeps() != null) {
+                for (String cd : op.getControlDeps()) {
+                    addDependency(deps, producer.get(cd), i);
+                }
+            }
+            step.dependencies = new int[deps.size()];
+            int j = 0;
+            for (Integer d : deps) {
+                step.dependencies[j++] = d;
+            }
+        }
+    }
+
+    private static void addDependency(Set<Integer> deps, Integer stepIdx, int forStep) {
+        //Dependencies on steps that are not in the plan (or not executed before this step) don't apply to this plan
+        if (stepIdx != null && stepIdx < forStep)
+            deps.add(stepIdx);
+    }
+
+    private static String root(Map<String, String> aliasOf, String name) {
+        String r = aliasOf.get(name);
+        return r == null ? name : r;
+    }
+
+    /**
+     * A single step of the plan: the execution step, with the resolved inputs for op steps
+     */
+    @Getter
+    public static class Step {
+        private final AbstractSession.ExecStep execStep;
+        private final Set<AbstractSession.VarId> inputs;
+        private final Set<AbstractSession.VarId> allIterInputs;
+        private final Set<String> constAndPhInputs;
+        /**
+         * Variables whose arrays can be released after this step
+         */
+        private final List<String> release = new ArrayList<>(0);
+        /**
+         * Indices of the op steps that must be completed before this step can be executed
+         */
+        private int[] dependencies = new int[0];
+        /**
+         * Releasable variables (see {@link ExecutionPlan#getNumUses()}) whose arrays are used by this step
+         */
+        private final List<String> inputArrays = new ArrayList<>(0);
+
+        protected Step(AbstractSession.ExecStep execStep, Set<AbstractSession.VarId> inputs,
+                       Set<AbstractSession.VarId> allIterInputs, Set<String> constAndPhInputs) {
+            this.execStep = execStep;
+            this.inputs = inputs;
+            this.allIterInputs = allIterInputs;
+            this.constAndPhInputs = constAndPhInputs;
+        }
+    }
+
+    /**
+     * Cache key for plans: the requested outputs, any additional required activations, and the names of the provided
+     * placeholders
+     */
+    @Getter
+    @EqualsAndHashCode
+    public static class Key {
+        private final Set<String> outputs;
+        private final Set<String> requiredActivations;
+        private final Set<String> placeholders;
+
+        public Key(@NonNull Collection<String> outputs, Collection<String> requiredActivations, Collection<String> placeholders) {
+            this.outputs = new HashSet<>(outputs);
+            this.requiredActivations = requiredActivations == null ? Collections.<String>emptySet() : new HashSet<>(requiredActivations);
+            this.placeholders = placeholders == null ? Collections.<String>emptySet() : new HashSet<>(placeholders);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.nd4j.autodiff.listeners.Listener;
 import org.nd4j.autodiff.samediff.SDVariable;
 import org.nd4j.autodiff.samediff.SameDiff;
 import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.memory.ArenaMemoryMgr;
 import org.nd4j.autodiff.samediff.internal.memory.ArrayCacheMemoryMgr;
 import org.nd4j.common.base.Preconditions;
 import org.nd4j.linalg.api.buffer.DataType;
@@ -54,6 +55,7 @@ import org.nd4j.common.primitives.Pair;
 import org.nd4j.common.util.ArrayUtil;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import static org.nd4j.imports.VariableUtils.stripVarSuffix;
 
@@ -86,12 +88,17 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
     @Override
     protected Map<String, INDArray> preprocessPlaceholders(Map<String, INDArray> placeholders, At at) {
         arrayUseTracker.clear();
+        if (mmgr instanceof ArenaMemoryMgr) {
+            ((ArenaMemoryMgr) mmgr).beginExecution();
+        }
 
         //We'll also use this method as a "pre execution" hook-in, to mark variables as something we should never deallocate
         //This occurs by never marking these "ConstantDep" and "VariableDep" instances as satisfied, so there's always
         // an unsatisfied dependency for them in the array use tracker
         //TODO we shouldn't be clearing this on every single iteration, in 99.5% of cases variables will be same as last iteration...
-        for (SDVariable v : sameDiff.variables()) {
+        //When executing a plan, op output arrays are released based on the plan lifetimes instead, and are never added
+        // to the array use tracker
+        for (SDVariable v : (currentPlan == null ? sameDiff.variables() : Collections.<SDVariable>emptyList())) {
             if (v.getVariableType() == VariableType.CONSTANT) {
                 arrayUseTracker.addDependency(v.getArr(), new ConstantDep(v.name()));
             } else if (v.getVariableType() == VariableType.VARIABLE) {
@@ -195,6 +202,10 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
             }
         }
 
+        if (mmgr instanceof ArenaMemoryMgr) {
+            ((ArenaMemoryMgr) mmgr).endExecution();
+        }
+
         return output;
     }
 
@@ -254,6 +265,10 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
         if(opPair.getSecond() != null)
             opPair.getSecond().purge();
 
+        if (currentPlan != null) {
+            releasePlanned(op, out);
+            return out;
+        }
 
         //Record array uses for memory management/deallocation
         SameDiffOp o = sameDiff.getOps().get(op.getName());
@@ -341,6 +356,191 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
         return out;
     }
 
+    /**
+     * Release the arrays that are no longer required after the current step of the execution plan
+     */
+    protected void releasePlanned(SameDiffOp op, INDArray[] opOutputs) {
+        List<String> release = currentPlan.getSteps().get(currentStep).getRelease();
+        for (int i = 0; i < release.size(); i++) {
+            String name = release.get(i);
+            INDArray arr = nodeOutputs.get(new VarId(name, OUTER_FRAME, 0, null));
+            if (arr == null) {
+                //Output of the current op that isn't used anywhere
+                int idx = op.getOutputsOfOp().indexOf(name);
+                arr = idx < 0 ? null : opOutputs[idx];
+            }
+            if (arr != null) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Releasing array for variable {} after plan step {}", name, currentStep);
+                }
+                mmgr.release(arr);
+            }
+        }
+    }
+
+    @Override
+    protected Map<String, INDArray> executePlan(ExecutionPlan plan, Set<String> reqOutputVariablesSet, Map<String, INDArray> placeholderValues,
+                                                MultiDataSet batch, List<Listener> listeners, At at) {
+        InterOpScheduler scheduler = sameDiff.getInterOpScheduler();
+        //Listeners aren't required to be thread safe, and the arena memory manager plans offsets for a fixed order of
+        // allocations and releases - hence these are always executed sequentially
+        if (scheduler == null || (listeners != null && !listeners.isEmpty()) || mmgr instanceof ArenaMemoryMgr || plan.numOpSteps() < 2) {
+            return super.executePlan(plan, reqOutputVariablesSet, placeholderValues, batch, listeners, at);
+        }
+        return executePlanParallel(plan, scheduler, reqOutputVariablesSet, placeholderValues);
+    }
+
+    /**
+     * Execute a cached execution plan, executing independent ops concurrently using the scheduler's worker threads.<br>
+     * Ops are dispatched as soon as all of the steps they depend on have been executed. All of the session state (op
+     * parameterization, memory management, and op outputs) is only accessed by the calling thread: worker threads
+     * only execute the op, using the parameterized OpContext. Ops that don't perform any calculations (such as
+     * Identity) are executed directly on the calling thread.
+     */
+    protected Map<String, INDArray> executePlanParallel(ExecutionPlan plan, final InterOpScheduler scheduler, final Set<String> reqOutputVariablesSet,
+                                                        Map<String, INDArray> placeholderValues) {
+        Set<String> allRequired = new HashSet<>(plan.getKey().getRequiredActivations());
+        allRequired.addAll(reqOutputVariablesSet);
+        Map<String, INDArray> out = new HashMap<>();
+        final FrameIter outerFrame = new FrameIter(OUTER_FRAME, 0, null);
+        List<ExecutionPlan.Step> steps = plan.getSteps();
+
+        DependencyTracker<Integer, Integer> stepDeps = new DependencyTracker<>();
+        Deque<Integer> ready = new ArrayDeque<>();
+        int remaining = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            ExecutionPlan.Step step = steps.get(i);
+            if (step.getExecStep().getType() != ExecType.OP) {
+                executeValueStep(step.getExecStep(), reqOutputVariablesSet, allRequired, placeholderValues, out);
+                continue;
+            }
+            remaining++;
+            int[] deps = step.getDependencies();
+            if (deps.length == 0) {
+                ready.add(i);
+            } else {
+                for (int d : deps) {
+                    stepDeps.addDependency(i, d);
+                }
+            }
+        }
+
+        Map<String, Integer> remainingUses = new HashMap<>(plan.getNumUses());
+        CompletionService<Pair<Integer, INDArray[]>> completion = new ExecutorCompletionService<>(scheduler.getExecutor());
+        Map<Integer, Pair<SameDiffOp, OpContext>> running = new HashMap<>();
+        int inFlight = 0;
+        try {
+            while (remaining > 0) {
+                while (!ready.isEmpty()) {
+                    final int idx = ready.remove();
+                    final ExecutionPlan.Step step = steps.get(idx);
+                    final Pair<SameDiffOp, OpContext> opPair = getAndParameterizeOp(step.getExecStep().getName(), outerFrame, step.getInputs(),
+                            step.getAllIterInputs(), step.getConstAndPhInputs(), placeholderValues, reqOutputVariablesSet);
+                    DifferentialFunction df = opPair.getFirst().getOp();
+                    if (df instanceof Identity || df instanceof GradientBackwardsMarker || df instanceof ExternalErrorsFunction) {
+                        INDArray[] opOut = doExec(df, opPair.getSecond(), outerFrame, step.getInputs(), step.getAllIterInputs(), step.getConstAndPhInputs());
+                        completeParallelStep(plan, idx, opPair, opOut, remainingUses, reqOutputVariablesSet, out);
+                        remaining--;
+                        stepDeps.markSatisfied(idx, true);
+                        if (stepDeps.hasNewAllSatisfied()) {
+                            ready.addAll(stepDeps.getNewAllSatisfiedList());
+                        }
+                    } else {
+                        running.put(idx, opPair);
+                        inFlight++;
+                        completion.submit(new Callable<Pair<Integer, INDArray[]>>() {
+                            @Override
+                            public Pair<Integer, INDArray[]> call() {
+                                INDArray[] opOut = doExec(opPair.getFirst().getOp(), opPair.getSecond(), outerFrame, step.getInputs(),
+                                        step.getAllIterInputs(), step.getConstAndPhInputs());
+                                scheduler.opExecuted();
+                                return new Pair<>(idx, opOut);
+                            }
+                        });
+                    }
+                }
+                if (remaining == 0)
+                    break;
+
+                Preconditions.checkState(inFlight > 0, "No ops are ready for execution or executing, but %s op steps" +
+                        " have not been executed", remaining);
+                Future<Pair<Integer, INDArray[]>> f = completion.take();
+                inFlight--;
+                Pair<Integer, INDArray[]> p = f.get();
+                int idx = p.getFirst();
+                completeParallelStep(plan, idx, running.remove(idx), p.getSecond(), remainingUses, reqOutputVariablesSet, out);
+                remaining--;
+                stepDeps.markSatisfied(idx, true);
+                if (stepDeps.hasNewAllSatisfied()) {
+                    ready.addAll(stepDeps.getNewAllSatisfiedList());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during parallel graph execution", e);
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new RuntimeException(t);
+        } finally {
+            //On failure: don't return (and release arrays) while other ops are still executing
+            for (; inFlight > 0; inFlight--) {
+                try {
+                    completion.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        return postProcessOutput(out);
+    }
+
+    /**
+     * Store the outputs of an op executed by {@link #executePlanParallel(ExecutionPlan, InterOpScheduler, Set, Map)},
+     * and release the arrays that are no longer required by any remaining step
+     */
+    protected void completeParallelStep(ExecutionPlan plan, int stepIdx, Pair<SameDiffOp, OpContext> opPair, INDArray[] opOut,
+                                        Map<String, Integer> remainingUses, Set<String> reqOutputVariablesSet, Map<String, INDArray> out) {
+        SameDiffOp op = opPair.getFirst();
+        op.getOp().clearArrays();
+        if (opPair.getSecond() != null)
+            opPair.getSecond().purge();
+        storeOpOutputs(op.getName(), opOut, reqOutputVariablesSet, out);
+
+        //Outputs that aren't used by any step in the plan
+        List<String> outNames = op.getOutputsOfOp();
+        for (int i = 0; i < outNames.size(); i++) {
+            Integer uses = remainingUses.get(outNames.get(i));
+            if (uses != null && uses == 0 && opOut[i] != null) {
+                remainingUses.remove(outNames.get(i));
+                mmgr.release(opOut[i]);
+            }
+        }
+
+        for (String name : plan.getSteps().get(stepIdx).getInputArrays()) {
+            Integer uses = remainingUses.get(name);
+            if (uses == null)
+                continue;
+            if (uses > 1) {
+                remainingUses.put(name, uses - 1);
+            } else {
+                remainingUses.remove(name);
+                INDArray arr = nodeOutputs.get(new VarId(name, OUTER_FRAME, 0, null));
+                if (arr != null) {
+                    if (log.isTraceEnabled()) {
+                        log.trace("Releasing array for variable {} after plan step {}", name, stepIdx);
+                    }
+                    mmgr.release(arr);
+                }
+            }
+        }
+    }
+
     public INDArray[] doExec(DifferentialFunction op, OpContext opContext, FrameIter outputFrameIter, Set<VarId> opInputs, Set<VarId> allIterInputs,
                              Set<String> constAndPhInputs) {
 
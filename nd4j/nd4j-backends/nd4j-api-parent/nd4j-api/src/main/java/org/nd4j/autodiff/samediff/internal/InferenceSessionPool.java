@@ -0,0 +1,207 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.internal;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.SameDiff;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of {@link InferenceSession}s for a single SameDiff instance.<br>
+ * By default, SameDiff keeps one session per thread (keyed by thread ID) for the lifetime of the SameDiff instance.
+ * With short lived threads (elastic thread pools, virtual threads, etc) this creates one session per thread - none of
+ * which are ever reused, and all of which are retained. Instead, sessions can be borrowed from a pool, used for one
+ * execution, and returned:
+ * <pre>
+ * {@code
+ * InferenceSession s = pool.borrow();
+ * try {
+ *     ...
+ * } finally {
+ *     pool.release(s);
+ * }
+ * }
+ * </pre>
+ * At most maxSessions sessions are created; when all are in use, borrow blocks until one is returned. Sessions (and
+ * hence their memory managers and cached execution plans) are kept after being returned, and the most recently
+ * returned session is borrowed first, so that sessions in use keep their array caches warm.<br>
+ * Note that a session must only be used by one thread at a time, and must not be used after it has been returned.
+ * See {@link SameDiff#setSessionPoolSize(int)} to use a pool for all SameDiff output methods.
+ */
+@Slf4j
+public class InferenceSessionPool {
+
+    private final SameDiff sameDiff;
+    @Getter
+    private final int maxSessions;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<InferenceSession> idle = new ArrayDeque<>();
+    private final Map<InferenceSession, Long> borrowed = new IdentityHashMap<>();    //Value: generation when borrowed
+    private long generation;
+    private long created;
+
+    /**
+     * @param sameDiff    SameDiff instance to create sessions for
+     * @param maxSessions Maximum number of sessions. Must be positive
+     */
+    public InferenceSessionPool(@NonNull SameDiff sameDiff, int maxSessions) {
+        if (maxSessions < 1)
+            throw new IllegalArgumentException("Maximum number of sessions must be positive, got " + maxSessions);
+        this.sameDiff = sameDiff;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Borrow a session, blocking until one is available
+     *
+     * @return Session, for use by the calling thread only. Must be returned with {@link #release(InferenceSession)}
+     */
+    public InferenceSession borrow() {
+        try {
+            return borrow(-1, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an inference session", e);
+        }
+    }
+
+    /**
+     * Borrow a session, waiting up to the specified time for one to become available
+     *
+     * @param timeout Maximum time to wait. Negative to wait indefinitely
+     * @param unit    Time unit for the timeout
+     * @return Session, or null if no session became available before the timeout
+     */
+    public InferenceSession borrow(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (idle.isEmpty() && borrowed.size() >= maxSessions) {
+                if (timeout < 0) {
+                    available.await();
+                } else {
+                    if (nanos <= 0)
+                        return null;
+                    nanos = available.awaitNanos(nanos);
+                }
+            }
+
+            InferenceSession s = idle.pollFirst();
+            if (s == null) {
+                s = new InferenceSession(sameDiff);
+                created++;
+                log.debug("Created inference session {} of {}", created, maxSessions);
+            }
+            borrowed.put(s, generation);
+            return s;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a session to the pool. The session must not be used after it has been returned
+     *
+     * @param session Session, previously borrowed from this pool
+     */
+    public void release(@NonNull InferenceSession session) {
+        boolean close;
+        lock.lock();
+        try {
+            Long gen = borrowed.remove(session);
+            if (gen == null)
+                throw new IllegalArgumentException("Session was not borrowed from this pool, or has already been returned");
+            //Sessions borrowed before the pool was cleared may use outdated graph state: discard them
+            close = gen != generation;
+            if (!close)
+                idle.addFirst(session);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (close)
+            session.getMmgr().close();
+    }
+
+    /**
+     * Remove all sessions from the pool, closing the memory managers of idle sessions. Sessions currently in use are
+     * closed when they are returned. This should be called whenever the SameDiff graph is modified
+     */
+    public void clear() {
+        List<InferenceSession> toClose;
+        lock.lock();
+        try {
+            generation++;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (InferenceSession s : toClose) {
+            s.getMmgr().close();
+        }
+    }
+
+    /**
+     * @return Number of idle sessions in the pool
+     */
+    public int numIdle() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of sessions currently borrowed
+     */
+    public int numBorrowed() {
+        lock.lock();
+        try {
+            return borrowed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Total number of sessions created by this pool
+     */
+    public long numCreated() {
+        lock.lock();
+        try {
+            return created;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.internal;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded worker pool for inter-op parallelism: executing independent ops of the same graph (for example, the branches
+ * of an inception block, or the towers of a multi-head model) at the same time, on different threads.<br>
+ * Each op is still executed by the native backend using up to intraOpThreads threads (the OpenMP "master" threads
+ * setting of the {@link org.nd4j.linalg.factory.Environment}), so interOpThreads x intraOpThreads is usually set to
+ * the number of cores. Small batch sizes rarely use many threads within a single op, so for graphs with wide branches
+ * several ops with fewer threads each use the cores more effectively.<br>
+ * Note that the intra-op setting is a process wide setting of the native backend: it applies to all op execution,
+ * not only to ops executed by this scheduler. It is shared by all active schedulers: the value from before the first
+ * scheduler was created is restored when the last active scheduler is shut down, and while several schedulers are
+ * active the most recently created one determines the value. To use a fixed intra-op setting regardless of the
+ * schedulers, set it globally via {@code Nd4j.getEnvironment().setMaxMasterThreads(int)} and don't use more than one
+ * scheduler at a time.<br>
+ * Only graphs executed from a cached {@link ExecutionPlan} (i.e., graphs without control flow) are executed in
+ * parallel; see {@link SameDiff#setInterOpParallelism(int, int)}.
+ */
+@Slf4j
+@Getter
+public class InterOpScheduler {
+
+    //Reference count for the (process wide) intra-op threads setting, and the value to restore once it reaches 0
+    private static final Object INTRA_OP_LOCK = new Object();
+    private static int numActiveSchedulers;
+    private static int originalIntraOpThreads;
+
+    private final int interOpThreads;
+    private final int intraOpThreads;
+    private final ExecutorService executor;
+    private final AtomicBoolean isShutdown = new AtomicBoolean();
+    private final AtomicLong numOpsExecuted = new AtomicLong();
+
+    /**
+     * @param interOpThreads Number of ops to execute concurrently. Must be at least 2
+     * @param intraOpThreads Number of threads to use within each op. If &lt;= 0: the number of available processors
+     *                       divided by interOpThreads (and at least 1)
+     */
+    public InterOpScheduler(int interOpThreads, int intraOpThreads) {
+        if (interOpThreads < 2)
+            throw new IllegalArgumentException("Number of inter-op threads must be at least 2, got " + interOpThreads);
+        if (intraOpThreads <= 0)
+            intraOpThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / interOpThreads);
+        this.interOpThreads = interOpThreads;
+        this.intraOpThreads = intraOpThreads;
+        acquireIntraOpThreads(intraOpThreads);
+
+        final Integer deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(interOpThreads, interOpThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        //Workers execute ops on the same device as the thread that configured the scheduler
+                        Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+                        r.run();
+                    }
+                }, "SameDiff-InterOp-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        log.info("Inter-op parallelism enabled: {} inter-op threads, {} intra-op threads", interOpThreads, intraOpThreads);
+    }
+
+    /**
+     * @return Number of ops executed by the worker threads of this scheduler
+     */
+    public long getNumOpsExecuted() {
+        return numOpsExecuted.get();
+    }
+
+    /**
+     * Record the execution of an op by one of the worker threads
+     */
+    protected void opExecuted() {
+        numOpsExecuted.incrementAndGet();
+    }
+
+    /**
+     * Stop the worker threads. If this is the last active scheduler, the intra-op threads setting from before the
+     * first active scheduler was created is restored. Must not be called while graph executions using this scheduler
+     * are in progress. Has no effect if the scheduler has already been shut down
+     */
+    public void shutdown() {
+        if (!isShutdown.compareAndSet(false, true))
+            return;
+        executor.shutdown();
+        releaseIntraOpThreads();
+    }
+
+    private static void acquireIntraOpThreads(int intraOpThreads) {
+        synchronized (INTRA_OP_LOCK) {
+            if (numActiveSchedulers++ == 0) {
+                originalIntraOpThreads = Nd4j.getEnvironment().maxMasterThreads();
+            }
+            Nd4j.getEnvironment().setMaxMasterThreads(intraOpThreads);
+        }
+    }
+
+    private static void releaseIntraOpThreads() {
+        synchronized (INTRA_OP_LOCK) {
+            if (--numActiveSchedulers == 0) {
+                Nd4j.getEnvironment().setMaxMasterThreads(originalIntraOpThreads);
+            }
+        }
+    }
+}
@@ -71,6 +71,7 @@ public class SameDiffOp {
 
     public void setInputsToOp(List<String> inputsToOp) {
         this.inputsToOp = inputsToOp;
+        structureChanged();
     }
 
     public List<String> getOutputsOfOp() {
@@ -79,6 +80,7 @@ public class SameDiffOp {
 
     public void setOutputsOfOp(List<String> outputsOfOp) {
         this.outputsOfOp = outputsOfOp;
+        structureChanged();
     }
 
     public List<String> getControlDeps() {
@@ -87,6 +89,7 @@ public class SameDiffOp {
 
     public void setControlDeps(List<String> controlDeps) {
         this.controlDeps = controlDeps;
+        structureChanged();
     }
 
     public List<String> getVarControlDeps() {
@@ -95,6 +98,7 @@ public class SameDiffOp {
 
     public void setVarControlDeps(List<String> varControlDeps) {
         this.varControlDeps = varControlDeps;
+        structureChanged();
     }
 
     public List<String> getControlDepFor() {
@@ -104,4 +108,13 @@ public class SameDiffOp {
     public void setControlDepFor(List<String> controlDepFor) {
         this.controlDepFor = controlDepFor;
     }
+
+    /**
+     * Changing the inputs, outputs or control dependencies of an op changes the graph structure, which invalidates any
+     * cached execution plans
+     */
+    private void structureChanged() {
+        if (op != null && op.getSameDiff() != null)
+            op.getSameDiff().structureChanged();
+    }
 }
@@ -54,6 +54,8 @@ public class TrainingSession extends InferenceSession {
 
     public TrainingSession(SameDiff sameDiff) {
         super(sameDiff);
+        //Training relies on the array use tracker for gradient arrays: don't replay execution plans
+        this.planCaching = false;
     }
 
     /**
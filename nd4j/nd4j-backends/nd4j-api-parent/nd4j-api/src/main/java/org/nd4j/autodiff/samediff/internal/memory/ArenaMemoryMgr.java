@@ -0,0 +1,373 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.internal.memory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.LongShapeDescriptor;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.common.util.ArrayUtil;
+
+import java.util.*;
+
+/**
+ * A session memory manager that plans memory ahead of time, for graphs with fixed shapes.<br>
+ * The first execution (after creation, or whenever the allocations of an execution differ from the plan) is
+ * recorded: the order, size and lifetime of every array allocated and released within the execution. From this
+ * recording, all arrays that are released before the end of the execution are assigned an offset in a single
+ * preallocated arena per data type, such that arrays that are live at the same time never overlap
+ * (greedy assignment in order of decreasing size). Arrays whose lifetimes don't overlap share memory.<br>
+ * Subsequent executions that perform exactly the same allocations and releases, in the same order, get views of the
+ * arena instead of newly allocated arrays - i.e., steady state inference does not allocate any memory, other than
+ * for the arrays returned to the user. As soon as an execution deviates from the plan (for example, due to a different
+ * minibatch size), the remaining arrays of that execution are allocated normally, and a new plan is computed at the
+ * end of the execution.<br>
+ * Execution boundaries are signalled by {@link #beginExecution()} and {@link #endExecution()}, which are called
+ * by {@link org.nd4j.autodiff.samediff.internal.InferenceSession}.<br>
+ * To use, set this memory manager on the session: {@code session.setMmgr(new ArenaMemoryMgr())}
+ */
+@Slf4j
+public class ArenaMemoryMgr extends AbstractMemoryMgr {
+    //Alignment of array offsets within an arena, in bytes
+    private static final int ALIGNMENT_BYTES = 64;
+
+    private final Map<DataType, DataBuffer> arenas = new HashMap<>();
+    private final Map<INDArray, Block> live = new IdentityHashMap<>();
+    private List<Block> plan;
+    private int planEvents;
+
+    //State for the current execution
+    private List<Block> blocks = new ArrayList<>();
+    private int time;
+    private boolean inExecution;
+    private boolean deviated;
+
+    /**
+     * Peak number of bytes in use at any one time by the arrays assigned to the arena, as per the current plan.
+     * This is the minimum possible total arena size
+     */
+    @Getter
+    private long peakLiveBytes;
+    /**
+     * Number of arrays assigned to the arena by the current plan
+     */
+    @Getter
+    private int numPlannedArrays;
+    /**
+     * Number of arrays allocated from the arena during the current (or last) execution
+     */
+    @Getter
+    private int numArenaAllocations;
+    /**
+     * Number of arrays allocated outside of the arena during the current (or last) execution, excluding arrays that
+     * are returned to the user
+     */
+    @Getter
+    private int numOtherAllocations;
+
+    /**
+     * Signal the start of an execution. Any arrays of a previous execution that were not released (for example, due to
+     * an exception during execution) are no longer tracked
+     */
+    public void beginExecution() {
+        if (inExecution) {
+            //Previous execution did not complete - don't plan from it
+            log.debug("Previous execution did not complete; discarding its allocation record");
+            discardArenaIfLive();
+        }
+        live.clear();
+        blocks = new ArrayList<>();
+        time = 0;
+        deviated = false;
+        numArenaAllocations = 0;
+        numOtherAllocations = 0;
+        inExecution = true;
+    }
+
+    /**
+     * Signal the end of an execution. If the execution did not exactly match the current plan, a new plan is
+     * computed from the execution
+     */
+    public void endExecution() {
+        if (!inExecution)
+            return;
+        inExecution = false;
+
+        //Arena arrays that are still referenced after execution would be overwritten by the next execution
+        discardArenaIfLive();
+        live.clear();
+
+        boolean matched = plan != null && !deviated && blocks.size() == plan.size() && time == planEvents;
+        if (!matched) {
+            plan(blocks, time);
+        }
+        blocks = new ArrayList<>();
+    }
+
+    @Override
+    public INDArray allocate(boolean detached, DataType dataType, long... shape) {
+        return allocate(detached, dataType, 'c', shape);
+    }
+
+    @Override
+    public INDArray allocate(boolean detached, LongShapeDescriptor descriptor) {
+        if (descriptor.isEmpty()) {
+            INDArray ret = Nd4j.create(descriptor);
+            if (detached) {
+                ret = ret.detach();
+            }
+            return ret;
+        }
+        return allocate(detached, descriptor.dataType(), descriptor.getOrder(), descriptor.getShape());
+    }
+
+    protected INDArray allocate(boolean detached, DataType dataType, char order, long[] shape) {
+        long length = shape.length == 0 ? 1 : ArrayUtil.prod(shape);
+        if (!inExecution || length <= 0 || dataType == DataType.UTF8) {
+            //Not tracked: outside of an execution, or no fixed size buffer
+            return Nd4j.createUninitializedDetached(dataType, order, shape);
+        }
+
+        int idx = blocks.size();
+        Block b = new Block(idx, dataType, length, detached, time++);
+        blocks.add(b);
+
+        Block p = null;
+        if (plan != null && !deviated) {
+            p = idx < plan.size() ? plan.get(idx) : null;
+            if (p == null || p.alloc != b.alloc || p.dataType != dataType || p.length != length || p.detached != detached) {
+                log.debug("Execution deviated from memory plan at allocation {}: reverting to standard allocation", idx);
+                deviated = true;
+            }
+        }
+
+        INDArray out;
+        if (!deviated && p != null && p.offset >= 0) {
+            DataBuffer view = Nd4j.createBuffer(arenas.get(dataType), p.offset, length);
+            out = Nd4j.create(view, shape, Nd4j.getStrides(shape, order), 0, order);
+            b.inArena = true;
+            numArenaAllocations++;
+        } else {
+            out = Nd4j.createUninitializedDetached(dataType, order, shape);
+            if (!detached)
+                numOtherAllocations++;
+        }
+        live.put(out, b);
+        return out;
+    }
+
+    @Override
+    public void release(@NonNull INDArray array) {
+        Block b = live.remove(array);
+        if (b == null) {
+            //Not allocated during this execution (or already released)
+            log.trace("Ignoring release of untracked array: id={}", array.getId());
+            return;
+        }
+        b.free = time++;
+
+        if (plan != null && !deviated) {
+            if (plan.get(b.index).free != b.free) {
+                log.debug("Execution deviated from memory plan at release of allocation {}: reverting to standard allocation", b.index);
+                deviated = true;
+            }
+        }
+
+        if (!b.inArena && !array.wasClosed() && array.closeable()) {
+            array.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (DataBuffer db : arenas.values()) {
+            if (!db.wasClosed() && db.closeable())
+                db.close();
+        }
+        arenas.clear();
+        live.clear();
+        plan = null;
+        peakLiveBytes = 0;
+        numPlannedArrays = 0;
+    }
+
+    /**
+     * @return Total size of all arenas, in bytes
+     */
+    public long getArenaBytes() {
+        long bytes = 0;
+        for (DataBuffer db : arenas.values()) {
+            bytes += db.length() * db.getElementSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * If any arrays backed by the arena are still referenced, the arena can no longer be reused: drop the plan and
+     * arenas, leaving the arrays to be deallocated once they are no longer referenced
+     */
+    private void discardArenaIfLive() {
+        for (Block b : live.values()) {
+            if (b.inArena) {
+                log.debug("Arena array was not released during execution; discarding memory plan and arena");
+                arenas.clear();
+                plan = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compute the offsets of all arrays that were released before the end of the recorded execution, and (re)allocate
+     * the arenas if required
+     */
+    private void plan(List<Block> recorded, int numEvents) {
+        Map<DataType, List<Block>> byType = new HashMap<>();
+        for (Block b : recorded) {
+            b.offset = -1;
+            b.inArena = false;
+            if (!b.detached && b.free >= 0) {
+                List<Block> l = byType.get(b.dataType);
+                if (l == null) {
+                    l = new ArrayList<>();
+                    byType.put(b.dataType, l);
+                }
+                l.add(b);
+            }
+        }
+
+        int count = 0;
+        for (Map.Entry<DataType, List<Block>> e : byType.entrySet()) {
+            DataType dt = e.getKey();
+            List<Block> l = e.getValue();
+            long align = Math.max(1, ALIGNMENT_BYTES / dt.width());
+            long arenaLength = assignOffsets(l, align);
+
+            DataBuffer arena = arenas.get(dt);
+            if (arena == null || arena.length() < arenaLength) {
+                arena = Nd4j.createBufferDetached(new long[]{arenaLength}, dt);
+                arenas.put(dt, arena);
+            }
+            count += l.size();
+        }
+
+        //Arenas no longer used by this plan
+        arenas.keySet().retainAll(byType.keySet());
+
+        plan = recorded;
+        planEvents = numEvents;
+        numPlannedArrays = count;
+        peakLiveBytes = peakLiveBytes(recorded, numEvents);
+        log.debug("Computed memory plan: {} of {} arrays in arena, arena size {} bytes, peak live size {} bytes",
+                numPlannedArrays, recorded.size(), getArenaBytes(), peakLiveBytes);
+    }
+
+    /**
+     * Greedy offset assignment: place the largest arrays first, each at the lowest aligned offset that does not
+     * overlap any already placed array with an overlapping lifetime
+     *
+     * @return Required arena length, in elements
+     */
+    private static long assignOffsets(List<Block> l, long align) {
+        List<Block> sorted = new ArrayList<>(l);
+        Collections.sort(sorted, new Comparator<Block>() {
+            @Override
+            public int compare(Block b1, Block b2) {
+                int c = Long.compare(b2.length, b1.length);
+                return c != 0 ? c : Integer.compare(b1.alloc, b2.alloc);
+            }
+        });
+
+        long arenaLength = 0;
+        List<Block> placed = new ArrayList<>();
+        List<Block> overlapping = new ArrayList<>();
+        for (Block b : sorted) {
+            long size = alignUp(b.length, align);
+            overlapping.clear();
+            for (Block other : placed) {
+                if (other.alloc < b.free && b.alloc < other.free)
+                    overlapping.add(other);
+            }
+            Collections.sort(overlapping, new Comparator<Block>() {
+                @Override
+                public int compare(Block b1, Block b2) {
+                    return Long.compare(b1.offset, b2.offset);
+                }
+            });
+
+            long offset = 0;
+            for (Block other : overlapping) {
+                if (offset + size <= other.offset)
+                    break;
+                offset = Math.max(offset, other.offset + alignUp(other.length, align));
+            }
+            b.offset = offset;
+            placed.add(b);
+            arenaLength = Math.max(arenaLength, offset + size);
+        }
+        return arenaLength;
+    }
+
+    private static long peakLiveBytes(List<Block> blocks, int numEvents) {
+        long[] delta = new long[numEvents + 1];
+        for (Block b : blocks) {
+            if (b.offset >= 0) {
+                long bytes = b.length * b.dataType.width();
+                delta[b.alloc] += bytes;
+                delta[b.free] -= bytes;
+            }
+        }
+        long curr = 0;
+        long peak = 0;
+        for (long d : delta) {
+            curr += d;
+            peak = Math.max(peak, curr);
+        }
+        return peak;
+    }
+
+    private static long alignUp(long length, long align) {
+        return ((length + align - 1) / align) * align;
+    }
+
+    private static class Block {
+        private final int index;        //Index of the allocation within the execution
+        private final DataType dataType;
+        private final long length;
+        private final boolean detached;
+        private final int alloc;        //Event index of the allocation
+        private int free = -1;          //Event index of the release, -1 if not released
+        private long offset = -1;       //Offset in the arena (elements), -1 if not in the arena
+        private boolean inArena;
+
+        private Block(int index, DataType dataType, long length, boolean detached, int alloc) {
+            this.index = index;
+            this.dataType = dataType;
+            this.length = length;
+            this.detached = detached;
+            this.alloc = alloc;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.BaseOp;
+import org.nd4j.linalg.api.ops.BaseScalarOp;
+import org.nd4j.linalg.api.ops.CustomOp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Common subexpression elimination: if two ops of the same type, with the same configuration, are applied to the same
+ * inputs, only one of them is kept and the outputs of the other are replaced by its outputs.<br>
+ * Small constants with identical values are merged in the same way, which allows ops using different (but equal)
+ * constants to be merged.<br>
+ * Stateful ops (such as random number generation), control flow ops and ops with control dependencies are never merged.
+ */
+public class CommonSubexpressionElimination implements OptimizationPass {
+    public static final String NAME = "CommonSubexpressionElimination";
+
+    /**
+     * Maximum length of constants to compare for merging
+     */
+    public static final int MAX_CONSTANT_LENGTH = 64;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        boolean changed = mergeConstants(sd, requiredOutputs, report);
+
+        Map<String, List<SameDiffOp>> candidates = new HashMap<>();
+        for (String opName : new ArrayList<>(sd.getOps().keySet())) {
+            SameDiffOp op = sd.getOps().get(opName);
+            if (op == null || op.getInputsToOp() == null || op.getInputsToOp().isEmpty() || !OptimizationUtils.isReplaceable(sd, op))
+                continue;
+            String key = op.getOp().getClass().getName() + op.getInputsToOp();
+            List<SameDiffOp> l = candidates.get(key);
+            if (l == null) {
+                l = new ArrayList<>();
+                candidates.put(key, l);
+            }
+
+            SameDiffOp match = null;
+            for (SameDiffOp other : l) {
+                if (other.getOutputsOfOp().size() == op.getOutputsOfOp().size() && equivalent(other.getOp(), op.getOp())) {
+                    match = other;
+                    break;
+                }
+            }
+            if (match == null) {
+                l.add(op);
+                continue;
+            }
+
+            //Keep whichever op has required outputs, as these can't be renamed
+            SameDiffOp keep = match;
+            SameDiffOp remove = op;
+            if (anyRequired(remove, requiredOutputs)) {
+                if (anyRequired(keep, requiredOutputs))
+                    continue;
+                keep = op;
+                remove = match;
+                l.set(l.indexOf(match), op);
+            }
+            for (int i = 0; i < remove.getOutputsOfOp().size(); i++) {
+                OptimizationUtils.replaceUses(sd, remove.getOutputsOfOp().get(i), keep.getOutputsOfOp().get(i));
+            }
+            OptimizationUtils.removeOp(sd, remove.getName());
+            report.record(NAME, "Removed op \"" + remove.getName() + "\" (" + remove.getOp().opName() + "): duplicate of op \"" + keep.getName() + "\"");
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static boolean mergeConstants(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        boolean changed = false;
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (Variable v : new ArrayList<>(sd.getVariables().values())) {
+            if (v.getVariable().getVariableType() != VariableType.CONSTANT || requiredOutputs.contains(v.getName())
+                    || OptimizationUtils.hasControlDeps(v))
+                continue;
+            INDArray arr = v.getVariable().getArr();
+            if (arr == null || arr.dataType() == DataType.UTF8 || arr.length() > MAX_CONSTANT_LENGTH)
+                continue;
+            String key = arr.dataType() + Arrays.toString(arr.shape());
+            List<String> l = candidates.get(key);
+            if (l == null) {
+                l = new ArrayList<>();
+                candidates.put(key, l);
+            }
+
+            String match = null;
+            for (String other : l) {
+                if (exactEquals(sd.getVariable(other).getArr(), arr)) {
+                    match = other;
+                    break;
+                }
+            }
+            if (match == null) {
+                l.add(v.getName());
+                continue;
+            }
+            if (OptimizationUtils.consumers(sd, v.getName()).isEmpty())
+                continue;
+            OptimizationUtils.replaceUses(sd, v.getName(), match);
+            sd.removeVariable(v.getName());
+            report.record(NAME, "Removed constant \"" + v.getName() + "\": duplicate of constant \"" + match + "\"");
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * @return True if the two ops are of the same type and have the same configuration
+     */
+    protected static boolean equivalent(DifferentialFunction a, DifferentialFunction b) {
+        if (a.getClass() != b.getClass())
+            return false;
+        if (a instanceof CustomOp) {
+            CustomOp ca = (CustomOp) a;
+            CustomOp cb = (CustomOp) b;
+            if (!Arrays.equals(ca.iArgs(), cb.iArgs()) || !Arrays.equals(ca.tArgs(), cb.tArgs())
+                    || !Arrays.equals(ca.bArgs(), cb.bArgs()) || !Arrays.equals(ca.dArgs(), cb.dArgs()))
+                return false;
+        }
+        if (a instanceof BaseOp && !Arrays.deepEquals(((BaseOp) a).extraArgs(), ((BaseOp) b).extraArgs()))
+            return false;
+        if (a instanceof BaseScalarOp && !valueEquals(((BaseScalarOp) a).scalar(), ((BaseScalarOp) b).scalar()))
+            return false;
+
+        Map<String, Object> pa;
+        Map<String, Object> pb;
+        try {
+            pa = a.propertiesForFunction();
+            pb = b.propertiesForFunction();
+        } catch (Exception e) {
+            //Can't determine the configuration of the op
+            return false;
+        }
+        if (pa == null || pb == null || !pa.keySet().equals(pb.keySet()))
+            return false;
+        for (Map.Entry<String, Object> e : pa.entrySet()) {
+            if (!valueEquals(e.getValue(), pb.get(e.getKey())))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Object a, Object b) {
+        if (a instanceof INDArray && b instanceof INDArray)
+            return exactEquals((INDArray) a, (INDArray) b);
+        return Objects.deepEquals(a, b);
+    }
+
+    private static boolean exactEquals(INDArray a, INDArray b) {
+        if (a == b)
+            return true;
+        if (a == null || b == null || a.dataType() != b.dataType() || !Arrays.equals(a.shape(), b.shape()))
+            return false;
+        if (a.isEmpty() || a.dataType() == DataType.UTF8)
+            return a.isEmpty() && b.isEmpty();
+        if (a.dataType().isFPType())
+            return Arrays.equals(a.dup('c').data().asDouble(), b.dup('c').data().asDouble());
+        return Arrays.equals(a.dup('c').data().asLong(), b.dup('c').data().asLong());
+    }
+
+    private static boolean anyRequired(SameDiffOp op, Set<String> requiredOutputs) {
+        for (String s : op.getOutputsOfOp()) {
+            if (requiredOutputs.contains(s))
+                return true;
+        }
+        return false;
+    }
+}
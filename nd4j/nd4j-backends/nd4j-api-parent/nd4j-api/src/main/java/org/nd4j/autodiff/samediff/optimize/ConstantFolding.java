@@ -0,0 +1,134 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Constant folding: ops whose inputs are all constants (directly, or via other foldable ops) are evaluated once, and
+ * their outputs are replaced by constants.<br>
+ * Only the outputs that are still needed after folding - i.e., required outputs, and variables used by ops that can't
+ * be folded - are kept, as constants with the same names. Ops with control dependencies, stateful ops (such as random
+ * number generation) and control flow ops are never folded. Trainable variables and placeholders are never treated
+ * as constant.
+ */
+@Slf4j
+public class ConstantFolding implements OptimizationPass {
+    public static final String NAME = "ConstantFolding";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        //Find foldable ops: repeat until no more are found, as the outputs of foldable ops are themselves constant
+        Set<String> foldable = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (SameDiffOp op : sd.getOps().values()) {
+                if (!foldable.contains(op.getName()) && canFold(sd, op, foldable)) {
+                    foldable.add(op.getName());
+                    changed = true;
+                }
+            }
+        }
+        if (foldable.isEmpty())
+            return false;
+
+        //Work out which outputs of the folded ops are still needed
+        List<String> keep = new ArrayList<>();
+        for (String opName : foldable) {
+            for (String out : sd.getOps().get(opName).getOutputsOfOp()) {
+                if (requiredOutputs.contains(out)) {
+                    keep.add(out);
+                    continue;
+                }
+                for (String consumer : OptimizationUtils.consumers(sd, out)) {
+                    if (!foldable.contains(consumer)) {
+                        keep.add(out);
+                        break;
+                    }
+                }
+            }
+        }
+
+        Map<String, INDArray> values;
+        if (keep.isEmpty()) {
+            values = Collections.emptyMap();
+        } else {
+            try {
+                sd.clearSessions();
+                values = sd.output(Collections.<String, INDArray>emptyMap(), keep);
+            } catch (Exception e) {
+                log.warn("Constant folding skipped: evaluation of constant subgraph failed", e);
+                return false;
+            }
+        }
+
+        for (String s : keep) {
+            INDArray arr = values.get(s);
+            SDVariable v = sd.getVariable(s);
+            v.setVariableType(VariableType.CONSTANT);
+            sd.getVariables().get(s).setOutputOfOp(null);
+            sd.setArrayForVariable(s, arr.dup());
+            report.record(NAME, "Replaced variable \"" + s + "\" with constant of shape " + Arrays.toString(arr.shape()));
+        }
+
+        for (String opName : foldable) {
+            report.record(NAME, "Removed op \"" + opName + "\" (" + sd.getOps().get(opName).getOp().opName() + ")");
+        }
+        OptimizationUtils.removeOps(sd, foldable);
+        return true;
+    }
+
+    private static boolean canFold(SameDiff sd, SameDiffOp op, Set<String> foldable) {
+        if (!OptimizationUtils.isReplaceable(sd, op))
+            return false;
+        List<String> inputs = op.getInputsToOp();
+        if (inputs == null || inputs.isEmpty())
+            return false;
+        for (String in : inputs) {
+            Variable v = sd.getVariables().get(in);
+            if (v.getVariable().getVariableType() == VariableType.CONSTANT)
+                continue;
+            if (v.getVariable().getVariableType() != VariableType.ARRAY || v.getOutputOfOp() == null || !foldable.contains(v.getOutputOfOp()))
+                return false;
+        }
+        return true;
+    }
+}
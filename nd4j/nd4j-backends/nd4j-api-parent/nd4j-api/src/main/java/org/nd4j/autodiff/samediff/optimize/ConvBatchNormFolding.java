@@ -0,0 +1,158 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.transform.GraphTransformUtil;
+import org.nd4j.autodiff.samediff.transform.OpPredicate;
+import org.nd4j.autodiff.samediff.transform.SubGraph;
+import org.nd4j.autodiff.samediff.transform.SubGraphPredicate;
+import org.nd4j.enums.WeightsFormat;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.BatchNorm;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.Conv2D;
+import org.nd4j.linalg.factory.Broadcast;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Folds a batch normalization op that follows a 2d convolution into the weights and bias of the convolution, for
+ * inference:<br>
+ * {@code scale = gamma / sqrt(var + eps)}, {@code W' = W * scale} (per output channel) and
+ * {@code b' = (b - mean) * scale + beta}<br>
+ * The convolution weights, bias (if any) and all of the batch norm parameters must be constants, and the batch norm
+ * must be applied over the channels dimension of the convolution output. New constants are created for the folded
+ * weights and bias; the originals are left for {@link DeadNodeElimination} to remove if no longer used. The name of
+ * the batch norm output variable is preserved.
+ */
+public class ConvBatchNormFolding implements OptimizationPass {
+    public static final String NAME = "ConvBatchNormFolding";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        List<SubGraph> matches = GraphTransformUtil.getSubgraphsMatching(sd,
+                SubGraphPredicate.withRoot(OpPredicate.classEquals(BatchNorm.class)).withInputSubgraph(0, OpPredicate.classEquals(Conv2D.class)));
+
+        boolean changed = false;
+        for (SubGraph sg : matches) {
+            SameDiffOp bnOp = sd.getOps().get(sg.getRootNode().getOwnName());
+            SameDiffOp convOp = sd.getOps().get(sg.getChildNodes().get(0).getOwnName());
+            if (bnOp != null && convOp != null)
+                changed |= fold(sd, convOp, bnOp, requiredOutputs, report);
+        }
+        return changed;
+    }
+
+    private static boolean fold(SameDiff sd, SameDiffOp convOp, SameDiffOp bnOp, Set<String> requiredOutputs, OptimizationReport report) {
+        if (convOp.getOutputsOfOp().size() != 1 || bnOp.getOutputsOfOp().size() != 1)
+            return false;
+        if (!OptimizationUtils.isReplaceable(sd, convOp) || !OptimizationUtils.isReplaceable(sd, bnOp))
+            return false;
+        String convOut = convOp.getOutputsOfOp().get(0);
+        if (requiredOutputs.contains(convOut) || !OptimizationUtils.hasSingleConsumer(sd, convOut)
+                || !convOut.equals(bnOp.getInputsToOp().get(0)))
+            return false;
+
+        //Conv2D iArgs: [kH, kW, sH, sW, pH, pW, dH, dW, sameMode, dataFormat (0=NCHW, 1=NHWC), weightsFormat]
+        Conv2D conv = (Conv2D) convOp.getOp();
+        if (conv.getConfig() == null && conv.numIArguments() == 0)
+            return false;
+        long[] convArgs = conv.iArgs();
+        if (convArgs.length < 10)
+            return false;
+        boolean nchw = convArgs[9] == 0;
+        int weightsFormat = convArgs.length < 11 ? WeightsFormat.YXIO.ordinal() : (int) convArgs[10];
+        int outChannelDim = weightsFormat == WeightsFormat.YXIO.ordinal() ? 3 : 0;
+
+        //BatchNorm: inputs [input, mean, variance, gamma?, beta?], iArgs [applyGamma, applyBeta, axis...], tArgs [eps]
+        BatchNorm bn = (BatchNorm) bnOp.getOp();
+        long[] bnArgs = bn.iArgs();
+        double[] bnTArgs = bn.tArgs();
+        if (bnArgs == null || bnArgs.length < 2 || bnArgs.length > 3 || bnTArgs == null || bnTArgs.length != 1)
+            return false;
+        //No axis: last dimension
+        long axis = bnArgs.length == 2 ? 3 : (bnArgs[2] < 0 ? bnArgs[2] + 4 : bnArgs[2]);
+        if (axis != (nchw ? 1 : 3))
+            return false;
+        boolean applyGamma = bnArgs[0] != 0;
+        boolean applyBeta = bnArgs[1] != 0;
+        List<String> bnInputs = bnOp.getInputsToOp();
+        if (bnInputs.size() != 3 + (applyGamma ? 1 : 0) + (applyBeta ? 1 : 0))
+            return false;
+
+        List<String> convInputs = convOp.getInputsToOp();
+        INDArray w = OptimizationUtils.constantArray(sd, convInputs.get(1));
+        INDArray b = convInputs.size() > 2 ? OptimizationUtils.constantArray(sd, convInputs.get(2)) : null;
+        INDArray mean = OptimizationUtils.constantArray(sd, bnInputs.get(1));
+        INDArray var = OptimizationUtils.constantArray(sd, bnInputs.get(2));
+        INDArray gamma = applyGamma ? OptimizationUtils.constantArray(sd, bnInputs.get(3)) : null;
+        INDArray beta = applyBeta ? OptimizationUtils.constantArray(sd, bnInputs.get(3 + (applyGamma ? 1 : 0))) : null;
+        if (w == null || w.rank() != 4 || !w.dataType().isFPType() || (convInputs.size() > 2 && b == null) || mean == null
+                || var == null || (applyGamma && gamma == null) || (applyBeta && beta == null))
+            return false;
+
+        long nOut = w.size(outChannelDim);
+        DataType dt = w.dataType();
+        for (INDArray arr : new INDArray[]{b, mean, var, gamma, beta}) {
+            if (arr != null && arr.length() != nOut)
+                return false;
+        }
+
+        INDArray scale = Transforms.sqrt(vector(var, dt).add(bnTArgs[0]), false).rdivi(1.0);
+        if (gamma != null)
+            scale.muli(vector(gamma, dt));
+        INDArray newW = Broadcast.mul(w, scale, w.ulike(), outChannelDim);
+        INDArray newB = b == null ? scale.ulike().assign(0) : vector(b, dt);
+        newB.subi(vector(mean, dt)).muli(scale);
+        if (beta != null)
+            newB.addi(vector(beta, dt));
+
+        String wName = sd.constant(OptimizationUtils.newVariableName(sd, convInputs.get(1) + "_bnfolded"), newW).name();
+        String bName = sd.constant(OptimizationUtils.newVariableName(sd, convOp.getName() + "_b_bnfolded"), newB).name();
+        OptimizationUtils.replaceInput(sd, convOp, 1, wName);
+        if (convInputs.size() > 2) {
+            OptimizationUtils.replaceInput(sd, convOp, 2, bName);
+        } else {
+            OptimizationUtils.addInput(sd, convOp, bName);
+        }
+
+        String bnOut = bnOp.getOutputsOfOp().get(0);
+        OptimizationUtils.replaceUses(sd, bnOut, convOut);
+        OptimizationUtils.removeOp(sd, bnOp.getName());
+        sd.renameVariable(convOut, bnOut);
+        report.record(NAME, "Folded op \"" + bnOp.getName() + "\" (" + bn.opName() + ") into op \"" + convOp.getName() + "\" ("
+                + convOp.getOp().opName() + ")");
+        return true;
+    }
+
+    private static INDArray vector(INDArray arr, DataType dt) {
+        return arr.castTo(dt).reshape(arr.length()).dup();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Dead node elimination: removes ops that are not needed to calculate any of the required outputs, along with any
+ * constants and intermediate variables that are no longer used.<br>
+ * Trainable variables and placeholders are never removed, nor is anything with control dependencies. If no required
+ * outputs are known, the graph is not modified.
+ */
+public class DeadNodeElimination implements OptimizationPass {
+    public static final String NAME = "DeadNodeElimination";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        if (requiredOutputs.isEmpty())
+            return false;
+
+        //Work backwards from the required outputs, marking everything they depend on
+        Set<String> reachableOps = new HashSet<>();
+        Set<String> reachableVars = new HashSet<>();
+        Queue<String> queue = new LinkedList<>(requiredOutputs);
+        while (!queue.isEmpty()) {
+            String name = queue.remove();
+            if (reachableVars.contains(name))
+                continue;
+            reachableVars.add(name);
+            Variable v = sd.getVariables().get(name);
+            if (v == null)
+                continue;
+            addDependencies(sd, v.getControlDeps(), reachableOps, queue);
+
+            String opName = v.getOutputOfOp();
+            if (opName == null || reachableOps.contains(opName) || !sd.getOps().containsKey(opName))
+                continue;
+            reachableOps.add(opName);
+            SameDiffOp op = sd.getOps().get(opName);
+            addAll(queue, op.getInputsToOp());
+            addAll(queue, op.getControlDeps());
+            addAll(queue, op.getVarControlDeps());
+        }
+
+        Set<String> removeOps = new HashSet<>();
+        for (SameDiffOp op : sd.getOps().values()) {
+            if (!reachableOps.contains(op.getName()) && OptimizationUtils.isReplaceable(sd, op))
+                removeOps.add(op.getName());
+        }
+        //Unreachable ops that must be kept (due to control dependencies) may use the outputs of other unreachable ops
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String opName : new ArrayList<>(removeOps)) {
+                for (String out : sd.getOps().get(opName).getOutputsOfOp()) {
+                    for (String consumer : OptimizationUtils.consumers(sd, out)) {
+                        if (!removeOps.contains(consumer) && removeOps.remove(opName))
+                            changed = true;
+                    }
+                }
+            }
+        }
+        for (String opName : removeOps) {
+            report.record(NAME, "Removed op \"" + opName + "\" (" + sd.getOps().get(opName).getOp().opName() + ")");
+        }
+        OptimizationUtils.removeOps(sd, removeOps);
+
+        List<String> removeVars = new ArrayList<>();
+        for (Variable v : sd.getVariables().values()) {
+            VariableType vt = v.getVariable().getVariableType();
+            if (reachableVars.contains(v.getName()) || (vt != VariableType.CONSTANT && vt != VariableType.ARRAY))
+                continue;
+            if (!OptimizationUtils.consumers(sd, v.getName()).isEmpty() || OptimizationUtils.hasControlDeps(v))
+                continue;
+            if (v.getOutputOfOp() != null && sd.getOps().containsKey(v.getOutputOfOp()))
+                continue;
+            removeVars.add(v.getName());
+        }
+        for (String s : removeVars) {
+            sd.removeVariable(s);
+            report.record(NAME, "Removed unused variable \"" + s + "\"");
+        }
+
+        return !removeOps.isEmpty() || !removeVars.isEmpty();
+    }
+
+    private static void addDependencies(SameDiff sd, List<String> deps, Set<String> reachableOps, Queue<String> queue) {
+        if (deps == null)
+            return;
+        for (String s : deps) {
+            if (sd.getOps().containsKey(s)) {
+                SameDiffOp op = sd.getOps().get(s);
+                if (reachableOps.add(s)) {
+                    addAll(queue, op.getInputsToOp());
+                    addAll(queue, op.getControlDeps());
+                    addAll(queue, op.getVarControlDeps());
+                }
+            } else {
+                queue.add(s);
+            }
+        }
+    }
+
+    private static void addAll(Queue<String> queue, List<String> l) {
+        if (l != null)
+            queue.addAll(l);
+    }
+}
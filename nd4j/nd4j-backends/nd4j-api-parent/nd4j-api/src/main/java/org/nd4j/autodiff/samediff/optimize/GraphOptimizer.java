@@ -0,0 +1,160 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.config.ND4JSystemProperties;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optimizes a SameDiff graph for inference, by applying a set of {@link OptimizationPass}es repeatedly until no
+ * further changes are made. The default passes are:
+ * <ul>
+ *     <li>{@link ConstantFolding}: evaluates ops that depend only on constants</li>
+ *     <li>{@link ShapeOpElimination}: removes identity ops and redundant transpose/reshape ops</li>
+ *     <li>{@link CommonSubexpressionElimination}: merges duplicate ops and constants</li>
+ *     <li>{@link MatMulBiasFusion}: fuses matrix multiply + bias (+ ReLU) into a single op</li>
+ *     <li>{@link ConvBatchNormFolding}: folds batch normalization into the preceding convolution</li>
+ *     <li>{@link DeadNodeElimination}: removes ops and constants not needed for the required outputs</li>
+ * </ul>
+ * The graph is modified in place. The values of the required outputs are not changed (other than due to floating point
+ * rounding, for folded and fused ops), but other variables may be removed or replaced, and so can no longer be
+ * requested as outputs. Trainable variables are never modified, though the graph should generally not be trained
+ * after optimization.<br>
+ * Optimization of imported TensorFlow and ONNX graphs can be enabled using the
+ * {@link ND4JSystemProperties#SAMEDIFF_OPTIMIZE_ON_IMPORT} system property.
+ */
+@Slf4j
+public class GraphOptimizer {
+    /**
+     * Maximum number of times the passes are applied
+     */
+    public static final int MAX_ITERATIONS = 10;
+
+    private GraphOptimizer() {
+    }
+
+    /**
+     * @return The default optimization passes, in the order they are applied
+     */
+    public static List<OptimizationPass> defaultPasses() {
+        return Arrays.<OptimizationPass>asList(new ConstantFolding(), new ShapeOpElimination(), new CommonSubexpressionElimination(),
+                new MatMulBiasFusion(), new ConvBatchNormFolding(), new DeadNodeElimination());
+    }
+
+    /**
+     * Optimize the graph using the default passes. The required outputs are the outputs set via
+     * {@link SameDiff#setOutputs(List)} if any; otherwise, all variables not used by any op, along with any loss
+     * variables
+     *
+     * @param sd Graph to optimize
+     * @return Report of the changes made
+     */
+    public static OptimizationReport optimize(@NonNull SameDiff sd) {
+        return optimize(sd, defaultRequiredOutputs(sd));
+    }
+
+    /**
+     * Optimize the graph using the default passes
+     *
+     * @param sd              Graph to optimize
+     * @param requiredOutputs Variables that must be preserved
+     * @return Report of the changes made
+     */
+    public static OptimizationReport optimize(@NonNull SameDiff sd, @NonNull Collection<String> requiredOutputs) {
+        return optimize(sd, requiredOutputs, defaultPasses());
+    }
+
+    /**
+     * Optimize the graph using the specified passes
+     *
+     * @param sd              Graph to optimize
+     * @param requiredOutputs Variables that must be preserved
+     * @param passes          Optimization passes to apply
+     * @return Report of the changes made
+     */
+    public static OptimizationReport optimize(@NonNull SameDiff sd, @NonNull Collection<String> requiredOutputs,
+                                              @NonNull List<OptimizationPass> passes) {
+        Set<String> required = new LinkedHashSet<>(requiredOutputs);
+        for (String s : required) {
+            Preconditions.checkArgument(sd.hasVariable(s), "Required output \"%s\" does not exist in the graph", s);
+        }
+
+        OptimizationReport report = new OptimizationReport();
+        report.begin(sd.getOps().size(), sd.getVariables().size());
+        int iter = 0;
+        boolean changed = true;
+        while (changed && iter < MAX_ITERATIONS) {
+            changed = false;
+            iter++;
+            for (OptimizationPass p : passes) {
+                changed |= p.apply(sd, required, report);
+            }
+        }
+        sd.clearSessions();
+        report.end(sd.getOps().size(), sd.getVariables().size(), iter);
+        return report;
+    }
+
+    /**
+     * Optimize an imported graph, if enabled via the {@link ND4JSystemProperties#SAMEDIFF_OPTIMIZE_ON_IMPORT} system
+     * property. Otherwise, the graph is not modified
+     *
+     * @param sd Imported graph
+     * @return Report of the changes made, or null if optimization on import is not enabled
+     */
+    public static OptimizationReport optimizeOnImport(@NonNull SameDiff sd) {
+        if (!Boolean.parseBoolean(System.getProperty(ND4JSystemProperties.SAMEDIFF_OPTIMIZE_ON_IMPORT, "false")))
+            return null;
+        OptimizationReport report = optimize(sd);
+        log.info("Optimized imported graph: {}", report);
+        if (log.isDebugEnabled())
+            log.debug(report.toDetailedString());
+        return report;
+    }
+
+    /**
+     * @return The variables that must be preserved when optimizing the graph, if none are specified
+     */
+    public static Set<String> defaultRequiredOutputs(@NonNull SameDiff sd) {
+        Set<String> out = new LinkedHashSet<>();
+        if (sd.outputs() != null && !sd.outputs().isEmpty()) {
+            out.addAll(sd.outputs());
+        } else {
+            for (Variable v : sd.getVariables().values()) {
+                if (v.getVariable().getVariableType() == VariableType.ARRAY && OptimizationUtils.consumers(sd, v.getName()).isEmpty())
+                    out.add(v.getName());
+            }
+        }
+        out.addAll(sd.getLossVariables());
+        return out;
+    }
+}
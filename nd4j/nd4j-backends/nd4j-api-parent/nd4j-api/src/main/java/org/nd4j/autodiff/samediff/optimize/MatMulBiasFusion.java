@@ -0,0 +1,151 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.transform.GraphTransformUtil;
+import org.nd4j.autodiff.samediff.transform.OpPredicate;
+import org.nd4j.autodiff.samediff.transform.SubGraph;
+import org.nd4j.autodiff.samediff.transform.SubGraphPredicate;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.broadcast.BiasAdd;
+import org.nd4j.linalg.api.ops.impl.reduce.Mmul;
+import org.nd4j.linalg.api.ops.impl.scalar.RectifiedLinear;
+import org.nd4j.linalg.api.ops.impl.transforms.ReluLayer;
+import org.nd4j.linalg.api.ops.impl.transforms.custom.XwPlusB;
+import org.nd4j.linalg.api.ops.impl.transforms.pairwise.arithmetic.AddOp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fuses a matrix multiplication followed by a bias add into a single {@link XwPlusB} op.<br>
+ * If the bias add is followed by a ReLU activation, all three are fused into a single {@link ReluLayer} op. Other
+ * activation functions have no fused equivalent, and are left as separate ops.<br>
+ * Only 2d inputs and weights with a 1d bias are fused; the weights may be transposed (XwPlusB only). The name of the
+ * final output variable is preserved.
+ */
+public class MatMulBiasFusion implements OptimizationPass {
+    public static final String NAME = "MatMulBiasFusion";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        List<SubGraph> matches = new ArrayList<>();
+        for (SubGraphPredicate p : Arrays.asList(
+                SubGraphPredicate.withRoot(OpPredicate.classEquals(BiasAdd.class)).withInputSubgraph(0, OpPredicate.classEquals(Mmul.class)),
+                SubGraphPredicate.withRoot(OpPredicate.classEquals(AddOp.class)).withInputSubgraph(0, OpPredicate.classEquals(Mmul.class)),
+                SubGraphPredicate.withRoot(OpPredicate.classEquals(AddOp.class)).withInputSubgraph(1, OpPredicate.classEquals(Mmul.class)))) {
+            matches.addAll(GraphTransformUtil.getSubgraphsMatching(sd, p));
+        }
+
+        boolean changed = false;
+        for (SubGraph sg : matches) {
+            SameDiffOp biasOp = sd.getOps().get(sg.getRootNode().getOwnName());
+            SameDiffOp mmulOp = sd.getOps().get(sg.getChildNodes().get(0).getOwnName());
+            if (biasOp != null && mmulOp != null)
+                changed |= fuse(sd, mmulOp, biasOp, requiredOutputs, report);
+        }
+        return changed;
+    }
+
+    private static boolean fuse(SameDiff sd, SameDiffOp mmulOp, SameDiffOp biasOp, Set<String> requiredOutputs, OptimizationReport report) {
+        if (mmulOp.getInputsToOp().size() != 2 || mmulOp.getOutputsOfOp().size() != 1 || biasOp.getInputsToOp().size() != 2
+                || biasOp.getOutputsOfOp().size() != 1)
+            return false;
+        if (!OptimizationUtils.isReplaceable(sd, mmulOp) || !OptimizationUtils.isReplaceable(sd, biasOp))
+            return false;
+        String mmulOut = mmulOp.getOutputsOfOp().get(0);
+        if (requiredOutputs.contains(mmulOut) || !OptimizationUtils.hasSingleConsumer(sd, mmulOut))
+            return false;
+
+        List<String> biasInputs = biasOp.getInputsToOp();
+        int idx = biasInputs.indexOf(mmulOut);
+        if (idx < 0 || biasInputs.lastIndexOf(mmulOut) != idx || (biasOp.getOp() instanceof BiasAdd && idx != 0))
+            return false;
+
+        //Only plain matrix multiplication: no transpose of the first input or result, no scaling
+        DifferentialFunction mmul = mmulOp.getOp();
+        long[] iArgs = ((Mmul) mmul).iArgs();
+        double[] tArgs = ((Mmul) mmul).tArgs();
+        boolean transposeW = iArgs.length > 1 && iArgs[1] != 0;
+        if ((iArgs.length > 0 && iArgs[0] != 0) || (iArgs.length > 2 && iArgs[2] != 0))
+            return false;
+        if ((tArgs.length > 0 && tArgs[0] != 1.0) || (tArgs.length > 1 && tArgs[1] != 0.0))
+            return false;
+
+        String x = mmulOp.getInputsToOp().get(0);
+        String w = mmulOp.getInputsToOp().get(1);
+        String b = biasInputs.get(1 - idx);
+        long[] wShape = sd.getVariable(w).getShape();
+        long[] bShape = sd.getVariable(b).getShape();
+        if (OptimizationUtils.rank(sd, x) != 2 || wShape == null || wShape.length != 2 || bShape == null || bShape.length != 1
+                || bShape[0] != wShape[transposeW ? 0 : 1])
+            return false;
+        DataType dt = sd.getVariable(x).dataType();
+        if (dt == null || !dt.isFPType() || sd.getVariable(w).dataType() != dt || sd.getVariable(b).dataType() != dt)
+            return false;
+
+        //ReLU activation can also be fused, for non-transposed weights
+        String biasOut = biasOp.getOutputsOfOp().get(0);
+        SameDiffOp reluOp = null;
+        if (!transposeW && !requiredOutputs.contains(biasOut) && OptimizationUtils.hasSingleConsumer(sd, biasOut)) {
+            SameDiffOp next = sd.getOps().get(OptimizationUtils.consumers(sd, biasOut).get(0));
+            if (next.getOp() instanceof RectifiedLinear && next.getInputsToOp().size() == 1 && next.getOutputsOfOp().size() == 1
+                    && OptimizationUtils.isReplaceable(sd, next))
+                reluOp = next;
+        }
+
+        XwPlusB fused;
+        String outName;
+        List<String> remove = new ArrayList<>(Arrays.asList(mmulOp.getName(), biasOp.getName()));
+        if (reluOp == null) {
+            fused = new XwPlusB(sd, sd.getVariable(x), sd.getVariable(w), sd.getVariable(b));
+            if (transposeW)
+                fused.addIArgument(1);
+            outName = biasOut;
+        } else {
+            fused = new ReluLayer(sd, sd.getVariable(x), sd.getVariable(w), sd.getVariable(b));
+            INDArray cutoff = ((RectifiedLinear) reluOp.getOp()).scalar();
+            if (cutoff != null && cutoff.getDouble(0) != 0.0)
+                fused.addTArgument(cutoff.getDouble(0));
+            outName = reluOp.getOutputsOfOp().get(0);
+            remove.add(reluOp.getName());
+        }
+
+        SDVariable out = fused.outputVariable();
+        OptimizationUtils.replaceUses(sd, outName, out.name());
+        OptimizationUtils.removeOps(sd, remove);
+        sd.renameVariable(out.name(), outName);
+        report.record(NAME, "Fused ops " + remove + " into op \"" + fused.getOwnName() + "\" (" + fused.opName() + ")");
+        return true;
+    }
+}
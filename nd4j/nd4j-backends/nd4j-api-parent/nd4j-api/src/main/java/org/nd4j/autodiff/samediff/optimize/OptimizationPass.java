@@ -0,0 +1,49 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import org.nd4j.autodiff.samediff.SameDiff;
+
+import java.util.Set;
+
+/**
+ * A single graph optimization, as applied by {@link GraphOptimizer}.<br>
+ * Passes modify the graph in place. They must not change the values of the required outputs, and must not remove or
+ * rename any of the required output variables.
+ */
+public interface OptimizationPass {
+
+    /**
+     * @return Name of the pass, as used in the {@link OptimizationReport}
+     */
+    String name();
+
+    /**
+     * Apply the optimization to the graph
+     *
+     * @param sd              Graph to optimize
+     * @param requiredOutputs Variables that must be preserved
+     * @param report          Report to record all changes in
+     * @return True if the graph was modified
+     */
+    boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report);
+
+}
@@ -0,0 +1,106 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of the changes made to a graph by {@link GraphOptimizer}: the number of ops and variables before and after
+ * optimization, the number of changes made by each pass, and a description of each change
+ */
+@Getter
+public class OptimizationReport {
+    private int opsBefore;
+    private int opsAfter;
+    private int variablesBefore;
+    private int variablesAfter;
+    private int iterations;
+    private final Map<String, Integer> changeCounts = new LinkedHashMap<>();
+    private final List<String> changes = new ArrayList<>();
+
+    protected void begin(int numOps, int numVariables) {
+        this.opsBefore = numOps;
+        this.variablesBefore = numVariables;
+    }
+
+    protected void end(int numOps, int numVariables, int iterations) {
+        this.opsAfter = numOps;
+        this.variablesAfter = numVariables;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Record a single change to the graph
+     *
+     * @param pass        Name of the pass that made the change
+     * @param description Description of the change
+     */
+    public void record(String pass, String description) {
+        Integer count = changeCounts.get(pass);
+        changeCounts.put(pass, count == null ? 1 : count + 1);
+        changes.add(pass + ": " + description);
+    }
+
+    /**
+     * @return Number of changes made by each pass, keyed by pass name
+     */
+    public Map<String, Integer> getChangeCounts() {
+        return Collections.unmodifiableMap(changeCounts);
+    }
+
+    /**
+     * @return Description of all changes made, in order
+     */
+    public List<String> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * @return Number of changes made by the specified pass
+     */
+    public int numChanges(String pass) {
+        Integer count = changeCounts.get(pass);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return Multi-line summary including all changes
+     */
+    public String toDetailedString() {
+        StringBuilder sb = new StringBuilder(toString());
+        for (String s : changes) {
+            sb.append("\n  ").append(s);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "OptimizationReport(ops: " + opsBefore + " -> " + opsAfter + ", variables: " + variablesBefore + " -> "
+                + variablesAfter + ", iterations: " + iterations + ", changes: " + changeCounts + ")";
+    }
+}
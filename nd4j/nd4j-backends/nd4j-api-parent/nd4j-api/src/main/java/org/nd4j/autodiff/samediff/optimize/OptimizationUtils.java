@@ -0,0 +1,320 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import lombok.NonNull;
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SDVariable;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.VariableType;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.BaseScalarOp;
+import org.nd4j.linalg.api.ops.BaseTransformOp;
+import org.nd4j.linalg.api.ops.RandomOp;
+import org.nd4j.linalg.api.ops.custom.RandomCrop;
+import org.nd4j.linalg.api.ops.impl.broadcast.BiasAdd;
+import org.nd4j.linalg.api.ops.impl.controlflow.compat.BaseCompatOp;
+import org.nd4j.linalg.api.ops.impl.layers.ExternalErrorsFunction;
+import org.nd4j.linalg.api.ops.impl.reduce.Mmul;
+import org.nd4j.linalg.api.ops.impl.shape.tensorops.BaseTensorOp;
+import org.nd4j.linalg.api.ops.impl.transforms.Assert;
+import org.nd4j.linalg.api.ops.impl.transforms.BaseDynamicTransformOp;
+import org.nd4j.linalg.api.ops.impl.transforms.custom.SoftMax;
+import org.nd4j.linalg.api.ops.impl.transforms.custom.XwPlusB;
+import org.nd4j.linalg.api.ops.impl.transforms.same.Identity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utilities for inspecting and modifying the structure of a SameDiff graph, used by the {@link OptimizationPass}
+ * implementations
+ */
+public class OptimizationUtils {
+    //Maximum number of ops to look back through when inferring the rank of a variable
+    private static final int MAX_RANK_INFERENCE_DEPTH = 32;
+
+    private OptimizationUtils() {
+    }
+
+    /**
+     * @return True if the op has any control dependencies, or is a control dependency for any variable
+     */
+    public static boolean hasControlDeps(@NonNull SameDiffOp op) {
+        return notEmpty(op.getControlDeps()) || notEmpty(op.getVarControlDeps()) || notEmpty(op.getControlDepFor());
+    }
+
+    /**
+     * @return True if the variable has any control dependencies, or is a control dependency for any op or variable
+     */
+    public static boolean hasControlDeps(@NonNull Variable v) {
+        return notEmpty(v.getControlDeps()) || notEmpty(v.getControlDepsForOp()) || notEmpty(v.getControlDepsForVar());
+    }
+
+    /**
+     * @return True if the op has side effects, is non-deterministic or is a control flow op. Such ops must not be
+     * removed, merged or evaluated ahead of time
+     */
+    public static boolean isStateful(DifferentialFunction df) {
+        return df instanceof BaseCompatOp || df instanceof BaseTensorOp || df instanceof RandomOp || df instanceof RandomCrop
+                || df instanceof Assert || df instanceof ExternalErrorsFunction
+                || df.getClass().getName().startsWith("org.nd4j.linalg.api.ops.random.");
+    }
+
+    /**
+     * @return True if the op, and all of its output variables, have no control dependencies and the op is not
+     * stateful - i.e., the op can be removed or replaced
+     */
+    public static boolean isReplaceable(SameDiff sd, SameDiffOp op) {
+        if (isStateful(op.getOp()) || hasControlDeps(op))
+            return false;
+        for (String s : op.getOutputsOfOp()) {
+            if (hasControlDeps(sd.getVariables().get(s)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The op that has the specified variable as an output, or null if the variable is not an op output
+     */
+    public static SameDiffOp producer(SameDiff sd, String varName) {
+        Variable v = sd.getVariables().get(varName);
+        if (v == null || v.getOutputOfOp() == null)
+            return null;
+        return sd.getOps().get(v.getOutputOfOp());
+    }
+
+    /**
+     * @return Names of the ops that use the specified variable as an input. Empty if not used
+     */
+    public static List<String> consumers(SameDiff sd, String varName) {
+        Variable v = sd.getVariables().get(varName);
+        if (v == null || v.getInputsForOp() == null)
+            return Collections.emptyList();
+        return v.getInputsForOp();
+    }
+
+    /**
+     * @return True if the variable is used as an input by exactly one op (which may use it multiple times)
+     */
+    public static boolean hasSingleConsumer(SameDiff sd, String varName) {
+        List<String> c = consumers(sd, varName);
+        if (c.isEmpty())
+            return false;
+        for (String s : c) {
+            if (!s.equals(c.get(0)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Replace all uses of one variable as an op input with another variable. After this, the old variable is no
+     * longer used by any op
+     *
+     * @param sd     Graph to modify
+     * @param oldVar Variable to replace
+     * @param newVar Variable to use instead
+     */
+    public static void replaceUses(SameDiff sd, String oldVar, String newVar) {
+        Variable vOld = sd.getVariables().get(oldVar);
+        Variable vNew = sd.getVariables().get(newVar);
+        if (vOld.getInputsForOp() == null)
+            return;
+        if (vNew.getInputsForOp() == null)
+            vNew.setInputsForOp(new ArrayList<String>());
+        for (String opName : new ArrayList<>(vOld.getInputsForOp())) {
+            SameDiffOp op = sd.getOps().get(opName);
+            List<String> inputs = new ArrayList<>(op.getInputsToOp());
+            for (int i = 0; i < inputs.size(); i++) {
+                if (inputs.get(i).equals(oldVar))
+                    inputs.set(i, newVar);
+            }
+            op.setInputsToOp(inputs);
+            if (!vNew.getInputsForOp().contains(opName))
+                vNew.getInputsForOp().add(opName);
+        }
+        vOld.setInputsForOp(new ArrayList<String>());
+    }
+
+    /**
+     * Replace a single input of an op with another variable
+     *
+     * @param sd     Graph to modify
+     * @param op     Op to modify
+     * @param idx    Index of the input to replace
+     * @param newVar Variable to use as the input instead
+     */
+    public static void replaceInput(SameDiff sd, SameDiffOp op, int idx, String newVar) {
+        List<String> inputs = new ArrayList<>(op.getInputsToOp());
+        String oldVar = inputs.set(idx, newVar);
+        op.setInputsToOp(inputs);
+
+        Variable vNew = sd.getVariables().get(newVar);
+        if (vNew.getInputsForOp() == null)
+            vNew.setInputsForOp(new ArrayList<String>());
+        if (!vNew.getInputsForOp().contains(op.getName()))
+            vNew.getInputsForOp().add(op.getName());
+
+        if (!inputs.contains(oldVar)) {
+            Variable vOld = sd.getVariables().get(oldVar);
+            if (vOld.getInputsForOp() != null) {
+                vOld.getInputsForOp().removeAll(Collections.singleton(op.getName()));
+            }
+        }
+    }
+
+    /**
+     * Add an input to an op, after all existing inputs
+     */
+    public static void addInput(SameDiff sd, SameDiffOp op, String newVar) {
+        List<String> inputs = new ArrayList<>(op.getInputsToOp());
+        inputs.add(newVar);
+        op.setInputsToOp(inputs);
+
+        Variable vNew = sd.getVariables().get(newVar);
+        if (vNew.getInputsForOp() == null)
+            vNew.setInputsForOp(new ArrayList<String>());
+        if (!vNew.getInputsForOp().contains(op.getName()))
+            vNew.getInputsForOp().add(op.getName());
+    }
+
+    /**
+     * Remove an op from the graph, along with all of its output variables. The output variables must not be used by
+     * any other op
+     *
+     * @param sd     Graph to modify
+     * @param opName Name of the op to remove
+     */
+    public static void removeOp(SameDiff sd, String opName) {
+        removeOps(sd, Collections.singleton(opName));
+    }
+
+    /**
+     * Remove a set of ops from the graph, along with all of their output variables. The output variables must not be
+     * used by any op other than those being removed
+     *
+     * @param sd      Graph to modify
+     * @param opNames Names of the ops to remove
+     */
+    public static void removeOps(SameDiff sd, Collection<String> opNames) {
+        List<SameDiffOp> removed = new ArrayList<>();
+        for (String opName : opNames) {
+            SameDiffOp op = sd.getOps().remove(opName);
+            if (op == null)
+                continue;
+            removed.add(op);
+            sd.structureChanged();
+            if (op.getInputsToOp() != null) {
+                for (String in : op.getInputsToOp()) {
+                    Variable v = sd.getVariables().get(in);
+                    if (v != null && v.getInputsForOp() != null)
+                        v.getInputsForOp().removeAll(Collections.singleton(opName));
+                }
+            }
+        }
+
+        for (SameDiffOp op : removed) {
+            if (op.getOutputsOfOp() == null)
+                continue;
+            for (String out : op.getOutputsOfOp()) {
+                Variable v = sd.getVariables().get(out);
+                if (v != null && op.getName().equals(v.getOutputOfOp()))
+                    sd.removeVariable(out);
+            }
+        }
+    }
+
+    /**
+     * @return The array for the variable if it is a constant, otherwise null
+     */
+    public static INDArray constantArray(SameDiff sd, String varName) {
+        SDVariable v = sd.getVariable(varName);
+        if (v == null || v.getVariableType() != VariableType.CONSTANT)
+            return null;
+        return v.getArr();
+    }
+
+    /**
+     * @return A variable name, based on the specified name, that does not yet exist in the graph
+     */
+    public static String newVariableName(SameDiff sd, String base) {
+        String name = base;
+        int i = 1;
+        while (sd.hasVariable(name)) {
+            name = base + "_" + i++;
+        }
+        return name;
+    }
+
+    /**
+     * Infer the rank of a variable, if possible, without executing the graph. The rank is known for placeholders,
+     * constants and variables; for the outputs of some ops (such as elementwise ops and matrix multiplication) it is
+     * inferred from the ranks of the inputs
+     *
+     * @return Rank of the variable, or -1 if it could not be inferred
+     */
+    public static int rank(SameDiff sd, String varName) {
+        return rank(sd, varName, 0);
+    }
+
+    private static int rank(SameDiff sd, String varName, int depth) {
+        SDVariable v = sd.getVariable(varName);
+        if (v == null || depth > MAX_RANK_INFERENCE_DEPTH)
+            return -1;
+        if (v.getVariableType() != VariableType.ARRAY) {
+            long[] shape = v.getShape();
+            return shape == null ? -1 : shape.length;
+        }
+
+        SameDiffOp op = producer(sd, varName);
+        if (op == null || op.getOutputsOfOp().size() != 1)
+            return -1;
+        DifferentialFunction df = op.getOp();
+        List<String> inputs = op.getInputsToOp();
+        if (df instanceof XwPlusB)
+            return 2;
+        if (df instanceof Identity || df instanceof BaseScalarOp || df instanceof SoftMax || df instanceof BiasAdd)
+            return rank(sd, inputs.get(0), depth + 1);
+        if (df instanceof BaseTransformOp || df instanceof BaseDynamicTransformOp || df instanceof Mmul) {
+            if (df instanceof Mmul && inputs.size() != 2)
+                return -1;
+            int r = -1;
+            for (String in : inputs) {
+                int ri = rank(sd, in, depth + 1);
+                if (ri < 0)
+                    return -1;
+                r = Math.max(r, ri);
+            }
+            return r;
+        }
+        return -1;
+    }
+
+    private static boolean notEmpty(List<String> l) {
+        return l != null && !l.isEmpty();
+    }
+}
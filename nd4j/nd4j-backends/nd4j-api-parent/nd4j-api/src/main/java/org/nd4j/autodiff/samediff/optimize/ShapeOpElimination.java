@@ -0,0 +1,189 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff.optimize;
+
+import org.nd4j.autodiff.functions.DifferentialFunction;
+import org.nd4j.autodiff.samediff.SameDiff;
+import org.nd4j.autodiff.samediff.internal.SameDiffOp;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.shape.Permute;
+import org.nd4j.linalg.api.ops.impl.shape.Reshape;
+import org.nd4j.linalg.api.ops.impl.shape.Transpose;
+import org.nd4j.linalg.api.ops.impl.transforms.same.Identity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes ops that don't change their input, or that undo each other:
+ * <ul>
+ *     <li>Identity ops</li>
+ *     <li>Transpose/permute ops with an identity permutation</li>
+ *     <li>Pairs of consecutive transpose/permute ops where the second undoes the first</li>
+ *     <li>Consecutive reshape ops (c order): the first reshape is skipped, as only the final shape matters</li>
+ * </ul>
+ * Ops are only removed if their outputs are not required outputs, and they have no control dependencies.
+ */
+public class ShapeOpElimination implements OptimizationPass {
+    public static final String NAME = "ShapeOpElimination";
+
+    //Marker for transpose ops without an explicit permutation, which reverse the order of the dimensions
+    private static final int[] REVERSE = new int[0];
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean apply(SameDiff sd, Set<String> requiredOutputs, OptimizationReport report) {
+        boolean changed = false;
+        for (String opName : new ArrayList<>(sd.getOps().keySet())) {
+            SameDiffOp op = sd.getOps().get(opName);
+            if (op == null || op.getOutputsOfOp().size() != 1 || !OptimizationUtils.isReplaceable(sd, op))
+                continue;
+            DifferentialFunction df = op.getOp();
+            String in = op.getInputsToOp().get(0);
+            String out = op.getOutputsOfOp().get(0);
+
+            if (df instanceof Identity && op.getInputsToOp().size() == 1) {
+                changed |= bypass(sd, op, in, requiredOutputs, report, "identity");
+            } else if (df instanceof Transpose) {
+                int[] perm = permutation(sd, op);
+                if (perm == null)
+                    continue;
+                if (isIdentity(perm)) {
+                    changed |= bypass(sd, op, in, requiredOutputs, report, "identity permutation " + Arrays.toString(perm));
+                    continue;
+                }
+
+                //Transpose followed by a transpose that undoes it
+                if (requiredOutputs.contains(out) || !OptimizationUtils.hasSingleConsumer(sd, out))
+                    continue;
+                SameDiffOp next = sd.getOps().get(OptimizationUtils.consumers(sd, out).get(0));
+                if (!(next.getOp() instanceof Transpose) || next.getOutputsOfOp().size() != 1 || !next.getInputsToOp().get(0).equals(out)
+                        || !OptimizationUtils.isReplaceable(sd, next))
+                    continue;
+                int[] perm2 = permutation(sd, next);
+                if (perm2 == null || !isInverse(perm, perm2))
+                    continue;
+                if (bypass(sd, next, in, requiredOutputs, report, "inverse of permutation in op \"" + opName + "\"")) {
+                    OptimizationUtils.removeOp(sd, opName);
+                    report.record(NAME, "Removed op \"" + opName + "\" (" + df.opName() + "): permutation undone by next op");
+                    changed = true;
+                }
+            } else if (df instanceof Reshape) {
+                //Reshape followed by another reshape: the second reshape can be applied to the original input
+                if (!isCOrderReshape(op) || requiredOutputs.contains(out) || !OptimizationUtils.hasSingleConsumer(sd, out))
+                    continue;
+                SameDiffOp next = sd.getOps().get(OptimizationUtils.consumers(sd, out).get(0));
+                if (!(next.getOp() instanceof Reshape) || !isCOrderReshape(next) || !next.getInputsToOp().get(0).equals(out)
+                        || out.equals(next.getInputsToOp().size() > 1 ? next.getInputsToOp().get(1) : null))
+                    continue;
+                OptimizationUtils.replaceInput(sd, next, 0, in);
+                OptimizationUtils.removeOp(sd, opName);
+                report.record(NAME, "Removed op \"" + opName + "\" (" + df.opName() + "): followed by reshape op \"" + next.getName() + "\"");
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Remove a single output op, using the specified variable in place of its output
+     */
+    private static boolean bypass(SameDiff sd, SameDiffOp op, String replacement, Set<String> requiredOutputs,
+                                  OptimizationReport report, String reason) {
+        String out = op.getOutputsOfOp().get(0);
+        if (requiredOutputs.contains(out))
+            return false;
+        OptimizationUtils.replaceUses(sd, out, replacement);
+        OptimizationUtils.removeOp(sd, op.getName());
+        report.record(NAME, "Removed op \"" + op.getName() + "\" (" + op.getOp().opName() + "): " + reason);
+        return true;
+    }
+
+    /**
+     * @return Permutation for a transpose or permute op, {@link #REVERSE} if the op reverses the dimensions, or null if
+     * the permutation is not known
+     */
+    private static int[] permutation(SameDiff sd, SameDiffOp op) {
+        List<String> inputs = op.getInputsToOp();
+        if (inputs.size() > 1) {
+            INDArray arr = OptimizationUtils.constantArray(sd, inputs.get(1));
+            return arr == null ? null : arr.toIntVector();
+        }
+        long[] iArgs = ((Transpose) op.getOp()).iArgs();
+        if (iArgs != null && iArgs.length > 0) {
+            int[] perm = new int[iArgs.length];
+            for (int i = 0; i < perm.length; i++) {
+                perm[i] = (int) iArgs[i];
+            }
+            return perm;
+        }
+        if (op.getOp() instanceof Permute)
+            return null;
+        return REVERSE;
+    }
+
+    private static boolean isIdentity(int[] perm) {
+        if (perm == REVERSE || perm.length == 0)
+            return false;
+        for (int i = 0; i < perm.length; i++) {
+            if (perm[i] != i)
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isInverse(int[] p1, int[] p2) {
+        if (p1 == REVERSE && p2 == REVERSE)
+            return true;
+        if (p1 == REVERSE)
+            p1 = reverse(p2.length);
+        if (p2 == REVERSE)
+            p2 = reverse(p1.length);
+        if (p1.length != p2.length)
+            return false;
+        //Output dimension i of the second op is dimension p1[p2[i]] of the original input
+        for (int i = 0; i < p2.length; i++) {
+            if (p2[i] < 0 || p2[i] >= p1.length || p1[p2[i]] != i)
+                return false;
+        }
+        return true;
+    }
+
+    private static int[] reverse(int length) {
+        int[] out = new int[length];
+        for (int i = 0; i < length; i++) {
+            out[i] = length - 1 - i;
+        }
+        return out;
+    }
+
+    private static boolean isCOrderReshape(SameDiffOp op) {
+        long[] iArgs = ((Reshape) op.getOp()).iArgs();
+        //First iArg of -102 indicates f order
+        return iArgs == null || iArgs.length == 0 || iArgs[0] != -102;
+    }
+}
@@ -162,6 +162,7 @@ public class GraphTransformUtil {
                     }
                 }
             }
+            sd.structureChanged();
         }
 
         return sd;
@@ -31,6 +31,7 @@ import org.nd4j.autodiff.samediff.SameDiff;
 import org.nd4j.autodiff.samediff.VariableType;
 import org.nd4j.autodiff.samediff.internal.SameDiffOp;
 import org.nd4j.autodiff.samediff.internal.Variable;
+import org.nd4j.autodiff.samediff.optimize.GraphOptimizer;
 import org.nd4j.common.base.Preconditions;
 import org.nd4j.imports.converters.DifferentialFunctionClassHolder;
 import org.nd4j.imports.descriptors.properties.AttributeAdapter;
@@ -533,6 +534,7 @@ public class TFGraphMapper {
         log.trace("Ops imported " + opsImported);
         log.trace("Ops added" + opsAdded);
         log.trace("Ops removed " + opsRemoved);
+        GraphOptimizer.optimizeOnImport(sd);
         return sd;
     }
 
@@ -20,6 +20,7 @@
 
 package org.nd4j.linalg.dataset.api.iterator;
 
+import org.nd4j.common.util.MathUtils;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.cache.DataSetCache;
@@ -27,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Random;
 
 public class CachingDataSetIterator implements DataSetIterator {
     private static final Logger log = LoggerFactory.getLogger(DataSetCache.class);
@@ -37,6 +39,9 @@ public class CachingDataSetIterator implements DataSetIterator {
     private int currentIndex = 0;
     private boolean usingCache = false;
     private boolean allowPrefetching;
+    private boolean shuffle;
+    private Random rng;
+    private int[] order;
 
     public CachingDataSetIterator(DataSetIterator sourceIterator, DataSetCache cache, String namespace) {
         this(sourceIterator, cache, namespace, false);
@@ -44,6 +49,17 @@ public class CachingDataSetIterator implements DataSetIterator {
 
     public CachingDataSetIterator(DataSetIterator sourceIterator, DataSetCache cache, String namespace,
                     boolean allowPrefetching) {
+        this(sourceIterator, cache, namespace, allowPrefetching, false, 0);
+    }
+
+    /**
+     * @param shuffle  If true: once the cache is complete, the cached minibatches are returned in a different random
+     *                 order in each epoch. Shuffling is done at minibatch granularity: the contents of each minibatch
+     *                 are not changed
+     * @param rngSeed  Seed for shuffling
+     */
+    public CachingDataSetIterator(DataSetIterator sourceIterator, DataSetCache cache, String namespace,
+                    boolean allowPrefetching, boolean shuffle, long rngSeed) {
         this.sourceIterator = sourceIterator;
         this.cache = cache;
         this.namespace = namespace;
@@ -51,6 +67,8 @@ public class CachingDataSetIterator implements DataSetIterator {
 
         this.usingCache = cache.isComplete(namespace);
         this.allowPrefetching = allowPrefetching;
+        this.shuffle = shuffle;
+        this.rng = new Random(rngSeed);
     }
 
     public CachingDataSetIterator(DataSetIterator sourceIterator, DataSetCache cache) {
@@ -90,6 +108,7 @@ public class CachingDataSetIterator implements DataSetIterator {
     public void reset() {
         sourceIterator.reset();
         currentIndex = 0;
+        order = null;
     }
 
     @Override
@@ -115,6 +134,9 @@ public class CachingDataSetIterator implements DataSetIterator {
     @Override
     public boolean hasNext() {
         if (usingCache) {
+            if (shuffle) {
+                return currentIndex < shuffledOrder().length;
+            }
             return cache.contains(makeKey(currentIndex));
         } else {
             if (sourceIterator.hasNext()) {
@@ -129,7 +151,7 @@ public class CachingDataSetIterator implements DataSetIterator {
 
     @Override
     public DataSet next() {
-        String key = makeKey(currentIndex);
+        String key = makeKey(usingCache && shuffle ? shuffledOrder()[currentIndex] : currentIndex);
 
         DataSet ds;
 
@@ -145,6 +167,21 @@ public class CachingDataSetIterator implements DataSetIterator {
         return ds;
     }
 
+    private int[] shuffledOrder() {
+        if (order == null) {
+            int count = 0;
+            while (cache.contains(makeKey(count))) {
+                count++;
+            }
+            order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            MathUtils.shuffleArray(order, rng);
+        }
+        return order;
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,452 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.linalg.dataset.api.iterator.cache;
+
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.LongPointer;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.javacpp.indexer.IntIndexer;
+import org.bytedeco.javacpp.indexer.LongIndexer;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * A {@link DataSetCache} that appends all DataSets to a small number of large segment files, instead of writing one
+ * file per DataSet as {@link InFileDataSetCache} does.<br>
+ * Each array is stored as its shape information followed by its raw data in native byte order, aligned to 8 bytes.
+ * An index of key to (segment, offset) is kept in memory and persisted to the cache directory whenever a namespace
+ * is marked as complete, so a cache directory can be reused by a new instance.<br>
+ * Each read memory-maps the region of the DataSet in its segment file, and (for float, double, int and long arrays, on
+ * the CPU backend) the returned arrays point directly to the mapped memory: once the files are in the OS page cache,
+ * reading a DataSet involves neither I/O nor copying. Every read uses its own private (copy-on-write) mapping, so
+ * modifying a returned array changes neither the cache nor the DataSets returned by other reads. A mapping is kept
+ * by this cache until the arrays using it have been garbage collected; returned arrays remain valid as long as this
+ * cache instance is reachable.<br>
+ * Overwriting a key appends a new copy; the space used by the old copy is not reclaimed.<br>
+ * The segment being written is kept open until a namespace is marked as complete, or until {@link #close()} is
+ * called. Mapped segments are released when the mappings are garbage collected.
+ */
+public class SegmentFileDataSetCache implements DataSetCache, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(DataSetCache.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 1L << 30;
+
+    private static final String INDEX_FILE = "segment-cache.index";
+    private static final int INDEX_MAGIC = 0x4E443443;
+    private static final int INDEX_VERSION = 1;
+    private static final int ALIGNMENT = 8;
+
+    private static final byte FEATURES_PRESENT = 1;
+    private static final byte LABELS_PRESENT = 2;
+    private static final byte FEATURES_MASK_PRESENT = 4;
+    private static final byte LABELS_MASK_PRESENT = 8;
+
+    private final File cacheDirectory;
+    private final long maxSegmentSize;
+    private final Map<String, Entry> index = new HashMap<>();
+    private final Set<String> completeNamespaces = new HashSet<>();
+    //Mappings used by returned arrays, until the arrays have been garbage collected
+    private final Set<MappingReference> liveMappings = new HashSet<>();
+    private final ReferenceQueue<DataBuffer> releasedBuffers = new ReferenceQueue<>();
+
+    private int numSegments;
+    private FileChannel writeChannel;
+    private long writePosition;
+
+    public SegmentFileDataSetCache(File cacheDirectory) {
+        this(cacheDirectory, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param cacheDirectory Directory for the segment and index files
+     * @param maxSegmentSize Maximum size of a segment file, in bytes. A single DataSet larger than this is written to
+     *                       a segment of its own. Must be at most Integer.MAX_VALUE, the maximum size of a mapping
+     */
+    public SegmentFileDataSetCache(File cacheDirectory, long maxSegmentSize) {
+        if (cacheDirectory.exists() && !cacheDirectory.isDirectory()) {
+            throw new IllegalArgumentException("can't use path " + cacheDirectory + " as file cache directory "
+                            + "because it already exists, but is not a directory");
+        }
+        if (maxSegmentSize <= 0 || maxSegmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Max segment size must be between 1 and " + Integer.MAX_VALUE
+                            + ", got " + maxSegmentSize);
+        }
+        this.cacheDirectory = cacheDirectory;
+        this.maxSegmentSize = maxSegmentSize;
+        loadIndex();
+    }
+
+    public SegmentFileDataSetCache(Path cacheDirectory) {
+        this(cacheDirectory.toFile());
+    }
+
+    public SegmentFileDataSetCache(String cacheDirectory) {
+        this(new File(cacheDirectory));
+    }
+
+    @Override
+    public synchronized boolean isComplete(String namespace) {
+        return completeNamespaces.contains(namespace);
+    }
+
+    @Override
+    public synchronized void setComplete(String namespace, boolean value) {
+        if (value) {
+            completeNamespaces.add(namespace);
+        } else {
+            completeNamespaces.remove(namespace);
+        }
+        try {
+            if (value) {
+                //Writing is done: don't keep the segment open. It is reopened if anything else is written
+                closeWriteChannel();
+            } else if (writeChannel != null) {
+                writeChannel.force(false);
+            }
+            saveIndex();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing data set cache index to " + cacheDirectory, e);
+        }
+    }
+
+    @Override
+    public synchronized DataSet get(String key) {
+        Entry e = index.get(key);
+        if (e == null) {
+            return null;
+        }
+
+        expungeReleasedMappings();
+        MappedByteBuffer m = map(e);
+        ByteBuffer bb = m.duplicate().order(ByteOrder.nativeOrder());
+        byte present = bb.get();
+        bb.position(align(bb.position()));
+        INDArray features = ((present & FEATURES_PRESENT) != 0 ? readArray(bb) : null);
+        INDArray labels = ((present & LABELS_PRESENT) != 0 ? readArray(bb) : null);
+        INDArray featuresMask = ((present & FEATURES_MASK_PRESENT) != 0 ? readArray(bb) : null);
+        INDArray labelsMask = ((present & LABELS_MASK_PRESENT) != 0 ? readArray(bb) : null);
+        for (INDArray arr : new INDArray[] {features, labels, featuresMask, labelsMask}) {
+            if (arr != null) {
+                liveMappings.add(new MappingReference(arr.data(), m, releasedBuffers));
+            }
+        }
+        return new DataSet(features, labels, featuresMask, labelsMask);
+    }
+
+    @Override
+    public synchronized void put(String key, DataSet dataSet) {
+        INDArray[] arrays = {prepare(dataSet.getFeatures()), prepare(dataSet.getLabels()),
+                        prepare(dataSet.getFeaturesMaskArray()), prepare(dataSet.getLabelsMaskArray())};
+        byte present = 0;
+        long size = ALIGNMENT;
+        for (int i = 0; i < arrays.length; i++) {
+            if (arrays[i] != null) {
+                present |= (1 << i);
+                size += align(serializedSize(arrays[i]));
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot cache DataSet: serialized size " + size + " exceeds maximum of "
+                            + Integer.MAX_VALUE + " bytes");
+        }
+
+        ByteBuffer bb = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+        bb.put(present);
+        bb.position(ALIGNMENT);
+        for (INDArray arr : arrays) {
+            if (arr != null) {
+                writeArray(arr, bb);
+            }
+        }
+        bb.flip();
+
+        try {
+            if (writePosition > 0 && writePosition + size > maxSegmentSize) {
+                nextSegment();
+            } else if (writeChannel == null) {
+                openWriteChannel();
+            }
+            long offset = writePosition;
+            while (bb.hasRemaining()) {
+                writePosition += writeChannel.write(bb, writePosition);
+            }
+            if (index.containsKey(key)) {
+                log.debug("overwriting key {} in data set cache", key);
+            }
+            index.put(key, new Entry(numSegments - 1, offset, size));
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing DataSet to cache directory " + cacheDirectory, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    private static INDArray prepare(INDArray arr) {
+        if (arr == null) {
+            return null;
+        }
+        //Views share a larger buffer: only the array's own elements should be written
+        return arr.isView() ? arr.dup() : arr;
+    }
+
+    private static long dataBytes(INDArray arr) {
+        return Shape.lengthOfBuffer(arr.shape(), arr.stride()) * Nd4j.sizeOfDataType(arr.dataType());
+    }
+
+    private static long serializedSize(INDArray arr) {
+        //rank, data type, shape info, data
+        return 8 + 8L * Shape.shapeInfoLength(arr.rank()) + dataBytes(arr);
+    }
+
+    private static void writeArray(INDArray arr, ByteBuffer bb) {
+        Nd4j.getExecutioner().commit();
+        Nd4j.getAffinityManager().ensureLocation(arr, AffinityManager.Location.HOST);
+        bb.putInt(arr.rank());
+        bb.putInt(arr.dataType().ordinal());
+        bb.put(arr.shapeInfoDataBuffer().pointer().asByteBuffer().order(ByteOrder.nativeOrder()));
+        ByteBuffer data = arr.data().pointer().asByteBuffer().order(ByteOrder.nativeOrder());
+        data.limit((int) dataBytes(arr));
+        bb.put(data);
+        bb.position(align(bb.position()));
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static int align(int position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private INDArray readArray(ByteBuffer bb) {
+        int rank = bb.getInt();
+        DataType type = DataType.values()[bb.getInt()];
+        int shapeInfoLength = Shape.shapeInfoLength(rank);
+        long[] shapeInfo = new long[shapeInfoLength];
+        for (int i = 0; i < shapeInfoLength; i++) {
+            shapeInfo[i] = bb.getLong();
+        }
+        long[] shape = Shape.shapeOf(shapeInfo);
+        long[] stride = Shape.stridesOf(shapeInfo);
+        char order = Shape.order(shapeInfo);
+        long length = Shape.lengthOfBuffer(shape, stride);
+
+        ByteBuffer slice = bb.slice().order(ByteOrder.nativeOrder());
+        slice.limit((int) (length * Nd4j.sizeOfDataType(type)));
+        bb.position(align(bb.position() + slice.limit()));
+
+        DataBuffer buffer;
+        switch (type) {
+            case FLOAT: {
+                FloatPointer p = new FloatPointer(slice.asFloatBuffer());
+                buffer = Nd4j.createBuffer(p, type, length, FloatIndexer.create(p));
+                break;
+            }
+            case DOUBLE: {
+                DoublePointer p = new DoublePointer(slice.asDoubleBuffer());
+                buffer = Nd4j.createBuffer(p, type, length, DoubleIndexer.create(p));
+                break;
+            }
+            case INT: {
+                IntPointer p = new IntPointer(slice.asIntBuffer());
+                buffer = Nd4j.createBuffer(p, type, length, IntIndexer.create(p));
+                break;
+            }
+            case LONG: {
+                LongPointer p = new LongPointer(slice.asLongBuffer());
+                buffer = Nd4j.createBuffer(p, type, length, LongIndexer.create(p));
+                break;
+            }
+            default:
+                //Other types: copied out of the mapped memory
+                buffer = Nd4j.createBuffer(slice, type, (int) length);
+        }
+        return Nd4j.create(buffer, shape, stride, 0, order);
+    }
+
+    private MappedByteBuffer map(Entry e) {
+        //Entries (and hence the arrays within them) start at 8 byte aligned offsets, so the mapping keeps the alignment
+        try (RandomAccessFile f = new RandomAccessFile(segmentFile(e.segment), "r")) {
+            MappedByteBuffer m = f.getChannel().map(FileChannel.MapMode.PRIVATE, e.offset, e.length);
+            m.order(ByteOrder.nativeOrder());
+            return m;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error mapping data set cache segment " + segmentFile(e.segment), ex);
+        }
+    }
+
+    private void expungeReleasedMappings() {
+        Reference<? extends DataBuffer> ref;
+        while ((ref = releasedBuffers.poll()) != null) {
+            liveMappings.remove(ref);
+        }
+    }
+
+    private File segmentFile(int segment) {
+        return new File(cacheDirectory, String.format("segment-%05d.bin", segment));
+    }
+
+    private void nextSegment() throws IOException {
+        closeWriteChannel();
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+            throw new IllegalStateException("ERROR: cannot create cache directory: " + cacheDirectory);
+        }
+        File f = segmentFile(numSegments++);
+        writeChannel = new RandomAccessFile(f, "rw").getChannel();
+        writeChannel.truncate(0);
+        writePosition = 0;
+    }
+
+    private void openWriteChannel() throws IOException {
+        if (writePosition == 0) {
+            //Nothing written by this instance yet: start a new segment
+            nextSegment();
+        } else {
+            //Continue the current segment, closed by setComplete or close
+            writeChannel = new RandomAccessFile(segmentFile(numSegments - 1), "rw").getChannel();
+        }
+    }
+
+    private void closeWriteChannel() throws IOException {
+        if (writeChannel != null) {
+            try {
+                writeChannel.force(false);
+            } finally {
+                writeChannel.close();
+                writeChannel = null;
+            }
+        }
+    }
+
+    /**
+     * Close the segment file currently being written, if any. Cached DataSets can still be read, and writing
+     * further DataSets reopens the segment
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeWriteChannel();
+    }
+
+    private void saveIndex() throws IOException {
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+            throw new IllegalStateException("ERROR: cannot create cache directory: " + cacheDirectory);
+        }
+        File tmp = new File(cacheDirectory, INDEX_FILE + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            dos.writeInt(INDEX_MAGIC);
+            dos.writeInt(INDEX_VERSION);
+            //Arrays are stored in native byte order
+            dos.writeBoolean(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN);
+            dos.writeInt(numSegments);
+            dos.writeInt(completeNamespaces.size());
+            for (String ns : completeNamespaces) {
+                dos.writeUTF(ns);
+            }
+            dos.writeInt(index.size());
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                dos.writeUTF(e.getKey());
+                dos.writeInt(e.getValue().segment);
+                dos.writeLong(e.getValue().offset);
+                dos.writeLong(e.getValue().length);
+            }
+        }
+        Files.move(tmp.toPath(), new File(cacheDirectory, INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadIndex() {
+        File f = new File(cacheDirectory, INDEX_FILE);
+        if (!f.exists()) {
+            return;
+        }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (dis.readInt() != INDEX_MAGIC || dis.readInt() != INDEX_VERSION) {
+                log.warn("Ignoring data set cache index {}: unknown format", f);
+                return;
+            }
+            if (dis.readBoolean() != (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN)) {
+                log.warn("Ignoring data set cache index {}: written on a platform with different byte order", f);
+                return;
+            }
+            numSegments = dis.readInt();
+            int numComplete = dis.readInt();
+            for (int i = 0; i < numComplete; i++) {
+                completeNamespaces.add(dis.readUTF());
+            }
+            int numEntries = dis.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                index.put(dis.readUTF(), new Entry(dis.readInt(), dis.readLong(), dis.readLong()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading data set cache index " + f, e);
+        }
+    }
+
+    /**
+     * Keeps a mapping reachable while a buffer pointing into it is in use
+     */
+    private static class MappingReference extends WeakReference<DataBuffer> {
+        private final MappedByteBuffer mapping;
+
+        private MappingReference(DataBuffer buffer, MappedByteBuffer mapping, ReferenceQueue<DataBuffer> queue) {
+            super(buffer, queue);
+            this.mapping = mapping;
+        }
+    }
+
+    private static class Entry {
+        private final int segment;
+        private final long offset;
+        private final long length;
+
+        private Entry(int segment, long offset, long length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
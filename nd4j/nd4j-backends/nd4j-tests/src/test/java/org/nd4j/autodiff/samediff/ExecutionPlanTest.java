@@ -0,0 +1,217 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff;
+
+import org.junit.Test;
+import org.nd4j.autodiff.samediff.internal.InferenceSession;
+import org.nd4j.autodiff.samediff.internal.InterOpScheduler;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ExecutionPlanTest extends BaseNd4jTest {
+
+    public ExecutionPlanTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    private static SameDiff graph() {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable w = sd.var("w", Nd4j.rand(DataType.FLOAT, 4, 3));
+        SDVariable b = sd.var("b", Nd4j.rand(DataType.FLOAT, 1, 3));
+        SDVariable z = in.mmul(w).add(b);
+        SDVariable a = sd.nn.tanh("a", z);
+        SDVariable id = sd.identity("id", a);
+        sd.math.square("out", id.mul(2.0));
+        //Branch not required for "out"
+        sd.math.exp("unused", in.sum(1));
+        return sd;
+    }
+
+    private static Map<String, INDArray> output(InferenceSession s, Map<String, INDArray> ph, String... outputs) {
+        return s.output(Arrays.asList(outputs), ph, null, Collections.<String>emptyList(), null, null);
+    }
+
+    @Test
+    public void testPlanReplay() {
+        SameDiff sd = graph();
+        InferenceSession planned = new InferenceSession(sd);
+        InferenceSession dynamic = new InferenceSession(sd);
+        dynamic.setPlanCaching(false);
+
+        for (int mb : new int[]{3, 3, 5, 1}) {
+            Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, mb, 4));
+            Map<String, INDArray> exp = output(dynamic, ph, "out", "a");
+            Map<String, INDArray> out = output(planned, ph, "out", "a");
+            assertEquals(exp, out);
+            assertArrayEquals(new long[]{mb, 3}, out.get("out").shape());
+        }
+        assertEquals(1, planned.numCachedPlans());
+        assertEquals(0, dynamic.numCachedPlans());
+
+        //Different outputs: separate plan
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 2, 4));
+        assertEquals(output(dynamic, ph, "unused"), output(planned, ph, "unused"));
+        assertEquals(output(dynamic, ph, "unused"), output(planned, ph, "unused"));
+        assertEquals(output(dynamic, ph, "id"), output(planned, ph, "id"));
+        assertEquals(output(dynamic, ph, "id"), output(planned, ph, "id"));
+        assertEquals(3, planned.numCachedPlans());
+    }
+
+    @Test
+    public void testPlanInvalidatedOnGraphChange() {
+        SameDiff sd = graph();
+        InferenceSession s = new InferenceSession(sd);
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 2, 4));
+        INDArray out1 = output(s, ph, "out").get("out");
+        output(s, ph, "out");
+        assertEquals(1, s.numCachedPlans());
+
+        //Plan for "out" is no longer valid once the graph is modified: replaced
+        sd.getVariable("out").add("out2", 1.0);
+        assertEquals(out1, output(s, ph, "out").get("out"));
+        assertEquals(1, s.numCachedPlans());
+
+        Map<String, INDArray> m = output(s, ph, "out", "out2");
+        assertEquals(out1, m.get("out"));
+        assertEquals(out1.add(1.0), m.get("out2"));
+        assertEquals(2, s.numCachedPlans());
+    }
+
+    @Test
+    public void testPlanInvalidatedOnRename() {
+        SameDiff sd = graph();
+        InferenceSession s = new InferenceSession(sd);
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 2, 4));
+        INDArray out1 = output(s, ph, "out").get("out");
+        output(s, ph, "out");
+        assertEquals(1, s.numCachedPlans());
+
+        //Same number of ops and variables, but the cached plan refers to the old variable name
+        long version = sd.getStructureVersion();
+        sd.renameVariable("a", "a2");
+        assertNotEquals(version, sd.getStructureVersion());
+        assertEquals(out1, output(s, ph, "out").get("out"));
+        assertEquals(out1, output(s, ph, "out").get("out"));
+        Map<String, INDArray> m = output(s, ph, "out", "a2");
+        assertEquals(out1, m.get("out"));
+        assertTrue(m.containsKey("a2"));
+    }
+
+    @Test
+    public void testControlFlowNotPlanned() {
+        SameDiff sd = SameDiff.create();
+        SDVariable a = sd.placeHolder("a", DataType.DOUBLE);
+        SDVariable b = sd.var("b", Nd4j.createFromArray(5.0));
+        SDVariable c = sd.var("c", Nd4j.createFromArray(9.0));
+        sd.ifCond("out", null, x -> a.lt(b), x -> c, x -> c.add(5));
+
+        InferenceSession s = new InferenceSession(sd);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(Nd4j.createFromArray(9.0), output(s, Collections.singletonMap("a", Nd4j.createFromArray(3.0)), "out").get("out"));
+            assertEquals(Nd4j.createFromArray(14.0), output(s, Collections.singletonMap("a", Nd4j.createFromArray(7.0)), "out").get("out"));
+        }
+        assertEquals(0, s.numCachedPlans());
+    }
+
+    @Test
+    public void testParallelExecution() {
+        //Wide graph: independent branches, joined by a concat
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 8);
+        SDVariable[] branches = new SDVariable[6];
+        for (int i = 0; i < branches.length; i++) {
+            SDVariable w = sd.var("w" + i, Nd4j.rand(DataType.FLOAT, 8, 16));
+            SDVariable h = sd.nn.relu(in.mmul(w), 0.0);
+            branches[i] = sd.math.tanh(sd.identity(h).mul(0.5));
+        }
+        SDVariable concat = sd.concat("concat", 1, branches);
+        SDVariable[] split = sd.split(concat, 3, 1);
+        sd.math.square("out", split[0].add(split[2]));
+        sd.sum("sum", concat, 1);
+
+        InferenceSession sequential = new InferenceSession(sd);
+        sequential.setPlanCaching(false);
+        List<Map<String, INDArray>> phs = new ArrayList<>();
+        List<Map<String, INDArray>> exp = new ArrayList<>();
+        for (int mb : new int[]{1, 3, 3, 7}) {
+            Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, mb, 8));
+            phs.add(ph);
+            exp.add(output(sequential, ph, "out", "sum", "concat"));
+        }
+
+        int intraOpBefore = Nd4j.getEnvironment().maxMasterThreads();
+        sd.setInterOpParallelism(4, 1);
+        try {
+            InterOpScheduler scheduler = sd.getInterOpScheduler();
+            assertNotNull(scheduler);
+            assertEquals(4, scheduler.getInterOpThreads());
+            assertEquals(1, scheduler.getIntraOpThreads());
+            for (int rep = 0; rep < 3; rep++) {
+                for (int i = 0; i < phs.size(); i++) {
+                    Map<String, INDArray> out = sd.output(phs.get(i), "out", "sum", "concat");
+                    assertEquals(exp.get(i), out);
+                }
+            }
+            //The ops must actually have been executed by the worker threads
+            assertTrue(scheduler.getNumOpsExecuted() > 0);
+        } finally {
+            sd.setInterOpParallelism(0);
+        }
+        assertNull(sd.getInterOpScheduler());
+        assertEquals(intraOpBefore, Nd4j.getEnvironment().maxMasterThreads());
+    }
+
+    @Test
+    public void testOverlappingSchedulers() {
+        int intraOpBefore = Nd4j.getEnvironment().maxMasterThreads();
+        SameDiff sd1 = SameDiff.create();
+        SameDiff sd2 = SameDiff.create();
+
+        //Enabled and disabled in overlapping order: the original setting must be restored once both are disabled
+        sd1.setInterOpParallelism(2, 1);
+        sd2.setInterOpParallelism(2, 2);
+        assertEquals(2, Nd4j.getEnvironment().maxMasterThreads());
+        sd1.setInterOpParallelism(0);
+        assertEquals(2, Nd4j.getEnvironment().maxMasterThreads());
+        sd2.setInterOpParallelism(0);
+        assertEquals(intraOpBefore, Nd4j.getEnvironment().maxMasterThreads());
+
+        //Shutting down a scheduler more than once has no further effect
+        sd1.setInterOpParallelism(2, 1);
+        InterOpScheduler s = sd1.getInterOpScheduler();
+        sd1.setInterOpParallelism(0);
+        s.shutdown();
+        assertEquals(intraOpBefore, Nd4j.getEnvironment().maxMasterThreads());
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff;
+
+import org.junit.Test;
+import org.nd4j.autodiff.samediff.optimize.CommonSubexpressionElimination;
+import org.nd4j.autodiff.samediff.optimize.ConstantFolding;
+import org.nd4j.autodiff.samediff.optimize.ConvBatchNormFolding;
+import org.nd4j.autodiff.samediff.optimize.DeadNodeElimination;
+import org.nd4j.autodiff.samediff.optimize.GraphOptimizer;
+import org.nd4j.autodiff.samediff.optimize.MatMulBiasFusion;
+import org.nd4j.autodiff.samediff.optimize.OptimizationReport;
+import org.nd4j.autodiff.samediff.optimize.ShapeOpElimination;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.BatchNorm;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.Conv2D;
+import org.nd4j.linalg.api.ops.impl.layers.convolution.config.Conv2DConfig;
+import org.nd4j.linalg.api.ops.impl.transforms.ReluLayer;
+import org.nd4j.linalg.api.ops.impl.transforms.custom.XwPlusB;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GraphOptimizerTest extends BaseNd4jTest {
+
+    public GraphOptimizerTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    @Test
+    public void testConstantFoldingDeadNodes() {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 3);
+        SDVariable c = sd.constant("c", Nd4j.createFromArray(1.0f, 2.0f, 3.0f));
+        SDVariable folded = c.mul(2.0).add(1.0);
+        in.add("out", folded);
+        in.mul("unused", 5.0);
+        sd.setOutputs("out");
+
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 2, 3));
+        INDArray exp = sd.output(ph, "out").get("out");
+
+        OptimizationReport r = GraphOptimizer.optimize(sd);
+        assertEquals(4, r.getOpsBefore());
+        assertEquals(1, r.getOpsAfter());
+        assertEquals(1, sd.getOps().size());
+        assertEquals(3, r.numChanges(ConstantFolding.NAME));    //2 ops removed, 1 variable replaced by constant
+        assertTrue(r.numChanges(DeadNodeElimination.NAME) > 0);
+        assertFalse(sd.hasVariable("unused"));
+        assertFalse(sd.hasVariable("c"));
+        assertEquals(VariableType.CONSTANT, sd.getVariable(folded.name()).getVariableType());
+
+        assertEquals(exp, sd.output(ph, "out").get("out"));
+    }
+
+    @Test
+    public void testShapeOpElimination() {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, 2, 3, 4);
+        SDVariable x = sd.identity(in);
+        SDVariable p1 = sd.permute(x, 1, 0, 2);
+        SDVariable p2 = sd.permute(p1, 1, 0, 2);
+        SDVariable r1 = sd.reshape(p2, 6, 4);
+        SDVariable r2 = sd.reshape(r1, 4, 6);
+        r2.mul("out", 2.0);
+
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 2, 3, 4));
+        INDArray exp = sd.output(ph, "out").get("out");
+
+        OptimizationReport r = GraphOptimizer.optimize(sd, Collections.singletonList("out"));
+        assertEquals(6, r.getOpsBefore());
+        assertEquals(2, r.getOpsAfter());
+        assertEquals(4, r.numChanges(ShapeOpElimination.NAME));
+        assertFalse(sd.hasVariable(x.name()));
+        assertFalse(sd.hasVariable(r1.name()));
+
+        assertEquals(exp, sd.output(ph, "out").get("out"));
+    }
+
+    @Test
+    public void testCommonSubexpressionElimination() {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 3);
+        SDVariable a = sd.math.tanh(in.mul(2.0));
+        SDVariable b = sd.math.tanh(in.mul(2.0));
+        SDVariable c = sd.math.tanh(in.mul(3.0));
+        a.add(b).add("out", c);
+
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 2, 3));
+        INDArray exp = sd.output(ph, "out").get("out");
+
+        OptimizationReport r = GraphOptimizer.optimize(sd, Collections.singletonList("out"));
+        assertEquals(8, r.getOpsBefore());
+        assertEquals(6, r.getOpsAfter());
+        assertEquals(2, r.numChanges(CommonSubexpressionElimination.NAME));
+        assertFalse(sd.hasVariable(b.name()));
+        assertTrue(sd.hasVariable(c.name()));
+
+        assertEquals(exp, sd.output(ph, "out").get("out"));
+    }
+
+    @Test
+    public void testMatMulBiasFusion() {
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable w1 = sd.var("w1", Nd4j.rand(DataType.FLOAT, 4, 5));
+        SDVariable b1 = sd.var("b1", Nd4j.rand(DataType.FLOAT, 5).subi(0.5));
+        SDVariable w2 = sd.var("w2", Nd4j.rand(DataType.FLOAT, 4, 3));
+        SDVariable b2 = sd.var("b2", Nd4j.rand(DataType.FLOAT, 3));
+        sd.nn.relu("out1", sd.nn.biasAdd(in.mmul(w1), b1, true), 0.0);
+        in.mmul(w2).add("out2", b2);
+
+        Map<String, INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 3, 4).subi(0.5));
+        Map<String, INDArray> exp = sd.output(ph, "out1", "out2");
+
+        OptimizationReport r = GraphOptimizer.optimize(sd, Arrays.asList("out1", "out2"));
+        assertEquals(5, r.getOpsBefore());
+        assertEquals(2, r.getOpsAfter());
+        assertEquals(2, r.numChanges(MatMulBiasFusion.NAME));
+        assertEquals(ReluLayer.class, sd.getVariableOutputOp("out1").getClass());
+        assertEquals(XwPlusB.class, sd.getVariableOutputOp("out2").getClass());
+
+        Map<String, INDArray> act = sd.output(ph, "out1", "out2");
+        assertEquals(exp.get("out1"), act.get("out1"));
+        assertEquals(exp.get("out2"), act.get("out2"));
+    }
+
+    @Test
+    public void testConvBatchNormFolding() {
+        Nd4j.getRandom().setSeed(12345);
+        for (boolean nchw : new boolean[]{true, false}) {
+            SameDiff sd = SameDiff.create();
+            long[] inShape = nchw ? new long[]{-1, 3, 8, 8} : new long[]{-1, 8, 8, 3};
+            SDVariable in = sd.placeHolder("in", DataType.FLOAT, inShape);
+            SDVariable w = sd.constant("w", Nd4j.rand(DataType.FLOAT, 2, 2, 3, 4));
+            SDVariable conv = sd.cnn.conv2d(in, w, Conv2DConfig.builder().kH(2).kW(2).dataFormat(nchw ? "NCHW" : "NHWC").build());
+            SDVariable mean = sd.constant("mean", Nd4j.rand(DataType.FLOAT, 4));
+            SDVariable var = sd.constant("var", Nd4j.rand(DataType.FLOAT, 4).addi(0.5));
+            SDVariable gamma = sd.constant("gamma", Nd4j.rand(DataType.FLOAT, 4));
+            SDVariable beta = sd.constant("beta", Nd4j.rand(DataType.FLOAT, 4));
+            sd.nn.batchNorm("out", conv, mean, var, gamma, beta, 1e-5, nchw ? 1 : 3);
+
+            INDArray inArr = nchw ? Nd4j.rand(DataType.FLOAT, 2, 3, 8, 8) : Nd4j.rand(DataType.FLOAT, 2, 8, 8, 3);
+            Map<String, INDArray> ph = Collections.singletonMap("in", inArr);
+            INDArray exp = sd.output(ph, "out").get("out");
+
+            OptimizationReport r = GraphOptimizer.optimize(sd, Collections.singletonList("out"));
+            assertEquals(1, r.numChanges(ConvBatchNormFolding.NAME));
+            assertEquals(1, sd.getOps().size());
+            assertTrue(sd.getVariableOutputOp("out") instanceof Conv2D);
+            assertEquals(3, sd.getOps().values().iterator().next().getInputsToOp().size());
+            assertFalse(sd.hasVariable("w"));
+            assertFalse(sd.hasVariable("mean"));
+
+            INDArray act = sd.output(ph, "out").get("out");
+            assertTrue(exp.equalsWithEps(act, 1e-4));
+        }
+    }
+
+    @Test
+    public void testNotFoldedWithoutConstants() {
+        //Batch norm parameters are trainable: must not be modified
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 3, 8, 8);
+        SDVariable w = sd.constant("w", Nd4j.rand(DataType.FLOAT, 2, 2, 3, 4));
+        SDVariable conv = sd.cnn.conv2d(in, w, Conv2DConfig.builder().kH(2).kW(2).build());
+        SDVariable mean = sd.var("mean", Nd4j.rand(DataType.FLOAT, 4));
+        SDVariable var = sd.var("var", Nd4j.rand(DataType.FLOAT, 4).addi(0.5));
+        sd.nn.batchNorm("out", conv, mean, var, null, null, 1e-5, 1);
+
+        OptimizationReport r = GraphOptimizer.optimize(sd, Collections.singletonList("out"));
+        assertEquals(0, r.getChanges().size());
+        assertTrue(sd.getVariableOutputOp("out") instanceof BatchNorm);
+    }
+}
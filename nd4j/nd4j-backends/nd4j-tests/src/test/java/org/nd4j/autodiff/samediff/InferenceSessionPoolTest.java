@@ -0,0 +1,143 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.nd4j.autodiff.samediff;
+
+import org.junit.Test;
+import org.nd4j.autodiff.samediff.internal.InferenceSession;
+import org.nd4j.autodiff.samediff.internal.InferenceSessionPool;
+import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.factory.Nd4jBackend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class InferenceSessionPoolTest extends BaseNd4jTest {
+
+    public InferenceSessionPoolTest(Nd4jBackend backend) {
+        super(backend);
+    }
+
+    @Override
+    public char ordering() {
+        return 'c';
+    }
+
+    @Test(timeout = 20000L)
+    public void testBorrowRelease() throws Exception {
+        SameDiff sd = SameDiff.create();
+        InferenceSessionPool pool = new InferenceSessionPool(sd, 2);
+
+        InferenceSession s1 = pool.borrow();
+        InferenceSession s2 = pool.borrow();
+        assertNotSame(s1, s2);
+        assertEquals(2, pool.numBorrowed());
+
+        //Pool exhausted
+        assertNull(pool.borrow(50, TimeUnit.MILLISECONDS));
+
+        //Most recently returned session is reused first
+        pool.release(s1);
+        pool.release(s2);
+        assertEquals(2, pool.numIdle());
+        assertSame(s2, pool.borrow());
+        assertEquals(2, pool.numCreated());
+
+        try {
+            pool.release(s1);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            //Expected: not borrowed
+        }
+
+        //Sessions borrowed before clear are discarded on return
+        pool.clear();
+        assertEquals(0, pool.numIdle());
+        pool.release(s2);
+        assertEquals(0, pool.numIdle());
+        assertNotSame(s2, pool.borrow());
+        assertEquals(3, pool.numCreated());
+    }
+
+    @Test(timeout = 20000L)
+    public void testBlockingBorrow() throws Exception {
+        InferenceSessionPool pool = new InferenceSessionPool(SameDiff.create(), 1);
+        final InferenceSession s = pool.borrow();
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        try {
+            Future<InferenceSession> f = exec.submit(pool::borrow);
+            Thread.sleep(100);
+            assertFalse(f.isDone());
+            pool.release(s);
+            assertSame(s, f.get(5, TimeUnit.SECONDS));
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void testPooledOutput() throws Exception {
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable w = sd.var("w", Nd4j.rand(DataType.FLOAT, 4, 3));
+        sd.nn.tanh("out", in.mmul(w));
+
+        List<INDArray> inputs = new ArrayList<>();
+        List<INDArray> expected = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            INDArray arr = Nd4j.rand(DataType.FLOAT, 1 + i % 3, 4);
+            inputs.add(arr);
+            expected.add(sd.outputSingle(Collections.singletonMap("in", arr), "out"));
+        }
+
+        sd.setSessionPoolSize(2);
+        assertTrue(sd.getSessions().isEmpty());
+
+        //More threads than sessions, each thread used only once
+        ExecutorService exec = Executors.newCachedThreadPool();
+        try {
+            List<Future<INDArray>> futures = new ArrayList<>();
+            for (final INDArray arr : inputs) {
+                futures.add(exec.submit(() -> sd.outputSingle(Collections.singletonMap("in", arr), "out")));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(expected.get(i), futures.get(i).get());
+            }
+        } finally {
+            exec.shutdown();
+        }
+
+        InferenceSessionPool pool = sd.getSessionPool();
+        assertTrue(pool.numCreated() <= 2);
+        assertEquals(0, pool.numBorrowed());
+        assertTrue(sd.getSessions().isEmpty());
+
+        sd.setSessionPoolSize(0);
+        assertNull(sd.getSessionPool());
+        assertEquals(expected.get(0), sd.outputSingle(Collections.singletonMap("in", inputs.get(0)), "out"));
+    }
+}
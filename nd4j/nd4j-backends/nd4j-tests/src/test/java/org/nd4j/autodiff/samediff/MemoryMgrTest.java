@@ -21,6 +21,8 @@
 package org.nd4j.autodiff.samediff;
 
 import org.junit.Test;
+import org.nd4j.autodiff.samediff.internal.InferenceSession;
+import org.nd4j.autodiff.samediff.internal.memory.ArenaMemoryMgr;
 import org.nd4j.autodiff.samediff.internal.memory.ArrayCacheMemoryMgr;
 import org.nd4j.linalg.BaseNd4jTest;
 import org.nd4j.linalg.api.buffer.DataType;
@@ -29,6 +31,8 @@ import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.factory.Nd4jBackend;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -136,4 +140,93 @@ public class MemoryMgrTest extends BaseNd4jTest {
         assertEquals(2000, mmgr.getLruCacheValues().size());
     }
 
+    @Test
+    public void testArenaPlanning(){
+        ArenaMemoryMgr mmgr = new ArenaMemoryMgr();
+
+        for( int run=0; run<3; run++ ) {
+            mmgr.beginExecution();
+            INDArray a = mmgr.allocate(false, DataType.FLOAT, 10, 10).assign(1);
+            INDArray b = mmgr.allocate(false, DataType.FLOAT, 100).assign(2);
+            assertEquals(100.0, a.sumNumber().doubleValue(), 0.0);
+            mmgr.release(a);
+            INDArray c = mmgr.allocate(false, DataType.FLOAT, 100).assign(3);
+            INDArray out = mmgr.allocate(true, DataType.FLOAT, 10).assign(c.sum(0));
+            mmgr.release(b);
+            mmgr.release(c);
+            mmgr.endExecution();
+
+            if(run == 0){
+                assertEquals(0, mmgr.getNumArenaAllocations());
+                assertEquals(3, mmgr.getNumOtherAllocations());
+            } else {
+                //a and c can share memory, b can't overlap either of them
+                assertEquals(3, mmgr.getNumArenaAllocations());
+                assertEquals(0, mmgr.getNumOtherAllocations());
+                assertEquals(200.0, b.sumNumber().doubleValue(), 0.0);
+            }
+            assertEquals(300.0, out.getDouble(0), 0.0);
+            assertEquals(3, mmgr.getNumPlannedArrays());
+            assertEquals(800, mmgr.getPeakLiveBytes());
+            assertEquals(2 * 112 * 4, mmgr.getArenaBytes());    //Aligned to 64 bytes
+        }
+
+        //Different allocations: falls back to standard allocation, then replans
+        mmgr.beginExecution();
+        INDArray a = mmgr.allocate(false, DataType.FLOAT, 500);
+        INDArray b = mmgr.allocate(false, DataType.FLOAT, 500);
+        mmgr.release(a);
+        mmgr.release(b);
+        mmgr.endExecution();
+        assertEquals(0, mmgr.getNumArenaAllocations());
+        assertEquals(2, mmgr.getNumOtherAllocations());
+        assertEquals(2, mmgr.getNumPlannedArrays());
+        assertEquals(4000, mmgr.getPeakLiveBytes());
+
+        mmgr.close();
+        assertEquals(0, mmgr.getArenaBytes());
+    }
+
+    @Test
+    public void testArenaInference(){
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 8);
+        SDVariable w1 = sd.var("w1", Nd4j.rand(DataType.FLOAT, 8, 16));
+        SDVariable w2 = sd.var("w2", Nd4j.rand(DataType.FLOAT, 16, 4));
+        SDVariable h = sd.nn.tanh(in.mmul(w1));
+        sd.nn.softmax("out", sd.nn.tanh(h.mmul(w2).add(1.0)));
+
+        Map<String,INDArray> ph = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 5, 8));
+        INDArray exp = sd.outputSingle(ph, "out");
+
+        InferenceSession is = sd.getSessions().get(Thread.currentThread().getId());
+        ArenaMemoryMgr mmgr = new ArenaMemoryMgr();
+        is.setMmgr(mmgr);
+
+        INDArray first = sd.outputSingle(ph, "out");
+        assertEquals(exp, first);
+        assertTrue(mmgr.getNumPlannedArrays() > 0);
+        assertTrue(mmgr.getPeakLiveBytes() <= mmgr.getArenaBytes());
+
+        //Steady state: all intermediate arrays from the arena
+        for( int i=0; i<3; i++ ) {
+            INDArray out = sd.outputSingle(ph, "out");
+            assertEquals(exp, out);
+            assertEquals(mmgr.getNumPlannedArrays(), mmgr.getNumArenaAllocations());
+            assertEquals(0, mmgr.getNumOtherAllocations());
+        }
+        //Returned arrays are not in the arena
+        assertEquals(exp, first);
+
+        //Different minibatch size: new plan
+        Map<String,INDArray> ph2 = Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 3, 8));
+        is.setMmgr(new ArrayCacheMemoryMgr());
+        INDArray exp2 = sd.outputSingle(ph2, "out");
+        is.setMmgr(mmgr);
+        assertEquals(exp2, sd.outputSingle(ph2, "out"));
+        assertEquals(exp2, sd.outputSingle(ph2, "out"));
+        assertEquals(0, mmgr.getNumOtherAllocations());
+    }
+
 }
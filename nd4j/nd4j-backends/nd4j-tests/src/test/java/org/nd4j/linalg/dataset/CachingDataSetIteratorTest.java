@@ -26,6 +26,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.nd4j.linalg.BaseNd4jTest;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.CachingDataSetIterator;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
@@ -33,12 +34,15 @@ import org.nd4j.linalg.dataset.api.iterator.SamplingDataSetIterator;
 import org.nd4j.linalg.dataset.api.iterator.cache.DataSetCache;
 import org.nd4j.linalg.dataset.api.iterator.cache.InFileDataSetCache;
 import org.nd4j.linalg.dataset.api.iterator.cache.InMemoryDataSetCache;
+import org.nd4j.linalg.dataset.api.iterator.cache.SegmentFileDataSetCache;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.factory.Nd4jBackend;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -71,6 +75,96 @@ public class CachingDataSetIteratorTest extends BaseNd4jTest {
         FileUtils.deleteDirectory(cacheDir.toFile());
     }
 
+    @Test
+    public void testSegmentFile() throws IOException {
+        Path cacheDir = Files.createTempDirectory("nd4j-data-set-cache-test");
+        DataSetCache cache = new SegmentFileDataSetCache(cacheDir.toFile(), 4096);
+
+        runDataSetTest(cache);
+
+        FileUtils.deleteDirectory(cacheDir.toFile());
+    }
+
+    @Test
+    public void testSegmentFileReopenAndShuffle() throws IOException {
+        Path cacheDir = Files.createTempDirectory("nd4j-data-set-cache-test");
+        DataSet dataSet = new DataSet(Nd4j.linspace(1, 300, 300).reshape(30, 10), Nd4j.rand(30, 3),
+                        null, Nd4j.ones(30, 3).castTo(DataType.INT));
+
+        String namespace = "test-namespace";
+        DataSetCache cache = new SegmentFileDataSetCache(cacheDir.toFile(), 1024);
+        CachingDataSetIterator cachedIt = new CachingDataSetIterator(new ViewIterator(dataSet, 3), cache, namespace);
+        while (cachedIt.hasNext()) {
+            cachedIt.next();
+        }
+        assertTrue(cache.isComplete(namespace));
+        assertTrue(cacheDir.toFile().listFiles().length > 2);
+
+        //New instance: index is read from disk
+        DataSetCache reopened = new SegmentFileDataSetCache(cacheDir.toFile(), 1024);
+        assertTrue(reopened.isComplete(namespace));
+        CachingDataSetIterator shuffledIt = new CachingDataSetIterator(new ViewIterator(dataSet, 3), reopened,
+                        namespace, false, true, 12345);
+        for (int epoch = 0; epoch < 2; epoch++) {
+            Set<Integer> seen = new HashSet<>();
+            while (shuffledIt.hasNext()) {
+                DataSet ds = shuffledIt.next();
+                int idx = (int) (ds.getFeatures().getDouble(0, 0) - 1) / 30;
+                assertEquals(dataSet.getRange(3 * idx, 3 * idx + 3), ds);
+                assertTrue(seen.add(idx));
+            }
+            assertEquals(10, seen.size());
+            shuffledIt.reset();
+        }
+
+        FileUtils.deleteDirectory(cacheDir.toFile());
+    }
+
+    @Test
+    public void testSegmentFileWriteAfterComplete() throws IOException {
+        Path cacheDir = Files.createTempDirectory("nd4j-data-set-cache-test");
+        DataSet ds1 = new DataSet(Nd4j.linspace(1, 20, 20).reshape(4, 5), Nd4j.rand(4, 2));
+        DataSet ds2 = new DataSet(Nd4j.linspace(21, 40, 20).reshape(4, 5), Nd4j.rand(4, 2));
+
+        SegmentFileDataSetCache cache = new SegmentFileDataSetCache(cacheDir.toFile());
+        cache.put("first", ds1);
+        //Completing the namespace closes the segment being written
+        cache.setComplete("ns1", true);
+        //Writing again continues the same segment
+        cache.put("second", ds2);
+        cache.setComplete("ns2", true);
+        assertEquals(ds1, cache.get("first"));
+        assertEquals(ds2, cache.get("second"));
+        cache.close();
+        assertEquals(2, cacheDir.toFile().listFiles().length);     //One segment, plus the index
+
+        SegmentFileDataSetCache reopened = new SegmentFileDataSetCache(cacheDir.toFile());
+        assertEquals(ds1, reopened.get("first"));
+        assertEquals(ds2, reopened.get("second"));
+        reopened.close();
+
+        FileUtils.deleteDirectory(cacheDir.toFile());
+    }
+
+    @Test
+    public void testSegmentFileReturnedArraysAreCopyOnWrite() throws IOException {
+        Path cacheDir = Files.createTempDirectory("nd4j-data-set-cache-test");
+        DataSet ds = new DataSet(Nd4j.linspace(1, 20, 20).reshape(4, 5), Nd4j.rand(4, 2));
+
+        SegmentFileDataSetCache cache = new SegmentFileDataSetCache(cacheDir.toFile());
+        cache.put("key", ds);
+        DataSet first = cache.get("key");
+        assertEquals(ds, first);
+
+        //In-place modification must affect neither the cache nor other reads
+        first.getFeatures().addi(100.0);
+        assertEquals(ds, cache.get("key"));
+        assertNotEquals(ds, first);
+        cache.close();
+
+        FileUtils.deleteDirectory(cacheDir.toFile());
+    }
+
     private void runDataSetTest(DataSetCache cache) {
         int rows = 500;
         int inputColumns = 100;
@@ -159,6 +159,14 @@ public class ND4JSystemProperties {
      */
     public static final String RESOURCES_LOCAL_DIRS = "org.nd4j.strumpf.resource.dirs";
 
+    /**
+     * Applicability: SameDiff TensorFlow and ONNX model import<br>
+     * Description: If set to true, imported graphs are optimized (constant folding, dead node elimination, op fusion, etc)
+     * using the SameDiff GraphOptimizer before being returned. A summary of the changes is logged.<br>
+     * Default: false
+     */
+    public static final String SAMEDIFF_OPTIMIZE_ON_IMPORT = "org.nd4j.samediff.import.optimize";
+
     private ND4JSystemProperties() {
     }
 }
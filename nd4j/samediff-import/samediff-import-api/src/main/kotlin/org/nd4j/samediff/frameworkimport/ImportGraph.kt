@@ -27,6 +27,7 @@ import org.nd4j.autodiff.samediff.SameDiff
 import org.nd4j.autodiff.samediff.VariableType
 import org.nd4j.autodiff.samediff.internal.SameDiffOp
 import org.nd4j.autodiff.samediff.internal.Variable
+import org.nd4j.autodiff.samediff.optimize.GraphOptimizer
 
 import org.nd4j.common.base.Preconditions
 import org.nd4j.common.io.ReflectionUtils
@@ -716,6 +717,7 @@ open class ImportGraph <GRAPH_TYPE: GeneratedMessageV3,
             remainingNodes.size,
             remainingNodes.keys
         )
+        GraphOptimizer.optimizeOnImport(sd)
         return sd
     }
 }